@@ -0,0 +1,137 @@
+package com.tsys.tc_spike.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Limits the number of requests in flight to what the database can currently
+// take, rejecting the excess right away instead of letting it queue.
+//
+// The limit adapts to the observed latency, in the style of the gradient
+// limiters: a fast moving average of the latency is compared with a slow moving
+// one (the baseline).  While they are close, the limit grows by about its
+// square root per sample; once the recent latency exceeds the baseline by more
+// than the tolerance, the limit shrinks in proportion (down to half per
+// sample).  On top of that, a drop - a request that waited too long for a
+// connection, or timed out waiting for one - shrinks the limit
+// multiplicatively, like AIMD does on packet loss.
+//
+// Samples are only taken while the limit is in use, an idle service keeps its
+// limit.
+public class AdaptiveConcurrencyLimiter {
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT = 1.0 / 500;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile int limit;
+
+    // Guarded by this.
+    private double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit)
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max, but were " +
+                    minLimit + ", " + initialLimit + ", " + maxLimit);
+
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    // Answers whether the request may proceed, in which case it must be released.
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+    // Releases an acquired request, given how long it took (negative when it
+    // yielded no comparable sample) and whether it was dropped.
+    public void release(long rttNanos, boolean drop) {
+        final int inFlightBefore = inFlight.getAndDecrement();
+        if (drop) {
+            dropped.increment();
+            onDrop();
+        } else if (rttNanos >= 0) {
+            onSample(rttNanos, inFlightBefore);
+        }
+    }
+
+    private synchronized void onDrop() {
+        setLimit(estimatedLimit * BACKOFF);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlight) {
+        if (longRttNanos == 0) {
+            shortRttNanos = longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_WEIGHT;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_WEIGHT;
+        // When the latency improved for good, let the baseline catch up quickly.
+        if (longRttNanos > 2 * shortRttNanos)
+            longRttNanos *= 0.95;
+
+        if (inFlight < estimatedLimit / 2)
+            return;
+
+        final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+        final double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        setLimit(estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING);
+    }
+
+    private void setLimit(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdaptiveConcurrencyLimiter{name=%s, limit=%d, inFlight=%d, accepted=%d, rejected=%d, dropped=%d}",
+                name, limit(), inFlight(), accepted(), rejected(), dropped());
+    }
+}
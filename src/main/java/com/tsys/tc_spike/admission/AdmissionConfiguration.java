@@ -0,0 +1,73 @@
+package com.tsys.tc_spike.admission;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Admission control is on by default and can be tuned using:
+//
+//   admission.enabled=true
+//   admission.reads.initial-limit=20      admission.reads.max-limit=200
+//   admission.writes.initial-limit=10     admission.writes.max-limit=100
+//   admission.min-limit=1
+//   admission.max-pool-wait-ms=50         a longer wait for a connection cuts the limit
+//   admission.retry-after-seconds=1
+//
+// The live feed does not use the database, so it is not limited.
+@Configuration
+@ConditionalOnProperty(value = "admission.enabled", matchIfMissing = true)
+public class AdmissionConfiguration {
+
+    @Bean
+    public ConnectionPoolSignals connectionPoolSignals() {
+        return new ConnectionPoolSignals();
+    }
+
+    // Static, as BeanPostProcessors are created before the other beans.
+    @Bean
+    public static BeanPostProcessor connectionPoolSignalsInstaller(ObjectProvider<ConnectionPoolSignals> signals) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && dataSource.getMetricsTrackerFactory() == null)
+                    dataSource.setMetricsTrackerFactory(signals.getObject());
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter readLimiter(@Value("${admission.reads.initial-limit:20}") int initialLimit,
+                                                  @Value("${admission.min-limit:1}") int minLimit,
+                                                  @Value("${admission.reads.max-limit:200}") int maxLimit) {
+        return new AdaptiveConcurrencyLimiter("reads", initialLimit, minLimit, maxLimit);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter writeLimiter(@Value("${admission.writes.initial-limit:10}") int initialLimit,
+                                                   @Value("${admission.min-limit:1}") int minLimit,
+                                                   @Value("${admission.writes.max-limit:100}") int maxLimit) {
+        return new AdaptiveConcurrencyLimiter("writes", initialLimit, minLimit, maxLimit);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(AdaptiveConcurrencyLimiter readLimiter,
+                                                                                 AdaptiveConcurrencyLimiter writeLimiter,
+                                                                                 ConnectionPoolSignals connectionPoolSignals,
+                                                                                 @Value("${admission.max-pool-wait-ms:50}") long maxPoolWaitMillis,
+                                                                                 @Value("${admission.retry-after-seconds:1}") int retryAfterSeconds) {
+        final var filter = new AdmissionControlFilter(readLimiter, writeLimiter, connectionPoolSignals,
+                TimeUnit.MILLISECONDS.toNanos(maxPoolWaitMillis), retryAfterSeconds, Set.of("/transactions/live"));
+        final var registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/transactions/*");
+        return registration;
+    }
+}
@@ -0,0 +1,118 @@
+package com.tsys.tc_spike.admission;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Puts the repository-backed endpoints behind adaptive concurrency limits, with
+// separate budgets for reads (GET, HEAD) and writes, so that a burst of
+// uploads cannot starve lookups and vice versa.  A request over the limit is
+// answered with 503 and a Retry-After at once, without touching the pool.
+//
+// The latency sample of a request is its duration, taken only when it used the
+// database, which includes the time it waited for a connection.  A request
+// that waited longer than max-pool-wait for a connection (or timed out) counts
+// as a drop: the pool is saturated, so the limit is cut right away.
+//
+// Asynchronous requests (streamed exports) hold their permit until they
+// complete, but their duration says more about the client than about the
+// database, so they yield no sample.
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final Set<String> READS = Set.of("GET", "HEAD");
+
+    private final AdaptiveConcurrencyLimiter reads;
+    private final AdaptiveConcurrencyLimiter writes;
+    private final ConnectionPoolSignals signals;
+    private final long maxPoolWaitNanos;
+    private final String retryAfterSeconds;
+    private final Set<String> excludedPaths;
+
+    public AdmissionControlFilter(AdaptiveConcurrencyLimiter reads, AdaptiveConcurrencyLimiter writes,
+                                  ConnectionPoolSignals signals, long maxPoolWaitNanos, int retryAfterSeconds,
+                                  Set<String> excludedPaths) {
+        this.reads = reads;
+        this.writes = writes;
+        this.signals = signals;
+        this.maxPoolWaitNanos = maxPoolWaitNanos;
+        this.retryAfterSeconds = Integer.toString(retryAfterSeconds);
+        this.excludedPaths = excludedPaths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return excludedPaths.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        final var limiter = READS.contains(request.getMethod()) ? reads : writes;
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final var usage = signals.track();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            signals.untrack();
+            if (request.isAsyncStarted())
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(limiter, usage));
+            else
+                limiter.release(usage.usedDatabase() || !signals.installed() ? System.nanoTime() - start : -1, isDrop(usage));
+        }
+    }
+
+    private boolean isDrop(ConnectionPoolSignals.Usage usage) {
+        return usage.timedOut() || usage.waitNanos() > maxPoolWaitNanos;
+    }
+
+    private class ReleaseOnCompletion implements AsyncListener {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final ConnectionPoolSignals.Usage usage;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseOnCompletion(AdaptiveConcurrencyLimiter limiter, ConnectionPoolSignals.Usage usage) {
+            this.limiter = limiter;
+            this.usage = usage;
+        }
+
+        // Error and timeout are followed by complete, release only once.
+        private void release() {
+            if (released.compareAndSet(false, true))
+                limiter.release(-1, isDrop(usage));
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.tsys.tc_spike.admission;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Hikari reports the time every connection request waited for the pool, and
+// every request that timed out, on the very thread that asked for the
+// connection.  That lets the AdmissionControlFilter attribute the pool wait to
+// the HTTP request being served on that thread.
+//
+// One instance is shared by all the connection pools there are.
+public class ConnectionPoolSignals implements MetricsTrackerFactory {
+    private static final ThreadLocal<Usage> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final List<PoolStats> pools = new CopyOnWriteArrayList<>();
+
+    // What one request did with the pool.
+    public static final class Usage {
+        private int connections;
+        private long waitNanos;
+        private boolean timedOut;
+
+        public boolean usedDatabase() {
+            return connections > 0 || timedOut;
+        }
+
+        public long waitNanos() {
+            return waitNanos;
+        }
+
+        public boolean timedOut() {
+            return timedOut;
+        }
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        pools.add(poolStats);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                waitNanos.add(elapsedAcquiredNanos);
+                final var usage = CURRENT.get();
+                if (usage != null) {
+                    usage.connections++;
+                    usage.waitNanos += elapsedAcquiredNanos;
+                }
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+                final var usage = CURRENT.get();
+                if (usage != null)
+                    usage.timedOut = true;
+            }
+        };
+    }
+
+    // Whether Hikari reports to us at all (it does not for other DataSources).
+    public boolean installed() {
+        return !pools.isEmpty();
+    }
+
+    // Starts attributing the pool usage of the current thread to a new Usage.
+    Usage track() {
+        final var usage = new Usage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    void untrack() {
+        CURRENT.remove();
+    }
+
+    public long acquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long timeouts() {
+        return timeouts.sum();
+    }
+
+    public double averageWaitMillis() {
+        final long count = acquisitions();
+        return count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+    }
+
+    // Threads currently blocked waiting for a connection, in any pool.
+    public int pendingThreads() {
+        return pools.stream().mapToInt(PoolStats::getPendingThreads).sum();
+    }
+}
@@ -0,0 +1,7 @@
+package com.tsys.tc_spike.archive;
+
+import java.time.Instant;
+
+// The segments and rows archived by a run, all dated before the cutoff.
+public record ArchivalSummary(Instant cutoff, int segments, long rows, long elapsedMillis) {
+}
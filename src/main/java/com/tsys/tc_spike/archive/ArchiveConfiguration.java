@@ -0,0 +1,70 @@
+package com.tsys.tc_spike.archive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+// Lookups by id and orderId always fall through to the archive (see
+// TransactionLookups), whose segments are filtered with:
+//
+//   archive.bloom-fpp=0.01
+//   archive.segment-refresh-ms=10000
+//   archive.opened-segments-cached=16
+//
+// Transactions are only moved to the archive when an age is configured, for
+// example:
+//
+//   archive.max-age=P400D
+//   archive.segment-size=10000
+//   archive.interval-ms=3600000
+@Configuration
+@EnableScheduling
+public class ArchiveConfiguration {
+
+    @Bean
+    public TransactionArchive transactionArchive(JdbcTemplate jdbcTemplate,
+                                                 @Value("${archive.bloom-fpp:0.01}") double bloomFpp,
+                                                 @Value("${archive.segment-refresh-ms:10000}") long refreshIntervalMillis,
+                                                 @Value("${archive.opened-segments-cached:16}") int openedSegmentsCached) {
+        return new TransactionArchive(jdbcTemplate, bloomFpp, refreshIntervalMillis, openedSegmentsCached);
+    }
+
+    @Bean
+    public TransactionArchiver transactionArchiver(JdbcTemplate jdbcTemplate,
+                                                   TransactionTemplate transactionTemplate,
+                                                   TransactionArchive transactionArchive,
+                                                   ApplicationEventPublisher publisher,
+                                                   @Value("${archive.segment-size:10000}") int segmentSize) {
+        return new TransactionArchiver(jdbcTemplate, transactionTemplate, transactionArchive, publisher, segmentSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty("archive.max-age")
+    public TransactionArchiveScheduler transactionArchiveScheduler(TransactionArchiver transactionArchiver,
+                                                                   @Value("${archive.max-age}") Duration maxAge) {
+        return new TransactionArchiveScheduler(transactionArchiver, maxAge);
+    }
+
+    static class TransactionArchiveScheduler {
+        private final TransactionArchiver archiver;
+        private final Duration maxAge;
+
+        TransactionArchiveScheduler(TransactionArchiver archiver, Duration maxAge) {
+            this.archiver = archiver;
+            this.maxAge = maxAge;
+        }
+
+        @Scheduled(fixedDelayString = "${archive.interval-ms:3600000}")
+        void archive() {
+            archiver.archiveOlderThan(maxAge);
+        }
+    }
+}
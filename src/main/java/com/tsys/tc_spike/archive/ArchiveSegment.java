@@ -0,0 +1,53 @@
+package com.tsys.tc_spike.archive;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+// A segment of archived transactions: up to archive.segment-size rows moved out
+// of the transactions table together, deflated into one payload (in the
+// TransactionBinary format), with a Bloom filter of their ids and one of their
+// orderIds, so that lookups only open the segments that may hold a match.
+@Entity
+@Table(name = "transaction_archive_segments")
+public class ArchiveSegment {
+    static final int MAX_FILTER_SIZE = 1 << 20;
+    static final int MAX_PAYLOAD_SIZE = 64 << 20;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public final Long id;
+
+    public final Instant fromDate;
+    public final Instant toDate;
+    public final int transactionsCount;
+    @Column(length = MAX_FILTER_SIZE, nullable = false)
+    public final byte[] idFilter;
+    @Column(length = MAX_FILTER_SIZE, nullable = false)
+    public final byte[] orderIdFilter;
+    @Column(length = MAX_PAYLOAD_SIZE, nullable = false)
+    public final byte[] payload;
+    public final Instant createdAt;
+
+    @Deprecated
+    ArchiveSegment() {
+        this(null, null, null, 0, null, null, null, null);
+    }
+
+    public ArchiveSegment(Long id, Instant fromDate, Instant toDate, int transactionsCount, byte[] idFilter, byte[] orderIdFilter,
+                          byte[] payload, Instant createdAt) {
+        this.id = id;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.transactionsCount = transactionsCount;
+        this.idFilter = idFilter;
+        this.orderIdFilter = orderIdFilter;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+}
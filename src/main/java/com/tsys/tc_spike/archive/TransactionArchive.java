@@ -0,0 +1,271 @@
+package com.tsys.tc_spike.archive;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import com.tsys.tc_spike.binary.TransactionBinaryDecoder;
+import com.tsys.tc_spike.binary.TransactionBinaryEncoder;
+import com.tsys.tc_spike.domain.Transaction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// The archive of transactions moved out of the transactions table (see
+// TransactionArchiver), as ArchiveSegments.
+//
+// Lookups keep the Bloom filters of all segments in memory, and open (read,
+// inflate and decode) only the segments whose filter may contain the id or
+// orderId looked for, newest first.  So a lookup of a transaction that was
+// never archived - the common case, as the archive is only asked after a miss
+// in the transactions table - touches no segment at all, but for the odd false
+// positive (archive.bloom-fpp per segment).  The filters of segments written
+// by other instances are picked up at most archive.segment-refresh-ms later,
+// and the last segments opened are kept decoded.
+//
+// Archived transactions are read-only: they are answered detached, at the
+// version they had when archived (stored ahead of each record of a segment),
+// and saving one would put it back into the transactions table.
+public class TransactionArchive {
+    private static final Funnel<UUID> ID_FUNNEL = (id, into) -> into
+            .putLong(id.getMostSignificantBits())
+            .putLong(id.getLeastSignificantBits());
+    private static final Funnel<CharSequence> ORDER_ID_FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+
+    // Keeps the IN lists well below the bind parameter limits of all databases.
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private record Segment(long id, BloomFilter<UUID> ids, BloomFilter<CharSequence> orderIds) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double bloomFpp;
+    private final long refreshIntervalNanos;
+    private final Cache<Long, List<Transaction>> opened;
+    // Newest first, replaced as a whole on refresh.
+    private volatile List<Segment> segments = List.of();
+    private volatile long refreshedAt;
+    private volatile boolean loaded;
+    private final LongAdder segmentsOpened = new LongAdder();
+    private final LongAdder segmentsSkipped = new LongAdder();
+
+    public TransactionArchive(JdbcTemplate jdbcTemplate, double bloomFpp, long refreshIntervalMillis, int openedSegmentsCached) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bloomFpp = bloomFpp;
+        this.refreshIntervalNanos = refreshIntervalMillis * 1_000_000;
+        this.opened = CacheBuilder.newBuilder().maximumSize(openedSegmentsCached).build();
+    }
+
+    public Optional<Transaction> findById(UUID id) {
+        return find(segment -> segment.ids.mightContain(id), transaction -> transaction.id.equals(id));
+    }
+
+    public Optional<Transaction> findByOrderId(String orderId) {
+        return find(segment -> segment.orderIds.mightContain(orderId), transaction -> orderId.equals(transaction.orderId));
+    }
+
+    public int segments() {
+        refreshIfStale();
+        return segments.size();
+    }
+
+    // Segments read and decoded by lookups, and those the Bloom filters saved
+    // them from reading.
+    public long segmentsOpened() {
+        return segmentsOpened.sum();
+    }
+
+    public long segmentsSkipped() {
+        return segmentsSkipped.sum();
+    }
+
+    // Writes the transactions as a new segment, in the caller's database
+    // transaction, answering its id.  Lookups find them after the next refresh.
+    long write(List<Transaction> transactions) {
+        final var ids = BloomFilter.create(ID_FUNNEL, transactions.size(), bloomFpp);
+        final var orderIds = BloomFilter.create(ORDER_ID_FUNNEL, transactions.size(), bloomFpp);
+        Instant from = null, to = null;
+        int size = 6;
+        for (Transaction transaction : transactions) {
+            ids.put(transaction.id);
+            orderIds.put(transaction.orderId);
+            if (from == null || transaction.date.isBefore(from))
+                from = transaction.date;
+            if (to == null || transaction.date.isAfter(to))
+                to = transaction.date;
+            size += 8 + TransactionBinaryEncoder.maxTransactionSize(transaction);
+        }
+        final var encoder = new TransactionBinaryEncoder();
+        final var buffer = ByteBuffer.allocate(size);
+        encoder.writeHeader(buffer, false);
+        for (Transaction transaction : transactions) {
+            buffer.putLong(transaction.version());
+            encoder.encode(transaction, buffer);
+        }
+
+        final var payload = deflate(buffer.array(), buffer.position());
+        final var idFilter = bytes(ids);
+        final var orderIdFilter = bytes(orderIds);
+        final var keyHolder = new GeneratedKeyHolder();
+        final var fromDate = Timestamp.from(from);
+        final var toDate = Timestamp.from(to);
+        jdbcTemplate.update(connection -> {
+            final var statement = connection.prepareStatement("INSERT INTO transaction_archive_segments " +
+                    "(from_date, to_date, transactions_count, id_filter, order_id_filter, payload, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    new String[]{"id"});
+            final var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            statement.setTimestamp(1, fromDate, utc);
+            statement.setTimestamp(2, toDate, utc);
+            statement.setInt(3, transactions.size());
+            statement.setBytes(4, idFilter);
+            statement.setBytes(5, orderIdFilter);
+            statement.setBytes(6, payload);
+            statement.setTimestamp(7, Timestamp.from(Instant.now()), utc);
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    // Loads the filters of the segments written (and forgets those removed)
+    // since the last refresh.  Segment ids of concurrent archivers may commit
+    // out of order, so all ids are listed rather than only the newer ones.
+    public synchronized void refresh() {
+        final var ids = jdbcTemplate.queryForList("SELECT id FROM transaction_archive_segments ORDER BY id DESC", Long.class);
+        final Map<Long, Segment> known = new HashMap<>();
+        segments.forEach(segment -> known.put(segment.id, segment));
+        final List<Long> missing = ids.stream().filter(id -> !known.containsKey(id)).toList();
+        for (List<Long> chunk : Lists.partition(missing, LOAD_CHUNK_SIZE))
+            jdbcTemplate.query("SELECT id, id_filter, order_id_filter FROM transaction_archive_segments WHERE id IN (" +
+                            String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                    (RowCallbackHandler) rs -> known.put(rs.getLong("id"), new Segment(rs.getLong("id"),
+                            filter(rs.getBytes("id_filter"), ID_FUNNEL),
+                            filter(rs.getBytes("order_id_filter"), ORDER_ID_FUNNEL))),
+                    chunk.toArray());
+        segments = ids.stream().map(known::get).filter(Objects::nonNull).toList();
+        refreshedAt = System.nanoTime();
+        loaded = true;
+    }
+
+    private void refreshIfStale() {
+        if (!loaded || System.nanoTime() - refreshedAt > refreshIntervalNanos)
+            refresh();
+    }
+
+    private Optional<Transaction> find(Predicate<Segment> mightContain, Predicate<Transaction> matches) {
+        refreshIfStale();
+        for (Segment segment : segments) {
+            if (!mightContain.test(segment)) {
+                segmentsSkipped.increment();
+                continue;
+            }
+            for (Transaction transaction : open(segment.id))
+                if (matches.test(transaction))
+                    return Optional.of(transaction);
+        }
+        return Optional.empty();
+    }
+
+    private List<Transaction> open(long segmentId) {
+        try {
+            return opened.get(segmentId, () -> {
+                segmentsOpened.increment();
+                final List<byte[]> payloads = jdbcTemplate.query("SELECT payload FROM transaction_archive_segments WHERE id = ?",
+                        (rs, rowNum) -> rs.getBytes(1), segmentId);
+                // Gone (say, purged) since the filters were loaded.
+                if (payloads.isEmpty())
+                    return List.of();
+                final var buffer = ByteBuffer.wrap(inflate(payloads.get(0)));
+                final var decoder = new TransactionBinaryDecoder();
+                decoder.readHeader(buffer);
+                final List<Transaction> transactions = new ArrayList<>();
+                while (buffer.hasRemaining()) {
+                    final long version = buffer.getLong();
+                    transactions.add(decoder.decodeTransaction(buffer).withVersion(version));
+                }
+                return transactions;
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not open archive segment " + segmentId, e.getCause());
+        }
+    }
+
+    private static byte[] bytes(BloomFilter<?> filter) {
+        final var out = new ByteArrayOutputStream();
+        try {
+            filter.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static <T> BloomFilter<T> filter(byte[] bytes, Funnel<? super T> funnel) {
+        try {
+            return BloomFilter.readFrom(new ByteArrayInputStream(bytes), funnel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] deflate(byte[] raw, int length) {
+        final var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            final var out = new ByteArrayOutputStream(Math.max(64, length / 4));
+            final var chunk = new byte[8192];
+            while (!deflater.finished())
+                out.write(chunk, 0, deflater.deflate(chunk));
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        final var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            final var out = new ByteArrayOutputStream(compressed.length * 4);
+            final var chunk = new byte[8192];
+            while (!inflater.finished()) {
+                final int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalStateException("Truncated archive segment");
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive segment", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.tsys.tc_spike.archive;
+
+import com.tsys.tc_spike.datasource.Workload;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionArchived;
+import com.tsys.tc_spike.repository.TransactionIds;
+import com.tsys.tc_spike.repository.TransactionRowMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+// Moves the transactions older than a given age out of the transactions table
+// into the TransactionArchive, one segment at a time.
+//
+// Every segment is a short database transaction of its own, in the BATCH pool:
+// claim the oldest segmentSize rows with SELECT ... FOR UPDATE SKIP LOCKED (so
+// rows an OLTP transaction holds are left for a later run, rather than waited
+// for), write them as a segment, and delete them.  Nothing is ever locked for
+// longer than one segment takes, and an interrupted run loses nothing: the
+// rows of a segment leave the table in the very transaction that archives them.
+//
+// The rows are deleted using plain JDBC, and a TransactionArchived is
+// published for each of them rather than a DELETED TransactionChanged, as
+// they are still found in the archive: the indexes over the transactions
+// table forget them, and later lookups fall through to the archive.
+public class TransactionArchiver {
+    private static final String SELECT = "SELECT id, version, date, status, order_id, amount, currency FROM transactions " +
+            "WHERE date < ? ORDER BY date LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionArchive archive;
+    private final ApplicationEventPublisher publisher;
+    private final int segmentSize;
+    private final TransactionIds transactionIds;
+
+    public TransactionArchiver(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, TransactionArchive archive,
+                               ApplicationEventPublisher publisher, int segmentSize) {
+        if (segmentSize < 1)
+            throw new IllegalArgumentException("The segment size must be positive, not " + segmentSize);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.archive = archive;
+        this.publisher = publisher;
+        this.segmentSize = segmentSize;
+        this.transactionIds = new TransactionIds(jdbcTemplate.getDataSource());
+    }
+
+    public ArchivalSummary archiveOlderThan(Duration age) {
+        final long start = System.nanoTime();
+        final var cutoff = Instant.now().minus(age);
+        int segments = 0;
+        long rows = 0;
+        int archived;
+        do {
+            archived = Workload.BATCH.call(() -> transactionTemplate.execute(status -> archiveSegment(cutoff)));
+            if (archived > 0) {
+                segments++;
+                rows += archived;
+            }
+        } while (archived == segmentSize);
+        if (segments > 0)
+            archive.refresh();
+        return new ArchivalSummary(cutoff, segments, rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int archiveSegment(Instant cutoff) {
+        final var mapper = new TransactionRowMapper();
+        final List<Transaction> transactions = jdbcTemplate.query(SELECT, statement -> {
+            statement.setTimestamp(1, Timestamp.from(cutoff), Calendar.getInstance(TimeZone.getTimeZone("UTC")));
+            statement.setInt(2, segmentSize);
+        }, (rs, rowNum) -> mapper.mapRow(rs, rowNum).withVersion(rs.getLong("version")));
+        if (transactions.isEmpty())
+            return 0;
+
+        archive.write(transactions);
+        final List<Object[]> ids = transactions.stream().map(transaction -> new Object[]{transactionIds.parameter(transaction.id)}).toList();
+        jdbcTemplate.batchUpdate("DELETE FROM transactions WHERE id = ?", ids);
+        for (Transaction transaction : transactions)
+            publisher.publishEvent(new TransactionArchived(transaction));
+        return transactions.size();
+    }
+}
@@ -0,0 +1,84 @@
+package com.tsys.tc_spike.batch;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+// How far a partition of a job has got: the key of the last item of the last
+// committed chunk, the number of items read and written so far, and whether
+// the partition has been read to its end.
+@Entity
+@Table(name = "batch_checkpoints")
+@IdClass(BatchCheckpoint.Key.class)
+public class BatchCheckpoint {
+
+    @Id
+    @Column(length = 100)
+    public final String jobName;
+    @Id
+    public final int partitionNo;
+
+    public final int partitions;
+    @Column(length = 36)
+    public final String lastKey;
+    public final long itemsRead;
+    public final long itemsWritten;
+    public final boolean completed;
+    public final Instant updatedAt;
+
+    @Deprecated
+    BatchCheckpoint() {
+        this(null, 0, 0, null, 0L, 0L, false, null);
+    }
+
+    public BatchCheckpoint(String jobName, int partitionNo, int partitions, String lastKey, long itemsRead, long itemsWritten,
+                           boolean completed, Instant updatedAt) {
+        this.jobName = jobName;
+        this.partitionNo = partitionNo;
+        this.partitions = partitions;
+        this.lastKey = lastKey;
+        this.itemsRead = itemsRead;
+        this.itemsWritten = itemsWritten;
+        this.completed = completed;
+        this.updatedAt = updatedAt;
+    }
+
+    public static class Key implements Serializable {
+        private String jobName;
+        private int partitionNo;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            Key that = (Key) o;
+            return partitionNo == that.partitionNo && Objects.equals(jobName, that.jobName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jobName, partitionNo);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchCheckpoint{" +
+                "jobName='" + jobName + '\'' +
+                ", partitionNo=" + partitionNo +
+                ", lastKey='" + lastKey + '\'' +
+                ", itemsRead=" + itemsRead +
+                ", itemsWritten=" + itemsWritten +
+                ", completed=" + completed +
+                '}';
+    }
+}
@@ -0,0 +1,27 @@
+package com.tsys.tc_spike.batch;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Jobs take their connections from the BATCH pool (datasource.pools.batch.*),
+// so give a job at most as many partitions as that pool has connections.
+@Configuration
+public class BatchConfiguration {
+
+    @Bean
+    public CheckpointStore checkpointStore(JdbcTemplate jdbcTemplate) {
+        return new CheckpointStore(jdbcTemplate);
+    }
+
+    @Bean
+    public ChunkedBatchRunner chunkedBatchRunner(TransactionTemplate transactionTemplate, CheckpointStore checkpointStore) {
+        return new ChunkedBatchRunner(transactionTemplate, checkpointStore);
+    }
+
+    @Bean
+    public TransactionChunkReader transactionChunkReader(JdbcTemplate jdbcTemplate) {
+        return new TransactionChunkReader(jdbcTemplate);
+    }
+}
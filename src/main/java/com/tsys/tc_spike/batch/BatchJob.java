@@ -0,0 +1,22 @@
+package com.tsys.tc_spike.batch;
+
+// A job reads, processes and writes its items in chunks, in as many
+// partitions (key ranges run in parallel) as given.  The name identifies its
+// checkpoints, so a job run again under the same name resumes where it left
+// off.
+public record BatchJob<I, O>(String name,
+                             ChunkReader<I> reader,
+                             ChunkProcessor<I, O> processor,
+                             ChunkWriter<O> writer,
+                             int chunkSize,
+                             int partitions) {
+
+    public BatchJob {
+        if (name == null || name.isBlank())
+            throw new IllegalArgumentException("A job must have a name");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be at least 1, but was " + chunkSize);
+        if (partitions < 1)
+            throw new IllegalArgumentException("partitions must be at least 1, but was " + partitions);
+    }
+}
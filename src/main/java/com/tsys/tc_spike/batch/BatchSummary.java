@@ -0,0 +1,10 @@
+package com.tsys.tc_spike.batch;
+
+// What a run of a job did: the items read and written by this run (not by
+// earlier, interrupted ones), the chunks committed, and how long it took.
+public record BatchSummary(String jobName, long itemsRead, long itemsWritten, long chunks, long elapsedMillis) {
+
+    public double itemsPerSecond() {
+        return elapsedMillis == 0 ? itemsRead : itemsRead * 1000d / elapsedMillis;
+    }
+}
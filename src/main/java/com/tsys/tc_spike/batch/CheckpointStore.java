@@ -0,0 +1,66 @@
+package com.tsys.tc_spike.batch;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// Keeps the BatchCheckpoints of the jobs in the batch_checkpoints table.
+public class CheckpointStore {
+    private static final String COLUMNS = "job_name, partition_no, partitions, last_key, items_read, items_written, completed, updated_at";
+    private static final RowMapper<BatchCheckpoint> ROW_MAPPER = (rs, rowNum) -> new BatchCheckpoint(
+            rs.getString("job_name"),
+            rs.getInt("partition_no"),
+            rs.getInt("partitions"),
+            rs.getString("last_key"),
+            rs.getLong("items_read"),
+            rs.getLong("items_written"),
+            rs.getBoolean("completed"),
+            rs.getTimestamp("updated_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CheckpointStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // The checkpoints of all partitions of the job, starting it (with no
+    // progress) unless it has been started before.  A job cannot be resumed
+    // with another number of partitions, as the key ranges would not match.
+    public List<BatchCheckpoint> start(String jobName, int partitions) {
+        final var existing = progress(jobName);
+        if (!existing.isEmpty()) {
+            if (existing.get(0).partitions != partitions)
+                throw new IllegalStateException("Job " + jobName + " was started with " + existing.get(0).partitions +
+                        " partitions, reset it to run it with " + partitions);
+            return existing;
+        }
+
+        final var now = Timestamp.from(Instant.now());
+        for (int p = 0; p < partitions; p++)
+            jdbcTemplate.update("INSERT INTO batch_checkpoints (" + COLUMNS + ") VALUES (?, ?, ?, NULL, 0, 0, ?, ?)",
+                    jobName, p, partitions, false, now);
+        return progress(jobName);
+    }
+
+    // Records that a chunk of the partition has been read and written, to be
+    // called in the database transaction of the chunk.
+    public void advance(String jobName, int partitionNo, UUID lastKey, int read, int written, boolean completed) {
+        jdbcTemplate.update("UPDATE batch_checkpoints SET last_key = ?, items_read = items_read + ?, items_written = items_written + ?, " +
+                        "completed = ?, updated_at = ? WHERE job_name = ? AND partition_no = ?",
+                lastKey == null ? null : lastKey.toString(), read, written, completed, Timestamp.from(Instant.now()), jobName, partitionNo);
+    }
+
+    public List<BatchCheckpoint> progress(String jobName) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM batch_checkpoints WHERE job_name = ? ORDER BY partition_no",
+                ROW_MAPPER, jobName);
+    }
+
+    // Forgets the progress of the job, so that it runs from the start again.
+    public void reset(String jobName) {
+        jdbcTemplate.update("DELETE FROM batch_checkpoints WHERE job_name = ?", jobName);
+    }
+}
@@ -0,0 +1,7 @@
+package com.tsys.tc_spike.batch;
+
+// Turns an item read into the one to write, or null to skip it.
+public interface ChunkProcessor<I, O> {
+
+    O process(I item);
+}
@@ -0,0 +1,16 @@
+package com.tsys.tc_spike.batch;
+
+import java.util.List;
+import java.util.UUID;
+
+// Reads a job's items by keyset: the next chunk of at most size items of the
+// range whose keys come after the given one (or from the start of the range,
+// if none), in the order of their keys.  Reading by key rather than by offset
+// costs the same for the last chunk as for the first, and the last key read is
+// all that needs to be checkpointed to resume.
+public interface ChunkReader<T> {
+
+    List<T> read(KeyRange range, UUID after, int size);
+
+    UUID keyOf(T item);
+}
@@ -0,0 +1,12 @@
+package com.tsys.tc_spike.batch;
+
+import java.util.List;
+
+// Writes the processed items of a chunk.  It runs in the database transaction
+// of the chunk, which also advances the checkpoint, so either both the writes
+// and the checkpoint are committed, or neither is and the chunk is read again
+// on restart.
+public interface ChunkWriter<O> {
+
+    void write(List<O> items);
+}
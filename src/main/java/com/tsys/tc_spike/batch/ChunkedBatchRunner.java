@@ -0,0 +1,139 @@
+package com.tsys.tc_spike.batch;
+
+import com.tsys.tc_spike.datasource.Workload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs BatchJobs chunk by chunk, instead of loading everything (findAll) into
+// one ever-growing persistence context.
+//
+// Every partition of a job runs on its own thread over its own KeyRange.  Each
+// chunk is read, processed and written in a database transaction of its own,
+// which also advances the checkpoint of the partition.  Hence, at most one
+// chunk per partition is in memory at any time, however many rows the job
+// visits, and a job that fails (or whose process dies) resumes after the last
+// committed chunk when run again, rather than from the start.  Partitions that
+// completed are not run again.
+//
+// Should a partition fail, the others stop after their current chunk, and the
+// run fails with the first error.  All work runs as the BATCH workload.
+public class ChunkedBatchRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkedBatchRunner.class);
+
+    private record Chunk(UUID lastKey, int read, int written, boolean last) {
+    }
+
+    private record Progress(long read, long written, long chunks) {
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final CheckpointStore checkpoints;
+
+    public ChunkedBatchRunner(TransactionTemplate transactionTemplate, CheckpointStore checkpoints) {
+        this.transactionTemplate = transactionTemplate;
+        this.checkpoints = checkpoints;
+    }
+
+    public CheckpointStore checkpoints() {
+        return checkpoints;
+    }
+
+    public <I, O> BatchSummary run(BatchJob<I, O> job) {
+        final long start = System.nanoTime();
+        final var started = checkpoints.start(job.name(), job.partitions());
+        final var stop = new AtomicBoolean();
+        final var threads = new AtomicInteger();
+        final var executor = Executors.newFixedThreadPool(job.partitions(), runnable -> {
+            final var thread = new Thread(runnable, "batch-" + job.name() + "-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<Progress>> partitions = new ArrayList<>();
+            for (KeyRange range : KeyRange.split(job.partitions())) {
+                final var checkpoint = started.get(range.partition());
+                if (!checkpoint.completed)
+                    partitions.add(executor.submit(() -> runPartition(job, range, checkpoint, stop)));
+            }
+            return summarise(job, partitions, start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <I, O> Progress runPartition(BatchJob<I, O> job, KeyRange range, BatchCheckpoint checkpoint, AtomicBoolean stop) {
+        UUID after = checkpoint.lastKey == null ? null : UUID.fromString(checkpoint.lastKey);
+        long read = 0, written = 0, chunks = 0;
+        try {
+            while (!stop.get()) {
+                final var chunk = processChunk(job, range, after);
+                read += chunk.read;
+                written += chunk.written;
+                chunks++;
+                after = chunk.lastKey;
+                if (chunk.last)
+                    break;
+            }
+            return new Progress(read, written, chunks);
+        } catch (RuntimeException e) {
+            stop.set(true);
+            LOG.warn("Partition {} of job {} failed after key {}, it resumes from there when run again", range.partition(), job.name(), after, e);
+            throw e;
+        }
+    }
+
+    private <I, O> Chunk processChunk(BatchJob<I, O> job, KeyRange range, UUID after) {
+        try (var ignored = Workload.BATCH.enter()) {
+            return transactionTemplate.execute(status -> {
+                final List<I> items = job.reader().read(range, after, job.chunkSize());
+                final List<O> processed = new ArrayList<>(items.size());
+                for (I item : items) {
+                    final O output = job.processor().process(item);
+                    if (output != null)
+                        processed.add(output);
+                }
+                if (!processed.isEmpty())
+                    job.writer().write(processed);
+
+                final var lastKey = items.isEmpty() ? after : job.reader().keyOf(items.get(items.size() - 1));
+                final boolean last = items.size() < job.chunkSize();
+                checkpoints.advance(job.name(), range.partition(), lastKey, items.size(), processed.size(), last);
+                return new Chunk(lastKey, items.size(), processed.size(), last);
+            });
+        }
+    }
+
+    private static BatchSummary summarise(BatchJob<?, ?> job, List<Future<Progress>> partitions, long start) {
+        long read = 0, written = 0, chunks = 0;
+        RuntimeException failure = null;
+        for (Future<Progress> partition : partitions) {
+            try {
+                final var progress = partition.get();
+                read += progress.read;
+                written += progress.written;
+                chunks += progress.chunks;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while running job " + job.name(), e);
+            } catch (ExecutionException e) {
+                if (failure == null)
+                    failure = new IllegalStateException("Job " + job.name() + " failed", e.getCause());
+                else
+                    failure.addSuppressed(e.getCause());
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return new BatchSummary(job.name(), read, written, chunks, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,42 @@
+package com.tsys.tc_spike.batch;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// A slice of the UUID key space, from (inclusive) to (exclusive), processed by
+// one partition of a job.  A null bound is open, so the first range starts at
+// the very beginning and the last one runs to the very end.
+//
+// The ranges split the space evenly by the most significant 64 bits.  As the
+// ids are random (or name based, that is hashed) UUIDs, every range holds
+// about the same number of rows, without having to scan the table to find the
+// boundaries.  The databases compare UUIDs byte by byte, that is as unsigned
+// numbers, and so do the boundaries.
+public record KeyRange(int partition, UUID from, UUID to) {
+    private static final BigInteger KEY_SPACE = BigInteger.ONE.shiftLeft(64);
+
+    public static List<KeyRange> split(int partitions) {
+        if (partitions < 1)
+            throw new IllegalArgumentException("partitions must be at least 1, but was " + partitions);
+
+        final List<KeyRange> ranges = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++)
+            ranges.add(new KeyRange(p, p == 0 ? null : boundary(p, partitions), p == partitions - 1 ? null : boundary(p + 1, partitions)));
+        return ranges;
+    }
+
+    private static UUID boundary(int p, int partitions) {
+        return new UUID(KEY_SPACE.multiply(BigInteger.valueOf(p)).divide(BigInteger.valueOf(partitions)).longValue(), 0);
+    }
+
+    public boolean contains(UUID key) {
+        return (from == null || compareUnsigned(key, from) >= 0) && (to == null || compareUnsigned(key, to) < 0);
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        final int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}
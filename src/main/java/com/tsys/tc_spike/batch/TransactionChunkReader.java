@@ -0,0 +1,49 @@
+package com.tsys.tc_spike.batch;
+
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionIds;
+import com.tsys.tc_spike.repository.TransactionRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Reads the transactions of a key range in chunks, by their ids, using plain
+// JDBC.  The rows are mapped to detached Transactions, never to managed
+// entities, so there is no persistence context to grow (or to dirty-check on
+// commit) however many chunks are read.
+public class TransactionChunkReader implements ChunkReader<Transaction> {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionIds transactionIds;
+
+    public TransactionChunkReader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionIds = new TransactionIds(jdbcTemplate.getDataSource());
+    }
+
+    @Override
+    public List<Transaction> read(KeyRange range, UUID after, int size) {
+        final var sql = new StringBuilder("SELECT id, date, status, order_id, amount, currency FROM transactions WHERE 1 = 1");
+        final List<Object> parameters = new ArrayList<>();
+        if (after != null) {
+            sql.append(" AND id > ?");
+            parameters.add(transactionIds.parameter(after));
+        } else if (range.from() != null) {
+            sql.append(" AND id >= ?");
+            parameters.add(transactionIds.parameter(range.from()));
+        }
+        if (range.to() != null) {
+            sql.append(" AND id < ?");
+            parameters.add(transactionIds.parameter(range.to()));
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        parameters.add(size);
+        return jdbcTemplate.query(sql.toString(), new TransactionRowMapper(), parameters.toArray());
+    }
+
+    @Override
+    public UUID keyOf(Transaction transaction) {
+        return transaction.id;
+    }
+}
@@ -0,0 +1,158 @@
+package com.tsys.tc_spike.binary;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+
+// application/x-txn-binary: a compact binary stream of Transactions or of
+// TransactionReferences, for service-to-service sync.  All numbers are big
+// endian, varints are unsigned LEB128.
+//
+//   header    : 'T' 'X' 'N' 'B', version (1 byte), kind (1 byte: 0 = Transaction, 1 = TransactionReference)
+//   reference : id (16 bytes: most, least significant bits)
+//               date (8 bytes: nanoseconds since the epoch)
+//               status (varint dictionary code [, definition])
+//   transaction : reference fields, followed by
+//               orderId (varint length, UTF-8 bytes)
+//               currency (3 bytes: ISO 4217 code)
+//               amount (1 byte scale, 8 bytes unscaled value)
+//
+// Statuses are few and repeat in every record, so each stream carries its own
+// dictionary: codes are handed out in order of first appearance, and a code
+// equal to the number of codes seen so far is followed by its definition
+// (varint length, UTF-8 bytes).  Amounts are in minor units of the currency
+// (scale 2 for INR), unless the amount needs more decimals to be exact.
+//
+// The encoder and decoder keep the dictionary, so they are per stream and not
+// thread-safe.
+public final class TransactionBinary {
+    public static final String MEDIA_TYPE = "application/x-txn-binary";
+
+    static final byte[] MAGIC = {'T', 'X', 'N', 'B'};
+    static final byte VERSION = 1;
+    static final byte TRANSACTIONS = 0;
+    static final byte REFERENCES = 1;
+
+    // Doubles represent integers up to 2^53 exactly, and powers of ten up to 10^22.
+    static final long MAX_EXACT = 1L << 53;
+    static final double[] POWERS_OF_TEN = new double[23];
+
+    private static final int LETTERS = 26;
+    private static final Currency[] CURRENCIES = new Currency[LETTERS * LETTERS * LETTERS];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            final var code = currency.getCurrencyCode();
+            if (code.length() == 3 && code.chars().allMatch(c -> c >= 'A' && c <= 'Z'))
+                CURRENCIES[currencyIndex((byte) code.charAt(0), (byte) code.charAt(1), (byte) code.charAt(2))] = currency;
+        }
+    }
+
+    private TransactionBinary() {
+    }
+
+    static Currency currency(byte first, byte second, byte third) {
+        if (first < 'A' || first > 'Z' || second < 'A' || second > 'Z' || third < 'A' || third > 'Z')
+            throw new IllegalArgumentException("Invalid currency code: " + (char) first + (char) second + (char) third);
+
+        final var currency = CURRENCIES[currencyIndex(first, second, third)];
+        if (currency == null)
+            throw new IllegalArgumentException("Unknown currency: " + (char) first + (char) second + (char) third);
+        return currency;
+    }
+
+    private static int currencyIndex(byte first, byte second, byte third) {
+        return ((first - 'A') * LETTERS + (second - 'A')) * LETTERS + (third - 'A');
+    }
+
+    static void writeVarint(int value, ByteBuffer buffer) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    // Upper bound of the bytes a string takes, including its length.
+    static int maxStringSize(String value) {
+        return 5 + 3 * value.length();
+    }
+
+    // Encodes the string as UTF-8 straight into the buffer (unpaired surrogates
+    // become '?', like String.getBytes does).
+    static void writeString(String value, ByteBuffer buffer) {
+        final int length = value.length();
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        writeVarint(bytes, buffer);
+
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    // Heap buffers are decoded in place, direct ones through the scratch array.
+    // The length is checked first: decoding in place would otherwise read past
+    // the limit of the buffer, and a corrupt length allocate any size.
+    static String readString(ByteBuffer buffer, byte[] scratch) {
+        final int length = readVarint(buffer);
+        if (length < 0 || length > buffer.remaining())
+            throw new BufferUnderflowException();
+        if (buffer.hasArray()) {
+            final var value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        final byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,83 @@
+package com.tsys.tc_spike.binary;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionReference;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+// Decodes a stream in the TransactionBinary format from (heap or direct)
+// ByteBuffers.  Malformed input results in an IllegalArgumentException, a
+// truncated record in a BufferUnderflowException.
+//
+// Statuses are read once, at their definition, and then shared by all the
+// records using them.
+public class TransactionBinaryDecoder {
+    private final List<String> statuses = new ArrayList<>();
+    private final byte[] scratch = new byte[256];
+
+    // Answers whether the stream holds TransactionReferences (or Transactions).
+    public boolean readHeader(ByteBuffer buffer) {
+        for (byte expected : TransactionBinary.MAGIC)
+            if (buffer.get() != expected)
+                throw new IllegalArgumentException("Not a " + TransactionBinary.MEDIA_TYPE + " stream");
+
+        final byte version = buffer.get();
+        if (version != TransactionBinary.VERSION)
+            throw new IllegalArgumentException("Unsupported version: " + version);
+
+        final byte kind = buffer.get();
+        if (kind != TransactionBinary.TRANSACTIONS && kind != TransactionBinary.REFERENCES)
+            throw new IllegalArgumentException("Unknown kind of records: " + kind);
+        return kind == TransactionBinary.REFERENCES;
+    }
+
+    public TransactionReference decodeReference(ByteBuffer buffer) {
+        final var id = new UUID(buffer.getLong(), buffer.getLong());
+        final var date = instant(buffer.getLong());
+        return new TransactionReference(id, date, readStatus(buffer));
+    }
+
+    public Transaction decodeTransaction(ByteBuffer buffer) {
+        final var id = new UUID(buffer.getLong(), buffer.getLong());
+        final var date = instant(buffer.getLong());
+        final var status = readStatus(buffer);
+        final var orderId = TransactionBinary.readString(buffer, scratch);
+        final Currency currency = TransactionBinary.currency(buffer.get(), buffer.get(), buffer.get());
+        final int scale = buffer.get();
+        final long unscaled = buffer.getLong();
+        return new Transaction(id, date, status, orderId, new Money(currency, amount(unscaled, scale)));
+    }
+
+    private static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    private String readStatus(ByteBuffer buffer) {
+        // A five byte varint can overflow into a negative code.
+        final int code = TransactionBinary.readVarint(buffer);
+        if (code < 0 || code > statuses.size())
+            throw new IllegalArgumentException("Undefined status code: " + code);
+        if (code < statuses.size())
+            return statuses.get(code);
+
+        final var status = TransactionBinary.readString(buffer, scratch);
+        statuses.add(status);
+        return status;
+    }
+
+    private static double amount(long unscaled, int scale) {
+        if (scale < 0)
+            throw new IllegalArgumentException("Invalid amount scale: " + scale);
+        // Dividing two exact doubles rounds correctly, which is what the encoder checked.
+        if (Math.abs(unscaled) < TransactionBinary.MAX_EXACT && scale < TransactionBinary.POWERS_OF_TEN.length)
+            return unscaled / TransactionBinary.POWERS_OF_TEN[scale];
+        return BigDecimal.valueOf(unscaled, scale).doubleValue();
+    }
+}
@@ -0,0 +1,109 @@
+package com.tsys.tc_spike.binary;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionReference;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Encodes a stream in the TransactionBinary format into (heap or direct)
+// ByteBuffers.  The caller makes sure there is room for a record, see
+// maxTransactionSize and maxReferenceSize, else a BufferOverflowException is
+// thrown half way through it.
+public class TransactionBinaryEncoder {
+    private final Map<String, Integer> statuses = new HashMap<>();
+
+    public static int maxReferenceSize(Transaction transaction) {
+        return 16 + 8 + 5 + TransactionBinary.maxStringSize(transaction.status);
+    }
+
+    public static int maxReferenceSize(TransactionReference reference) {
+        return 16 + 8 + 5 + TransactionBinary.maxStringSize(reference.status);
+    }
+
+    public static int maxTransactionSize(Transaction transaction) {
+        return maxReferenceSize(transaction) + TransactionBinary.maxStringSize(transaction.orderId) + 3 + 1 + 8;
+    }
+
+    public void writeHeader(ByteBuffer buffer, boolean references) {
+        buffer.put(TransactionBinary.MAGIC);
+        buffer.put(TransactionBinary.VERSION);
+        buffer.put(references ? TransactionBinary.REFERENCES : TransactionBinary.TRANSACTIONS);
+    }
+
+    public void encode(Transaction transaction, ByteBuffer buffer) {
+        encodeReference(transaction, buffer);
+        TransactionBinary.writeString(transaction.orderId, buffer);
+        writeMoney(transaction.value, buffer);
+    }
+
+    public void encode(TransactionReference reference, ByteBuffer buffer) {
+        writeReference(reference.id, reference.date, reference.status, buffer);
+    }
+
+    // Encodes the Transaction's reference, without creating a TransactionReference.
+    public void encodeReference(Transaction transaction, ByteBuffer buffer) {
+        writeReference(transaction.id, transaction.date, transaction.status, buffer);
+    }
+
+    private void writeReference(UUID id, Instant date, String status, ByteBuffer buffer) {
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        buffer.putLong(epochNanos(date));
+        writeStatus(status, buffer);
+    }
+
+    private static long epochNanos(Instant date) {
+        try {
+            return Math.addExact(Math.multiplyExact(date.getEpochSecond(), 1_000_000_000L), date.getNano());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Date out of range for nanoseconds since the epoch: " + date, e);
+        }
+    }
+
+    private void writeStatus(String status, ByteBuffer buffer) {
+        final Integer code = statuses.get(status);
+        if (code != null) {
+            TransactionBinary.writeVarint(code, buffer);
+            return;
+        }
+        final int next = statuses.size();
+        TransactionBinary.writeVarint(next, buffer);
+        TransactionBinary.writeString(status, buffer);
+        statuses.put(status, next);
+    }
+
+    private static void writeMoney(Money money, ByteBuffer buffer) {
+        final var code = money.currency.getCurrencyCode();
+        buffer.put((byte) code.charAt(0));
+        buffer.put((byte) code.charAt(1));
+        buffer.put((byte) code.charAt(2));
+
+        final double amount = money.amount;
+        if (!Double.isFinite(amount))
+            throw new IllegalArgumentException("Amount must be a finite number: " + amount);
+
+        // Almost always the amount is exact in minor units of its currency.
+        final int scale = Math.max(0, money.currency.getDefaultFractionDigits());
+        final long minor = Math.round(amount * TransactionBinary.POWERS_OF_TEN[scale]);
+        if (Math.abs(minor) < TransactionBinary.MAX_EXACT && minor / TransactionBinary.POWERS_OF_TEN[scale] == amount) {
+            buffer.put((byte) scale);
+            buffer.putLong(minor);
+            return;
+        }
+
+        // Else as many decimals as it takes to read back the same double.
+        var exact = BigDecimal.valueOf(amount).stripTrailingZeros();
+        if (exact.scale() < 0)
+            exact = exact.setScale(0);
+        if (exact.scale() > Byte.MAX_VALUE || exact.unscaledValue().bitLength() > 63)
+            throw new IllegalArgumentException("Amount cannot be encoded exactly: " + amount);
+        buffer.put((byte) exact.scale());
+        buffer.putLong(exact.unscaledValue().longValue());
+    }
+}
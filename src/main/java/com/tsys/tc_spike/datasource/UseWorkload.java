@@ -0,0 +1,19 @@
+package com.tsys.tc_spike.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Runs the annotated method (or all the methods of the annotated type) in the
+// given Workload.  Works on repository interfaces, including custom fragments,
+// and on the methods of other Spring beans, where it is applied before
+// @Transactional so that the transaction takes its connection from the right
+// pool.
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface UseWorkload {
+    Workload value();
+}
@@ -0,0 +1,48 @@
+package com.tsys.tc_spike.datasource;
+
+import java.util.function.Supplier;
+
+// The kinds of database work, each of which gets a connection pool of its own
+// so that one kind cannot starve another of connections:
+//
+//   OLTP      - short, latency critical lookups and saves (the default)
+//   REPORTING - long running reads, such as aggregates and exports
+//   BATCH     - bulk writes from the feed, uploads and the outbox relay
+//
+// The workload of the current thread decides which pool the next connection is
+// taken from (see WorkloadRoutingDataSource).  A transaction keeps the
+// connection it began with, so the workload must be entered before the
+// transaction begins.
+public enum Workload {
+    OLTP, REPORTING, BATCH;
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    // Restores the previous workload of the thread when closed.
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static Workload current() {
+        final var workload = CURRENT.get();
+        return workload == null ? OLTP : workload;
+    }
+
+    public Scope enter() {
+        final var previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null)
+                CURRENT.remove();
+            else
+                CURRENT.set(previous);
+        };
+    }
+
+    public <T> T call(Supplier<T> work) {
+        try (var ignored = enter()) {
+            return work.get();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.tsys.tc_spike.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// One connection pool per Workload, behind a routing DataSource that everything
+// (JPA, JdbcTemplate, the export cursor) uses.  All pools connect to the
+// spring.datasource.* database, each with its own size, connection timeout
+// and statement timeout:
+//
+//   datasource.pools.oltp.maximum-pool-size=10          (or spring.datasource.hikari.maximum-pool-size)
+//   datasource.pools.oltp.connection-timeout-ms=2000
+//   datasource.pools.oltp.statement-timeout-ms=5000
+//   datasource.pools.reporting.maximum-pool-size=4
+//   datasource.pools.reporting.connection-timeout-ms=30000
+//   datasource.pools.reporting.statement-timeout-ms=300000
+//   datasource.pools.batch.maximum-pool-size=4
+//   datasource.pools.batch.connection-timeout-ms=30000
+//   datasource.pools.batch.statement-timeout-ms=120000
+//
+// The statement timeout is set on every new connection (statement_timeout on
+// Postgres, max_execution_time - which only applies to SELECTs - on MySQL,
+// QUERY_TIMEOUT on H2).
+@Configuration
+public class WorkloadDataSourceConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource oltpDataSource(DataSourceProperties properties,
+                                           @Value("${datasource.pools.oltp.maximum-pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int maximumPoolSize,
+                                           @Value("${datasource.pools.oltp.connection-timeout-ms:${spring.datasource.hikari.connection-timeout:2000}}") long connectionTimeoutMillis,
+                                           @Value("${datasource.pools.oltp.statement-timeout-ms:5000}") long statementTimeoutMillis) {
+        return pool(properties, Workload.OLTP, maximumPoolSize, connectionTimeoutMillis, statementTimeoutMillis);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource reportingDataSource(DataSourceProperties properties,
+                                                @Value("${datasource.pools.reporting.maximum-pool-size:4}") int maximumPoolSize,
+                                                @Value("${datasource.pools.reporting.connection-timeout-ms:30000}") long connectionTimeoutMillis,
+                                                @Value("${datasource.pools.reporting.statement-timeout-ms:300000}") long statementTimeoutMillis) {
+        return pool(properties, Workload.REPORTING, maximumPoolSize, connectionTimeoutMillis, statementTimeoutMillis);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource batchDataSource(DataSourceProperties properties,
+                                            @Value("${datasource.pools.batch.maximum-pool-size:4}") int maximumPoolSize,
+                                            @Value("${datasource.pools.batch.connection-timeout-ms:30000}") long connectionTimeoutMillis,
+                                            @Value("${datasource.pools.batch.statement-timeout-ms:120000}") long statementTimeoutMillis) {
+        return pool(properties, Workload.BATCH, maximumPoolSize, connectionTimeoutMillis, statementTimeoutMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource oltpDataSource, HikariDataSource reportingDataSource, HikariDataSource batchDataSource) {
+        return new WorkloadRoutingDataSource(Map.of(
+                Workload.OLTP, oltpDataSource,
+                Workload.REPORTING, reportingDataSource,
+                Workload.BATCH, batchDataSource));
+    }
+
+    // Adds the WorkloadInterceptor in front of all other advice (in particular
+    // the transactional one) of every repository.
+    @Bean
+    public static BeanPostProcessor repositoryWorkloadPostProcessor() {
+        final var interceptor = new WorkloadInterceptor();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factory)
+                    factory.addRepositoryFactoryCustomizer(repositoryFactory -> repositoryFactory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(0, interceptor)));
+                return bean;
+            }
+        };
+    }
+
+    // Likewise for other beans with @UseWorkload on their class or methods.
+    @Bean
+    public static AbstractBeanFactoryAwareAdvisingPostProcessor workloadAdvisingPostProcessor() {
+        final var pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(UseWorkload.class))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(UseWorkload.class));
+        final var postProcessor = new AbstractBeanFactoryAwareAdvisingPostProcessor() {
+        };
+        postProcessor.setBeforeExistingAdvisors(true);
+        postProcessor.setAdvisor(new DefaultPointcutAdvisor(pointcut, new WorkloadInterceptor()));
+        return postProcessor;
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Workload workload, int maximumPoolSize,
+                                         long connectionTimeoutMillis, long statementTimeoutMillis) {
+        final var pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName(workload.name().toLowerCase());
+        pool.setMaximumPoolSize(maximumPoolSize);
+        pool.setConnectionTimeout(connectionTimeoutMillis);
+        final var statementTimeoutSql = statementTimeoutSql(pool.getJdbcUrl(), statementTimeoutMillis);
+        if (statementTimeoutSql != null)
+            pool.setConnectionInitSql(statementTimeoutSql);
+        return pool;
+    }
+
+    static String statementTimeoutSql(String jdbcUrl, long millis) {
+        return switch (DatabaseDriver.fromJdbcUrl(jdbcUrl)) {
+            case POSTGRESQL -> "SET statement_timeout = " + millis;
+            case MYSQL -> "SET SESSION max_execution_time = " + millis;
+            case H2 -> "SET QUERY_TIMEOUT " + millis;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package com.tsys.tc_spike.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Enters the Workload given by @UseWorkload for the duration of the invocation.
+// The annotation is looked up on the method, then on its type (for repository
+// proxies that is the interface declaring the method, e.g. a fragment), then
+// on the class of the target.
+class WorkloadInterceptor implements MethodInterceptor {
+    private final Map<Method, Optional<Workload>> workloads = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        final var workload = workloads.computeIfAbsent(invocation.getMethod(), method -> resolve(method, invocation.getThis()));
+        if (workload.isEmpty())
+            return invocation.proceed();
+
+        try (var ignored = workload.get().enter()) {
+            return invocation.proceed();
+        }
+    }
+
+    private static Optional<Workload> resolve(Method method, Object target) {
+        final Class<?> targetClass = target == null ? null : ClassUtils.getUserClass(target);
+        final var specificMethod = targetClass == null ? method : AopUtils.getMostSpecificMethod(method, targetClass);
+        var annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, UseWorkload.class);
+        if (annotation == null)
+            annotation = AnnotatedElementUtils.findMergedAnnotation(method, UseWorkload.class);
+        if (annotation == null)
+            annotation = AnnotatedElementUtils.findMergedAnnotation(method.getDeclaringClass(), UseWorkload.class);
+        if (annotation == null && targetClass != null)
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, UseWorkload.class);
+        return Optional.ofNullable(annotation).map(UseWorkload::value);
+    }
+}
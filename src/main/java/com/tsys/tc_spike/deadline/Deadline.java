@@ -0,0 +1,71 @@
+package com.tsys.tc_spike.deadline;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// The point in time by which the work of a request must be done.  The deadline
+// of the current thread is entered by the DeadlineFilter and bounds every
+// statement the thread runs (see DeadlineDataSource).  Threads without one,
+// such as the export cursor or the outbox relay, are not bounded.
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    // Restores the previous deadline of the thread when closed.
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // The deadline of the current thread, or null when it has none.
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public Scope enter() {
+        final var previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null)
+                CURRENT.remove();
+            else
+                CURRENT.set(previous);
+        };
+    }
+
+    public long remainingNanos() {
+        return expiresAtNanos - System.nanoTime();
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    public boolean expired() {
+        return remainingNanos() <= 0;
+    }
+
+    // JDBC query timeouts are whole seconds, round up so that a statement is
+    // never cancelled before the deadline.  A timeout of 0 means none at all, so
+    // the least answered is 1, even once the deadline has passed.
+    int remainingSecondsRoundedUp() {
+        final long remaining = remainingNanos();
+        if (remaining <= 0)
+            return 1;
+        return (int) Math.min(Integer.MAX_VALUE, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remainingMillis=" + remainingMillis() + "}";
+    }
+}
@@ -0,0 +1,82 @@
+package com.tsys.tc_spike.deadline;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Set;
+
+// Request deadlines are on by default and can be tuned using:
+//
+//   deadline.enabled=true
+//   deadline.header=X-Request-Timeout-Ms   the budget the client allows, in ms
+//   deadline.default-ms=2000               the SLO, used when the header is absent
+//   deadline.max-ms=30000                  caps the budget a client may ask for
+//   deadline.min-budget-ms=20              repository calls with less left are skipped
+//
+// The live feed does not use the database, so it has no deadline.
+@Configuration
+@ConditionalOnProperty(value = "deadline.enabled", matchIfMissing = true)
+public class DeadlineConfiguration {
+
+    // Static, as the BeanPostProcessors below, which are created before the
+    // other beans, need it.
+    @Bean
+    public static DeadlineMetrics deadlineMetrics() {
+        return new DeadlineMetrics();
+    }
+
+    // Bounds the statements of every connection handed out by the application's
+    // DataSource, the pools behind it are left untouched.
+    @Bean
+    public static BeanPostProcessor deadlineDataSourceWrapper() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource && !(bean instanceof DeadlineDataSource))
+                    return new DeadlineDataSource(dataSource);
+                return bean;
+            }
+        };
+    }
+
+    // Adds a DeadlineInterceptor in front of all other advice (in particular
+    // the transactional one) of every repository.
+    @Bean
+    public static BeanPostProcessor repositoryDeadlinePostProcessor(DeadlineMetrics deadlineMetrics,
+                                                                    @Value("${deadline.min-budget-ms:20}") long minBudgetMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factory)
+                    factory.addRepositoryFactoryCustomizer(repositoryFactory -> repositoryFactory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(0, new DeadlineInterceptor(
+                                    ClassUtils.getShortName(repositoryInformation.getRepositoryInterface()),
+                                    deadlineMetrics, minBudgetMillis))));
+                return bean;
+            }
+        };
+    }
+
+    // Ordered before admission control, so the time a request waits to be
+    // admitted counts against its deadline.
+    @Bean
+    public FilterRegistrationBean<DeadlineFilter> deadlineFilter(@Value("${deadline.header:X-Request-Timeout-Ms}") String header,
+                                                                 @Value("${deadline.default-ms:2000}") long defaultMillis,
+                                                                 @Value("${deadline.max-ms:30000}") long maxMillis) {
+        final var filter = new DeadlineFilter(header, Duration.ofMillis(defaultMillis), Duration.ofMillis(maxMillis),
+                Set.of("/transactions/live"));
+        final var registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/transactions/*");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return registration;
+    }
+}
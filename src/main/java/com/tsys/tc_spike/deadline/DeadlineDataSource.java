@@ -0,0 +1,85 @@
+package com.tsys.tc_spike.deadline;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Set;
+
+// Gives every statement created on a thread with a Deadline a query timeout of
+// the time remaining, so the driver cancels it on the database once the
+// deadline passes.  This covers JPA (queries as well as find and flush) and
+// JdbcTemplate alike.  No statement is created once the deadline has passed.
+//
+// JDBC query timeouts are whole seconds, so a statement may outlive the
+// deadline by up to a second; the DeadlineInterceptor skips calls that start
+// with too little left.
+public class DeadlineDataSource extends DelegatingDataSource {
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    public DeadlineDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return withDeadlines(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return withDeadlines(super.getConnection(username, password));
+    }
+
+    private static Connection withDeadlines(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new StatementTimeouts(connection));
+    }
+
+    private static class StatementTimeouts implements InvocationHandler {
+        private final Connection target;
+
+        StatementTimeouts(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy))
+                        return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy))
+                        return true;
+                    break;
+            }
+
+            final var deadline = Deadline.current();
+            if (deadline != null && STATEMENT_FACTORIES.contains(method.getName()) && deadline.expired())
+                throw new SQLTimeoutException("Deadline passed, statement not executed");
+
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            if (deadline != null && result instanceof Statement statement)
+                statement.setQueryTimeout(deadline.remainingSecondsRoundedUp());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.tsys.tc_spike.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+// Enters a Deadline for the request.  The budget is taken from the request
+// header (in milliseconds, as the client is willing to wait), capped at the
+// maximum, or is the default SLO when the header is absent or not a positive
+// number.  The deadline starts when the request arrives, so time spent
+// waiting for admission counts against it.
+public class DeadlineFilter extends OncePerRequestFilter {
+    private final String header;
+    private final Duration defaultBudget;
+    private final Duration maxBudget;
+    private final Set<String> excludedPaths;
+
+    public DeadlineFilter(String header, Duration defaultBudget, Duration maxBudget, Set<String> excludedPaths) {
+        this.header = header;
+        this.defaultBudget = defaultBudget;
+        this.maxBudget = maxBudget;
+        this.excludedPaths = excludedPaths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return excludedPaths.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try (var ignored = Deadline.after(budget(request.getHeader(header))).enter()) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    Duration budget(String requested) {
+        if (requested == null)
+            return defaultBudget;
+        try {
+            final long millis = Long.parseLong(requested.trim());
+            if (millis <= 0)
+                return defaultBudget;
+            final var budget = Duration.ofMillis(millis);
+            return budget.compareTo(maxBudget) > 0 ? maxBudget : budget;
+        } catch (NumberFormatException e) {
+            return defaultBudget;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.tsys.tc_spike.deadline;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.TransactionTimedOutException;
+
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+// Sits in front of a repository (outside its transaction, so no connection is
+// taken for a call that is skipped).  Calls made without a deadline pass
+// through untouched.  A call is skipped when less than min-budget of the
+// deadline is left, since it could not finish in time anyway; a call whose
+// statements were cancelled by their query timeout fails the same way.  Both
+// surface as DeadlineExceededException and are counted per method.
+//
+// As the query timeouts are rounded up, the deadline has always passed by the
+// time they cancel a statement.  So a timeout while the deadline holds, such as
+// the statement timeout of the pool, is not ours and passes through, as does
+// any failure that is not a timeout.
+class DeadlineInterceptor implements MethodInterceptor {
+    private final String repository;
+    private final DeadlineMetrics metrics;
+    private final long minBudgetNanos;
+
+    DeadlineInterceptor(String repository, DeadlineMetrics metrics, long minBudgetMillis) {
+        this.repository = repository;
+        this.metrics = metrics;
+        this.minBudgetNanos = TimeUnit.MILLISECONDS.toNanos(minBudgetMillis);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        final var deadline = Deadline.current();
+        if (deadline == null)
+            return invocation.proceed();
+
+        final var method = repository + "." + invocation.getMethod().getName();
+        if (deadline.remainingNanos() < minBudgetNanos) {
+            metrics.skipped(method);
+            throw new DeadlineExceededException(method + " skipped, " + deadline.remainingMillis() + " ms left of the deadline");
+        }
+        try {
+            return invocation.proceed();
+        } catch (RuntimeException e) {
+            if (!deadline.expired() || !isTimeout(e))
+                throw e;
+            metrics.cancelled(method);
+            throw new DeadlineExceededException(method + " cancelled, the deadline has passed", e);
+        }
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause())
+            if (cause instanceof QueryTimeoutException
+                    || cause instanceof jakarta.persistence.QueryTimeoutException
+                    || cause instanceof TransactionTimedOutException
+                    || cause instanceof SQLTimeoutException)
+                return true;
+        return false;
+    }
+}
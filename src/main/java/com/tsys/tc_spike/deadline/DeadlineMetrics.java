@@ -0,0 +1,51 @@
+package com.tsys.tc_spike.deadline;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Deadline-exceeded counters per repository method, keyed by names such as
+// "TransactionRepository.findByOrderId".  A call is either skipped, when the
+// remaining budget was too small to start it, or cancelled, when its
+// statements ran past the deadline.
+public class DeadlineMetrics {
+    private final Map<String, LongAdder> skipped = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> cancelled = new ConcurrentHashMap<>();
+
+    void skipped(String method) {
+        skipped.computeIfAbsent(method, key -> new LongAdder()).increment();
+    }
+
+    void cancelled(String method) {
+        cancelled.computeIfAbsent(method, key -> new LongAdder()).increment();
+    }
+
+    public long skippedCount(String method) {
+        final var count = skipped.get(method);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long cancelledCount(String method) {
+        final var count = cancelled.get(method);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long exceededCount(String method) {
+        return skippedCount(method) + cancelledCount(method);
+    }
+
+    // Skipped plus cancelled calls of every method that exceeded its deadline at
+    // least once, sorted by method name.
+    public Map<String, Long> exceeded() {
+        final Map<String, Long> exceeded = new TreeMap<>();
+        skipped.forEach((method, count) -> exceeded.merge(method, count.sum(), Long::sum));
+        cancelled.forEach((method, count) -> exceeded.merge(method, count.sum(), Long::sum));
+        return exceeded;
+    }
+
+    @Override
+    public String toString() {
+        return "DeadlineMetrics{exceeded=" + exceeded() + "}";
+    }
+}
@@ -1,7 +1,9 @@
 package com.tsys.tc_spike.domain;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 
@@ -10,7 +12,9 @@ import java.util.Objects;
 import java.util.UUID;
 
 @Entity
-@Table(name = "transactions")
+// Exports and reports scan by date, hence the index.
+@Table(name = "transactions", indexes = @Index(name = "transactions_date", columnList = "date"))
+@EntityListeners(TransactionChangeListener.class)
 public class Transaction {
 
     @Id
@@ -37,6 +41,26 @@ public class Transaction {
         this.value = value;
     }
 
+    public Long version() {
+        return version;
+    }
+
+    // A copy with another status, carrying the version this one was read with,
+    // so that saving it fails if the transaction has changed in the meantime.
+    public Transaction withStatus(String status) {
+        final var changed = new Transaction(id, date, status, orderId, value);
+        changed.version = version;
+        return changed;
+    }
+
+    // A detached copy at the given version, for transactions read from outside
+    // the transactions table (see TransactionArchive).
+    public Transaction withVersion(long version) {
+        final var copy = new Transaction(id, date, status, orderId, value);
+        copy.version = version;
+        return copy;
+    }
+
     public TransactionReference reference() {
         return new TransactionReference(id, date, status);
     }
@@ -0,0 +1,12 @@
+package com.tsys.tc_spike.domain;
+
+// Application event published for every Transaction moved out of the
+// transactions table into the archive (see TransactionArchiver), inside the
+// database transaction that moves it.
+//
+// Unlike a TransactionChanged it is not a change of the transaction, which is
+// still answered (from the archive) at the same version.  So it is neither
+// written to the outbox nor sent to the live feed or the other instances;
+// only the indexes of this instance over the transactions table follow it.
+public record TransactionArchived(Transaction transaction) {
+}
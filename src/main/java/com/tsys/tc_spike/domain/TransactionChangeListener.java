@@ -0,0 +1,38 @@
+package com.tsys.tc_spike.domain;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+// JPA entity listener that turns the lifecycle callbacks of Transaction into
+// TransactionChanged application events.
+//
+// Spring Boot configures Hibernate to obtain entity listeners from the Spring
+// container, which is why the ApplicationEventPublisher can be injected here.
+public class TransactionChangeListener {
+    private final ApplicationEventPublisher publisher;
+
+    public TransactionChangeListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    void created(Transaction transaction) {
+        publish(TransactionChanged.Kind.CREATED, transaction);
+    }
+
+    @PostUpdate
+    void updated(Transaction transaction) {
+        publish(TransactionChanged.Kind.UPDATED, transaction);
+    }
+
+    @PostRemove
+    void deleted(Transaction transaction) {
+        publish(TransactionChanged.Kind.DELETED, transaction);
+    }
+
+    private void publish(TransactionChanged.Kind kind, Transaction transaction) {
+        publisher.publishEvent(new TransactionChanged(kind, transaction, transaction.version()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.tsys.tc_spike.domain;
+
+// Application event published for every Transaction that is inserted, updated
+// or deleted through JPA (and hence through TransactionRepository).  The
+// version is the one the row has in the database after the change.
+//
+// It is published synchronously while the persistence context is flushed, that
+// is, inside the database transaction that makes the change.  So plain
+// @EventListeners can take part in that transaction, whereas listeners that
+// must only see committed changes should use @TransactionalEventListener.
+public record TransactionChanged(Kind kind, Transaction transaction, long version) {
+    public enum Kind {
+        CREATED, UPDATED, DELETED
+    }
+}
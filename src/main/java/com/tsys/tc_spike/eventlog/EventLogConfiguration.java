@@ -0,0 +1,72 @@
+package com.tsys.tc_spike.eventlog;
+
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.tsys.tc_spike.retry.RetryPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+// Appends that lose the race for the next aggregate sequence are retried with a
+// jittered backoff:
+//
+//   eventlog.append.max-attempts=100
+//   eventlog.append.backoff-ms=1
+//   eventlog.append.max-backoff-ms=20
+//
+// The snapshotter folds the event log into the transactions rows (scanning the
+// events appended up to snapshot-grace-ms ago again on every run), and does so
+// periodically when enabled:
+//
+//   eventlog.snapshotter.enabled=true
+//   eventlog.snapshot-interval-ms=1000
+//   eventlog.snapshot-batch-size=500
+//   eventlog.snapshot-grace-ms=60000
+@Configuration
+@EnableScheduling
+public class EventLogConfiguration {
+
+    @Bean
+    public TransactionEventLog transactionEventLog(JdbcTemplate jdbcTemplate,
+                                                   TransactionRepository transactionRepository,
+                                                   @Value("${eventlog.append.max-attempts:100}") int maxAttempts,
+                                                   @Value("${eventlog.append.backoff-ms:1}") long backoffMillis,
+                                                   @Value("${eventlog.append.max-backoff-ms:20}") long maxBackoffMillis) {
+        return new TransactionEventLog(jdbcTemplate, transactionRepository, new RetryPolicy(maxAttempts, backoffMillis, maxBackoffMillis));
+    }
+
+    @Bean
+    public TransactionSnapshotter transactionSnapshotter(JdbcTemplate jdbcTemplate,
+                                                         TransactionTemplate transactionTemplate,
+                                                         TransactionRepository transactionRepository,
+                                                         @Value("${eventlog.snapshot-batch-size:500}") int batchSize,
+                                                         @Value("${eventlog.snapshot-grace-ms:60000}") long graceMillis) {
+        return new TransactionSnapshotter(jdbcTemplate, transactionTemplate, transactionRepository, batchSize,
+                Duration.ofMillis(graceMillis));
+    }
+
+    @Bean
+    @ConditionalOnProperty("eventlog.snapshotter.enabled")
+    public TransactionSnapshotScheduler transactionSnapshotScheduler(TransactionSnapshotter transactionSnapshotter) {
+        return new TransactionSnapshotScheduler(transactionSnapshotter);
+    }
+
+    static class TransactionSnapshotScheduler {
+        private final TransactionSnapshotter snapshotter;
+
+        TransactionSnapshotScheduler(TransactionSnapshotter snapshotter) {
+            this.snapshotter = snapshotter;
+        }
+
+        @Scheduled(fixedDelayString = "${eventlog.snapshot-interval-ms:1000}")
+        void snapshot() {
+            snapshotter.snapshot();
+        }
+    }
+}
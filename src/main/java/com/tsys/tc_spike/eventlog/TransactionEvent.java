@@ -0,0 +1,56 @@
+package com.tsys.tc_spike.eventlog;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.time.Instant;
+
+// A status change of a Transaction (the aggregate), appended to the
+// transaction_events log and never changed afterwards.  The aggregate sequence
+// numbers the events of one transaction 1, 2, 3, ... in the order they were
+// appended; the unique constraint on it is what keeps two appends from taking
+// the same number.
+@Entity
+@Table(name = "transaction_events",
+        uniqueConstraints = @UniqueConstraint(name = "transaction_events_aggregate", columnNames = {"aggregate_id", "aggregate_sequence"}))
+public class TransactionEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public final Long id;
+
+    @Column(length = 36, nullable = false)
+    public final String aggregateId;
+    public final long aggregateSequence;
+    @Column(nullable = false)
+    public final String status;
+    public final Instant occurredAt;
+
+    @Deprecated
+    TransactionEvent() {
+        this(null, null, 0L, null, null);
+    }
+
+    public TransactionEvent(Long id, String aggregateId, long aggregateSequence, String status, Instant occurredAt) {
+        this.id = id;
+        this.aggregateId = aggregateId;
+        this.aggregateSequence = aggregateSequence;
+        this.status = status;
+        this.occurredAt = occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionEvent{" +
+                "aggregateId='" + aggregateId + '\'' +
+                ", aggregateSequence=" + aggregateSequence +
+                ", status='" + status + '\'' +
+                ", occurredAt=" + occurredAt +
+                '}';
+    }
+}
@@ -0,0 +1,115 @@
+package com.tsys.tc_spike.eventlog;
+
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.tsys.tc_spike.retry.RetryPolicy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// The event-sourced path for status changes.  A change is a single INSERT into
+// the append-only transaction_events table, instead of an UPDATE of the
+// transactions row, so writers never wait on (or fail because of) the row lock
+// of a hot transaction.  The TransactionSnapshotter folds the events into the
+// rows later on.
+//
+// The next aggregate sequence is taken within the INSERT itself.  Should two
+// appends to the same transaction take the same number, the unique constraint
+// fails one of them (or, on MySQL, their gap locks may deadlock), which then
+// tries again with the next number after a jittered backoff, so that the losers
+// do not collide again in lock step.  As a failed statement aborts the whole
+// transaction on Postgres, append outside of a transaction.
+//
+// Once statuses are changed through the log, it is the authority on them: a
+// status written to the row directly is overwritten by the next fold.
+public class TransactionEventLog {
+    private static final String APPEND = "INSERT INTO transaction_events (aggregate_id, aggregate_sequence, status, occurred_at) " +
+            "SELECT ?, COALESCE(MAX(aggregate_sequence), 0) + 1, ?, ? FROM transaction_events WHERE aggregate_id = ?";
+    private static final String SNAPSHOT_SEQUENCE = "SELECT aggregate_sequence FROM transaction_snapshots WHERE aggregate_id = ?";
+    private static final String EVENTS_AFTER = "SELECT id, aggregate_id, aggregate_sequence, status, occurred_at FROM transaction_events " +
+            "WHERE aggregate_id = ? AND aggregate_sequence > ? ORDER BY aggregate_sequence";
+    static final RowMapper<TransactionEvent> ROW_MAPPER = (rs, rowNum) -> new TransactionEvent(
+            rs.getLong("id"),
+            rs.getString("aggregate_id"),
+            rs.getLong("aggregate_sequence"),
+            rs.getString("status"),
+            rs.getTimestamp("occurred_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionRepository transactionRepository;
+    private final RetryPolicy appendRetry;
+
+    public TransactionEventLog(JdbcTemplate jdbcTemplate, TransactionRepository transactionRepository, RetryPolicy appendRetry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionRepository = transactionRepository;
+        this.appendRetry = appendRetry;
+    }
+
+    // Records that the transaction changed to the given status.  Does not check
+    // that the transaction exists, the snapshotter skips the events of unknown
+    // ones.
+    public void append(UUID id, String status) {
+        final var aggregateId = id.toString();
+        final var occurredAt = Timestamp.from(Instant.now());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jdbcTemplate.update(APPEND, aggregateId, status, occurredAt, aggregateId);
+                return;
+            } catch (DuplicateKeyException | PessimisticLockingFailureException e) {
+                if (attempt == appendRetry.maxAttempts())
+                    throw e;
+                backOff(appendRetry.backoffNanos(attempt), e);
+            }
+        }
+    }
+
+    private static void backOff(long nanos, RuntimeException conflict) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    // The transaction with its current status: the snapshot (its row) with the
+    // events not folded into it yet applied.
+    //
+    // The position of the snapshot is read before the row, and the snapshotter
+    // changes both together, so the row is at least as recent as the position.
+    // Applying the tail from that position on yields the latest status either way.
+    public Optional<Transaction> current(UUID id) {
+        final long snapshotSequence = snapshotSequence(id);
+        return transactionRepository.findById(id).map(snapshot -> {
+            final var tail = eventsAfter(id, snapshotSequence);
+            return tail.isEmpty() ? snapshot : snapshot.withStatus(tail.get(tail.size() - 1).status);
+        });
+    }
+
+    // The events not folded into the row of the transaction yet.
+    public List<TransactionEvent> tail(UUID id) {
+        return eventsAfter(id, snapshotSequence(id));
+    }
+
+    // All status changes of the transaction, oldest first.
+    public List<TransactionEvent> history(UUID id) {
+        return eventsAfter(id, 0);
+    }
+
+    private long snapshotSequence(UUID id) {
+        final var sequence = jdbcTemplate.query(SNAPSHOT_SEQUENCE, (rs, rowNum) -> rs.getLong(1), id.toString());
+        return sequence.isEmpty() ? 0 : sequence.get(0);
+    }
+
+    private List<TransactionEvent> eventsAfter(UUID id, long sequence) {
+        return jdbcTemplate.query(EVENTS_AFTER, ROW_MAPPER, id.toString(), sequence);
+    }
+}
@@ -0,0 +1,33 @@
+package com.tsys.tc_spike.eventlog;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+// How far the events of a Transaction have been folded into its row of the
+// transactions table: all events up to and including the aggregate sequence.
+// It is changed in the same database transaction as the row itself.
+@Entity
+@Table(name = "transaction_snapshots")
+public class TransactionSnapshot {
+
+    @Id
+    @Column(length = 36)
+    public final String aggregateId;
+    public final long aggregateSequence;
+    public final Instant takenAt;
+
+    @Deprecated
+    TransactionSnapshot() {
+        this(null, 0L, null);
+    }
+
+    public TransactionSnapshot(String aggregateId, long aggregateSequence, Instant takenAt) {
+        this.aggregateId = aggregateId;
+        this.aggregateSequence = aggregateSequence;
+        this.takenAt = takenAt;
+    }
+}
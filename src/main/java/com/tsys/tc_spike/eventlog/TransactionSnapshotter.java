@@ -0,0 +1,128 @@
+package com.tsys.tc_spike.eventlog;
+
+import com.tsys.tc_spike.datasource.Workload;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+// Folds the events appended to the TransactionEventLog into the transactions
+// rows.  As the fold is "the last status wins", only the latest event of each
+// transaction needs to be read.
+//
+// Every transaction is folded in its own database transaction that changes the
+// row (through the repository, so the change bumps the version and reaches the
+// outbox, the live feed and the version cache like any other) and advances its
+// snapshot position together.  A transaction changed concurrently by someone
+// else is skipped and picked up again on the next run, as its position did not
+// advance.  So is one folded by a concurrent snapshotter (another application
+// instance) at the same time.
+//
+// Only the events after a high-water mark are scanned, so a run costs the
+// events appended since, not the whole log.  Event ids are taken before the
+// appends commit, so a smaller id may still become visible after a larger one:
+// the mark is only moved up to the events older than the grace period (appends
+// are single statements, committed well within it), and only by a run that
+// skipped nothing.  The mark is kept in memory, so the first run after a
+// restart scans the whole log once.
+public class TransactionSnapshotter {
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionSnapshotter.class);
+
+    private static final String UNFOLDED = "SELECT e.aggregate_id, MAX(e.aggregate_sequence) FROM transaction_events e " +
+            "LEFT JOIN transaction_snapshots s ON s.aggregate_id = e.aggregate_id " +
+            "WHERE e.id > ? AND (s.aggregate_sequence IS NULL OR e.aggregate_sequence > s.aggregate_sequence) " +
+            "GROUP BY e.aggregate_id LIMIT ?";
+    private static final String HORIZON = "SELECT MAX(id) FROM transaction_events WHERE id > ? AND occurred_at < ?";
+    private static final String STATUS_AT = "SELECT status FROM transaction_events WHERE aggregate_id = ? AND aggregate_sequence = ?";
+    private static final String ADVANCE = "UPDATE transaction_snapshots SET aggregate_sequence = ?, taken_at = ? " +
+            "WHERE aggregate_id = ? AND aggregate_sequence < ?";
+    private static final String EXISTS = "SELECT count(*) FROM transaction_snapshots WHERE aggregate_id = ?";
+    private static final String START = "INSERT INTO transaction_snapshots (aggregate_id, aggregate_sequence, taken_at) VALUES (?, ?, ?)";
+
+    private record Unfolded(String aggregateId, long sequence) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionRepository transactionRepository;
+    private final int batchSize;
+    private final Duration grace;
+    // All events up to and including this id are folded.
+    private volatile long foldedUpTo;
+
+    public TransactionSnapshotter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                  TransactionRepository transactionRepository, int batchSize, Duration grace) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionRepository = transactionRepository;
+        this.batchSize = batchSize;
+        this.grace = grace;
+    }
+
+    public long foldedUpTo() {
+        return foldedUpTo;
+    }
+
+    // Folds batches until no transaction has unfolded events left (or all of a
+    // batch were skipped), answering the number of transactions folded.
+    public synchronized long snapshot() {
+        // The scans may read much of the log (all of it on the first run), so
+        // they run in the BATCH pool, with its statement timeout, like the folds.
+        try (var ignored = Workload.BATCH.enter()) {
+            final long after = foldedUpTo;
+            final Long horizon = jdbcTemplate.queryForObject(HORIZON, Long.class, after, Timestamp.from(Instant.now().minus(grace)));
+            long total = 0;
+            int folded;
+            boolean skipped = false;
+            do {
+                final List<Unfolded> unfolded = jdbcTemplate.query(UNFOLDED,
+                        (rs, rowNum) -> new Unfolded(rs.getString(1), rs.getLong(2)), after, batchSize);
+                folded = 0;
+                for (Unfolded each : unfolded)
+                    folded += fold(each) ? 1 : 0;
+                skipped |= folded < unfolded.size();
+                total += folded;
+            } while (folded == batchSize);
+            if (!skipped && horizon != null)
+                foldedUpTo = horizon;
+            return total;
+        }
+    }
+
+    private boolean fold(Unfolded unfolded) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                final var latest = jdbcTemplate.queryForObject(STATUS_AT, String.class, unfolded.aggregateId, unfolded.sequence);
+                // Events of unknown transactions are only recorded as folded.
+                transactionRepository.findById(UUID.fromString(unfolded.aggregateId))
+                        .filter(snapshot -> !Objects.equals(snapshot.status, latest))
+                        .ifPresent(snapshot -> transactionRepository.saveAndFlush(snapshot.withStatus(latest)));
+                advance(unfolded);
+            });
+            return true;
+        } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+            LOG.debug("Transaction {} changed while folding its events, will retry on the next run", unfolded.aggregateId);
+            return false;
+        }
+    }
+
+    private void advance(Unfolded unfolded) {
+        final var now = Timestamp.from(Instant.now());
+        if (jdbcTemplate.update(ADVANCE, unfolded.sequence, now, unfolded.aggregateId, unfolded.sequence) > 0)
+            return;
+        // Either the first snapshot of the transaction, or it is already at least
+        // as far as this position.
+        if (jdbcTemplate.queryForObject(EXISTS, Long.class, unfolded.aggregateId) == 0)
+            jdbcTemplate.update(START, unfolded.aggregateId, unfolded.sequence, now);
+    }
+}
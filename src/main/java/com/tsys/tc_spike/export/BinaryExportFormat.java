@@ -0,0 +1,45 @@
+package com.tsys.tc_spike.export;
+
+import com.tsys.tc_spike.binary.TransactionBinaryEncoder;
+import com.tsys.tc_spike.domain.Transaction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// TransactionBinary records.  Each record is encoded into a reused ByteBuffer
+// and copied to the (buffered) output stream right away, so that the first rows
+// can be flushed early like in the other formats.
+class BinaryExportFormat implements ExportFormat {
+    private final boolean references;
+    private final TransactionBinaryEncoder encoder = new TransactionBinaryEncoder();
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    BinaryExportFormat(boolean references) {
+        this.references = references;
+    }
+
+    @Override
+    public void begin(OutputStream out) throws IOException {
+        encoder.writeHeader(buffer, references);
+        drainTo(out);
+    }
+
+    @Override
+    public void write(Transaction transaction, OutputStream out) throws IOException {
+        final int size = references ? TransactionBinaryEncoder.maxReferenceSize(transaction) : TransactionBinaryEncoder.maxTransactionSize(transaction);
+        if (size > buffer.capacity())
+            buffer = ByteBuffer.allocate(size);
+
+        if (references)
+            encoder.encodeReference(transaction, buffer);
+        else
+            encoder.encode(transaction, buffer);
+        drainTo(out);
+    }
+
+    private void drainTo(OutputStream out) throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
@@ -0,0 +1,124 @@
+package com.tsys.tc_spike.export;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// A compressed columnar file of transactions, for point-in-time extracts.  All
+// numbers are big endian, varints are unsigned LEB128 (signed ones zigzag
+// encoded first).
+//
+//   header    : 'T' 'X' 'N' 'C', version (1 byte)
+//   row group : one chunk per column, in the order of Column, each deflated on its own
+//   footer    : row groups (4 bytes), then per row group:
+//               rows (4 bytes), then per column: offset (8 bytes), length (4 bytes), inflated length (4 bytes)
+//   trailer   : footer offset (8 bytes), 'T' 'X' 'N' 'C'
+//
+// Column chunks, before deflating (nulls, where allowed, are marked in a
+// bitmap of one bit per row in front of the chunk, and take no values):
+//
+//   id       : 16 bytes per row (most, least significant bits)
+//   version  : signed varint per row
+//   date     : nullable; signed varint per row, microseconds since the previous
+//              date of the chunk (the first since the epoch)
+//   order_id : nullable; varint length, UTF-8 bytes per row
+//   status   : dictionary (varint count, then varint length, UTF-8 bytes per
+//              entry), then varint per row: 0 for null, else 1 + dictionary index
+//   amount   : nullable; 8 bytes (IEEE 754 double) per row
+//   currency : as status
+//
+// The rows of a row group are sorted by date, so the deltas are small and
+// mostly the same, which is what deflate makes the most of.  The footer lets
+// a reader seek to the chunks of one column and skip the others.
+public final class ColumnarFile {
+    public static final String EXTENSION = ".txnc";
+
+    static final byte[] MAGIC = {'T', 'X', 'N', 'C'};
+    static final byte VERSION = 1;
+    static final int TRAILER_SIZE = 8 + MAGIC.length;
+
+    public enum Column {
+        ID, VERSION, DATE, ORDER_ID, STATUS, AMOUNT, CURRENCY
+    }
+
+    // A row of the transactions table, as exported.  Dates have the precision
+    // of microseconds.
+    public record Row(UUID id, long version, Instant date, String orderId, String status, Double amount, String currency) {
+    }
+
+    private ColumnarFile() {
+    }
+
+    static void writeVarint(long value, ByteArrayOutputStream out) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining())
+                throw new IllegalArgumentException("Truncated varint");
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static void writeSignedVarint(long value, ByteArrayOutputStream out) {
+        writeVarint((value << 1) ^ (value >> 63), out);
+    }
+
+    static long readSignedVarint(ByteBuffer buffer) {
+        final long value = readVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long epochMicros(Instant date) {
+        return Math.addExact(Math.multiplyExact(date.getEpochSecond(), 1_000_000L), date.getNano() / 1_000);
+    }
+
+    static Instant instant(long epochMicros) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000L), Math.floorMod(epochMicros, 1_000_000L) * 1_000);
+    }
+
+    static byte[] deflate(byte[] raw, Deflater deflater) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        final var out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        final var buffer = new byte[8192];
+        while (!deflater.finished())
+            out.write(buffer, 0, deflater.deflate(buffer));
+        return out.toByteArray();
+    }
+
+    static byte[] inflate(byte[] compressed, int length, Inflater inflater) {
+        inflater.reset();
+        inflater.setInput(compressed);
+        final var raw = new byte[length];
+        try {
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                final int n = inflater.inflate(raw, inflated, length - inflated);
+                if (n == 0 && inflater.needsInput())
+                    break;
+                inflated += n;
+            }
+            if (inflated != length)
+                throw new IllegalArgumentException("Truncated column chunk: " + inflated + " of " + length + " bytes");
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt column chunk", e);
+        }
+        return raw;
+    }
+}
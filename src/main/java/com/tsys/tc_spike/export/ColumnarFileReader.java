@@ -0,0 +1,223 @@
+package com.tsys.tc_spike.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.Inflater;
+
+// Reads a ColumnarFile through a FileChannel.  scan reads and inflates only the
+// chunks of the one column asked for, seeking past the others (bytesRead shows
+// how much of the file that was); scanRows decodes whole rows.  Malformed
+// files result in an IllegalArgumentException: every length, count and
+// dictionary code is checked against what is left before it is used.  Not
+// thread-safe.
+public class ColumnarFileReader implements Closeable {
+    private final FileChannel channel;
+    private final Inflater inflater = new Inflater();
+    private final int[] groupRows;
+    // Per row group and column: offset, length and inflated length.
+    private final long[][] chunks;
+    private long bytesRead;
+
+    public ColumnarFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final var header = read(0, ColumnarFile.MAGIC.length + 1);
+            checkMagic(header);
+            final byte version = header.get();
+            if (version != ColumnarFile.VERSION)
+                throw new IllegalArgumentException("Unsupported version: " + version);
+
+            final var trailer = read(channel.size() - ColumnarFile.TRAILER_SIZE, ColumnarFile.TRAILER_SIZE);
+            final long footerOffset = trailer.getLong();
+            checkMagic(trailer);
+
+            final var footer = read(footerOffset, (int) (channel.size() - ColumnarFile.TRAILER_SIZE - footerOffset));
+            final int columns = ColumnarFile.Column.values().length;
+            // The number of row groups, then per group its rows and per column
+            // the offset, length and inflated length of its chunk.
+            final int groupSize = Integer.BYTES + columns * (Long.BYTES + 2 * Integer.BYTES);
+            remaining(footer, Integer.BYTES, "footer");
+            final int groups = footer.getInt();
+            if (groups < 0 || groups > footer.remaining() / groupSize)
+                throw new IllegalArgumentException("Corrupt footer: " + groups + " row groups in " + footer.remaining() + " bytes");
+            groupRows = new int[groups];
+            chunks = new long[groups][3 * columns];
+            for (int group = 0; group < groups; group++) {
+                groupRows[group] = footer.getInt();
+                if (groupRows[group] < 0)
+                    throw new IllegalArgumentException("Corrupt footer: " + groupRows[group] + " rows in row group " + group);
+                for (int column = 0; column < columns; column++) {
+                    chunks[group][3 * column] = footer.getLong();
+                    chunks[group][3 * column + 1] = footer.getInt();
+                    chunks[group][3 * column + 2] = footer.getInt();
+                    if (chunks[group][3 * column + 2] < 0)
+                        throw new IllegalArgumentException("Corrupt footer: negative chunk length in row group " + group);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long rows() {
+        return Arrays.stream(groupRows).asLongStream().sum();
+    }
+
+    public int rowGroups() {
+        return groupRows.length;
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    // Hands the values of the column, row by row, to the consumer: UUIDs, Longs
+    // (versions), Instants (dates), Strings and Doubles (amounts), or null.
+    public void scan(ColumnarFile.Column column, Consumer<Object> values) throws IOException {
+        for (int group = 0; group < groupRows.length; group++)
+            for (Object value : decode(group, column))
+                values.accept(value);
+    }
+
+    public void scanRows(Consumer<ColumnarFile.Row> rows) throws IOException {
+        final var columns = ColumnarFile.Column.values();
+        for (int group = 0; group < groupRows.length; group++) {
+            final var decoded = new Object[columns.length][];
+            for (ColumnarFile.Column column : columns)
+                decoded[column.ordinal()] = decode(group, column);
+            for (int row = 0; row < groupRows[group]; row++)
+                rows.accept(new ColumnarFile.Row(
+                        (UUID) decoded[ColumnarFile.Column.ID.ordinal()][row],
+                        (Long) decoded[ColumnarFile.Column.VERSION.ordinal()][row],
+                        (Instant) decoded[ColumnarFile.Column.DATE.ordinal()][row],
+                        (String) decoded[ColumnarFile.Column.ORDER_ID.ordinal()][row],
+                        (String) decoded[ColumnarFile.Column.STATUS.ordinal()][row],
+                        (Double) decoded[ColumnarFile.Column.AMOUNT.ordinal()][row],
+                        (String) decoded[ColumnarFile.Column.CURRENCY.ordinal()][row]));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    private Object[] decode(int group, ColumnarFile.Column column) throws IOException {
+        final var chunk = chunks[group];
+        final int index = 3 * column.ordinal();
+        final var compressed = read(chunk[index], (int) chunk[index + 1]);
+        final var raw = ByteBuffer.wrap(ColumnarFile.inflate(compressed.array(), (int) chunk[index + 2], inflater));
+        final int rows = groupRows[group];
+        final var values = new Object[rows];
+        switch (column) {
+            case ID -> {
+                remaining(raw, 2L * Long.BYTES * rows, "column chunk");
+                for (int row = 0; row < rows; row++)
+                    values[row] = new UUID(raw.getLong(), raw.getLong());
+            }
+            case VERSION -> {
+                for (int row = 0; row < rows; row++)
+                    values[row] = ColumnarFile.readSignedVarint(raw);
+            }
+            case DATE -> {
+                final var nulls = nulls(raw, rows);
+                long previous = 0;
+                for (int row = 0; row < rows; row++) {
+                    if (isNull(nulls, row))
+                        continue;
+                    previous += ColumnarFile.readSignedVarint(raw);
+                    values[row] = ColumnarFile.instant(previous);
+                }
+            }
+            case ORDER_ID -> {
+                final var nulls = nulls(raw, rows);
+                for (int row = 0; row < rows; row++)
+                    if (!isNull(nulls, row))
+                        values[row] = readString(raw);
+            }
+            case STATUS, CURRENCY -> {
+                // Every entry takes at least its length's byte.
+                final long size = ColumnarFile.readVarint(raw);
+                if (size < 0 || size > raw.remaining())
+                    throw new IllegalArgumentException("Corrupt dictionary of " + size + " entries");
+                final List<String> dictionary = new ArrayList<>((int) size);
+                for (int i = 0; i < size; i++)
+                    dictionary.add(readString(raw));
+                for (int row = 0; row < rows; row++) {
+                    final long code = ColumnarFile.readVarint(raw);
+                    if (code < 0 || code > size)
+                        throw new IllegalArgumentException("Unknown dictionary code: " + code);
+                    values[row] = code == 0 ? null : dictionary.get((int) code - 1);
+                }
+            }
+            case AMOUNT -> {
+                final var nulls = nulls(raw, rows);
+                for (int row = 0; row < rows; row++)
+                    if (!isNull(nulls, row)) {
+                        remaining(raw, Double.BYTES, "column chunk");
+                        values[row] = raw.getDouble();
+                    }
+            }
+        }
+        return values;
+    }
+
+    private static byte[] nulls(ByteBuffer raw, int rows) {
+        final var bitmap = new byte[(rows + 7) / 8];
+        remaining(raw, bitmap.length, "column chunk");
+        raw.get(bitmap);
+        return bitmap;
+    }
+
+    private static boolean isNull(byte[] nulls, int row) {
+        return (nulls[row >> 3] & (1 << (row & 7))) != 0;
+    }
+
+    private static String readString(ByteBuffer raw) {
+        final long length = ColumnarFile.readVarint(raw);
+        if (length < 0 || length > raw.remaining())
+            throw new IllegalArgumentException("Truncated column chunk: a string of " + length + " bytes in " + raw.remaining());
+        final var value = new String(raw.array(), raw.arrayOffset() + raw.position(), (int) length, StandardCharsets.UTF_8);
+        raw.position(raw.position() + (int) length);
+        return value;
+    }
+
+    private static void remaining(ByteBuffer buffer, long bytes, String what) {
+        if (buffer.remaining() < bytes)
+            throw new IllegalArgumentException("Truncated " + what + ": " + bytes + " bytes needed, " + buffer.remaining() + " left");
+    }
+
+    private static void checkMagic(ByteBuffer buffer) {
+        for (byte expected : ColumnarFile.MAGIC)
+            if (buffer.get() != expected)
+                throw new IllegalArgumentException("Not a columnar transactions file");
+    }
+
+    private ByteBuffer read(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > channel.size())
+            throw new IllegalArgumentException("Truncated columnar transactions file");
+        final var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+                throw new IllegalArgumentException("Truncated columnar transactions file");
+        bytesRead += length;
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,185 @@
+package com.tsys.tc_spike.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+// Writes a ColumnarFile through a FileChannel, holding one row group at a time.
+// Not thread-safe: each writer of a parallel export has its own file.
+public class ColumnarFileWriter implements Closeable {
+    private static final Comparator<ColumnarFile.Row> BY_DATE =
+            Comparator.comparing(ColumnarFile.Row::date, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final FileChannel channel;
+    private final int rowGroupSize;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final List<ColumnarFile.Row> group;
+    // Per row group: rows, then offset, length and inflated length per column.
+    private final List<long[]> footer = new ArrayList<>();
+    private long rows;
+    private boolean closed;
+
+    public ColumnarFileWriter(Path file, int rowGroupSize) throws IOException {
+        if (rowGroupSize < 1)
+            throw new IllegalArgumentException("The row group size must be positive, not " + rowGroupSize);
+        this.rowGroupSize = rowGroupSize;
+        this.group = new ArrayList<>(rowGroupSize);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writeFully(ByteBuffer.allocate(ColumnarFile.MAGIC.length + 1).put(ColumnarFile.MAGIC).put(ColumnarFile.VERSION).flip());
+    }
+
+    public void write(ColumnarFile.Row row) throws IOException {
+        group.add(row);
+        rows++;
+        if (group.size() == rowGroupSize)
+            flushGroup();
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            if (!group.isEmpty())
+                flushGroup();
+            final long footerOffset = channel.position();
+            final var columns = ColumnarFile.Column.values().length;
+            final var buffer = ByteBuffer.allocate(4 + footer.size() * (4 + columns * 16) + ColumnarFile.TRAILER_SIZE);
+            buffer.putInt(footer.size());
+            for (long[] entry : footer) {
+                buffer.putInt((int) entry[0]);
+                for (int column = 0; column < columns; column++) {
+                    buffer.putLong(entry[1 + 3 * column]);
+                    buffer.putInt((int) entry[2 + 3 * column]);
+                    buffer.putInt((int) entry[3 + 3 * column]);
+                }
+            }
+            buffer.putLong(footerOffset).put(ColumnarFile.MAGIC);
+            writeFully(buffer.flip());
+            channel.force(false);
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private void flushGroup() throws IOException {
+        group.sort(BY_DATE);
+        final var columns = ColumnarFile.Column.values();
+        final var entry = new long[1 + 3 * columns.length];
+        entry[0] = group.size();
+        for (ColumnarFile.Column column : columns) {
+            final byte[] raw = encode(column);
+            final byte[] compressed = ColumnarFile.deflate(raw, deflater);
+            entry[1 + 3 * column.ordinal()] = channel.position();
+            entry[2 + 3 * column.ordinal()] = compressed.length;
+            entry[3 + 3 * column.ordinal()] = raw.length;
+            writeFully(ByteBuffer.wrap(compressed));
+        }
+        footer.add(entry);
+        group.clear();
+    }
+
+    private byte[] encode(ColumnarFile.Column column) {
+        final var out = new ByteArrayOutputStream(group.size() * 8);
+        switch (column) {
+            case ID -> {
+                final var ids = ByteBuffer.allocate(16 * group.size());
+                for (ColumnarFile.Row row : group)
+                    ids.putLong(row.id().getMostSignificantBits()).putLong(row.id().getLeastSignificantBits());
+                out.writeBytes(ids.array());
+            }
+            case VERSION -> {
+                for (ColumnarFile.Row row : group)
+                    ColumnarFile.writeSignedVarint(row.version(), out);
+            }
+            case DATE -> {
+                writeNulls(out, ColumnarFile.Column.DATE);
+                long previous = 0;
+                for (ColumnarFile.Row row : group) {
+                    if (row.date() == null)
+                        continue;
+                    final long micros = ColumnarFile.epochMicros(row.date());
+                    ColumnarFile.writeSignedVarint(micros - previous, out);
+                    previous = micros;
+                }
+            }
+            case ORDER_ID -> {
+                writeNulls(out, ColumnarFile.Column.ORDER_ID);
+                for (ColumnarFile.Row row : group)
+                    if (row.orderId() != null)
+                        writeString(row.orderId(), out);
+            }
+            case STATUS -> writeDictionary(out, group.stream().map(ColumnarFile.Row::status).toList());
+            case AMOUNT -> {
+                writeNulls(out, ColumnarFile.Column.AMOUNT);
+                final var amounts = ByteBuffer.allocate(8);
+                for (ColumnarFile.Row row : group) {
+                    if (row.amount() == null)
+                        continue;
+                    out.writeBytes(amounts.clear().putDouble(row.amount()).array());
+                }
+            }
+            case CURRENCY -> writeDictionary(out, group.stream().map(ColumnarFile.Row::currency).toList());
+        }
+        return out.toByteArray();
+    }
+
+    private void writeNulls(ByteArrayOutputStream out, ColumnarFile.Column column) {
+        final var bitmap = new byte[(group.size() + 7) / 8];
+        for (int i = 0; i < group.size(); i++) {
+            final var row = group.get(i);
+            final boolean isNull = switch (column) {
+                case DATE -> row.date() == null;
+                case ORDER_ID -> row.orderId() == null;
+                case AMOUNT -> row.amount() == null;
+                default -> false;
+            };
+            if (isNull)
+                bitmap[i >> 3] |= (byte) (1 << (i & 7));
+        }
+        out.writeBytes(bitmap);
+    }
+
+    private static void writeDictionary(ByteArrayOutputStream out, List<String> values) {
+        final Map<String, Integer> codes = new HashMap<>();
+        final List<String> dictionary = new ArrayList<>();
+        for (String value : values)
+            if (value != null && !codes.containsKey(value)) {
+                codes.put(value, dictionary.size() + 1);
+                dictionary.add(value);
+            }
+        ColumnarFile.writeVarint(dictionary.size(), out);
+        for (String entry : dictionary)
+            writeString(entry, out);
+        for (String value : values)
+            ColumnarFile.writeVarint(value == null ? 0 : codes.get(value), out);
+    }
+
+    private static void writeString(String value, ByteArrayOutputStream out) {
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        ColumnarFile.writeVarint(bytes.length, out);
+        out.writeBytes(bytes);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
@@ -0,0 +1,52 @@
+package com.tsys.tc_spike.export;
+
+import com.tsys.tc_spike.domain.Transaction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+// RFC 4180 CSV with a header line.  Fields containing a comma, a quote or a
+// line break are quoted.  Amounts are written in plain notation, never as
+// 1.0E7, so spreadsheets and partners' parsers read them as numbers.
+class CsvExportFormat implements ExportFormat {
+    private final boolean references;
+    private final StringBuilder line = new StringBuilder(128);
+
+    CsvExportFormat(boolean references) {
+        this.references = references;
+    }
+
+    @Override
+    public void begin(OutputStream out) throws IOException {
+        writeLine(out, references ? "id,date,status" : "id,date,status,orderId,amount,currency");
+    }
+
+    @Override
+    public void write(Transaction transaction, OutputStream out) throws IOException {
+        line.setLength(0);
+        line.append(transaction.id).append(',').append(transaction.date).append(',');
+        appendField(transaction.status);
+        if (!references) {
+            line.append(',');
+            appendField(transaction.orderId);
+            line.append(',').append(BigDecimal.valueOf(transaction.value.amount).toPlainString())
+                    .append(',').append(transaction.value.currency.getCurrencyCode());
+        }
+        writeLine(out, line);
+    }
+
+    private void appendField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private void writeLine(OutputStream out, CharSequence text) throws IOException {
+        out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+}
@@ -0,0 +1,19 @@
+package com.tsys.tc_spike.export;
+
+import com.tsys.tc_spike.domain.Transaction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Writes exported transactions, one at a time, in a particular media type.
+// A new instance is created per export, so implementations may keep state.
+interface ExportFormat {
+
+    default void begin(OutputStream out) throws IOException {
+    }
+
+    void write(Transaction transaction, OutputStream out) throws IOException;
+
+    default void end(OutputStream out) throws IOException {
+    }
+}
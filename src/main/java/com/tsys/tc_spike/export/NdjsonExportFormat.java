@@ -0,0 +1,50 @@
+package com.tsys.tc_spike.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionReference;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Newline delimited JSON: one Transaction (or TransactionReference) per line.
+// A single JsonGenerator is reused for all the lines of an export.  Its flushes
+// only hand the bytes over to the (buffered) output stream, flushing the stream
+// itself is left to the controller.  The ObjectWriter is bound to the row type
+// up front, so the serializer is looked up once per export and not per row.
+class NdjsonExportFormat implements ExportFormat {
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final boolean references;
+    private JsonGenerator generator;
+
+    NdjsonExportFormat(ObjectMapper objectMapper, boolean references) {
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(references ? TransactionReference.class : Transaction.class);
+        this.references = references;
+    }
+
+    @Override
+    public void begin(OutputStream out) throws IOException {
+        generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        // The lines are separated by the newlines written below, not by the
+        // space Jackson puts between root values by default.
+        generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void write(Transaction transaction, OutputStream out) throws IOException {
+        writer.writeValue(generator, references ? transaction.reference() : transaction);
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    @Override
+    public void end(OutputStream out) throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,12 @@
+package com.tsys.tc_spike.export;
+
+import java.nio.file.Path;
+import java.util.List;
+
+// The files of an export, all as of the exported Postgres snapshot.
+public record SnapshotExport(String snapshot, List<Path> files, long rows, long bytes, long elapsedMillis) {
+
+    public double rowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000d / elapsedMillis;
+    }
+}
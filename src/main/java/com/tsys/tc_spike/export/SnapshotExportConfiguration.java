@@ -0,0 +1,26 @@
+package com.tsys.tc_spike.export;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Snapshot exports are reporting work, so they take their connections from the
+// REPORTING pool (datasource.pools.reporting.*), workers + 1 at a time:
+//
+//   export.snapshot.workers=3
+//   export.snapshot.row-group-size=65536
+//
+// Only Postgres can export a snapshot.
+@Configuration
+public class SnapshotExportConfiguration {
+
+    @Bean
+    public SnapshotExporter snapshotExporter(@Qualifier("reportingDataSource") DataSource dataSource,
+                                             @Value("${export.snapshot.workers:3}") int workers,
+                                             @Value("${export.snapshot.row-group-size:65536}") int rowGroupSize) {
+        return new SnapshotExporter(dataSource, workers, rowGroupSize);
+    }
+}
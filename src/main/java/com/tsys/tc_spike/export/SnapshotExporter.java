@@ -0,0 +1,174 @@
+package com.tsys.tc_spike.export;
+
+import com.tsys.tc_spike.batch.KeyRange;
+import com.tsys.tc_spike.repository.TransactionRowMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Exports the transactions table of a Postgres database, as of one point in
+// time, to ColumnarFiles: one per worker, each holding a KeyRange of ids.
+//
+// A coordinating transaction (REPEATABLE READ) exports its snapshot with
+// pg_export_snapshot(), and every worker starts its own REPEATABLE READ
+// transaction with SET TRANSACTION SNAPSHOT, before reading anything.  So all
+// workers see exactly the rows the coordinator sees, however much the table
+// changes in the meantime, while reading disjoint ranges in parallel.  The
+// coordinator stays open until every worker is done (an exported snapshot
+// can only be imported while its transaction is open).
+//
+// An export takes workers + 1 connections of the DataSource at once.  The
+// files of an export that failed are incomplete, and overwritten by the next
+// export to the same directory.
+public class SnapshotExporter {
+    public static final String FILE_PREFIX = "transactions-";
+    private static final String SQL = "SELECT id, version, date, order_id, status, amount, currency FROM transactions";
+    private static final int FETCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final int workers;
+    private final int rowGroupSize;
+
+    public SnapshotExporter(DataSource dataSource, int workers, int rowGroupSize) {
+        if (workers < 1)
+            throw new IllegalArgumentException("There must be at least one worker, not " + workers);
+        this.dataSource = dataSource;
+        this.workers = workers;
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    public SnapshotExport export(Path directory) {
+        final long start = System.nanoTime();
+        try (var coordinator = dataSource.getConnection()) {
+            Files.createDirectories(directory);
+            final int isolation = coordinator.getTransactionIsolation();
+            coordinator.setAutoCommit(false);
+            coordinator.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                final String snapshot;
+                try (var statement = coordinator.createStatement();
+                     var resultSet = statement.executeQuery("SELECT pg_export_snapshot()")) {
+                    resultSet.next();
+                    snapshot = resultSet.getString(1);
+                }
+
+                final List<Callable<Long>> exports = new ArrayList<>();
+                final List<Path> files = new ArrayList<>();
+                for (KeyRange range : KeyRange.split(workers)) {
+                    final var file = directory.resolve(String.format("%s%03d%s", FILE_PREFIX, range.partition(), ColumnarFile.EXTENSION));
+                    files.add(file);
+                    exports.add(() -> export(snapshot, range, file));
+                }
+                final long rows = runAll(exports).stream().mapToLong(Long::longValue).sum();
+                long bytes = 0;
+                for (Path file : files)
+                    bytes += Files.size(file);
+                return new SnapshotExport(snapshot, files, rows, bytes, (System.nanoTime() - start) / 1_000_000);
+            } finally {
+                coordinator.rollback();
+                coordinator.setAutoCommit(true);
+                coordinator.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not export the transactions to " + directory, e);
+        }
+    }
+
+    private long export(String snapshot, KeyRange range, Path file) throws SQLException, IOException {
+        final var sql = SQL + " WHERE 1 = 1" +
+                (range.from() != null ? " AND id >= ?" : "") +
+                (range.to() != null ? " AND id < ?" : "");
+        try (var connection = dataSource.getConnection()) {
+            final int isolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                try (var statement = connection.createStatement()) {
+                    // The snapshot id comes from pg_export_snapshot(), not from a user.
+                    statement.execute("SET TRANSACTION SNAPSHOT '" + snapshot + "'");
+                }
+                try (var statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                     var writer = new ColumnarFileWriter(file, rowGroupSize)) {
+                    statement.setFetchSize(FETCH_SIZE);
+                    int index = 1;
+                    if (range.from() != null)
+                        statement.setObject(index++, range.from());
+                    if (range.to() != null)
+                        statement.setObject(index, range.to());
+                    final var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                    try (var resultSet = statement.executeQuery()) {
+                        while (resultSet.next())
+                            writer.write(row(resultSet, utc));
+                    }
+                    return writer.rows();
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(isolation);
+            }
+        }
+    }
+
+    // Dates are UTC instants, as Hibernate writes them.
+    private static ColumnarFile.Row row(ResultSet rs, Calendar utc) throws SQLException {
+        final var date = rs.getTimestamp("date", utc);
+        final double amount = rs.getDouble("amount");
+        final Double nullableAmount = rs.wasNull() ? null : amount;
+        return new ColumnarFile.Row(TransactionRowMapper.uuid(rs.getObject("id")),
+                rs.getLong("version"),
+                date == null ? null : date.toInstant(),
+                rs.getString("order_id"),
+                rs.getString("status"),
+                nullableAmount,
+                rs.getString("currency"));
+    }
+
+    private <T> List<T> runAll(List<Callable<T>> tasks) {
+        final var threads = new AtomicInteger();
+        final var executor = Executors.newFixedThreadPool(workers, runnable -> {
+            final var thread = new Thread(runnable, "snapshot-export-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks)
+                futures.add(executor.submit(task));
+            final List<T> results = new ArrayList<>(futures.size());
+            IllegalStateException failure = null;
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while exporting the transactions", e);
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = new IllegalStateException("Could not export the transactions", e.getCause());
+                    else
+                        failure.addSuppressed(e.getCause());
+                }
+            }
+            if (failure != null)
+                throw failure;
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
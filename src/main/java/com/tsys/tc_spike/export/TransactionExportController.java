@@ -0,0 +1,109 @@
+package com.tsys.tc_spike.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tsys.tc_spike.binary.TransactionBinary;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionCursor;
+import com.tsys.tc_spike.repository.TransactionFilter;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedOutputStream;
+import java.time.Instant;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Streams transactions for partner downloads, e.g.:
+//
+//   GET /transactions/export?from=2021-03-17T00:00:00Z&to=2021-03-18T00:00:00Z&status=accepted
+//   Accept: application/x-ndjson (default), text/csv or application/x-txn-binary
+//
+// with view=reference exporting TransactionReferences instead of Transactions.
+// The binary format (see TransactionBinary) is for service-to-service sync.
+//
+// Although WebFlux is on the classpath, Spring Boot runs App on the servlet stack
+// because Spring MVC is there too.  So the cursor-backed Flux is drained from a
+// StreamingResponseBody: the Flux is consumed as a Stream with a small prefetch,
+// so that rows are only pulled from the cursor as fast as the client reads them
+// - a blocked socket write stops the demand.  The first rows are flushed
+// immediately, later ones in chunks of the output buffer.
+//
+// Compression is done by the servlet container (see server.compression.* in the
+// application properties), which gzips chunk by chunk as well.
+@RestController
+@RequestMapping("/transactions")
+public class TransactionExportController {
+    static final String NDJSON = "application/x-ndjson";
+    private static final int PREFETCH = 256;
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    private final TransactionCursor cursor;
+    private final ObjectMapper objectMapper;
+
+    public TransactionExportController(TransactionCursor cursor, ObjectMapper objectMapper) {
+        this.cursor = cursor;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportNdjson(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                              @RequestParam(required = false) Set<String> status,
+                                                              @RequestParam(defaultValue = "transaction") String view) {
+        return export(MediaType.parseMediaType(NDJSON), new TransactionFilter(from, to, status),
+                () -> new NdjsonExportFormat(objectMapper, isReference(view)));
+    }
+
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                           @RequestParam(required = false) Set<String> status,
+                                                           @RequestParam(defaultValue = "transaction") String view) {
+        return export(MediaType.parseMediaType("text/csv"), new TransactionFilter(from, to, status),
+                () -> new CsvExportFormat(isReference(view)));
+    }
+
+    @GetMapping(value = "/export", produces = TransactionBinary.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportBinary(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                              @RequestParam(required = false) Set<String> status,
+                                                              @RequestParam(defaultValue = "transaction") String view) {
+        return export(MediaType.parseMediaType(TransactionBinary.MEDIA_TYPE), new TransactionFilter(from, to, status),
+                () -> new BinaryExportFormat(isReference(view)));
+    }
+
+    ResponseEntity<StreamingResponseBody> export(MediaType mediaType, TransactionFilter filter, Supplier<ExportFormat> formats) {
+        final Flux<Transaction> transactions = cursor.stream(filter);
+        final StreamingResponseBody body = out -> {
+            final var format = formats.get();
+            final var buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+            // Closing the Stream (also when the client goes away) cancels the
+            // subscription, which closes the cursor.
+            try (var rows = transactions.toStream(PREFETCH)) {
+                format.begin(buffered);
+                boolean first = true;
+                for (var iterator = rows.iterator(); iterator.hasNext(); ) {
+                    format.write(iterator.next(), buffered);
+                    if (first) {
+                        buffered.flush();
+                        first = false;
+                    }
+                }
+                format.end(buffered);
+            }
+            buffered.flush();
+        };
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    private static boolean isReference(String view) {
+        return "reference".equalsIgnoreCase(view);
+    }
+}
@@ -0,0 +1,33 @@
+package com.tsys.tc_spike.feed;
+
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// The feed is only consumed when a Kafka cluster is configured, for example:
+//
+//   feed.kafka.bootstrap-servers=localhost:9092
+//   feed.kafka.topics=transaction-feed
+//   feed.kafka.group-id=tc-spike
+//   feed.workers=4
+//   feed.max-poll-records=5000
+@Configuration
+@ConditionalOnProperty("feed.kafka.bootstrap-servers")
+public class TransactionFeedConfiguration {
+
+    @Bean
+    public TransactionFeedConsumer transactionFeedConsumer(@Value("${feed.kafka.bootstrap-servers}") String bootstrapServers,
+                                                           @Value("${feed.kafka.group-id:tc-spike}") String groupId,
+                                                           @Value("${feed.kafka.topics:transaction-feed}") List<String> topics,
+                                                           @Value("${feed.workers:4}") int workers,
+                                                           @Value("${feed.max-poll-records:5000}") int maxPollRecords,
+                                                           TransactionRepository transactionRepository,
+                                                           TransactionTemplate transactionTemplate) {
+        return new TransactionFeedConsumer(bootstrapServers, groupId, topics, workers, maxPollRecords, transactionRepository, transactionTemplate);
+    }
+}
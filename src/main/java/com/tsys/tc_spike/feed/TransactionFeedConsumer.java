@@ -0,0 +1,113 @@
+package com.tsys.tc_spike.feed;
+
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Consumes the transaction feed using a pool of workers that all belong to the
+// same consumer group.  Kafka spreads the partitions of the topic across them,
+// so the feed scales by partition: there is no point in having more workers than
+// partitions.
+public class TransactionFeedConsumer implements SmartLifecycle {
+    private final Map<String, Object> consumerProperties;
+    private final List<String> topics;
+    private final int workers;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionFeedDecoder decoder = new TransactionFeedDecoder();
+    private final TransactionFeedMetrics metrics = new TransactionFeedMetrics();
+    private final List<TransactionFeedWorker> running = new ArrayList<>();
+    private ExecutorService executor;
+
+    public TransactionFeedConsumer(String bootstrapServers, String groupId, List<String> topics, int workers, int maxPollRecords,
+                                   TransactionRepository transactionRepository, TransactionTemplate transactionTemplate) {
+        this.consumerProperties = consumerProperties(bootstrapServers, groupId, maxPollRecords);
+        this.topics = topics;
+        this.workers = workers;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    static Map<String, Object> consumerProperties(String bootstrapServers, String groupId, int maxPollRecords) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        // Offsets are committed by the workers, after the database commit.
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // Large batches, fetched in large chunks, amortise the database round-trips.
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        properties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 64 * 1024);
+        properties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 100);
+        properties.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, 4 * 1024 * 1024);
+        return properties;
+    }
+
+    public TransactionFeedMetrics metrics() {
+        return metrics;
+    }
+
+    // The number of workers whose last poll failed (or that have not polled
+    // yet); the feed is only healthy while this is 0.
+    public synchronized int workersDown() {
+        return (int) running.stream().filter(worker -> !worker.up()).count();
+    }
+
+    public synchronized boolean healthy() {
+        return isRunning() && workersDown() == 0;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (isRunning())
+            return;
+
+        final var threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            final var thread = new Thread(runnable, "transaction-feed-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            final var worker = new TransactionFeedWorker(new KafkaConsumer<>(consumerProperties), topics, Duration.ofMillis(500),
+                    decoder, transactionRepository, transactionTemplate, metrics);
+            running.add(worker);
+            executor.execute(worker);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!isRunning())
+            return;
+
+        running.forEach(TransactionFeedWorker::stop);
+        running.clear();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return !running.isEmpty();
+    }
+}
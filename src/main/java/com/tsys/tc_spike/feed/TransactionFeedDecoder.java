@@ -0,0 +1,73 @@
+package com.tsys.tc_spike.feed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Currency;
+import java.util.UUID;
+
+// Decodes and validates a JSON transaction record, for example:
+//
+//   {"id":"...","date":"2021-03-17T10:15:30Z","status":"accepted","orderId":"ORDER-1",
+//    "value":{"currency":"INR","amount":100.25}}
+//
+// which is the same shape in which a Transaction is serialised elsewhere.
+// Besides the presence of all the fields, the Money is validated: the currency
+// must be an ISO 4217 code and the amount a finite number.
+public class TransactionFeedDecoder {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public Transaction decode(String json) {
+        try {
+            return decode(objectMapper.readTree(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed transaction record: " + json, e);
+        }
+    }
+
+    // Throws an IllegalArgumentException, whose message says what is wrong, when
+    // the record is not a valid transaction.
+    public Transaction decode(JsonNode node) {
+        if (!node.isObject())
+            throw new IllegalArgumentException("A transaction record must be a JSON object");
+
+        try {
+            return new Transaction(UUID.fromString(text(node, "id")),
+                    Instant.parse(text(node, "date")),
+                    text(node, "status"),
+                    text(node, "orderId"),
+                    money(node.required("value")));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + e.getParsedString(), e);
+        }
+    }
+
+    private Money money(JsonNode value) {
+        final var code = text(value, "currency");
+        final Currency currency;
+        try {
+            currency = Currency.getInstance(code);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown currency: " + code, e);
+        }
+
+        final var amount = value.required("amount");
+        if (!amount.isNumber() || !Double.isFinite(amount.doubleValue()))
+            throw new IllegalArgumentException("Amount must be a finite number: " + amount);
+
+        return new Money(currency, amount.doubleValue());
+    }
+
+    private static String text(JsonNode node, String field) {
+        final var value = node.required(field);
+        if (!value.isTextual() || value.asText().isBlank())
+            throw new IllegalArgumentException("Field '" + field + "' must be a non-blank string");
+
+        return value.asText();
+    }
+}
@@ -0,0 +1,66 @@
+package com.tsys.tc_spike.feed;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters shared by all the workers of a TransactionFeedConsumer.
+public class TransactionFeedMetrics {
+    private final long startedAt = System.nanoTime();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    void batchWritten(int consumed, int written, int duplicates, int rejected) {
+        this.consumed.add(consumed);
+        this.written.add(written);
+        this.duplicates.add(duplicates);
+        this.rejected.add(rejected);
+        batches.increment();
+    }
+
+    void failed() {
+        failures.increment();
+    }
+
+    public long consumed() {
+        return consumed.sum();
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    // Records dropped because a later record in the same batch had the same
+    // orderId, or because their id was already stored.
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    // Records that could not be decoded.
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    // Polls, or writes of a batch, that failed and were retried.
+    public long failures() {
+        return failures.sum();
+    }
+
+    public double recordsPerSecond() {
+        final long elapsed = System.nanoTime() - startedAt;
+        return elapsed == 0 ? 0 : consumed() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransactionFeedMetrics{consumed=%d, written=%d, duplicates=%d, rejected=%d, batches=%d, failures=%d, recordsPerSecond=%.0f}",
+                consumed(), written(), duplicates(), rejected(), batches(), failures(), recordsPerSecond());
+    }
+}
@@ -0,0 +1,157 @@
+package com.tsys.tc_spike.feed;
+
+import com.tsys.tc_spike.datasource.Workload;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Owns one KafkaConsumer (which must not be shared between threads) and hence
+// the partitions the group coordinator assigns to it.
+//
+// Each poll answers a large batch of records which is decoded, deduplicated by
+// orderId (the last record of an order within the batch wins) and written by
+// TransactionRepository.insertAllNew in a single database transaction.  Only
+// after that transaction has committed are the offsets of the batch committed,
+// so a crash in between replays the batch, which insertAllNew then skips.
+//
+// Any other failure (of the database, or of Kafka) is logged, and the worker
+// reports itself down, backs off (doubling up to MAX_BACKOFF) and then seeks
+// back to the last committed offsets, so that the batch that failed is polled
+// again, before carrying on.
+class TransactionFeedWorker implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionFeedWorker.class);
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final Consumer<String, String> consumer;
+    private final List<String> topics;
+    private final Duration pollTimeout;
+    private final TransactionFeedDecoder decoder;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionFeedMetrics metrics;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean up;
+
+    TransactionFeedWorker(Consumer<String, String> consumer, List<String> topics, Duration pollTimeout,
+                          TransactionFeedDecoder decoder, TransactionRepository transactionRepository,
+                          TransactionTemplate transactionTemplate, TransactionFeedMetrics metrics) {
+        this.consumer = consumer;
+        this.topics = topics;
+        this.pollTimeout = pollTimeout;
+        this.decoder = decoder;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void run() {
+        try {
+            consumer.subscribe(topics);
+            Duration backoff = Duration.ZERO;
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    if (!backoff.isZero())
+                        rewind();
+                    final ConsumerRecords<String, String> records = consumer.poll(pollTimeout);
+                    if (!records.isEmpty())
+                        process(records);
+                    backoff = Duration.ZERO;
+                    up = true;
+                } catch (WakeupException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    up = false;
+                    metrics.failed();
+                    backoff = backoff.isZero() ? MIN_BACKOFF : min(backoff.multipliedBy(2), MAX_BACKOFF);
+                    LOG.error("Failed to consume {}, resuming from the last committed offsets in {} ms", topics, backoff.toMillis(), e);
+                    if (stopped.await(backoff.toMillis(), TimeUnit.MILLISECONDS))
+                        break;
+                }
+            }
+        } catch (WakeupException e) {
+            // stop() was called, fall through and close the consumer.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            up = false;
+            consumer.close();
+        }
+    }
+
+    void stop() {
+        stopped.countDown();
+        consumer.wakeup();
+    }
+
+    // Whether its last poll (and the write of the batch it answered) succeeded.
+    boolean up() {
+        return up;
+    }
+
+    // Makes the next poll answer the records after the last committed offsets
+    // again, or those from the beginning for a partition never committed (as
+    // auto.offset.reset=earliest would).
+    private void rewind() {
+        final var assigned = consumer.assignment();
+        final var committed = consumer.committed(assigned);
+        for (TopicPartition partition : assigned) {
+            final var offset = committed.get(partition);
+            if (offset == null)
+                consumer.seekToBeginning(List.of(partition));
+            else
+                consumer.seek(partition, offset);
+        }
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private void process(ConsumerRecords<String, String> records) {
+        final Map<String, Transaction> byOrderId = new LinkedHashMap<>(records.count() * 2);
+        int rejected = 0;
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                final var transaction = decoder.decode(record.value());
+                byOrderId.put(transaction.orderId, transaction);
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Rejecting record at {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+                rejected++;
+            }
+        }
+
+        final int written = Workload.BATCH.call(() -> transactionTemplate.execute(status -> transactionRepository.insertAllNew(byOrderId.values())));
+        consumer.commitSync(nextOffsets(records));
+
+        final int decoded = records.count() - rejected;
+        metrics.batchWritten(records.count(), written, decoded - written, rejected);
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> nextOffsets(ConsumerRecords<String, String> records) {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            final var partitionRecords = records.records(partition);
+            final long last = partitionRecords.get(partitionRecords.size() - 1).offset();
+            offsets.put(partition, new OffsetAndMetadata(last + 1));
+        }
+        return offsets;
+    }
+}
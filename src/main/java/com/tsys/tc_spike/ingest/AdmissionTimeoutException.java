@@ -0,0 +1,9 @@
+package com.tsys.tc_spike.ingest;
+
+// Thrown when the database writer has fallen so far behind that a batch could
+// not be queued within the admission timeout.
+public class AdmissionTimeoutException extends RuntimeException {
+    public AdmissionTimeoutException(String message) {
+        super(message);
+    }
+}
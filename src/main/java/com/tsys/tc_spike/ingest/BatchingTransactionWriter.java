@@ -0,0 +1,100 @@
+package com.tsys.tc_spike.ingest;
+
+import com.tsys.tc_spike.domain.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+// Writes the batches of all uploads using a fixed number of writer threads.
+//
+// Batches wait for a writer in a bounded queue, which is where admission
+// control happens: when the writers fall behind, the queue fills up and submit
+// blocks the uploading request thread.  That thread then stops reading the
+// request body, so TCP flow control pushes back on the client.  Should the
+// queue stay full for longer than the admission timeout, submit gives up with
+// an AdmissionTimeoutException instead of holding the request forever.
+//
+// On close the batches still queued are failed rather than left pending, so
+// that no upload waits forever for them; batches a writer has already taken
+// are written.
+public class BatchingTransactionWriter implements AutoCloseable {
+    private final BlockingQueue<PendingBatch> queue;
+    private final ToIntFunction<List<Transaction>> sink;
+    private final long admissionTimeoutMillis;
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean closed;
+
+    // The sink writes a batch in one database transaction and answers the number
+    // of rows inserted.
+    public BatchingTransactionWriter(ToIntFunction<List<Transaction>> sink, int writerThreads, int queueCapacity, long admissionTimeoutMillis) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        for (int i = 0; i < writerThreads; i++) {
+            final var writer = new Thread(this::write, "ingest-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    public CompletableFuture<Integer> submit(List<Transaction> batch) {
+        if (closed)
+            return CompletableFuture.failedFuture(closedException());
+
+        final var pending = new PendingBatch(batch, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, admissionTimeoutMillis, TimeUnit.MILLISECONDS))
+                throw new AdmissionTimeoutException("The database writer is saturated, try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionTimeoutException("Interrupted while waiting for the database writer");
+        }
+        // Closed while waiting to be queued, after close drained the queue.
+        if (closed && queue.remove(pending))
+            pending.written.completeExceptionally(closedException());
+        return pending.written;
+    }
+
+    // Number of batches waiting for a writer.
+    public int pending() {
+        return queue.size();
+    }
+
+    private void write() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final PendingBatch pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                pending.written.complete(sink.applyAsInt(pending.transactions));
+            } catch (RuntimeException e) {
+                pending.written.completeExceptionally(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        writers.forEach(Thread::interrupt);
+        final List<PendingBatch> unwritten = new ArrayList<>();
+        queue.drainTo(unwritten);
+        unwritten.forEach(pending -> pending.written.completeExceptionally(closedException()));
+    }
+
+    private static IllegalStateException closedException() {
+        return new IllegalStateException("The database writer was closed before the batch was written");
+    }
+
+    private record PendingBatch(List<Transaction> transactions, CompletableFuture<Integer> written) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.tsys.tc_spike.ingest;
+
+import com.tsys.tc_spike.datasource.Workload;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// The writer can be tuned using:
+//
+//   ingest.writer-threads=2          batches written concurrently
+//   ingest.queue-capacity=4          batches waiting for a writer before uploads are held back
+//   ingest.admission-timeout-ms=30000  how long an upload is held back before it gets a 503
+//
+// and ingest.batch-size=1000 sets the records per batch (and database transaction).
+@Configuration
+public class IngestConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public BatchingTransactionWriter batchingTransactionWriter(@Value("${ingest.writer-threads:2}") int writerThreads,
+                                                               @Value("${ingest.queue-capacity:4}") int queueCapacity,
+                                                               @Value("${ingest.admission-timeout-ms:30000}") long admissionTimeoutMillis,
+                                                               TransactionRepository transactionRepository,
+                                                               TransactionTemplate transactionTemplate) {
+        return new BatchingTransactionWriter(
+                batch -> Workload.BATCH.call(() -> transactionTemplate.execute(status -> transactionRepository.insertAllNew(batch))),
+                writerThreads,
+                queueCapacity,
+                admissionTimeoutMillis);
+    }
+}
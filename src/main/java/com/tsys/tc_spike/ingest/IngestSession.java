@@ -0,0 +1,76 @@
+package com.tsys.tc_spike.ingest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.feed.TransactionFeedDecoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// The state of one upload: validates each record as it is parsed, cuts the
+// records into batches of batchSize and hands the valid ones of each batch to
+// the writer.  The batches are written while the upload is still being read.
+class IngestSession {
+    private final TransactionFeedDecoder decoder;
+    private final BatchingTransactionWriter writer;
+    private final int batchSize;
+    private final List<CompletableFuture<IngestSummary.Batch>> batches = new ArrayList<>();
+    private List<Transaction> transactions = new ArrayList<>();
+    private List<IngestSummary.Rejection> rejections = new ArrayList<>();
+
+    IngestSession(TransactionFeedDecoder decoder, BatchingTransactionWriter writer, int batchSize) {
+        this.decoder = decoder;
+        this.writer = writer;
+        this.batchSize = batchSize;
+    }
+
+    void record(long line, JsonNode record) {
+        try {
+            transactions.add(decoder.decode(record));
+        } catch (IllegalArgumentException e) {
+            rejections.add(new IngestSummary.Rejection(line, e.getMessage()));
+        }
+        if (transactions.size() + rejections.size() == batchSize)
+            submit();
+    }
+
+    // Submits the last, partial batch and waits for all the batches to be written.
+    IngestSummary finish() {
+        submit();
+        return IngestSummary.of(written(), null);
+    }
+
+    // Waits for the batches submitted so far, discarding the partial batch.
+    IngestSummary abort(String error) {
+        return IngestSummary.of(written(), error);
+    }
+
+    private void submit() {
+        if (transactions.isEmpty() && rejections.isEmpty())
+            return;
+
+        final int number = batches.size() + 1;
+        final var valid = transactions;
+        final var rejected = rejections;
+        transactions = new ArrayList<>(batchSize);
+        rejections = new ArrayList<>();
+        final CompletableFuture<Integer> written = valid.isEmpty()
+                ? CompletableFuture.completedFuture(0)
+                : writer.submit(valid);
+        batches.add(written.handle((inserted, failure) -> {
+            if (failure == null)
+                return new IngestSummary.Batch(number, inserted, valid.size() - inserted, rejected.size(), rejected);
+
+            final var cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            final List<IngestSummary.Rejection> all = new ArrayList<>(rejected);
+            all.add(new IngestSummary.Rejection(0, "Batch could not be written: " + cause.getMessage()));
+            return new IngestSummary.Batch(number, 0, 0, rejected.size() + valid.size(), all);
+        }));
+    }
+
+    private List<IngestSummary.Batch> written() {
+        return batches.stream().map(CompletableFuture::join).toList();
+    }
+}
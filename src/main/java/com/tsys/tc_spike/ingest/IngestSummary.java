@@ -0,0 +1,29 @@
+package com.tsys.tc_spike.ingest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Response of an upload: the totals over, and the summary of, every batch
+// written.  error is only present when the upload could not be read (or
+// admitted) to the end, in which case the batches are those written before.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IngestSummary(long accepted, long duplicates, long rejected, List<Batch> batches, String error) {
+
+    static IngestSummary of(List<Batch> batches, String error) {
+        return new IngestSummary(batches.stream().mapToLong(Batch::accepted).sum(),
+                batches.stream().mapToLong(Batch::duplicates).sum(),
+                batches.stream().mapToLong(Batch::rejected).sum(),
+                batches,
+                error);
+    }
+
+    // accepted rows were written, duplicates were already stored (or repeated an
+    // id within the batch) and rejected ones failed validation or the write.
+    public record Batch(int number, int accepted, int duplicates, int rejected, List<Rejection> rejections) {
+    }
+
+    // line is the 1-based number of the record in the upload.
+    public record Rejection(long line, String reason) {
+    }
+}
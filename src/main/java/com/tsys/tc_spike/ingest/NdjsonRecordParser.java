@@ -0,0 +1,74 @@
+package com.tsys.tc_spike.ingest;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+
+// Splits newline delimited JSON into records as the bytes arrive.
+//
+// The chunks are fed to Jackson's non-blocking parser, which answers
+// NOT_AVAILABLE instead of blocking when a chunk ends in the middle of a
+// record.  The tokens of the record being parsed are collected in a
+// TokenBuffer and only turned into a tree once the record is complete, so at
+// no point is more than one record (plus one chunk) held in memory.
+//
+// A syntax error surfaces as a JsonProcessingException; the rest of the input
+// cannot be trusted after that.
+class NdjsonRecordParser {
+    interface RecordHandler {
+        void record(long number, JsonNode record);
+    }
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private TokenBuffer tokens;
+    private int depth;
+    private long records;
+
+    NdjsonRecordParser(ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    // Parses as many records as the chunk completes.  The parser consumes the
+    // whole chunk before returning, so the caller may reuse the array.
+    void feed(byte[] chunk, int length, RecordHandler handler) throws IOException {
+        feeder.feedInput(chunk, 0, length);
+        drain(handler);
+    }
+
+    void endOfInput(RecordHandler handler) throws IOException {
+        feeder.endOfInput();
+        drain(handler);
+        if (tokens != null)
+            throw new JsonParseException(parser, "Input ended in the middle of record " + (records + 1));
+    }
+
+    private void drain(RecordHandler handler) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (tokens == null)
+                tokens = new TokenBuffer(parser);
+
+            tokens.copyCurrentEvent(parser);
+            if (token.isStructStart())
+                depth++;
+            else if (token.isStructEnd())
+                depth--;
+
+            if (depth == 0) {
+                final JsonNode record = objectMapper.readTree(tokens.asParser());
+                tokens = null;
+                handler.record(++records, record);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.tsys.tc_spike.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tsys.tc_spike.feed.TransactionFeedDecoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Accepts large uploads of newline delimited JSON transactions:
+//
+//   POST /transactions/ingest
+//   Content-Type: application/x-ndjson
+//
+// The body is never buffered as a whole: it is read in small chunks which are
+// parsed incrementally, validated record by record and written in batches
+// while the upload is in progress.  The response summarises every batch.
+//
+// An upload that is not well-formed JSON is answered with 400, one that the
+// writer could not keep up with with 503 and a Retry-After; in both cases the
+// body lists the batches that were written before.
+@RestController
+@RequestMapping("/transactions")
+public class TransactionIngestController {
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    private final ObjectMapper objectMapper;
+    private final BatchingTransactionWriter writer;
+    private final TransactionFeedDecoder decoder = new TransactionFeedDecoder();
+    private final int batchSize;
+
+    public TransactionIngestController(ObjectMapper objectMapper, BatchingTransactionWriter writer,
+                                       @Value("${ingest.batch-size:1000}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.writer = writer;
+        this.batchSize = batchSize;
+    }
+
+    @PostMapping(value = "/ingest", consumes = "application/x-ndjson", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<IngestSummary> ingest(InputStream body) throws IOException {
+        final var session = new IngestSession(decoder, writer, batchSize);
+        final var parser = new NdjsonRecordParser(objectMapper);
+        final var chunk = new byte[CHUNK_SIZE];
+        try {
+            int read;
+            while ((read = body.read(chunk)) != -1)
+                parser.feed(chunk, read, session::record);
+            parser.endOfInput(session::record);
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(session.abort(e.getOriginalMessage()));
+        } catch (AdmissionTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(session.abort(e.getMessage()));
+        }
+        return ResponseEntity.ok(session.finish());
+    }
+}
@@ -0,0 +1,44 @@
+package com.tsys.tc_spike.invalidation;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.DriverManager;
+
+// With several instances sharing a (Postgres) database, each keeps its
+// LocalTransactionCaches up to date with the changes committed by the others
+// when enabled:
+//
+//   invalidation.enabled=true
+//   invalidation.channel=transaction_changes
+//   invalidation.poll-timeout-ms=500
+//   invalidation.reconnect-backoff-ms=1000
+//
+// The listener connects to the spring.datasource.* database directly, outside
+// of the pools.
+@Configuration
+@ConditionalOnProperty("invalidation.enabled")
+public class InvalidationConfiguration {
+
+    @Bean
+    public TransactionInvalidationPublisher transactionInvalidationPublisher(JdbcTemplate jdbcTemplate,
+                                                                             @Value("${invalidation.channel:transaction_changes}") String channel) {
+        return new TransactionInvalidationPublisher(jdbcTemplate, channel);
+    }
+
+    @Bean
+    public TransactionInvalidationListener transactionInvalidationListener(DataSourceProperties properties,
+                                                                           ObjectProvider<LocalTransactionCache> caches,
+                                                                           @Value("${invalidation.channel:transaction_changes}") String channel,
+                                                                           @Value("${invalidation.poll-timeout-ms:500}") int pollTimeoutMillis,
+                                                                           @Value("${invalidation.reconnect-backoff-ms:1000}") long reconnectBackoffMillis) {
+        return new TransactionInvalidationListener(
+                () -> DriverManager.getConnection(properties.determineUrl(), properties.determineUsername(), properties.determinePassword()),
+                channel, caches.orderedStream().toList(), pollTimeoutMillis, reconnectBackoffMillis);
+    }
+}
@@ -0,0 +1,63 @@
+package com.tsys.tc_spike.invalidation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+// The payload of an invalidation notification: the changed transactions as
+// "id:version" pairs, separated by commas, with a version of -1 for a deleted
+// one.  Postgres limits a payload to less than 8000 bytes, so the changes of a
+// large database transaction take several.
+final class InvalidationPayload {
+    static final int MAX_BYTES = 7999;
+
+    private InvalidationPayload() {
+    }
+
+    // A deletion wins over any version, and a later version over an earlier.
+    static long merge(long version, long other) {
+        if (version == LocalTransactionCache.DELETED || other == LocalTransactionCache.DELETED)
+            return LocalTransactionCache.DELETED;
+        return Math.max(version, other);
+    }
+
+    static List<String> encode(Map<UUID, Long> changes) {
+        final List<String> payloads = new ArrayList<>();
+        final var payload = new StringBuilder();
+        changes.forEach((id, version) -> {
+            final var entry = id + ":" + version;
+            // UUIDs and numbers are ASCII, so chars are bytes.
+            if (payload.length() > 0 && payload.length() + 1 + entry.length() > MAX_BYTES) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+            }
+            if (payload.length() > 0)
+                payload.append(',');
+            payload.append(entry);
+        });
+        if (payload.length() > 0)
+            payloads.add(payload.toString());
+        return payloads;
+    }
+
+    // Malformed entries are skipped.
+    static int decode(String payload, BiConsumer<UUID, Long> changes) {
+        if (payload == null || payload.isEmpty())
+            return 0;
+        int decoded = 0;
+        for (String entry : payload.split(",")) {
+            final int colon = entry.indexOf(':');
+            if (colon < 0)
+                continue;
+            try {
+                changes.accept(UUID.fromString(entry.substring(0, colon)), Long.parseLong(entry.substring(colon + 1)));
+                decoded++;
+            } catch (IllegalArgumentException e) {
+                // Not ours (NumberFormatException is one too).
+            }
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,18 @@
+package com.tsys.tc_spike.invalidation;
+
+import java.util.UUID;
+
+// A cache of transactions (or of facts about them, like their versions) local
+// to one instance, which the TransactionInvalidationListener keeps up to date
+// with the changes committed by all instances.
+public interface LocalTransactionCache {
+    long DELETED = -1;
+
+    // The transaction was changed to the version, or DELETED.  Entries of
+    // transactions not cached are not to be added.
+    void changed(UUID id, long version);
+
+    // Changes may have been missed (say, while disconnected): brings every
+    // entry up to date, or drops it.
+    void resync();
+}
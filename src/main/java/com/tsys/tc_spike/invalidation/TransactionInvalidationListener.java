@@ -0,0 +1,132 @@
+package com.tsys.tc_spike.invalidation;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+// Listens to the invalidation channel on a connection of its own (one that is
+// not taken from, or counted against, the pools), and hands every change
+// notified to the LocalTransactionCaches.
+//
+// Notifications sent while the connection is down are lost, so after every
+// (re)connection - once listening again, so that nothing falls in between -
+// the caches are resynced.  Connecting is retried every reconnectBackoff.
+public class TransactionInvalidationListener implements SmartLifecycle {
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionInvalidationListener.class);
+
+    private final Callable<Connection> connections;
+    private final String channel;
+    private final List<LocalTransactionCache> caches;
+    private final int pollTimeoutMillis;
+    private final long reconnectBackoffMillis;
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private volatile Thread thread;
+    private volatile Connection connection;
+
+    public TransactionInvalidationListener(Callable<Connection> connections, String channel, List<LocalTransactionCache> caches,
+                                           int pollTimeoutMillis, long reconnectBackoffMillis) {
+        if (!channel.matches("[a-z_][a-z0-9_]*"))
+            throw new IllegalArgumentException("Not a plain channel name: " + channel);
+        this.connections = connections;
+        this.channel = channel;
+        this.caches = caches;
+        this.pollTimeoutMillis = pollTimeoutMillis;
+        this.reconnectBackoffMillis = reconnectBackoffMillis;
+    }
+
+    // Notifications received, changes handed to the caches, and connections
+    // made (so reconnections are one less).
+    public long notifications() {
+        return notifications.sum();
+    }
+
+    public long changes() {
+        return changes.sum();
+    }
+
+    public long connects() {
+        return connects.sum();
+    }
+
+    // Whether it is listening right now.
+    public boolean listening() {
+        return connection != null;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (isRunning())
+            return;
+
+        thread = new Thread(this::run, "invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!isRunning())
+            return;
+
+        final var stopping = thread;
+        thread = null;
+        stopping.interrupt();
+        try {
+            stopping.join(pollTimeoutMillis + 5_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    private void run() {
+        final var self = Thread.currentThread();
+        while (thread == self) {
+            try (var listening = connections.call()) {
+                try (var statement = listening.createStatement()) {
+                    // The channel was checked to be a plain name.
+                    statement.execute("LISTEN " + channel);
+                }
+                connection = listening;
+                connects.increment();
+                caches.forEach(LocalTransactionCache::resync);
+                final var notified = listening.unwrap(PGConnection.class);
+                while (thread == self) {
+                    final var received = notified.getNotifications(pollTimeoutMillis);
+                    if (received == null)
+                        continue;
+                    for (var notification : received) {
+                        notifications.increment();
+                        changes.add(InvalidationPayload.decode(notification.getParameter(), (id, version) -> {
+                            for (LocalTransactionCache cache : caches)
+                                cache.changed(id, version);
+                        }));
+                    }
+                }
+            } catch (Exception e) {
+                if (thread != self)
+                    break;
+                LOG.warn("Lost the invalidation channel {}, reconnecting in {} ms", channel, reconnectBackoffMillis, e);
+            } finally {
+                connection = null;
+            }
+            try {
+                Thread.sleep(reconnectBackoffMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.tsys.tc_spike.invalidation;
+
+import com.tsys.tc_spike.domain.TransactionChanged;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Tells all instances about the transactions changed through this one, with
+// Postgres NOTIFYs on the invalidation channel (see InvalidationPayload).
+//
+// The NOTIFY is sent as the TransactionChanged event is published, that is,
+// on the very same JDBC connection and in the very same database transaction
+// as the change (like the OutboxWriter's insert).  Postgres only delivers the
+// notifications of a transaction once it commits, and drops them when it
+// rolls back - so rolled back changes are never notified, and no second
+// connection is needed to notify committed ones.  A transaction saved many
+// times over is notified once per version, and Postgres folds identical
+// notifications of one transaction into one.  Should the NOTIFY fail, so does
+// the change; should the instance die before its commit, neither is made.
+public class TransactionInvalidationPublisher {
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+
+    public TransactionInvalidationPublisher(JdbcTemplate jdbcTemplate, String channel) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.channel = channel;
+    }
+
+    @EventListener
+    public void on(TransactionChanged change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        final long version = change.kind() == TransactionChanged.Kind.DELETED ? LocalTransactionCache.DELETED : change.version();
+        final var id = change.transaction().id;
+        final var notified = notified();
+        final Long previous = notified.get(id);
+        if (previous != null && InvalidationPayload.merge(previous, version) == previous)
+            return;
+
+        publish(Map.of(id, version));
+        notified.put(id, version);
+    }
+
+    // The versions notified in the current database transaction so far,
+    // forgotten once it completes.
+    @SuppressWarnings("unchecked")
+    private Map<UUID, Long> notified() {
+        final var bound = (Map<UUID, Long>) TransactionSynchronizationManager.getResource(this);
+        if (bound != null)
+            return bound;
+
+        final Map<UUID, Long> notified = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, notified);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TransactionInvalidationPublisher.this);
+            }
+        });
+        return notified;
+    }
+
+    void publish(Map<UUID, Long> changes) {
+        for (String payload : InvalidationPayload.encode(changes))
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, payload);
+    }
+}
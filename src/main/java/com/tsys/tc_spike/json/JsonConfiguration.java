@@ -0,0 +1,14 @@
+package com.tsys.tc_spike.json;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Spring Boot registers every Jackson Module bean with the application's ObjectMapper.
+@Configuration
+public class JsonConfiguration {
+
+    @Bean
+    public TransactionJsonModule transactionJsonModule() {
+        return new TransactionJsonModule();
+    }
+}
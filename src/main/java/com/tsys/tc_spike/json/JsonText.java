@@ -0,0 +1,264 @@
+package com.tsys.tc_spike.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.Month;
+import java.time.Year;
+import java.util.UUID;
+
+// Writes and reads UUIDs and Instants straight from and into the generator's
+// and parser's character buffers, without going through intermediate Strings.
+//
+// The text is exactly what UUID.toString and Instant.toString (ISO_INSTANT)
+// produce, which is also what databind writes, so the wire format does not
+// change.  Anything the fast paths do not recognise falls back to the JDK.
+final class JsonText {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int SECONDS_PER_DAY = 86_400;
+    // Days from 0000-03-01 to 1970-01-01.
+    private static final long DAYS_0000_TO_1970 = 719_468;
+    private static final int DAYS_PER_400_YEARS = 146_097;
+
+    private JsonText() {
+    }
+
+    static void writeUuid(JsonGenerator generator, UUID uuid) throws IOException {
+        final long msb = uuid.getMostSignificantBits();
+        final long lsb = uuid.getLeastSignificantBits();
+        final char[] chars = new char[36];
+        hex(msb >>> 32, chars, 0, 8);
+        chars[8] = '-';
+        hex(msb >>> 16, chars, 9, 4);
+        chars[13] = '-';
+        hex(msb, chars, 14, 4);
+        chars[18] = '-';
+        hex(lsb >>> 48, chars, 19, 4);
+        chars[23] = '-';
+        hex(lsb, chars, 24, 12);
+        generator.writeString(chars, 0, chars.length);
+    }
+
+    static void writeInstant(JsonGenerator generator, Instant instant) throws IOException {
+        final long seconds = instant.getEpochSecond();
+        final int nanos = instant.getNano();
+        final int secondOfDay = (int) Math.floorMod(seconds, SECONDS_PER_DAY);
+
+        // Civil date from days since the epoch, counting years from March so
+        // that the leap day is the last day of the year.
+        final long z = Math.floorDiv(seconds, SECONDS_PER_DAY) + DAYS_0000_TO_1970;
+        final long era = Math.floorDiv(z, DAYS_PER_400_YEARS);
+        final long dayOfEra = z - era * DAYS_PER_400_YEARS;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        final int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            generator.writeString(instant.toString());
+            return;
+        }
+
+        final char[] chars = new char[30];
+        digits(chars, 0, (int) year, 4);
+        chars[4] = '-';
+        digits(chars, 5, month, 2);
+        chars[7] = '-';
+        digits(chars, 8, day, 2);
+        chars[10] = 'T';
+        digits(chars, 11, secondOfDay / 3600, 2);
+        chars[13] = ':';
+        digits(chars, 14, secondOfDay / 60 % 60, 2);
+        chars[16] = ':';
+        digits(chars, 17, secondOfDay % 60, 2);
+        int length = 19;
+        // Like ISO_INSTANT, the fraction is printed in groups of 3 digits.
+        if (nanos > 0) {
+            chars[length++] = '.';
+            if (nanos % 1_000_000 == 0) {
+                digits(chars, length, nanos / 1_000_000, 3);
+                length += 3;
+            } else if (nanos % 1000 == 0) {
+                digits(chars, length, nanos / 1000, 6);
+                length += 6;
+            } else {
+                digits(chars, length, nanos, 9);
+                length += 9;
+            }
+        }
+        chars[length++] = 'Z';
+        generator.writeString(chars, 0, length);
+    }
+
+    static UUID readUuid(JsonParser parser, DeserializationContext context) throws IOException {
+        final var token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (token != JsonToken.VALUE_STRING)
+            return (UUID) context.handleUnexpectedToken(UUID.class, parser);
+
+        final char[] chars = parser.getTextCharacters();
+        final int offset = parser.getTextOffset();
+        if (isCanonicalUuid(chars, offset, parser.getTextLength())) {
+            final long msb = (parseHex(chars, offset, 8) << 32)
+                    | (parseHex(chars, offset + 9, 4) << 16)
+                    | parseHex(chars, offset + 14, 4);
+            final long lsb = (parseHex(chars, offset + 19, 4) << 48)
+                    | parseHex(chars, offset + 24, 12);
+            return new UUID(msb, lsb);
+        }
+
+        final var text = parser.getText();
+        try {
+            return UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            throw context.weirdStringException(text, UUID.class, "not a valid UUID");
+        }
+    }
+
+    static Instant readInstant(JsonParser parser, DeserializationContext context) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+                return Instant.ofEpochSecond(parser.getLongValue());
+            case VALUE_NUMBER_FLOAT: {
+                final BigDecimal seconds = parser.getDecimalValue();
+                final long whole = seconds.longValue();
+                return Instant.ofEpochSecond(whole, seconds.subtract(BigDecimal.valueOf(whole)).movePointRight(9).intValue());
+            }
+            case VALUE_STRING: {
+                final var instant = parseIsoInstant(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                if (instant != null)
+                    return instant;
+
+                final var text = parser.getText();
+                try {
+                    return Instant.parse(text);
+                } catch (DateTimeException e) {
+                    throw context.weirdStringException(text, Instant.class, e.getMessage());
+                }
+            }
+            default:
+                return (Instant) context.handleUnexpectedToken(Instant.class, parser);
+        }
+    }
+
+    static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        final var token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (token.isScalarValue())
+            return parser.getText();
+
+        return (String) context.handleUnexpectedToken(String.class, parser);
+    }
+
+    // Answers the name of the first field of the object the parser is at, or
+    // null if the object is empty.
+    static String firstFieldName(JsonParser parser) throws IOException {
+        return parser.hasToken(JsonToken.START_OBJECT) ? parser.nextFieldName() : parser.currentName();
+    }
+
+    static boolean atObject(JsonParser parser) {
+        return parser.hasToken(JsonToken.START_OBJECT) || parser.hasToken(JsonToken.FIELD_NAME)
+                || parser.hasToken(JsonToken.END_OBJECT);
+    }
+
+    // Parses yyyy-MM-ddTHH:mm:ss[.fraction]Z, answering null for anything else.
+    private static Instant parseIsoInstant(char[] chars, int offset, int length) {
+        if (length < 20 || length > 30 || chars[offset + length - 1] != 'Z'
+                || chars[offset + 4] != '-' || chars[offset + 7] != '-' || chars[offset + 10] != 'T'
+                || chars[offset + 13] != ':' || chars[offset + 16] != ':')
+            return null;
+
+        final int year = digits(chars, offset, 4);
+        final int month = digits(chars, offset + 5, 2);
+        final int day = digits(chars, offset + 8, 2);
+        final int hour = digits(chars, offset + 11, 2);
+        final int minute = digits(chars, offset + 14, 2);
+        final int second = digits(chars, offset + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59
+                || day > Month.of(month).length(Year.isLeap(year)))
+            return null;
+
+        int nanos = 0;
+        final int fractionDigits = length - 21;
+        if (length > 20) {
+            if (chars[offset + 19] != '.' || fractionDigits < 1 || fractionDigits > 9)
+                return null;
+            nanos = digits(chars, offset + 20, fractionDigits);
+            if (nanos < 0)
+                return null;
+            for (int i = fractionDigits; i < 9; i++)
+                nanos *= 10;
+        }
+
+        // Days since the epoch from the civil date, again counting years from March.
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = Math.floorDiv(y, 400);
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        final long epochDay = (long) era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+        return Instant.ofEpochSecond(epochDay * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second, nanos);
+    }
+
+    // Answers the decimal value of the digits, or -1 if there is a non-digit.
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            final int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9)
+                return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void digits(char[] chars, int offset, int value, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void hex(long value, char[] chars, int offset, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            chars[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    // 8-4-4-4-12 hex digits, the only form UUID.toString produces.
+    private static boolean isCanonicalUuid(char[] chars, int offset, int length) {
+        if (length != 36)
+            return false;
+
+        for (int i = 0; i < 36; i++) {
+            final char c = chars[offset + i];
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-')
+                    return false;
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(char[] chars, int offset, int count) {
+        long value = 0;
+        for (int i = offset; i < offset + count; i++)
+            value = (value << 4) | Character.digit(chars[i], 16);
+        return value;
+    }
+}
@@ -0,0 +1,108 @@
+package com.tsys.tc_spike.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.tsys.tc_spike.domain.Money;
+
+import java.io.IOException;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//   {"currency":"INR","amount":100.25}
+final class MoneyJson {
+    private static final SerializedString CURRENCY = new SerializedString("currency");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    // There are only a few hundred currencies, their codes are encoded once.
+    private static final Map<Currency, SerializedString> CODES = new ConcurrentHashMap<>();
+
+    private MoneyJson() {
+    }
+
+    static final class Serializer extends StdSerializer<Money> {
+        static final Serializer INSTANCE = new Serializer();
+
+        Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money money, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(money);
+            generator.writeFieldName(CURRENCY);
+            if (money.currency == null)
+                generator.writeNull();
+            else
+                generator.writeString(CODES.computeIfAbsent(money.currency, currency -> new SerializedString(currency.getCurrencyCode())));
+            generator.writeFieldName(AMOUNT);
+            if (money.amount == null)
+                generator.writeNull();
+            else
+                generator.writeNumber(money.amount);
+            generator.writeEndObject();
+        }
+    }
+
+    static final class Deserializer extends StdDeserializer<Money> {
+        static final Deserializer INSTANCE = new Deserializer();
+
+        Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!JsonText.atObject(parser))
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+
+            Currency currency = null;
+            Double amount = 0d;
+            for (String field = JsonText.firstFieldName(parser); field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "currency" -> currency = currency(parser, context);
+                    case "amount" -> amount = amount(parser, context);
+                    default -> context.handleUnknownProperty(parser, this, Money.class, field);
+                }
+            }
+            // Absent fields keep the defaults of Money's no-arg constructor.
+            return new Money(currency == null ? Currency.getInstance(Locale.getDefault()) : currency, amount);
+        }
+
+        private static Currency currency(JsonParser parser, DeserializationContext context) throws IOException {
+            final var code = JsonText.readString(parser, context);
+            if (code == null)
+                return null;
+
+            try {
+                return Currency.getInstance(code);
+            } catch (IllegalArgumentException e) {
+                throw context.weirdStringException(code, Currency.class, "Unknown currency");
+            }
+        }
+
+        private static Double amount(JsonParser parser, DeserializationContext context) throws IOException {
+            final var token = parser.currentToken();
+            if (token == JsonToken.VALUE_NULL)
+                return null;
+            if (token.isNumeric())
+                return parser.getDoubleValue();
+            if (token == JsonToken.VALUE_STRING) {
+                final var text = parser.getText().trim();
+                try {
+                    return Double.valueOf(text);
+                } catch (NumberFormatException e) {
+                    throw context.weirdStringException(text, Double.class, "not a valid amount");
+                }
+            }
+            return (Double) context.handleUnexpectedToken(Double.class, parser);
+        }
+    }
+}
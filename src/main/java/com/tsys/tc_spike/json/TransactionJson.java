@@ -0,0 +1,106 @@
+package com.tsys.tc_spike.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+
+//   {"id":"...","date":"2021-03-17T10:15:30Z","status":"accepted","orderId":"ORDER-1",
+//    "value":{"currency":"INR","amount":100.25}}
+final class TransactionJson {
+    static final SerializedString ID = new SerializedString("id");
+    static final SerializedString DATE = new SerializedString("date");
+    static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString ORDER_ID = new SerializedString("orderId");
+    private static final SerializedString VALUE = new SerializedString("value");
+
+    private TransactionJson() {
+    }
+
+    static final class Serializer extends StdSerializer<Transaction> {
+        Serializer() {
+            super(Transaction.class);
+        }
+
+        @Override
+        public void serialize(Transaction transaction, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(transaction);
+            writeId(generator, transaction.id);
+            writeDate(generator, transaction.date);
+            writeString(generator, STATUS, transaction.status);
+            writeString(generator, ORDER_ID, transaction.orderId);
+            generator.writeFieldName(VALUE);
+            if (transaction.value == null)
+                generator.writeNull();
+            else
+                MoneyJson.Serializer.INSTANCE.serialize(transaction.value, generator, provider);
+            generator.writeEndObject();
+        }
+    }
+
+    static final class Deserializer extends StdDeserializer<Transaction> {
+        Deserializer() {
+            super(Transaction.class);
+        }
+
+        @Override
+        public Transaction deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!JsonText.atObject(parser))
+                return (Transaction) context.handleUnexpectedToken(Transaction.class, parser);
+
+            // Absent fields keep the defaults of Transaction's no-arg constructor.
+            UUID id = null;
+            Instant date = null;
+            String status = "";
+            String orderId = "";
+            Money value = null;
+            for (String field = JsonText.firstFieldName(parser); field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = JsonText.readUuid(parser, context);
+                    case "date" -> date = JsonText.readInstant(parser, context);
+                    case "status" -> status = JsonText.readString(parser, context);
+                    case "orderId" -> orderId = JsonText.readString(parser, context);
+                    case "value" -> value = parser.hasToken(JsonToken.VALUE_NULL) ? null
+                            : MoneyJson.Deserializer.INSTANCE.deserialize(parser, context);
+                    default -> context.handleUnknownProperty(parser, this, Transaction.class, field);
+                }
+            }
+            return new Transaction(id, date, status, orderId, value);
+        }
+    }
+
+    static void writeId(JsonGenerator generator, UUID id) throws IOException {
+        generator.writeFieldName(ID);
+        if (id == null)
+            generator.writeNull();
+        else
+            JsonText.writeUuid(generator, id);
+    }
+
+    static void writeDate(JsonGenerator generator, Instant date) throws IOException {
+        generator.writeFieldName(DATE);
+        if (date == null)
+            generator.writeNull();
+        else
+            JsonText.writeInstant(generator, date);
+    }
+
+    static void writeString(JsonGenerator generator, SerializedString field, String value) throws IOException {
+        generator.writeFieldName(field);
+        if (value == null)
+            generator.writeNull();
+        else
+            generator.writeString(value);
+    }
+}
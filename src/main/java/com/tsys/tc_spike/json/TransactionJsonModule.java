@@ -0,0 +1,54 @@
+package com.tsys.tc_spike.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionReference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+// Hand written (de)serialisers for the domain objects, so that databind does
+// not have to introspect them and go through reflection for every field.
+// They produce and accept the very same JSON as the default databind mapping
+// (with ISO-8601 dates), so the module can be registered with any ObjectMapper.
+//
+// Bulk responses are arrays of these: writeArray and readArray stream them an
+// element at a time, so neither the List nor the whole JSON text is held in
+// memory.  The stream is left open, for the caller to close.
+public class TransactionJsonModule extends SimpleModule {
+
+    public TransactionJsonModule() {
+        super("TransactionJsonModule");
+        addSerializer(Money.class, MoneyJson.Serializer.INSTANCE);
+        addDeserializer(Money.class, MoneyJson.Deserializer.INSTANCE);
+        addSerializer(Transaction.class, new TransactionJson.Serializer());
+        addDeserializer(Transaction.class, new TransactionJson.Deserializer());
+        addSerializer(TransactionReference.class, new TransactionReferenceJson.Serializer());
+        addDeserializer(TransactionReference.class, new TransactionReferenceJson.Deserializer());
+    }
+
+    // Writes the values as one JSON array, as they come, answering how many.
+    public static <T> long writeArray(ObjectMapper mapper, Class<T> type, Iterator<? extends T> values, OutputStream out) throws IOException {
+        long written = 0;
+        try (SequenceWriter writer = mapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValuesAsArray(out)) {
+            while (values.hasNext()) {
+                writer.write(values.next());
+                written++;
+            }
+        }
+        return written;
+    }
+
+    // Reads the elements of a JSON array one at a time, as they are iterated.
+    public static <T> MappingIterator<T> readArray(ObjectMapper mapper, Class<T> type, InputStream in) throws IOException {
+        return mapper.readerFor(type).without(JsonParser.Feature.AUTO_CLOSE_SOURCE).readValues(in);
+    }
+}
@@ -0,0 +1,62 @@
+package com.tsys.tc_spike.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.tsys.tc_spike.domain.TransactionReference;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+
+//   {"id":"...","date":"2021-03-17T10:15:30Z","status":"accepted"}
+final class TransactionReferenceJson {
+
+    private TransactionReferenceJson() {
+    }
+
+    static final class Serializer extends StdSerializer<TransactionReference> {
+        Serializer() {
+            super(TransactionReference.class);
+        }
+
+        @Override
+        public void serialize(TransactionReference reference, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(reference);
+            TransactionJson.writeId(generator, reference.id);
+            TransactionJson.writeDate(generator, reference.date);
+            TransactionJson.writeString(generator, TransactionJson.STATUS, reference.status);
+            generator.writeEndObject();
+        }
+    }
+
+    // Replaces the @JsonProperty constructor binding.
+    static final class Deserializer extends StdDeserializer<TransactionReference> {
+        Deserializer() {
+            super(TransactionReference.class);
+        }
+
+        @Override
+        public TransactionReference deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!JsonText.atObject(parser))
+                return (TransactionReference) context.handleUnexpectedToken(TransactionReference.class, parser);
+
+            UUID id = null;
+            Instant date = null;
+            String status = null;
+            for (String field = JsonText.firstFieldName(parser); field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = JsonText.readUuid(parser, context);
+                    case "date" -> date = JsonText.readInstant(parser, context);
+                    case "status" -> status = JsonText.readString(parser, context);
+                    default -> context.handleUnknownProperty(parser, this, TransactionReference.class, field);
+                }
+            }
+            return new TransactionReference(id, date, status);
+        }
+    }
+}
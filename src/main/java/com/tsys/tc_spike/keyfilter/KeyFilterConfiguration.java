@@ -0,0 +1,58 @@
+package com.tsys.tc_spike.keyfilter;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Lookups by id and orderId (see TransactionLookups) skip the database for
+// keys the Bloom filters rule out only when enabled, as the filters only know
+// about the rows inserted through this instance (see TransactionKeyFilter):
+//
+//   keyfilter.enabled=true
+//   keyfilter.fpp=0.01
+//   keyfilter.rebuild-fpp=0.05
+//   keyfilter.minimum-keys=1000000
+//   keyfilter.recent-window=PT10M
+//   keyfilter.check-interval-ms=60000
+//
+// The filters are first built right after startup, and checked for a rebuild
+// every check interval; the key scans take a connection of the REPORTING pool.
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty("keyfilter.enabled")
+public class KeyFilterConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public TransactionKeyFilter transactionKeyFilter(@Qualifier("reportingDataSource") DataSource dataSource,
+                                                     @Value("${keyfilter.fpp:0.01}") double fpp,
+                                                     @Value("${keyfilter.rebuild-fpp:0.05}") double rebuildFpp,
+                                                     @Value("${keyfilter.minimum-keys:1000000}") long minimumKeys,
+                                                     @Value("${keyfilter.recent-window:PT10M}") Duration recentWindow) {
+        return new TransactionKeyFilter(dataSource, fpp, rebuildFpp, minimumKeys, recentWindow);
+    }
+
+    @Bean
+    public TransactionKeyFilterScheduler transactionKeyFilterScheduler(TransactionKeyFilter transactionKeyFilter) {
+        return new TransactionKeyFilterScheduler(transactionKeyFilter);
+    }
+
+    static class TransactionKeyFilterScheduler {
+        private final TransactionKeyFilter filter;
+
+        TransactionKeyFilterScheduler(TransactionKeyFilter filter) {
+            this.filter = filter;
+        }
+
+        @Scheduled(fixedDelayString = "${keyfilter.check-interval-ms:60000}")
+        void check() {
+            filter.rebuildIfDegraded();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.tsys.tc_spike.keyfilter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionArchived;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import com.tsys.tc_spike.repository.TransactionIds;
+import com.tsys.tc_spike.repository.TransactionRowMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bloom filters over the ids and orderIds in the transactions table, so that
+// lookups of keys that do not exist - mostly duplicate checks - are answered
+// without asking the database (see TransactionLookups).  A filter never says
+// no for a key that was added, and says yes for one that was not with the
+// false positive probability it was built for.
+//
+// The filters are built from a scan of the keys (streamed, on the REPORTING
+// pool) in the background, and until then every key might exist.  Every
+// transaction inserted through JPA is added as its TransactionChanged event is
+// published, that is, before its database transaction commits.  Deleted keys
+// cannot be taken out, and every key added beyond the size the filters were
+// built for raises their false positive probability; so they are rebuilt once
+// that probability passes rebuildFpp, or half as many rows were deleted as
+// scanned, sized for twice the rows scanned and keys added lately (but at
+// least minimumKeys).
+//
+// A transaction that added keys while a rebuild was scanning may commit after
+// the scan went past them, so the keys added during the last recentWindow
+// are added to a rebuilt filter as well.
+//
+// Only inserts through this instance are seen: rows inserted by other
+// instances, or with plain SQL, are only known after the next rebuild, and
+// would be answered as missing until then.  Hence the filters are only
+// enabled where this instance is the only writer (see KeyFilterConfiguration).
+public class TransactionKeyFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionKeyFilter.class);
+    private static final Funnel<UUID> ID_FUNNEL = (id, into) -> into
+            .putLong(id.getMostSignificantBits())
+            .putLong(id.getLeastSignificantBits());
+    private static final Funnel<CharSequence> ORDER_ID_FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+    private static final int FETCH_SIZE = 1000;
+
+    private record Filters(BloomFilter<UUID> ids, BloomFilter<CharSequence> orderIds, long rows) {
+        static Filters sizedFor(long rows, long keys, double fpp) {
+            return new Filters(BloomFilter.create(ID_FUNNEL, keys, fpp), BloomFilter.create(ORDER_ID_FUNNEL, keys, fpp), rows);
+        }
+
+        void put(UUID id, String orderId) {
+            ids.put(id);
+            if (orderId != null)
+                orderIds.put(orderId);
+        }
+    }
+
+    private final DataSource dataSource;
+    private final TransactionIds transactionIds;
+    private final double fpp;
+    private final double rebuildFpp;
+    private final long minimumKeys;
+    // The keys added lately, by id; values are the orderIds (or "" for none).
+    private final Cache<UUID, String> recent;
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "key-filter-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // Null until the first build.
+    private volatile Filters current;
+    // The filters being built, which get the keys added meanwhile as well.
+    private volatile Filters next;
+    private final LongAdder deletedSinceBuild = new LongAdder();
+    private final LongAdder lookupsAvoided = new LongAdder();
+    private final LongAdder lookupsPassed = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    public TransactionKeyFilter(DataSource dataSource, double fpp, double rebuildFpp, long minimumKeys, Duration recentWindow) {
+        if (fpp <= 0 || fpp >= rebuildFpp || rebuildFpp >= 1)
+            throw new IllegalArgumentException("Need 0 < fpp < rebuildFpp < 1, not " + fpp + " and " + rebuildFpp);
+        this.dataSource = dataSource;
+        this.transactionIds = new TransactionIds(dataSource);
+        this.fpp = fpp;
+        this.rebuildFpp = rebuildFpp;
+        this.minimumKeys = minimumKeys;
+        this.recent = CacheBuilder.newBuilder().expireAfterWrite(recentWindow).build();
+    }
+
+    // False only if there is certainly no transaction with the id (as far as
+    // this instance knows, see above).
+    public boolean mightContainId(UUID id) {
+        final var filters = current;
+        return counted(filters == null || filters.ids.mightContain(id));
+    }
+
+    public boolean mightContainOrderId(String orderId) {
+        final var filters = current;
+        return counted(filters == null || orderId == null || filters.orderIds.mightContain(orderId));
+    }
+
+    public boolean built() {
+        return current != null;
+    }
+
+    // The probability that a key that was never added is taken for one that
+    // was, as estimated from the bits set (1 until built).  The larger of the
+    // two filters'.
+    public double estimatedFpp() {
+        final var filters = current;
+        return filters == null ? 1 : Math.max(filters.ids.expectedFpp(), filters.orderIds.expectedFpp());
+    }
+
+    // Lookups answered without the database, and those passed on to it.
+    public long lookupsAvoided() {
+        return lookupsAvoided.sum();
+    }
+
+    public long lookupsPassed() {
+        return lookupsPassed.sum();
+    }
+
+    public long rebuilds() {
+        return rebuilds.sum();
+    }
+
+    @EventListener
+    public void on(TransactionChanged change) {
+        final var transaction = change.transaction();
+        switch (change.kind()) {
+            case CREATED -> add(transaction);
+            case DELETED -> deletedSinceBuild.increment();
+            default -> {
+            }
+        }
+    }
+
+    // Archived keys leave the transactions table all the same.
+    @EventListener
+    public void on(TransactionArchived archived) {
+        deletedSinceBuild.increment();
+    }
+
+    public void add(Transaction transaction) {
+        // Remembered first, so that a rebuild swapping the filters in between
+        // still copies the keys over.
+        recent.put(transaction.id, transaction.orderId == null ? "" : transaction.orderId);
+        final var building = next;
+        if (building != null)
+            building.put(transaction.id, transaction.orderId);
+        final var filters = current;
+        if (filters != null)
+            filters.put(transaction.id, transaction.orderId);
+    }
+
+    // Starts a rebuild in the background if the filters are not built yet, or
+    // have degraded; answers whether it did.
+    public boolean rebuildIfDegraded() {
+        final var filters = current;
+        if (filters != null
+                && estimatedFpp() <= rebuildFpp
+                && deletedSinceBuild.sum() <= filters.rows / 2)
+            return false;
+        return rebuildInBackground();
+    }
+
+    public boolean rebuildInBackground() {
+        if (!rebuilding.compareAndSet(false, true))
+            return false;
+        rebuilder.execute(() -> {
+            try {
+                rebuild();
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("Could not rebuild the transaction key filters", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    // Scans the keys into new filters and replaces the current ones with them.
+    void rebuild() throws SQLException {
+        final long start = System.nanoTime();
+        final var database = transactionIds.database();
+        try (var connection = dataSource.getConnection()) {
+            final long rows;
+            try (var statement = connection.createStatement();
+                 var resultSet = statement.executeQuery("SELECT count(*) FROM transactions")) {
+                resultSet.next();
+                rows = resultSet.getLong(1);
+            }
+            final var building = Filters.sizedFor(rows, Math.max(minimumKeys, 2 * (rows + recent.size())), fpp);
+            next = building;
+            final long deletedBefore = deletedSinceBuild.sum();
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (var statement = connection.prepareStatement("SELECT id, order_id FROM transactions",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(database == DatabaseDriver.MYSQL ? Integer.MIN_VALUE : FETCH_SIZE);
+                try (var resultSet = statement.executeQuery()) {
+                    while (resultSet.next())
+                        building.put(TransactionRowMapper.uuid(resultSet.getObject(1)), resultSet.getString(2));
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+            recent.asMap().forEach((id, orderId) -> building.put(id, orderId.isEmpty() ? null : orderId));
+            current = building;
+            next = null;
+            deletedSinceBuild.add(-deletedBefore);
+            rebuilds.increment();
+            LOG.info("Rebuilt the transaction key filters from {} rows in {} ms", rows,
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            next = null;
+        }
+    }
+
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private boolean counted(boolean mightContain) {
+        if (mightContain)
+            lookupsPassed.increment();
+        else
+            lookupsAvoided.increment();
+        return mightContain;
+    }
+}
@@ -0,0 +1,14 @@
+package com.tsys.tc_spike.live;
+
+// A server-sent event: the sequence is the event id (so that a reconnecting
+// client can send it back as Last-Event-ID), name is the SSE event type.
+record LiveEvent(long sequence, String name, String data) {
+
+    static LiveEvent of(long sequence, String data) {
+        return new LiveEvent(sequence, "transaction", data);
+    }
+
+    static LiveEvent gap(long missed) {
+        return new LiveEvent(-1, "gap", Long.toString(missed));
+    }
+}
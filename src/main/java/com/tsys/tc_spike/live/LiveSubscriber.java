@@ -0,0 +1,107 @@
+package com.tsys.tc_spike.live;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// One subscriber of the live feed, with its own position in the ring.
+//
+// Its events are sent by whichever dispatcher thread drains it; the busy flag
+// makes sure at most one thread does so at a time, so a subscriber whose
+// socket is slow only holds up itself.  Meanwhile the ring moves on, and when
+// the subscriber comes back it either catches up or, if it was lapped, is told
+// about the gap and skips ahead.  A subscriber that is still stuck in a send
+// when the ring laps it is disconnected instead, once that send returns.
+class LiveSubscriber {
+    // Sends a batch of events to the client, the IOException meaning it has gone.
+    interface Sink {
+        void send(List<LiveEvent> events) throws IOException;
+
+        // Ends the stream of a disconnected subscriber.
+        default void close() {
+        }
+    }
+
+    private static final int MAX_BATCH = 256;
+    private static final long NOT_SENDING = Long.MIN_VALUE;
+
+    private final Sink sink;
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final LongAdder dropped;
+    private volatile long next;
+    private volatile boolean closed;
+    private volatile boolean disconnected;
+    private volatile long sendingSince = NOT_SENDING;
+
+    LiveSubscriber(long next, Sink sink, LongAdder dropped) {
+        this.next = next;
+        this.sink = sink;
+        this.dropped = dropped;
+    }
+
+    boolean isBehind(long cursor) {
+        return !closed && next <= cursor;
+    }
+
+    // Whether a send has been blocked for longer than the threshold.
+    boolean isStuck(long nowNanos, long thresholdNanos) {
+        final long since = sendingSince;
+        return since != NOT_SENDING && nowNanos - since > thresholdNanos;
+    }
+
+    // Whether events it has not been sent yet were overwritten.
+    boolean isLapped(long cursor, int capacity) {
+        return cursor - next >= capacity;
+    }
+
+    // Claims the subscriber for draining, false when another thread already does.
+    boolean claim() {
+        return busy.compareAndSet(false, true);
+    }
+
+    void drain(TransactionRingBuffer ring) {
+        try {
+            final List<LiveEvent> events = new ArrayList<>();
+            final long read = ring.read(next, MAX_BATCH, new TransactionRingBuffer.Reader() {
+                @Override
+                public void event(long sequence, String data) {
+                    events.add(LiveEvent.of(sequence, data));
+                }
+
+                @Override
+                public void gap(long missed) {
+                    dropped.add(missed);
+                    events.add(LiveEvent.gap(missed));
+                }
+            });
+            if (!events.isEmpty()) {
+                sendingSince = System.nanoTime();
+                sink.send(events);
+            }
+            next = read;
+            if (disconnected)
+                sink.close();
+        } catch (IOException | RuntimeException e) {
+            closed = true;
+        } finally {
+            sendingSince = NOT_SENDING;
+            busy.set(false);
+        }
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    // Stops sending to it; the thread stuck in its send ends the stream.
+    void disconnect() {
+        disconnected = true;
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+}
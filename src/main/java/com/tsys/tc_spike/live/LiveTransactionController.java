@@ -0,0 +1,64 @@
+package com.tsys.tc_spike.live;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Server-Sent Events of committed Transaction changes:
+//
+//   GET /transactions/live
+//   Accept: text/event-stream
+//
+// Each event carries the ring sequence as its id; a client reconnecting with
+// Last-Event-ID resumes right after it, as long as the ring still holds it.  A
+// client too slow to take the events off its socket before the ring laps it
+// is disconnected, and resumes the same way.
+@RestController
+@RequestMapping("/transactions")
+public class LiveTransactionController {
+    private final LiveTransactionFeed feed;
+    private final long timeoutMillis;
+
+    public LiveTransactionController(LiveTransactionFeed feed, @Value("${live.timeout-ms:1800000}") long timeoutMillis) {
+        this.feed = feed;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter live(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        final var emitter = new SseEmitter(timeoutMillis);
+        final var subscriber = feed.subscribe(lastEventId, new LiveSubscriber.Sink() {
+            @Override
+            public void send(List<LiveEvent> events) throws IOException {
+                // Send the whole batch in one write.
+                final Set<ResponseBodyEmitter.DataWithMediaType> batch = new LinkedHashSet<>();
+                for (LiveEvent event : events) {
+                    final var builder = SseEmitter.event().name(event.name()).data(event.data());
+                    if (event.sequence() >= 0)
+                        builder.id(Long.toString(event.sequence()));
+                    batch.addAll(builder.build());
+                }
+                emitter.send(batch);
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> feed.unsubscribe(subscriber));
+        emitter.onTimeout(() -> feed.unsubscribe(subscriber));
+        emitter.onError(e -> feed.unsubscribe(subscriber));
+        return emitter;
+    }
+}
@@ -0,0 +1,146 @@
+package com.tsys.tc_spike.live;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Fans committed Transaction changes out to any number of live subscribers.
+//
+// The commit hook only serialises the change once, publishes it to the ring
+// and wakes up the coordinator thread - it never waits for subscribers.  The
+// coordinator hands every subscriber that is behind to the dispatcher pool,
+// which sends it everything it has not seen yet in one batch.
+//
+// A send blocks while the client does not read, holding a dispatcher.  So every
+// subscriber stuck in a send for longer than live.stuck-after-ms adds a thread
+// to the pool, leaving the others to the subscribers that do read; stuck ones
+// that get lapped are disconnected.
+@Component
+public class LiveTransactionFeed implements DisposableBean {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ObjectMapper objectMapper;
+    private final TransactionRingBuffer ring;
+    private final Set<LiveSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor dispatchers;
+    private final int dispatcherThreads;
+    private final long stuckAfterNanos;
+    private final Thread coordinator;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    private volatile boolean running = true;
+
+    public LiveTransactionFeed(ObjectMapper objectMapper,
+                               @Value("${live.ring-capacity:8192}") int ringCapacity,
+                               @Value("${live.dispatcher-threads:4}") int dispatcherThreads,
+                               @Value("${live.stuck-after-ms:1000}") long stuckAfterMillis) {
+        this.objectMapper = objectMapper;
+        this.ring = new TransactionRingBuffer(ringCapacity);
+        this.dispatcherThreads = dispatcherThreads;
+        this.stuckAfterNanos = TimeUnit.MILLISECONDS.toNanos(stuckAfterMillis);
+        // Only ever grows beyond the core threads by raising them, see coordinate.
+        this.dispatchers = new ThreadPoolExecutor(dispatcherThreads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        this.coordinator = new Thread(this::coordinate, "live-feed-coordinator");
+        this.coordinator.setDaemon(true);
+        this.coordinator.start();
+    }
+
+    @TransactionalEventListener
+    public void on(TransactionChanged change) {
+        publish(toJson(change));
+    }
+
+    void publish(String data) {
+        ring.publish(data);
+        LockSupport.unpark(coordinator);
+    }
+
+    // Subscribes from the event after lastEventId, or from the next event when
+    // there is none.  A lastEventId that fell out of the ring yields a gap.
+    LiveSubscriber subscribe(Long lastEventId, LiveSubscriber.Sink sink) {
+        final long next = lastEventId == null ? ring.cursor() + 1 : lastEventId + 1;
+        final var subscriber = new LiveSubscriber(next, sink, dropped);
+        subscribers.add(subscriber);
+        LockSupport.unpark(coordinator);
+        return subscriber;
+    }
+
+    void unsubscribe(LiveSubscriber subscriber) {
+        subscriber.close();
+        subscribers.remove(subscriber);
+    }
+
+    public int subscribers() {
+        return subscribers.size();
+    }
+
+    public long published() {
+        return ring.cursor() + 1;
+    }
+
+    // Events subscribers missed because they were lapped.
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    // Subscribers disconnected for being lapped while stuck in a send.
+    public long disconnected() {
+        return disconnected.sum();
+    }
+
+    private void coordinate() {
+        while (running) {
+            final long cursor = ring.cursor();
+            final long now = System.nanoTime();
+            boolean handedOut = false;
+            int stuck = 0;
+            for (LiveSubscriber subscriber : subscribers) {
+                // Kept (and counted) until its send returns, as it holds a thread till then.
+                if (subscriber.isStuck(now, stuckAfterNanos)) {
+                    stuck++;
+                    if (!subscriber.isClosed() && subscriber.isLapped(cursor, ring.capacity())) {
+                        disconnected.increment();
+                        subscriber.disconnect();
+                    }
+                } else if (subscriber.isClosed()) {
+                    subscribers.remove(subscriber);
+                } else if (subscriber.isBehind(cursor) && subscriber.claim()) {
+                    dispatchers.execute(() -> subscriber.drain(ring));
+                    handedOut = true;
+                }
+            }
+            if (dispatchers.getCorePoolSize() != dispatcherThreads + stuck)
+                dispatchers.setCorePoolSize(dispatcherThreads + stuck);
+            // Busy subscribers are picked up again on the next pass.
+            if (!handedOut && ring.cursor() == cursor)
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    private String toJson(TransactionChanged change) {
+        try {
+            return objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise " + change, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        LockSupport.unpark(coordinator);
+        dispatchers.shutdownNow();
+    }
+}
@@ -0,0 +1,90 @@
+package com.tsys.tc_spike.live;
+
+// A fixed-size ring of the most recent events, each identified by an ever
+// increasing sequence number.
+//
+// All the slots are allocated up front and reused, publishing never allocates
+// and never waits for readers: once the ring is full the oldest event is
+// simply overwritten.  Publishers are serialised by a lock, so the ring only
+// ever sees a single writer.  Readers never lock - each keeps its own next
+// sequence and uses the slot sequence as a seqlock to detect that an event was
+// overwritten while it was being read, in which case the reader has been
+// lapped and skips ahead.
+public class TransactionRingBuffer {
+    private static final long IN_PROGRESS = -1;
+
+    // Receives what a reader reads.
+    public interface Reader {
+        void event(long sequence, String data);
+
+        // Called when the reader fell so far behind that events it had not read yet were overwritten.
+        void gap(long missed);
+    }
+
+    private static final class Slot {
+        volatile long sequence = IN_PROGRESS;
+        volatile String data;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private volatile long cursor = -1;
+
+    public TransactionRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of 2, but was " + capacity);
+
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++)
+            slots[i] = new Slot();
+        this.mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    // Sequence of the last published event, -1 when nothing was published yet.
+    public long cursor() {
+        return cursor;
+    }
+
+    public synchronized long publish(String data) {
+        final long sequence = cursor + 1;
+        final var slot = slots[(int) (sequence & mask)];
+        slot.sequence = IN_PROGRESS;
+        slot.data = data;
+        slot.sequence = sequence;
+        cursor = sequence;
+        return sequence;
+    }
+
+    // Hands at most max events, starting with the given sequence, to the reader
+    // and answers the sequence to read next.
+    public long read(long from, int max, Reader reader) {
+        final long published = cursor;
+        long next = from;
+        final long oldest = Math.max(0, published - slots.length + 1);
+        if (next < oldest) {
+            reader.gap(oldest - next);
+            next = oldest;
+        }
+
+        int read = 0;
+        while (next <= published && read < max) {
+            final var slot = slots[(int) (next & mask)];
+            final String data;
+            if (slot.sequence != next || (data = slot.data) == null || slot.sequence != next) {
+                // Overwritten (or being overwritten) while we were reading it.
+                final long skipTo = Math.max(next + 1, cursor - slots.length + 2);
+                reader.gap(skipTo - next);
+                next = skipTo;
+                continue;
+            }
+            reader.event(next, data);
+            next++;
+            read++;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,11 @@
+package com.tsys.tc_spike.migration;
+
+// What a catch-up found: the rows compared, and those it upserted into or
+// deleted from the target.  Nothing upserted or deleted means the target has
+// converged.
+public record CatchUpSummary(long compared, long upserted, long deleted, long elapsedMillis) {
+
+    public boolean converged() {
+        return upserted == 0 && deleted == 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.tsys.tc_spike.migration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// The migrator is only available when a MySQL database to migrate from is
+// configured, for example:
+//
+//   migration.source.url=jdbc:mysql://localhost:3306/tcspike
+//   migration.source.username=tcspikeUser
+//   migration.source.password=...
+//   migration.ranges=64
+//   migration.batch-size=10000
+//
+// It writes to the spring.datasource.* database (Postgres) using the BATCH
+// pool.  Every worker holds a source connection for the whole of its range,
+// so migrate with at most migration.source.maximum-pool-size workers; when
+// catching up it also holds a BATCH connection for the whole of its range, so
+// catch up with at most datasource.pools.batch.maximum-pool-size workers.
+@Configuration
+@ConditionalOnProperty("migration.source.url")
+public class MigrationConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource migrationSourceDataSource(@Value("${migration.source.url}") String url,
+                                                     @Value("${migration.source.username}") String username,
+                                                     @Value("${migration.source.password}") String password,
+                                                     @Value("${migration.source.maximum-pool-size:8}") int maximumPoolSize) {
+        final var pool = new HikariDataSource();
+        pool.setPoolName("migration-source");
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(maximumPoolSize);
+        pool.setReadOnly(true);
+        // Waits for the source are none of the admission control's business (see
+        // AdmissionConfiguration), so the pool reports to a tracker of its own.
+        pool.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+        });
+        return pool;
+    }
+
+    @Bean
+    public TransactionMigrator transactionMigrator(@Qualifier("migrationSourceDataSource") DataSource source,
+                                                   @Qualifier("batchDataSource") DataSource target,
+                                                   @Value("${migration.ranges:64}") int ranges,
+                                                   @Value("${migration.batch-size:10000}") int batchSize) {
+        return new TransactionMigrator(source, target, ranges, batchSize);
+    }
+}
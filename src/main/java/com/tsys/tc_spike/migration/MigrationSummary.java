@@ -0,0 +1,10 @@
+package com.tsys.tc_spike.migration;
+
+// The rows copied by a run of the migration (not by earlier, interrupted ones)
+// with the number of workers that copied them.
+public record MigrationSummary(long rows, int workers, long elapsedMillis) {
+
+    public double rowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000d / elapsedMillis;
+    }
+}
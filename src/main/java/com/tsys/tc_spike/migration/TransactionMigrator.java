@@ -0,0 +1,375 @@
+package com.tsys.tc_spike.migration;
+
+import com.tsys.tc_spike.batch.BatchCheckpoint;
+import com.tsys.tc_spike.batch.CheckpointStore;
+import com.tsys.tc_spike.batch.KeyRange;
+import com.tsys.tc_spike.repository.TransactionIds;
+import com.tsys.tc_spike.repository.TransactionRowMapper;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Copies the transactions table from MySQL (the source) to Postgres (the
+// target), while the source is still in use.
+//
+// The id space is split into KeyRanges, which the given number of workers copy
+// in parallel.  Each worker streams its range from MySQL (a forward-only result
+// set with a fetch size of Integer.MIN_VALUE, so the driver does not buffer the
+// whole range) and writes it to Postgres using COPY, batchSize rows at a time.
+// Every batch is committed together with the checkpoint of its range (in the
+// target's batch_checkpoints), so an interrupted migration resumes after the
+// last batch copied, and ranges already copied are skipped.  The number of
+// ranges, unlike the number of workers, cannot change between runs.
+//
+// As the source keeps changing during the copy, catchUp then converges the
+// target: it walks source and target side by side in the order of their ids,
+// upserting the rows missing from the target or at another version there, and
+// deleting those no longer in the source.  The changes of a range are written
+// through the connection reading it from the target, and committed once the
+// range has been walked.  Run it until it finds nothing to change, the last
+// time with the writes to the source stopped.
+//
+// Every worker holds one connection of each pool at a time: the source one
+// for the whole of its range, the target one for each batch (when copying) or
+// for the whole of its range (when catching up).
+//
+// Both databases order the ids byte by byte (MySQL stores them as binary,
+// Postgres as uuid), which is also how the KeyRanges and the merge compare
+// them.  The bounds are bound to the source as MySQL stores the ids (see
+// TransactionIds).
+public class TransactionMigrator {
+    static final String JOB = "migrate-transactions";
+    private static final String COLUMNS = "id, version, date, order_id, status, amount, currency";
+    private static final String COPY = "COPY transactions (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String UPSERT = "INSERT INTO transactions (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET version = EXCLUDED.version, date = EXCLUDED.date, order_id = EXCLUDED.order_id, " +
+            "status = EXCLUDED.status, amount = EXCLUDED.amount, currency = EXCLUDED.currency";
+    // The ids and dates are bound as untyped, like COPY reads them, so Postgres
+    // takes them for whatever the types of the columns are.
+    private static final int[] UPSERT_TYPES = {Types.OTHER, Types.BIGINT, Types.OTHER, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.VARCHAR};
+    private static final String DELETE = "DELETE FROM transactions WHERE id = ?";
+    private static final int[] DELETE_TYPES = {Types.OTHER};
+    private static final int TARGET_FETCH_SIZE = 1000;
+
+    private record Row(UUID id, long version, Timestamp date, String orderId, String status, Double amount, String currency) {
+    }
+
+    private final DataSource source;
+    private final DataSource target;
+    private final JdbcTemplate targetJdbcTemplate;
+    private final TransactionTemplate targetTransactionTemplate;
+    private final CheckpointStore checkpoints;
+    private final int ranges;
+    private final int batchSize;
+    private final TransactionIds sourceIds;
+
+    public TransactionMigrator(DataSource source, DataSource target, int ranges, int batchSize) {
+        this.source = source;
+        this.target = target;
+        this.sourceIds = new TransactionIds(source);
+        this.targetJdbcTemplate = new JdbcTemplate(target);
+        this.targetTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(target));
+        this.checkpoints = new CheckpointStore(targetJdbcTemplate);
+        this.ranges = ranges;
+        this.batchSize = batchSize;
+    }
+
+    public CheckpointStore checkpoints() {
+        return checkpoints;
+    }
+
+    // Copies the ranges not copied yet, answering the number of rows copied by
+    // this run.
+    public MigrationSummary migrate(int workers) {
+        final long start = System.nanoTime();
+        final var started = checkpoints.start(JOB, ranges);
+        final List<Callable<Long>> copies = new ArrayList<>();
+        for (KeyRange range : KeyRange.split(ranges)) {
+            final var checkpoint = started.get(range.partition());
+            if (!checkpoint.completed)
+                copies.add(() -> copy(range, checkpoint));
+        }
+        final long rows = runAll("migrate", workers, copies).stream().mapToLong(Long::longValue).sum();
+        return new MigrationSummary(rows, workers, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Converges the target with the source, comparing only the rows dated on
+    // or after since (all rows, if null).
+    public CatchUpSummary catchUp(int workers, Instant since) {
+        final long start = System.nanoTime();
+        final List<Callable<CatchUpSummary>> merges = new ArrayList<>();
+        for (KeyRange range : KeyRange.split(ranges))
+            merges.add(() -> merge(range, since));
+        long compared = 0, upserted = 0, deleted = 0;
+        for (CatchUpSummary merged : runAll("catch up", workers, merges)) {
+            compared += merged.compared();
+            upserted += merged.upserted();
+            deleted += merged.deleted();
+        }
+        return new CatchUpSummary(compared, upserted, deleted, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long copy(KeyRange range, BatchCheckpoint checkpoint) throws SQLException {
+        UUID last = checkpoint.lastKey == null ? null : UUID.fromString(checkpoint.lastKey);
+        final List<Object> parameters = new ArrayList<>();
+        final var sql = "SELECT " + COLUMNS + " FROM transactions" + where(range, last, null, parameters) + " ORDER BY id";
+        long copied = 0;
+        try (var connection = source.getConnection();
+             var statement = streaming(connection, sql, parameters);
+             var resultSet = statement.executeQuery()) {
+            final var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            final var csv = new StringBuilder();
+            int rows = 0;
+            while (resultSet.next()) {
+                final var row = row(resultSet, utc);
+                appendCsv(csv, row);
+                last = row.id;
+                if (++rows == batchSize) {
+                    copyBatch(range, csv, rows, last, false);
+                    copied += rows;
+                    csv.setLength(0);
+                    rows = 0;
+                }
+            }
+            copyBatch(range, csv, rows, last, true);
+            copied += rows;
+        }
+        return copied;
+    }
+
+    private void copyBatch(KeyRange range, StringBuilder csv, int rows, UUID last, boolean completed) {
+        targetTransactionTemplate.executeWithoutResult(status -> {
+            if (rows > 0)
+                targetJdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                    try {
+                        return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY, new StringReader(csv.toString()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            checkpoints.advance(JOB, range.partition(), last, rows, rows, completed);
+        });
+    }
+
+    private CatchUpSummary merge(KeyRange range, Instant since) throws SQLException {
+        final List<Object> sourceParameters = new ArrayList<>();
+        final var sourceSql = "SELECT " + COLUMNS + " FROM transactions" + where(range, null, since, sourceParameters) + " ORDER BY id";
+        final var targetSql = "SELECT id, version FROM transactions" + targetWhere(range, since) + " ORDER BY id";
+        final List<Object[]> upserts = new ArrayList<>();
+        final List<Object[]> deletes = new ArrayList<>();
+        long compared = 0, upserted = 0, deleted = 0;
+        try (var sourceConnection = source.getConnection();
+             var sourceStatement = streaming(sourceConnection, sourceSql, sourceParameters);
+             var sourceRows = sourceStatement.executeQuery();
+             var targetConnection = target.getConnection()) {
+            // The writes go through the connection that reads the target, in the
+            // same database transaction, so that a worker never holds more than
+            // one connection of the target's pool.  The target rows are read
+            // with the snapshot taken when the query started, so the cursor does
+            // not see them.
+            targetConnection.setAutoCommit(false);
+            try (var targetStatement = targetConnection.prepareStatement(targetSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                targetStatement.setFetchSize(TARGET_FETCH_SIZE);
+                bindTarget(targetStatement, range, since);
+                try (var targetRows = targetStatement.executeQuery()) {
+                    final var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                    Row sourceRow = sourceRows.next() ? row(sourceRows, utc) : null;
+                    UUID targetId = targetRows.next() ? (UUID) targetRows.getObject(1) : null;
+                    long targetVersion = targetId == null ? 0 : targetRows.getLong(2);
+                    while (sourceRow != null || targetId != null) {
+                        compared++;
+                        final int order = sourceRow == null ? 1 : targetId == null ? -1 : compareUnsigned(sourceRow.id, targetId);
+                        if (order < 0 || (order == 0 && sourceRow.version != targetVersion))
+                            upserts.add(upsertParameters(sourceRow));
+                        else if (order > 0)
+                            deletes.add(new Object[]{targetId});
+                        if (order <= 0)
+                            sourceRow = sourceRows.next() ? row(sourceRows, utc) : null;
+                        if (order >= 0) {
+                            targetId = targetRows.next() ? (UUID) targetRows.getObject(1) : null;
+                            targetVersion = targetId == null ? 0 : targetRows.getLong(2);
+                        }
+                        if (upserts.size() == batchSize)
+                            upserted += write(targetConnection, UPSERT, upserts, UPSERT_TYPES);
+                        if (deletes.size() == batchSize)
+                            deleted += write(targetConnection, DELETE, deletes, DELETE_TYPES);
+                    }
+                }
+                upserted += write(targetConnection, UPSERT, upserts, UPSERT_TYPES);
+                deleted += write(targetConnection, DELETE, deletes, DELETE_TYPES);
+                targetConnection.commit();
+            } finally {
+                // Nothing left to roll back after the commit.
+                targetConnection.rollback();
+                targetConnection.setAutoCommit(true);
+            }
+        }
+        return new CatchUpSummary(compared, upserted, deleted, 0);
+    }
+
+    private static int write(Connection connection, String sql, List<Object[]> batch, int[] types) throws SQLException {
+        final int size = batch.size();
+        if (size > 0) {
+            try (var statement = connection.prepareStatement(sql)) {
+                for (Object[] parameters : batch) {
+                    for (int i = 0; i < parameters.length; i++)
+                        StatementCreatorUtils.setParameterValue(statement, i + 1, types[i], parameters[i]);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        batch.clear();
+        return size;
+    }
+
+    private PreparedStatement streaming(Connection connection, String sql, List<Object> parameters) throws SQLException {
+        final var statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(Integer.MIN_VALUE);
+        final var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i) instanceof Timestamp timestamp)
+                statement.setTimestamp(i + 1, timestamp, utc);
+            else
+                statement.setObject(i + 1, parameters.get(i));
+        }
+        return statement;
+    }
+
+    private String where(KeyRange range, UUID after, Instant since, List<Object> parameters) {
+        final var where = new StringBuilder(" WHERE 1 = 1");
+        if (after != null) {
+            where.append(" AND id > ?");
+            parameters.add(sourceIds.binary(after));
+        } else if (range.from() != null) {
+            where.append(" AND id >= ?");
+            parameters.add(sourceIds.binary(range.from()));
+        }
+        if (range.to() != null) {
+            where.append(" AND id < ?");
+            parameters.add(sourceIds.binary(range.to()));
+        }
+        if (since != null) {
+            where.append(" AND date >= ?");
+            parameters.add(Timestamp.from(since));
+        }
+        return where.toString();
+    }
+
+    private static String targetWhere(KeyRange range, Instant since) {
+        return " WHERE 1 = 1" +
+                (range.from() != null ? " AND id >= ?" : "") +
+                (range.to() != null ? " AND id < ?" : "") +
+                (since != null ? " AND date >= ?" : "");
+    }
+
+    private static void bindTarget(PreparedStatement statement, KeyRange range, Instant since) throws SQLException {
+        int index = 1;
+        if (range.from() != null)
+            statement.setObject(index++, range.from());
+        if (range.to() != null)
+            statement.setObject(index++, range.to());
+        if (since != null)
+            statement.setTimestamp(index, Timestamp.from(since), Calendar.getInstance(TimeZone.getTimeZone("UTC")));
+    }
+
+    private static Row row(ResultSet rs, Calendar utc) throws SQLException {
+        final double amount = rs.getDouble("amount");
+        final Double nullableAmount = rs.wasNull() ? null : amount;
+        return new Row(TransactionRowMapper.uuid(rs.getObject("id")),
+                rs.getLong("version"),
+                rs.getTimestamp("date", utc),
+                rs.getString("order_id"),
+                rs.getString("status"),
+                nullableAmount,
+                rs.getString("currency"));
+    }
+
+    private static Object[] upsertParameters(Row row) {
+        return new Object[]{row.id, row.version, row.date == null ? null : row.date.toInstant().toString(), row.orderId, row.status,
+                row.amount, row.currency};
+    }
+
+    // The dates are written as UTC instants, which is how Hibernate writes them
+    // and how TransactionRowMapper reads them.
+    private static void appendCsv(StringBuilder csv, Row row) {
+        csv.append(row.id).append(',')
+                .append(row.version).append(',')
+                .append(row.date == null ? "" : row.date.toInstant().toString()).append(',');
+        quoted(csv, row.orderId).append(',');
+        quoted(csv, row.status).append(',')
+                .append(row.amount == null ? "" : row.amount.toString()).append(',');
+        quoted(csv, row.currency).append('\n');
+    }
+
+    // An unquoted empty field is NULL to COPY, a quoted one the empty string.
+    private static StringBuilder quoted(StringBuilder csv, String value) {
+        if (value == null)
+            return csv;
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        final int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    private static <T> List<T> runAll(String what, int workers, List<Callable<T>> tasks) {
+        final var threads = new AtomicInteger();
+        final var executor = Executors.newFixedThreadPool(workers, runnable -> {
+            final var thread = new Thread(runnable, "migration-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks)
+                futures.add(executor.submit(task));
+            final List<T> results = new ArrayList<>(futures.size());
+            IllegalStateException failure = null;
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while trying to " + what, e);
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = new IllegalStateException("Could not " + what + " the transactions", e.getCause());
+                    else
+                        failure.addSuppressed(e.getCause());
+                }
+            }
+            if (failure != null)
+                throw failure;
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.tsys.tc_spike.orderindex;
+
+import com.tsys.tc_spike.domain.TransactionArchived;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+// A persistent index from orderId to the id and version of the transaction
+// with that orderId, held in a memory-mapped file rather than on the heap: an
+// open-addressing hash table (linear probing) of fixed size slots,
+//
+//   header: magic "OIDX", format version (int), capacity (long, a power of
+//           two), size (long), clean (byte), padded to HEADER_SIZE bytes
+//   slot:   hash of the orderId (long, 0 for an empty slot), id (two longs)
+//           and version (long)
+//
+// Only the 64 bit hash of an orderId is kept, so an entry is a hint to be
+// checked against the transactions table (see TransactionLookups), which also
+// catches the changes this instance did not see.  The file is mapped in
+// chunks of at most CHUNK_SLOTS slots, so the index is not limited by the
+// heap (or by the 2 GB of a single mapping), and opening it reads nothing but
+// the header - the pages are faulted in as they are probed.  Once three
+// quarters full, it is rehashed into a file of twice the capacity that then
+// replaces it.
+//
+// The mappings are written through to the page cache, so the index survives
+// the process, though not necessarily the machine; a file that was not closed
+// cleanly gets its size recounted on opening.  Many readers or one writer at a
+// time.
+public class OrderIdIndex implements Closeable {
+    static final int HEADER_SIZE = 64;
+    static final int SLOT_SIZE = 32;
+    static final int CHUNK_SLOTS = 1 << 24;
+    private static final int MAGIC = 0x4f494458;
+    private static final int FORMAT_VERSION = 1;
+    private static final int MINIMUM_CAPACITY = 1024;
+
+    public record Entry(UUID id, long version) {
+    }
+
+    private final Path file;
+    private final StampedLock lock = new StampedLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+    private long capacity;
+    private long size;
+    private boolean closed;
+
+    private OrderIdIndex(Path file) {
+        this.file = file;
+    }
+
+    // Opens the index in the file, creating it with (at least) the capacity
+    // if it does not exist.
+    public static OrderIdIndex open(Path file, long initialCapacity) throws IOException {
+        final var index = new OrderIdIndex(file);
+        Files.deleteIfExists(resizing(file));
+        if (Files.exists(file)) {
+            index.map(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        } else {
+            if (file.getParent() != null)
+                Files.createDirectories(file.getParent());
+            index.map(create(file, capacityFor(initialCapacity)));
+        }
+        return index;
+    }
+
+    public Entry find(String orderId) {
+        final long hash = hash(orderId);
+        final long stamp = lock.readLock();
+        try {
+            checkOpen();
+            final long slot = slotOf(hash);
+            if (slot < 0 || hashAt(slot) == 0) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            final var chunk = chunks[chunk(slot)];
+            final int offset = offset(slot);
+            return new Entry(new UUID(chunk.getLong(offset + 8), chunk.getLong(offset + 16)), chunk.getLong(offset + 24));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Indexes the transaction under the orderId, unless the index holds a
+    // later version of that same transaction already.
+    public void put(String orderId, UUID id, long version) {
+        final long hash = hash(orderId);
+        final long stamp = lock.writeLock();
+        try {
+            checkOpen();
+            long slot = slotOf(hash);
+            if (slot >= 0 && hashAt(slot) != 0) {
+                final var chunk = chunks[chunk(slot)];
+                final int offset = offset(slot);
+                if (chunk.getLong(offset + 8) == id.getMostSignificantBits()
+                        && chunk.getLong(offset + 16) == id.getLeastSignificantBits()
+                        && chunk.getLong(offset + 24) > version)
+                    return;
+                write(slot, hash, id, version);
+                return;
+            }
+            if (size + 1 > capacity / 4 * 3) {
+                grow();
+                slot = slotOf(hash);
+            }
+            write(slot, hash, id, version);
+            header.putLong(16, ++size);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Removes the orderId, if it is indexed for the transaction with the id.
+    public void remove(String orderId, UUID id) {
+        final long hash = hash(orderId);
+        final long stamp = lock.writeLock();
+        try {
+            checkOpen();
+            long slot = slotOf(hash);
+            if (slot < 0 || hashAt(slot) == 0)
+                return;
+            final var chunk = chunks[chunk(slot)];
+            final int offset = offset(slot);
+            if (chunk.getLong(offset + 8) != id.getMostSignificantBits() || chunk.getLong(offset + 16) != id.getLeastSignificantBits())
+                return;
+            // Shifts the entries after it back, rather than leaving a tombstone,
+            // so that probing still stops at the first empty slot.
+            final long mask = capacity - 1;
+            long next = (slot + 1) & mask;
+            while (hashAt(next) != 0) {
+                final long home = hashAt(next) & mask;
+                final boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+                if (movable) {
+                    copy(next, slot);
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            chunks[chunk(slot)].putLong(offset(slot), 0);
+            header.putLong(16, --size);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Keeps the index up to date with the changes committed through this
+    // instance.
+    @TransactionalEventListener
+    public void on(TransactionChanged change) {
+        final var transaction = change.transaction();
+        if (transaction.orderId == null)
+            return;
+        if (change.kind() == TransactionChanged.Kind.DELETED)
+            remove(transaction.orderId, transaction.id);
+        else
+            put(transaction.orderId, transaction.id, change.version());
+    }
+
+    // Archived transactions are looked up in the archive instead.
+    @TransactionalEventListener
+    public void on(TransactionArchived archived) {
+        final var transaction = archived.transaction();
+        if (transaction.orderId != null)
+            remove(transaction.orderId, transaction.id);
+    }
+
+    public long size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long capacity() {
+        final long stamp = lock.readLock();
+        try {
+            return capacity;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Lookups that found an entry (right or stale), and those that did not.
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        final long stamp = lock.writeLock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            for (MappedByteBuffer chunk : chunks)
+                chunk.force();
+            header.put(24, (byte) 1);
+            header.force();
+            channel.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // The slot holding the hash, or the empty slot where it would go; -1 only
+    // if the table is full, which growing it keeps from happening.
+    private long slotOf(long hash) {
+        final long mask = capacity - 1;
+        long slot = hash & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            final long found = hashAt(slot);
+            if (found == 0 || found == hash)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private long hashAt(long slot) {
+        return chunks[chunk(slot)].getLong(offset(slot));
+    }
+
+    private void write(long slot, long hash, UUID id, long version) {
+        final var chunk = chunks[chunk(slot)];
+        final int offset = offset(slot);
+        chunk.putLong(offset + 8, id.getMostSignificantBits());
+        chunk.putLong(offset + 16, id.getLeastSignificantBits());
+        chunk.putLong(offset + 24, version);
+        // Last, so that a slot is never seen taken before its entry is written.
+        chunk.putLong(offset, hash);
+    }
+
+    private void copy(long from, long to) {
+        final var source = chunks[chunk(from)];
+        final int offset = offset(from);
+        write(to, source.getLong(offset),
+                new UUID(source.getLong(offset + 8), source.getLong(offset + 16)),
+                source.getLong(offset + 24));
+    }
+
+    // Rehashes all entries into a file of twice the capacity, which then
+    // replaces this one.
+    private void grow() {
+        final var target = resizing(file);
+        final var grown = new OrderIdIndex(target);
+        try {
+            grown.map(create(target, capacity * 2));
+            for (long slot = 0; slot < capacity; slot++) {
+                final long hash = hashAt(slot);
+                if (hash == 0)
+                    continue;
+                final var chunk = chunks[chunk(slot)];
+                final int offset = offset(slot);
+                grown.write(grown.slotOf(hash), hash, new UUID(chunk.getLong(offset + 8), chunk.getLong(offset + 16)),
+                        chunk.getLong(offset + 24));
+            }
+            grown.header.putLong(16, size);
+            for (MappedByteBuffer chunk : grown.chunks)
+                chunk.force();
+            grown.header.force();
+            Files.move(target, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                if (grown.channel != null)
+                    grown.channel.close();
+                Files.deleteIfExists(target);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            if (e instanceof IOException io)
+                throw new UncheckedIOException("Could not grow the order id index " + file, io);
+            throw (RuntimeException) e;
+        }
+        // The old mapping goes away once it is garbage collected.
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // It is replaced either way.
+        }
+        channel = grown.channel;
+        header = grown.header;
+        chunks = grown.chunks;
+        capacity = grown.capacity;
+    }
+
+    private static FileChannel create(Path file, long capacity) throws IOException {
+        final var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Sparse: the slots are all zeros, that is, empty.
+            final var header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putLong(8, capacity).putLong(16, 0).put(24, (byte) 1);
+            channel.write(ByteBuffer.allocate(1), HEADER_SIZE + capacity * SLOT_SIZE - 1);
+            header.force();
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void map(FileChannel channel) throws IOException {
+        try {
+            final var header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC)
+                throw new IllegalArgumentException("Not an order id index: " + file);
+            if (header.getInt(4) != FORMAT_VERSION)
+                throw new IllegalArgumentException("Unsupported order id index version: " + header.getInt(4));
+            final long capacity = header.getLong(8);
+            if (Long.bitCount(capacity) != 1 || channel.size() < HEADER_SIZE + capacity * SLOT_SIZE)
+                throw new IllegalArgumentException("Truncated order id index: " + file);
+
+            final var chunks = new MappedByteBuffer[(int) ((capacity + CHUNK_SLOTS - 1) / CHUNK_SLOTS)];
+            for (int i = 0; i < chunks.length; i++) {
+                final long slots = Math.min(CHUNK_SLOTS, capacity - (long) i * CHUNK_SLOTS);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long) i * CHUNK_SLOTS * SLOT_SIZE, slots * SLOT_SIZE);
+            }
+            this.channel = channel;
+            this.header = header;
+            this.chunks = chunks;
+            this.capacity = capacity;
+            this.size = header.get(24) == 1 ? header.getLong(16) : count();
+            header.putLong(16, size);
+            // Marked clean again on close.
+            header.put(24, (byte) 0);
+            header.force();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private long count() {
+        long count = 0;
+        for (long slot = 0; slot < capacity; slot++)
+            if (hashAt(slot) != 0)
+                count++;
+        return count;
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("The order id index " + file + " is closed");
+    }
+
+    private static int chunk(long slot) {
+        return (int) (slot / CHUNK_SLOTS);
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot % CHUNK_SLOTS) * SLOT_SIZE;
+    }
+
+    private static long capacityFor(long slots) {
+        final long atLeast = Math.max(MINIMUM_CAPACITY, slots);
+        return Long.highestOneBit(atLeast - 1) << 1;
+    }
+
+    private static Path resizing(Path file) {
+        return file.resolveSibling(file.getFileName() + ".resizing");
+    }
+
+    // FNV-1a over the chars, finished with the MurmurHash3 mix, without
+    // allocating; 0 marks an empty slot, so it is never a hash.
+    static long hash(String orderId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < orderId.length(); i++)
+            hash = (hash ^ orderId.charAt(i)) * 0x100000001b3L;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+}
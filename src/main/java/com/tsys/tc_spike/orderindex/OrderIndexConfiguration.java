@@ -0,0 +1,28 @@
+package com.tsys.tc_spike.orderindex;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Lookups by orderId (see TransactionLookups) go through the OrderIdIndex when
+// it is given a file, which should be on a local disk that outlives deploys:
+//
+//   orderindex.path=/var/lib/tc-spike/order-ids.idx
+//   orderindex.initial-capacity=1048576
+//
+// An instance needs a file of its own; the file grows to 32 bytes per slot,
+// and twice the slots once three quarters of them are taken.
+@Configuration
+@ConditionalOnProperty("orderindex.path")
+public class OrderIndexConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public OrderIdIndex orderIdIndex(@Value("${orderindex.path}") Path path,
+                                     @Value("${orderindex.initial-capacity:1048576}") long initialCapacity) throws IOException {
+        return OrderIdIndex.open(path, initialCapacity);
+    }
+}
@@ -0,0 +1,82 @@
+package com.tsys.tc_spike.outbox;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+// The outbox is only written, and relayed, when a Kafka cluster is configured,
+// for example:
+//
+//   outbox.kafka.bootstrap-servers=localhost:9092
+//   outbox.kafka.topic=transactions
+//   outbox.relay.batch-size=1000
+//   outbox.relay.delete-after-publish=true
+//   outbox.relay.poll-interval-ms=200
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty("outbox.kafka.bootstrap-servers")
+public class OutboxConfiguration {
+
+    public static Map<String, Object> producerProperties(String bootstrapServers) {
+        return Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                // Idempotence keeps retries from duplicating records within a partition.
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+                // Let the producer build large, compressed batches.
+                ProducerConfig.LINGER_MS_CONFIG, 10,
+                ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+    }
+
+    @Bean(destroyMethod = "close")
+    public Producer<String, String> outboxProducer(@Value("${outbox.kafka.bootstrap-servers}") String bootstrapServers) {
+        return new KafkaProducer<>(producerProperties(bootstrapServers));
+    }
+
+    @Bean
+    public OutboxWriter outboxWriter(JdbcTemplate jdbcTemplate) {
+        return new OutboxWriter(jdbcTemplate);
+    }
+
+    @Bean
+    public OutboxRelay outboxRelay(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   Producer<String, String> outboxProducer,
+                                   @Value("${outbox.kafka.topic:transactions}") String topic,
+                                   @Value("${outbox.relay.batch-size:1000}") int batchSize,
+                                   @Value("${outbox.relay.delete-after-publish:true}") boolean deleteAfterPublish) {
+        return new OutboxRelay(jdbcTemplate, transactionTemplate, outboxProducer, topic, batchSize, deleteAfterPublish);
+    }
+
+    @Bean
+    public OutboxRelayScheduler outboxRelayScheduler(OutboxRelay outboxRelay) {
+        return new OutboxRelayScheduler(outboxRelay);
+    }
+
+    static class OutboxRelayScheduler {
+        private final OutboxRelay relay;
+
+        OutboxRelayScheduler(OutboxRelay relay) {
+            this.relay = relay;
+        }
+
+        @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:200}")
+        void drain() {
+            relay.drain();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.tsys.tc_spike.outbox;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+// A row of the transactional outbox.  It is written by the OutboxWriter in the
+// same database transaction as the Transaction change it describes, and is
+// later published to Kafka by the OutboxRelay.
+@Entity
+@Table(name = "transaction_outbox")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public final Long id;
+
+    @Column(length = 36, nullable = false)
+    public final String aggregateId;
+    public final long aggregateVersion;
+    @Column(length = 16, nullable = false)
+    public final String eventType;
+    @Column(length = 2048, nullable = false)
+    public final String payload;
+    public final Instant createdAt;
+    public final Instant publishedAt;
+
+    @Deprecated
+    OutboxEvent() {
+        this(null, null, 0L, null, null, null, null);
+    }
+
+    public OutboxEvent(Long id, String aggregateId, long aggregateVersion, String eventType, String payload, Instant createdAt, Instant publishedAt) {
+        this.id = id;
+        this.aggregateId = aggregateId;
+        this.aggregateVersion = aggregateVersion;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = createdAt;
+        this.publishedAt = publishedAt;
+    }
+}
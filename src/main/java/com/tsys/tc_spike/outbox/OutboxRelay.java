@@ -0,0 +1,133 @@
+package com.tsys.tc_spike.outbox;
+
+import com.tsys.tc_spike.datasource.Workload;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Publishes outbox rows to Kafka in batches.
+//
+// Each batch is claimed with SELECT ... FOR UPDATE SKIP LOCKED (supported by
+// Postgres and MySQL 8), so several relays - threads or application instances -
+// can drain the outbox concurrently without ever handing out the same row twice
+// and without waiting on each other's locks.
+//
+// Delivery is at-least-once: the claimed rows are only deleted (or marked as
+// published) after Kafka has acknowledged every record of the batch, in the same
+// database transaction that claimed them.  Should publishing fail, or the relay
+// crash, the transaction rolls back and the rows will be claimed again.  Hence
+// consumers must be idempotent, the aggregate id (the record key) and the
+// aggregate version (a record header) make that easy.
+public class OutboxRelay {
+    private static final RowMapper<OutboxEvent> ROW_MAPPER = (rs, rowNum) -> new OutboxEvent(
+            rs.getLong("id"),
+            rs.getString("aggregate_id"),
+            rs.getLong("aggregate_version"),
+            rs.getString("event_type"),
+            rs.getString("payload"),
+            null,
+            null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Producer<String, String> producer;
+    private final String topic;
+    private final int batchSize;
+    private final boolean deleteAfterPublish;
+    private final OutboxRelayMetrics metrics = new OutboxRelayMetrics();
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Producer<String, String> producer,
+                       String topic, int batchSize, boolean deleteAfterPublish) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.producer = producer;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.deleteAfterPublish = deleteAfterPublish;
+    }
+
+    public OutboxRelayMetrics metrics() {
+        return metrics;
+    }
+
+    // Relays batches until the outbox has no more unclaimed rows, answering the
+    // total number of events published.
+    public long drain() {
+        long total = 0;
+        int relayed;
+        do {
+            relayed = relayBatch();
+            total += relayed;
+        } while (relayed == batchSize);
+        return total;
+    }
+
+    // Claims, publishes and removes at most one batch of outbox rows, answering
+    // the number of events published.
+    public int relayBatch() {
+        try {
+            return Workload.BATCH.call(() -> transactionTemplate.execute(status -> {
+                final List<OutboxEvent> events = jdbcTemplate.query(
+                        "SELECT id, aggregate_id, aggregate_version, event_type, payload FROM transaction_outbox " +
+                                "WHERE published_at IS NULL ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                        ROW_MAPPER, batchSize);
+                if (events.isEmpty())
+                    return 0;
+
+                final long start = System.nanoTime();
+                publish(events);
+                acknowledge(events);
+                metrics.batchPublished(events.size(), System.nanoTime() - start);
+                return events.size();
+            }));
+        } catch (RuntimeException e) {
+            metrics.batchFailed();
+            throw e;
+        }
+    }
+
+    private void publish(List<OutboxEvent> events) {
+        // The producer batches (linger.ms, batch.size) and compresses the records,
+        // we only wait for the acknowledgements once the whole batch is handed over.
+        final List<Future<RecordMetadata>> acks = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            final var headers = new RecordHeaders()
+                    .add("event-type", event.eventType.getBytes(StandardCharsets.UTF_8))
+                    .add("aggregate-version", Long.toString(event.aggregateVersion).getBytes(StandardCharsets.UTF_8));
+            acks.add(producer.send(new ProducerRecord<>(topic, null, event.aggregateId, event.payload, headers)));
+        }
+        producer.flush();
+        try {
+            for (Future<RecordMetadata> ack : acks)
+                ack.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing outbox events", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not publish outbox events", e.getCause());
+        }
+    }
+
+    private void acknowledge(List<OutboxEvent> events) {
+        final List<Object[]> ids = events.stream().map(event -> new Object[]{event.id}).toList();
+        if (deleteAfterPublish) {
+            jdbcTemplate.batchUpdate("DELETE FROM transaction_outbox WHERE id = ?", ids);
+        } else {
+            final var now = Timestamp.from(Instant.now());
+            jdbcTemplate.batchUpdate("UPDATE transaction_outbox SET published_at = ? WHERE id = ?",
+                    ids.stream().map(id -> new Object[]{now, id[0]}).toList());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.tsys.tc_spike.outbox;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Throughput counters of the OutboxRelay.  LongAdders are used because several
+// relay threads may record concurrently.
+public class OutboxRelayMetrics {
+    private final long startedAt = System.nanoTime();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder publishNanos = new LongAdder();
+
+    void batchPublished(int events, long elapsedNanos) {
+        published.add(events);
+        batches.increment();
+        publishNanos.add(elapsedNanos);
+    }
+
+    void batchFailed() {
+        failedBatches.increment();
+    }
+
+    public long published() {
+        return published.sum();
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    public long failedBatches() {
+        return failedBatches.sum();
+    }
+
+    // Average number of events published per second since the relay started.
+    public double eventsPerSecond() {
+        final long elapsed = System.nanoTime() - startedAt;
+        return elapsed == 0 ? 0 : published() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    // Average time taken to publish (and acknowledge) one batch.
+    public double averageBatchMillis() {
+        final long count = batches();
+        return count == 0 ? 0 : publishNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1) / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OutboxRelayMetrics{published=%d, batches=%d, failedBatches=%d, eventsPerSecond=%.0f, averageBatchMillis=%.2f}",
+                published(), batches(), failedBatches(), eventsPerSecond(), averageBatchMillis());
+    }
+}
@@ -0,0 +1,60 @@
+package com.tsys.tc_spike.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import com.tsys.tc_spike.json.TransactionJsonModule;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+// Writes an outbox row for every TransactionChanged event.
+//
+// The event is published while Hibernate flushes the Transaction, so the insert
+// below runs on the very same JDBC connection and in the very same database
+// transaction as TransactionRepository.save.  Either both the Transaction and
+// its outbox row are committed, or neither is - there is no dual write to
+// race with.  Propagation.MANDATORY makes sure we never write outside of it.
+//
+// Only registered along with the relay (see OutboxConfiguration): without one
+// nothing would ever publish, or remove, the rows.
+public class OutboxWriter {
+    static final String INSERT = "INSERT INTO transaction_outbox (aggregate_id, aggregate_version, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .addModule(new TransactionJsonModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    public OutboxWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void on(TransactionChanged change) {
+        final var transaction = change.transaction();
+        jdbcTemplate.update(INSERT,
+                transaction.id.toString(),
+                change.version(),
+                change.kind().name(),
+                toJson(change),
+                Timestamp.from(Instant.now()));
+    }
+
+    private String toJson(TransactionChanged change) {
+        try {
+            return objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise " + change, e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.tsys.tc_spike.reconcile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// The ids whose first bits are the given prefix: a node of the hash tree the
+// reconciliation descends, whose children share the prefix and a few more
+// bits.  So the ranges are fixed, and two stores agree on them without talking
+// to each other.  A null bound is open, like that of a KeyRange.
+record IdRange(long prefix, int bits) {
+    static final int MAX_BITS = 60;
+
+    IdRange {
+        if (bits < 0 || bits > MAX_BITS)
+            throw new IllegalArgumentException("The bits must be between 0 and " + MAX_BITS + ", not " + bits);
+    }
+
+    // All the ranges of the given number of leading bits, in the order of their ids.
+    static List<IdRange> all(int bits) {
+        final List<IdRange> ranges = new ArrayList<>(1 << bits);
+        for (long prefix = 0; prefix < 1L << bits; prefix++)
+            ranges.add(new IdRange(prefix, bits));
+        return ranges;
+    }
+
+    List<IdRange> children(int moreBits) {
+        final List<IdRange> children = new ArrayList<>(1 << moreBits);
+        for (long suffix = 0; suffix < 1L << moreBits; suffix++)
+            children.add(new IdRange(prefix << moreBits | suffix, bits + moreBits));
+        return children;
+    }
+
+    // The first id of the range, and the first one after it.
+    UUID from() {
+        return prefix == 0 ? null : new UUID(prefix << (64 - bits), 0);
+    }
+
+    UUID to() {
+        return prefix == (1L << bits) - 1 ? null : new UUID((prefix + 1) << (64 - bits), 0);
+    }
+}
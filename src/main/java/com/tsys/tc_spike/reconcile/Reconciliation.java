@@ -0,0 +1,27 @@
+package com.tsys.tc_spike.reconcile;
+
+import java.util.List;
+import java.util.UUID;
+
+// The outcome of reconciling two stores: the ids that differ, and what it took
+// to find them.  nodesCompared counts the ranges digested on both sides, and
+// rangesScanned the ranges whose rows were fetched from both sides (rowsFetched
+// in all) to pin the differences down to ids.
+public record Reconciliation(List<Difference> differences, long leftRows, long rightRows,
+                             long nodesCompared, int rangesScanned, long rowsFetched, long elapsedMillis) {
+
+    public enum Kind {
+        ONLY_LEFT, ONLY_RIGHT, CHANGED
+    }
+
+    public record Difference(UUID id, Kind kind) {
+    }
+
+    public boolean consistent() {
+        return differences.isEmpty();
+    }
+
+    public List<UUID> ids() {
+        return differences.stream().map(Difference::id).toList();
+    }
+}
@@ -0,0 +1,157 @@
+package com.tsys.tc_spike.reconcile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Finds the transactions that differ between two stores, by id, without
+// diffing them row by row.
+//
+// The stores are compared as hash trees whose nodes are IdRanges, digested by
+// the databases themselves (see TransactionStore): only the digests cross the
+// wire.  The ids are first split into 2^bits ranges by their leading bits,
+// digested on both sides in parallel; every range whose digests differ is
+// split into 2^SPLIT_BITS ranges in turn, and so on, until a differing range
+// holds at most leafRows rows on either side.  Only the rows of those ranges
+// are fetched (their ids and hashes), to compare them by id.
+//
+// So the stores are read once as a whole, by the first split, and after that
+// only the ranges around the differences: ten differences among 50 million
+// rows, with 2^8 first ranges and 16 children each, cost one pass over each
+// table, plus three levels of at most ten ranges each (of about 195,000, then
+// 12,000 and 760 rows) and at most ten ranges of rows fetched.
+public class TransactionReconciler {
+    static final int SPLIT_BITS = 4;
+
+    private static final Comparator<UUID> UNSIGNED = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final int bits;
+    private final int leafRows;
+    private final int parallelism;
+
+    public TransactionReconciler(int bits, int leafRows, int parallelism) {
+        if (bits < 0 || bits > 16)
+            throw new IllegalArgumentException("The bits must be between 0 and 16, not " + bits);
+        if (leafRows < 1)
+            throw new IllegalArgumentException("A leaf must hold at least one row, not " + leafRows);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must be at least 1, not " + parallelism);
+        this.bits = bits;
+        this.leafRows = leafRows;
+        this.parallelism = parallelism;
+    }
+
+    public Reconciliation reconcile(TransactionStore left, TransactionStore right) {
+        final long start = System.nanoTime();
+        final var threads = new AtomicInteger();
+        final var executor = Executors.newFixedThreadPool(2 * parallelism, runnable -> {
+            final var thread = new Thread(runnable, "reconcile-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long leftRows = 0, rightRows = 0, nodesCompared = 0;
+            final List<IdRange> leaves = new ArrayList<>();
+            List<IdRange> level = IdRange.all(bits);
+            for (boolean first = true; !level.isEmpty(); first = false) {
+                final List<Callable<TransactionStore.RangeDigest>> digests = new ArrayList<>();
+                for (TransactionStore store : List.of(left, right))
+                    for (IdRange range : level)
+                        digests.add(() -> store.digest(range));
+                final var digested = runAll(executor, "hash", digests);
+
+                final List<IdRange> next = new ArrayList<>();
+                for (int i = 0; i < level.size(); i++) {
+                    final var range = level.get(i);
+                    final var leftDigest = digested.get(i);
+                    final var rightDigest = digested.get(level.size() + i);
+                    nodesCompared++;
+                    if (first) {
+                        leftRows += leftDigest.rows();
+                        rightRows += rightDigest.rows();
+                    }
+                    if (leftDigest.equals(rightDigest))
+                        continue;
+                    if (Math.max(leftDigest.rows(), rightDigest.rows()) <= leafRows || range.bits() + SPLIT_BITS > IdRange.MAX_BITS)
+                        leaves.add(range);
+                    else
+                        next.addAll(range.children(SPLIT_BITS));
+                }
+                level = next;
+            }
+
+            final List<Callable<RangeComparison>> comparisons = new ArrayList<>();
+            for (IdRange leaf : leaves)
+                comparisons.add(() -> compareRange(left, right, leaf));
+            final List<Reconciliation.Difference> differences = new ArrayList<>();
+            long rowsFetched = 0;
+            for (RangeComparison comparison : runAll(executor, "compare", comparisons)) {
+                differences.addAll(comparison.differences());
+                rowsFetched += comparison.rowsFetched();
+            }
+            differences.sort(Comparator.comparing(Reconciliation.Difference::id, UNSIGNED));
+
+            return new Reconciliation(differences, leftRows, rightRows, nodesCompared, leaves.size(), rowsFetched,
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record RangeComparison(List<Reconciliation.Difference> differences, long rowsFetched) {
+    }
+
+    private static RangeComparison compareRange(TransactionStore left, TransactionStore right, IdRange range) {
+        final Map<UUID, Long> leftRows = left.rowHashes(range);
+        final Map<UUID, Long> rightRows = right.rowHashes(range);
+        final var ids = new HashSet<>(leftRows.keySet());
+        ids.addAll(rightRows.keySet());
+        final List<Reconciliation.Difference> differences = new ArrayList<>();
+        for (UUID id : ids) {
+            final var leftHash = leftRows.get(id);
+            final var rightHash = rightRows.get(id);
+            if (rightHash == null)
+                differences.add(new Reconciliation.Difference(id, Reconciliation.Kind.ONLY_LEFT));
+            else if (leftHash == null)
+                differences.add(new Reconciliation.Difference(id, Reconciliation.Kind.ONLY_RIGHT));
+            else if (!leftHash.equals(rightHash))
+                differences.add(new Reconciliation.Difference(id, Reconciliation.Kind.CHANGED));
+        }
+        return new RangeComparison(differences, leftRows.size() + rightRows.size());
+    }
+
+    private static <T> List<T> runAll(ExecutorService executor, String what, List<Callable<T>> tasks) {
+        final List<Future<T>> futures = new ArrayList<>();
+        for (Callable<T> task : tasks)
+            futures.add(executor.submit(task));
+        final List<T> results = new ArrayList<>(futures.size());
+        IllegalStateException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while trying to " + what + " the transactions", e);
+            } catch (ExecutionException e) {
+                if (failure == null)
+                    failure = new IllegalStateException("Could not " + what + " the transactions", e.getCause());
+                else
+                    failure.addSuppressed(e.getCause());
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return results;
+    }
+}
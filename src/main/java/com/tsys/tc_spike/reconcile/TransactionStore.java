@@ -0,0 +1,113 @@
+package com.tsys.tc_spike.reconcile;
+
+import com.tsys.tc_spike.repository.TransactionIds;
+import com.tsys.tc_spike.repository.TransactionRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// One side of a reconciliation: the transactions table of some database
+// (H2, MySQL or Postgres), hashed by the database itself.
+//
+// Every row is reduced to the MD5 of a canonical text of the columns compared,
+//
+//   id (32 lower case hex digits):version:+status:+amount (in millionths, rounded down)
+//
+// with a - for a null status or amount, which all three databases build (and
+// hash) alike.  Of the hash, two 28 bit numbers are taken, and a range is
+// digested into its number of rows and the sums of those numbers - which do
+// not depend on the order of the rows, so the database adds them up as it
+// scans the range, and only the three numbers cross the wire.  The sums fit in
+// 64 bits for up to 2^35 rows.
+//
+// The bounds are bound as the database stores the ids (see TransactionIds).
+public class TransactionStore {
+    private enum Dialect {
+        H2("REPLACE(CAST(id AS VARCHAR), '-', '')", "BIGINT", "HASH('MD5', %s)",
+                "BITAND(CAST(SUBSTRING(h FROM 1 FOR 4) AS INTEGER), 268435455)",
+                "BITAND(CAST(SUBSTRING(h FROM 5 FOR 4) AS INTEGER), 268435455)"),
+        MYSQL("LOWER(HEX(SUBSTRING(id, 1, 16)))", "SIGNED", "MD5(%s)",
+                "CAST(CONV(SUBSTRING(h, 2, 7), 16, 10) AS UNSIGNED)",
+                "CAST(CONV(SUBSTRING(h, 10, 7), 16, 10) AS UNSIGNED)"),
+        POSTGRESQL("REPLACE(CAST(id AS VARCHAR), '-', '')", "BIGINT", "MD5(%s)",
+                "CAST(CAST(CONCAT('x', SUBSTRING(h, 2, 7)) AS BIT(28)) AS BIGINT)",
+                "CAST(CAST(CONCAT('x', SUBSTRING(h, 10, 7)) AS BIT(28)) AS BIGINT)");
+
+        // The lower 28 bits of the first and of the second 4 bytes of the hash h,
+        // that is, hex digits 2 to 8 and 10 to 16 of MD5's.
+        private final String first;
+        private final String second;
+        private final String hash;
+
+        Dialect(String id, String integer, String md5, String first, String second) {
+            this.first = first;
+            this.second = second;
+            this.hash = md5.formatted("CONCAT(" + id + ", ':', version, ':', " +
+                    "CASE WHEN status IS NULL THEN '-' ELSE CONCAT('+', status) END, ':', " +
+                    "CASE WHEN amount IS NULL THEN '-' ELSE CONCAT('+', CAST(FLOOR(amount * 1000000) AS " + integer + ")) END)");
+        }
+    }
+
+    // The number of rows of a range, and the sums of their two hash numbers.
+    record RangeDigest(long rows, long first, long second) {
+    }
+
+    private final String name;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionIds transactionIds;
+    private final Dialect dialect;
+
+    public TransactionStore(String name, DataSource dataSource) {
+        this.name = name;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionIds = new TransactionIds(dataSource);
+        this.dialect = switch (transactionIds.database()) {
+            case H2 -> Dialect.H2;
+            case MYSQL -> Dialect.MYSQL;
+            case POSTGRESQL -> Dialect.POSTGRESQL;
+            default -> throw new IllegalArgumentException("Cannot reconcile the transactions of a " + transactionIds.database() + " database");
+        };
+    }
+
+    public String name() {
+        return name;
+    }
+
+    RangeDigest digest(IdRange range) {
+        final List<Object> parameters = new ArrayList<>();
+        final var sql = "SELECT COUNT(*), SUM(" + dialect.first + "), SUM(" + dialect.second + ") FROM (" +
+                hashed(range, parameters) + ") hashed";
+        // The sums are null for an empty range.
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> new RangeDigest(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+                parameters.toArray());
+    }
+
+    // The hashes of the rows of a range, by id.
+    Map<UUID, Long> rowHashes(IdRange range) {
+        final List<Object> parameters = new ArrayList<>();
+        final var sql = "SELECT id, " + dialect.first + ", " + dialect.second + " FROM (" + hashed(range, parameters) + ") hashed";
+        final Map<UUID, Long> hashes = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            hashes.put(TransactionRowMapper.uuid(rs.getObject(1)), rs.getLong(2) << 28 | rs.getLong(3));
+        }, parameters.toArray());
+        return hashes;
+    }
+
+    private String hashed(IdRange range, List<Object> parameters) {
+        final var sql = new StringBuilder("SELECT id, ").append(dialect.hash).append(" AS h FROM transactions WHERE 1 = 1");
+        if (range.from() != null) {
+            sql.append(" AND id >= ?");
+            parameters.add(transactionIds.parameter(range.from()));
+        }
+        if (range.to() != null) {
+            sql.append(" AND id < ?");
+            parameters.add(transactionIds.parameter(range.to()));
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.datasource.UseWorkload;
+import com.tsys.tc_spike.datasource.Workload;
+
+import java.util.List;
+
+// Custom repository fragment for aggregate queries.  Spring Data picks up the
+// implementation by its "Impl" postfix (TransactionAggregatesImpl) and mixes it
+// into TransactionRepository.
+//
+// Rather than loading Transaction entities into memory and folding them using
+// Money.add, the aggregation is pushed down to the database as a GROUP BY so
+// that only one compact row per group travels over the wire.  Aggregates scan
+// many rows, so they run in the REPORTING pool.
+@UseWorkload(Workload.REPORTING)
+public interface TransactionAggregates {
+
+    // Count, sum, min and max of amounts per currency and grouping, restricted by the filter.
+    List<TransactionTotal> totals(TransactionGrouping grouping, TransactionFilter filter);
+
+    default List<TransactionTotal> totals(TransactionGrouping grouping) {
+        return totals(grouping, TransactionFilter.ALL);
+    }
+}
@@ -0,0 +1,62 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.domain.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class TransactionAggregatesImpl implements TransactionAggregates {
+    private static final int GROUP_COLUMNS_OFFSET = 5;
+
+    private final EntityManager entityManager;
+
+    TransactionAggregatesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<TransactionTotal> totals(TransactionGrouping grouping, TransactionFilter filter) {
+        final var groupBy = new StringBuilder("t.value.currency");
+        grouping.expressions.forEach(expression -> groupBy.append(", ").append(expression));
+
+        final var jpql = new StringBuilder()
+                .append("select t.value.currency, count(t), sum(t.value.amount), min(t.value.amount), max(t.value.amount)");
+        grouping.expressions.forEach(expression -> jpql.append(", ").append(expression));
+        jpql.append(" from Transaction t where 1 = 1");
+
+        final Map<String, Object> parameters = new HashMap<>();
+        if (filter.from() != null) {
+            jpql.append(" and t.date >= :from");
+            parameters.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            jpql.append(" and t.date < :to");
+            parameters.put("to", filter.to());
+        }
+        if (!filter.statuses().isEmpty()) {
+            jpql.append(" and t.status in :statuses");
+            parameters.put("statuses", filter.statuses());
+        }
+        jpql.append(" group by ").append(groupBy).append(" order by ").append(groupBy);
+
+        final TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        parameters.forEach(query::setParameter);
+        return query.getResultList().stream()
+                .map(row -> toTotal(grouping, row))
+                .toList();
+    }
+
+    private TransactionTotal toTotal(TransactionGrouping grouping, Object[] row) {
+        final var currency = (Currency) row[0];
+        return new TransactionTotal(grouping.key(row, GROUP_COLUMNS_OFFSET),
+                currency,
+                ((Number) row[1]).longValue(),
+                new Money(currency, ((Number) row[2]).doubleValue()),
+                new Money(currency, ((Number) row[3]).doubleValue()),
+                new Money(currency, ((Number) row[4]).doubleValue()));
+    }
+}
@@ -0,0 +1,24 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.datasource.UseWorkload;
+import com.tsys.tc_spike.datasource.Workload;
+import com.tsys.tc_spike.domain.Transaction;
+
+import java.util.Collection;
+
+// Custom repository fragment for writing many transactions at once, in the
+// BATCH pool.
+@UseWorkload(Workload.BATCH)
+public interface TransactionBulkWrites {
+
+    // Inserts those transactions whose id is not stored yet, answering how many
+    // were inserted.  Ids that already exist are skipped, so replaying the same
+    // batch (say, after a consumer crashed before committing its offsets) is
+    // harmless.
+    //
+    // The transactions are persisted (rather than merged) and flushed in JDBC
+    // batches of hibernate.jdbc.batch_size, clearing the persistence context
+    // after every flush to keep it small.  Hence, do not rely on entities
+    // loaded earlier in the same transaction to stay managed.
+    int insertAllNew(Collection<Transaction> transactions);
+}
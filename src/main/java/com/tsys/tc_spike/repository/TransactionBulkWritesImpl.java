@@ -0,0 +1,57 @@
+package com.tsys.tc_spike.repository;
+
+import com.google.common.collect.Lists;
+import com.tsys.tc_spike.domain.Transaction;
+import jakarta.persistence.EntityManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+class TransactionBulkWritesImpl implements TransactionBulkWrites {
+    // Keeps the IN lists well below the bind parameter limits of all databases.
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+    private static final int FLUSH_EVERY = 500;
+
+    private final EntityManager entityManager;
+
+    TransactionBulkWritesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional
+    public int insertAllNew(Collection<Transaction> transactions) {
+        if (transactions.isEmpty())
+            return 0;
+
+        final Set<UUID> skip = existingIds(transactions.stream().map(t -> t.id).toList());
+        int inserted = 0;
+        for (Transaction transaction : transactions) {
+            if (!skip.add(transaction.id))
+                continue;
+
+            entityManager.persist(transaction);
+            if (++inserted % FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return inserted;
+    }
+
+    private Set<UUID> existingIds(List<UUID> ids) {
+        final Set<UUID> existing = new HashSet<>();
+        for (List<UUID> chunk : Lists.partition(ids, LOOKUP_CHUNK_SIZE)) {
+            existing.addAll(entityManager.createQuery("select t.id from Transaction t where t.id in :ids", UUID.class)
+                    .setParameter("ids", chunk)
+                    .getResultList());
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,126 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.datasource.Workload;
+import com.tsys.tc_spike.domain.Transaction;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+// A cursor-backed source of transactions for exports of any size.
+//
+// Unlike findAll, which materialises the whole result in the persistence
+// context, the rows are fetched from a server-side cursor in chunks of
+// fetchSize and turned into Transactions one at a time, only as the
+// subscriber signals demand (Flux.generate produces exactly one element per
+// requested element).  A slow consumer therefore simply leaves the cursor where
+// it is, and memory stays constant regardless of the number of rows.
+//
+// The drivers only use a cursor under certain conditions: Postgres requires
+// auto-commit to be off and a positive fetch size, MySQL streams the rows when
+// the fetch size is Integer.MIN_VALUE.
+//
+// The cursor may stay open for as long as the export runs, so it takes its
+// connection from the REPORTING pool.
+@Component
+public class TransactionCursor {
+    private static final int FETCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+
+    public TransactionCursor(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Transactions matching the filter, in the order of their dates.  The cursor
+    // is opened on subscription and closed on completion, error or cancellation.
+    public Flux<Transaction> stream(TransactionFilter filter) {
+        return Flux.using(() -> open(filter),
+                        cursor -> Flux.<Transaction>generate(sink -> {
+                            try {
+                                if (cursor.resultSet.next())
+                                    sink.next(cursor.mapper.mapRow(cursor.resultSet, 0));
+                                else
+                                    sink.complete();
+                            } catch (SQLException e) {
+                                sink.error(e);
+                            }
+                        }),
+                        Cursor::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Cursor open(TransactionFilter filter) throws SQLException {
+        final var sql = new StringBuilder("SELECT id, date, status, order_id, amount, currency FROM transactions WHERE 1 = 1");
+        final List<Object> parameters = new ArrayList<>();
+        if (filter.from() != null) {
+            sql.append(" AND date >= ?");
+            parameters.add(Timestamp.from(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND date < ?");
+            parameters.add(Timestamp.from(filter.to()));
+        }
+        if (!filter.statuses().isEmpty()) {
+            sql.append(" AND status IN (").append(String.join(", ", filter.statuses().stream().map(s -> "?").toList())).append(")");
+            parameters.addAll(filter.statuses());
+        }
+        sql.append(" ORDER BY date, id");
+
+        final Connection connection;
+        try (var ignored = Workload.REPORTING.enter()) {
+            connection = dataSource.getConnection();
+        }
+        try {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            final var statement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            final boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            statement.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+            final var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            for (int i = 0; i < parameters.size(); i++) {
+                if (parameters.get(i) instanceof Timestamp timestamp)
+                    statement.setTimestamp(i + 1, timestamp, utc);
+                else
+                    statement.setObject(i + 1, parameters.get(i));
+            }
+            return new Cursor(connection, statement, statement.executeQuery());
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static class Cursor {
+        final Connection connection;
+        final PreparedStatement statement;
+        final ResultSet resultSet;
+        final TransactionRowMapper mapper = new TransactionRowMapper();
+
+        Cursor(Connection connection, PreparedStatement statement, ResultSet resultSet) {
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+        }
+
+        void close() {
+            try (connection; statement; resultSet) {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not close the transactions cursor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.tsys.tc_spike.repository;
+
+import java.time.Instant;
+import java.util.Set;
+
+// Optional restrictions applied to the aggregate queries.  A null bound or an
+// empty set of statuses means "no restriction".  The date range is half-open:
+// from is inclusive and to is exclusive.
+public record TransactionFilter(Instant from, Instant to, Set<String> statuses) {
+    public static final TransactionFilter ALL = new TransactionFilter(null, null, Set.of());
+
+    public TransactionFilter {
+        statuses = statuses == null ? Set.of() : Set.copyOf(statuses);
+    }
+
+    public static TransactionFilter between(Instant from, Instant to) {
+        return new TransactionFilter(from, to, Set.of());
+    }
+
+    public TransactionFilter withStatuses(String... statuses) {
+        return new TransactionFilter(from, to, Set.of(statuses));
+    }
+}
@@ -0,0 +1,41 @@
+package com.tsys.tc_spike.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Dimension by which the aggregate queries in TransactionAggregates group rows.
+// Amounts are never summed across currencies, so the currency is always an
+// implicit part of the group; each constant only adds its own JPQL expressions
+// on top of it.
+//
+// Date buckets are derived using the portable JPQL EXTRACT function, which
+// Hibernate renders for H2, MySQL and Postgres alike.  The buckets are therefore
+// in the time zone of the database session.
+public enum TransactionGrouping {
+    CURRENCY(List.of()),
+    STATUS(List.of("t.status")),
+    DAY(List.of("extract(year from t.date)", "extract(month from t.date)", "extract(day from t.date)")),
+    HOUR(List.of("extract(year from t.date)", "extract(month from t.date)", "extract(day from t.date)", "extract(hour from t.date)"));
+
+    final List<String> expressions;
+
+    TransactionGrouping(List<String> expressions) {
+        this.expressions = expressions;
+    }
+
+    // Builds the group key from the trailing columns of an aggregate row,
+    // starting at the given offset.
+    String key(Object[] row, int offset) {
+        return switch (this) {
+            case CURRENCY -> "";
+            case STATUS -> (String) row[offset];
+            case DAY -> LocalDate.of(intAt(row, offset), intAt(row, offset + 1), intAt(row, offset + 2)).toString();
+            case HOUR -> LocalDateTime.of(intAt(row, offset), intAt(row, offset + 1), intAt(row, offset + 2), intAt(row, offset + 3), 0).toString();
+        };
+    }
+
+    private static int intAt(Object[] row, int index) {
+        return ((Number) row[index]).intValue();
+    }
+}
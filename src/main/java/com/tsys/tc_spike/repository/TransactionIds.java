@@ -0,0 +1,61 @@
+package com.tsys.tc_spike.repository;
+
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+// The ids of the transactions table of a database, as bound to plain JDBC
+// statements.
+//
+// Hibernate stores the UUIDs as binary on MySQL, and the column is wider than
+// 16 bytes (binary(255), see mysql/03_schema.sql): MySQL pads the stored ids
+// with zeros, and compares every byte of them.  So an id bound as its bare 16
+// bytes matches no row, and sorts before the very row it was read from.  The
+// ids are bound padded to the width of the column instead; other databases
+// take the UUIDs as they are.
+//
+// The database and the width are looked up once, each with a connection of its
+// own, so ask for them before taking the connection of a statement.
+public class TransactionIds {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile DatabaseDriver database;
+    private volatile Integer width;
+
+    public TransactionIds(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public Object parameter(UUID id) {
+        if (database() != DatabaseDriver.MYSQL)
+            return id;
+        return binary(id);
+    }
+
+    // The id as MySQL stores it, whatever the database.
+    public byte[] binary(UUID id) {
+        return ByteBuffer.allocate(width()).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    public DatabaseDriver database() {
+        var known = database;
+        if (known == null)
+            database = known = jdbcTemplate.execute((ConnectionCallback<DatabaseDriver>) connection ->
+                    DatabaseDriver.fromJdbcUrl(connection.getMetaData().getURL()));
+        return known;
+    }
+
+    private int width() {
+        var known = width;
+        if (known == null)
+            width = known = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                try (var statement = connection.prepareStatement("SELECT id FROM transactions WHERE 1 = 0")) {
+                    return Math.max(16, statement.getMetaData().getPrecision(1));
+                }
+            });
+        return known;
+    }
+}
@@ -0,0 +1,35 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.domain.Transaction;
+
+import java.util.Optional;
+import java.util.UUID;
+
+// Custom repository fragment for the lookups that fall through to the
+// TransactionArchive when the transaction is no longer in the transactions
+// table (because it was archived).  A fragment implementation takes precedence
+// over both the base repository and a query derived from the method name, so
+// callers of TransactionRepository do not notice.
+//
+// Transactions found in the archive are detached and read-only (see
+// TransactionArchive).  Without an archive configured, as in @DataJpaTest
+// slices, these are plain lookups in the transactions table.
+//
+// With the TransactionKeyFilter enabled, keys it rules out are not looked up
+// in the transactions table at all, only in the archive - whose Bloom filters
+// rule out most of the ids that do not exist either, which is what existsById
+// is mostly asked for.
+//
+// With the OrderIdIndex configured, findByOrderId reads the transaction the
+// index points to by its id, and only queries by orderId when the index has
+// no (or a stale) entry.  Should two transactions share an orderId, the one
+// indexed last is then answered, instead of an
+// IncorrectResultSizeDataAccessException.
+public interface TransactionLookups {
+
+    boolean existsById(UUID id);
+
+    Optional<Transaction> findById(UUID id);
+
+    Optional<Transaction> findByOrderId(String orderId);
+}
@@ -0,0 +1,116 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.archive.TransactionArchive;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.keyfilter.TransactionKeyFilter;
+import com.tsys.tc_spike.orderindex.OrderIdIndex;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+class TransactionLookupsImpl implements TransactionLookups {
+    private final EntityManager entityManager;
+    private final ObjectProvider<TransactionArchive> archive;
+    private final ObjectProvider<TransactionKeyFilter> keyFilter;
+    private final ObjectProvider<OrderIdIndex> orderIdIndex;
+
+    TransactionLookupsImpl(EntityManager entityManager, ObjectProvider<TransactionArchive> archive,
+                           ObjectProvider<TransactionKeyFilter> keyFilter, ObjectProvider<OrderIdIndex> orderIdIndex) {
+        this.entityManager = entityManager;
+        this.archive = archive;
+        this.keyFilter = keyFilter;
+        this.orderIdIndex = orderIdIndex;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existsById(UUID id) {
+        if (mightExist(filter -> filter.mightContainId(id)) &&
+                !entityManager.createQuery("select t.id from Transaction t where t.id = :id", UUID.class)
+                        .setParameter("id", id)
+                        .setMaxResults(1)
+                        .getResultList()
+                        .isEmpty())
+            return true;
+
+        final var archived = archive.getIfAvailable();
+        return archived != null && archived.findById(id).isPresent();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Transaction> findById(UUID id) {
+        if (mightExist(filter -> filter.mightContainId(id))) {
+            final var transaction = entityManager.find(Transaction.class, id);
+            if (transaction != null)
+                return Optional.of(transaction);
+        }
+
+        final var archived = archive.getIfAvailable();
+        return archived == null ? Optional.empty() : archived.findById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Transaction> findByOrderId(String orderId) {
+        if (mightExist(filter -> filter.mightContainOrderId(orderId))) {
+            final var index = orderIdIndex.getIfAvailable();
+            final var indexed = index == null ? null : indexed(index, orderId);
+            if (indexed != null)
+                return Optional.of(indexed);
+
+            final var transactions = entityManager.createQuery("select t from Transaction t where t.orderId = :orderId", Transaction.class)
+                    .setParameter("orderId", orderId)
+                    .setMaxResults(2)
+                    .getResultList();
+            if (transactions.size() > 1)
+                throw new IncorrectResultSizeDataAccessException(1, transactions.size());
+            if (!transactions.isEmpty()) {
+                final var transaction = transactions.get(0);
+                if (index != null)
+                    index.put(orderId, transaction.id, transaction.version());
+                return Optional.of(transaction);
+            }
+        }
+
+        final var archived = archive.getIfAvailable();
+        return archived == null ? Optional.empty() : archived.findByOrderId(orderId);
+    }
+
+    // The transaction the index has for the orderId, read by its primary key
+    // and checked: entries for transactions that are gone (or hash collisions)
+    // are dropped, and those of an older version brought up to date.
+    private Transaction indexed(OrderIdIndex index, String orderId) {
+        final var entry = index.find(orderId);
+        if (entry == null)
+            return null;
+
+        final var transaction = entityManager.find(Transaction.class, entry.id());
+        if (transaction == null || !orderId.equals(transaction.orderId)) {
+            index.remove(orderId, entry.id());
+            return null;
+        }
+        if (transaction.version() != entry.version())
+            index.put(orderId, transaction.id, transaction.version());
+        return transaction;
+    }
+
+    // Without the key filter everything might exist.  Inside a transaction that
+    // writes, transactions persisted but not yet flushed are not in the filter
+    // yet (they are added as they are inserted), so they are flushed first - as
+    // Hibernate does before running a query anyway.
+    private boolean mightExist(Predicate<TransactionKeyFilter> mightContain) {
+        final var filter = keyFilter.getIfAvailable();
+        if (filter == null)
+            return true;
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+            entityManager.flush();
+        return mightContain.test(filter);
+    }
+}
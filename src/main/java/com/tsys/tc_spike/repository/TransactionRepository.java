@@ -8,13 +8,24 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 //public interface TransactionRepository extends CrudRepository<Transaction, UUID> {
 //public interface TransactionRepository extends PagingAndSortingRepository<Transaction, String> {
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
+// 4. Custom Repository Fragments
+// ===============================
+// When a query cannot be expressed declaratively (for example, because its
+// WHERE clause depends on optional filters), we can mix in a fragment
+// interface whose implementation is named after it with an "Impl" postfix.
+// Spring Data composes the fragment implementation with the generated
+// repository, so callers still only see TransactionRepository.
+// See TransactionAggregates, TransactionBulkWrites, TransactionStatusTransitions
+// and TransactionLookups with their implementations.
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, TransactionAggregates, TransactionBulkWrites,
+        TransactionStatusTransitions, TransactionLookups {
 
     // We have 3 different options to create queries.
     // 1. Create an INFERRED QUERY:
@@ -24,6 +35,9 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
     // SQL query from the name of the method name.
     //
     // It is better to return Optional<User> instead of User
+    //
+    // (Since transactions are archived, TransactionLookups implements this one,
+    // falling through to the archive.)
     Optional<Transaction> findByOrderId(String orderId);
 
     // What’s nice about this feature is that Spring Data also automatically checks
@@ -100,4 +114,18 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
     // (for instance in a docker container that is set up on-demand in the continuous
     // integration pipeline).
     //
+
+    // 5. Projections
+    // ==============
+    // When only a column or two are needed, selecting just those avoids loading
+    // (and later dirty-checking) the whole entity.  A JPQL constructor expression
+    // maps the columns to a record:
+    @Query("select t.version from Transaction t where t.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    @Query("select new com.tsys.tc_spike.repository.TransactionVersion(t.id, t.version) from Transaction t where t.orderId = :orderId")
+    Optional<TransactionVersion> findVersionByOrderId(@Param("orderId") String orderId);
+
+    @Query("select new com.tsys.tc_spike.repository.TransactionVersion(t.id, t.version) from Transaction t where t.id in :ids")
+    List<TransactionVersion> findVersionsByIds(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,44 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.Currency;
+import java.util.TimeZone;
+import java.util.UUID;
+
+// Maps a row of the transactions table, read using plain JDBC, to a Transaction.
+//
+// The same column comes back as a different Java type depending on the database:
+// the id is a UUID on H2 and Postgres, but binary on MySQL.  Dates are read in
+// UTC, which is how Hibernate writes Instants.
+//
+// As it holds a Calendar, an instance must not be shared between threads.
+public class TransactionRowMapper implements RowMapper<Transaction> {
+    private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    @Override
+    public Transaction mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Transaction(uuid(rs.getObject("id")),
+                rs.getTimestamp("date", utc).toInstant(),
+                rs.getString("status"),
+                rs.getString("order_id"),
+                new Money(Currency.getInstance(rs.getString("currency")), rs.getDouble("amount")));
+    }
+
+    public static UUID uuid(Object column) {
+        if (column instanceof UUID uuid)
+            return uuid;
+
+        if (column instanceof byte[] bytes) {
+            final var buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        return UUID.fromString(column.toString());
+    }
+}
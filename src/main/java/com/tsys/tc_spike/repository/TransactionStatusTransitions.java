@@ -0,0 +1,36 @@
+package com.tsys.tc_spike.repository;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+// Custom repository fragment for compare-and-set status changes.  Rather than
+// loading the entity, building a changed copy and saving (merging) it back, a
+// single conditional UPDATE changes the status only if it still is the expected
+// one (and, optionally, the version still is the expected one), bumping the
+// version like any other update.
+//
+// As the entities are not loaded, the change is published as a
+// TransactionChanged event from the updated row instead (so the outbox, the
+// live feed and the version cache see it).  On Postgres the UPDATE returns the
+// row itself, on H2 it is selected from its FINAL TABLE; other databases (such
+// as MySQL) lock the rows with SELECT ... FOR UPDATE first.
+//
+// The persistence context is flushed before and, if anything changed, cleared
+// after the update, as managed copies of the changed transactions would be
+// stale.  Hence, do not rely on entities loaded earlier in the same
+// transaction to stay managed.
+public interface TransactionStatusTransitions {
+
+    // Whether the transaction had the expected status and now has the new one.
+    boolean transitionStatus(UUID id, String expectedStatus, String newStatus);
+
+    // Same as above, but also requires the transaction to be at the expected
+    // version, so that a caller acting on what it read earlier cannot overwrite
+    // a change it has not seen.
+    boolean transitionStatus(UUID id, String expectedStatus, String newStatus, long expectedVersion);
+
+    // Moves all those of the transactions that have the expected status to the
+    // new one, in one statement per chunk of ids, answering the ids moved.
+    Set<UUID> transitionStatuses(Collection<UUID> ids, String expectedStatus, String newStatus);
+}
@@ -0,0 +1,147 @@
+package com.tsys.tc_spike.repository;
+
+import com.google.common.collect.Lists;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+class TransactionStatusTransitionsImpl implements TransactionStatusTransitions {
+    // Keeps the IN lists well below the bind parameter limits of all databases.
+    private static final int CHUNK_SIZE = 1000;
+    private static final String COLUMNS = "id, date, status, order_id, amount, currency, version";
+
+    private enum Strategy {
+        RETURNING, FINAL_TABLE, LOCK_THEN_UPDATE
+    }
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionIds transactionIds;
+
+    TransactionStatusTransitionsImpl(EntityManager entityManager, JdbcTemplate jdbcTemplate, ApplicationEventPublisher publisher) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.transactionIds = new TransactionIds(jdbcTemplate.getDataSource());
+    }
+
+    @Override
+    @Transactional
+    public boolean transitionStatus(UUID id, String expectedStatus, String newStatus) {
+        return !transition(List.of(id), expectedStatus, newStatus, null).isEmpty();
+    }
+
+    @Override
+    @Transactional
+    public boolean transitionStatus(UUID id, String expectedStatus, String newStatus, long expectedVersion) {
+        return !transition(List.of(id), expectedStatus, newStatus, expectedVersion).isEmpty();
+    }
+
+    @Override
+    @Transactional
+    public Set<UUID> transitionStatuses(Collection<UUID> ids, String expectedStatus, String newStatus) {
+        return transition(List.copyOf(new LinkedHashSet<>(ids)), expectedStatus, newStatus, null);
+    }
+
+    private Set<UUID> transition(List<UUID> ids, String expectedStatus, String newStatus, Long expectedVersion) {
+        final Set<UUID> transitioned = new LinkedHashSet<>();
+        if (ids.isEmpty())
+            return transitioned;
+
+        entityManager.flush();
+        final var database = transactionIds.database();
+        for (List<UUID> chunk : Lists.partition(ids, CHUNK_SIZE)) {
+            final var changes = switch (strategy(database)) {
+                case RETURNING -> updateReturning(chunk, expectedStatus, newStatus, expectedVersion);
+                case FINAL_TABLE -> updateFromFinalTable(chunk, expectedStatus, newStatus, expectedVersion);
+                case LOCK_THEN_UPDATE -> lockThenUpdate(chunk, expectedStatus, newStatus, expectedVersion);
+            };
+            for (TransactionChanged change : changes) {
+                transitioned.add(change.transaction().id);
+                publisher.publishEvent(change);
+            }
+        }
+        if (!transitioned.isEmpty())
+            entityManager.clear();
+        return transitioned;
+    }
+
+    private List<TransactionChanged> updateReturning(List<UUID> ids, String expectedStatus, String newStatus, Long expectedVersion) {
+        final List<Object> parameters = new ArrayList<>();
+        final var sql = update(ids, expectedStatus, newStatus, expectedVersion, parameters) + " RETURNING " + COLUMNS;
+        return jdbcTemplate.query(sql, changes(), parameters.toArray());
+    }
+
+    private List<TransactionChanged> updateFromFinalTable(List<UUID> ids, String expectedStatus, String newStatus, Long expectedVersion) {
+        final List<Object> parameters = new ArrayList<>();
+        final var sql = "SELECT " + COLUMNS + " FROM FINAL TABLE (" + update(ids, expectedStatus, newStatus, expectedVersion, parameters) + ")";
+        return jdbcTemplate.query(sql, changes(), parameters.toArray());
+    }
+
+    // The rows are locked until the end of the transaction, so the UPDATE changes
+    // exactly the rows selected.
+    private List<TransactionChanged> lockThenUpdate(List<UUID> ids, String expectedStatus, String newStatus, Long expectedVersion) {
+        final List<Object> parameters = new ArrayList<>();
+        final var select = "SELECT " + COLUMNS + " FROM transactions" + where(ids, expectedStatus, expectedVersion, parameters) + " FOR UPDATE";
+        final var mapper = new TransactionRowMapper();
+        final List<TransactionChanged> locked = jdbcTemplate.query(select, (rs, rowNum) -> new TransactionChanged(TransactionChanged.Kind.UPDATED,
+                mapper.mapRow(rs, rowNum).withStatus(newStatus), rs.getLong("version") + 1), parameters.toArray());
+        if (locked.isEmpty())
+            return locked;
+
+        final List<Object> updateParameters = new ArrayList<>();
+        final var lockedIds = locked.stream().map(change -> change.transaction().id).toList();
+        jdbcTemplate.update(update(lockedIds, expectedStatus, newStatus, null, updateParameters), updateParameters.toArray());
+        return locked;
+    }
+
+    private String update(List<UUID> ids, String expectedStatus, String newStatus, Long expectedVersion, List<Object> parameters) {
+        parameters.add(newStatus);
+        return "UPDATE transactions SET status = ?, version = version + 1" + where(ids, expectedStatus, expectedVersion, parameters);
+    }
+
+    private String where(List<UUID> ids, String expectedStatus, Long expectedVersion, List<Object> parameters) {
+        final var where = new StringBuilder(" WHERE ");
+        if (ids.size() == 1) {
+            where.append("id = ?");
+        } else {
+            where.append("id IN (");
+            for (int i = 0; i < ids.size(); i++)
+                where.append(i == 0 ? "?" : ", ?");
+            where.append(")");
+        }
+        ids.forEach(id -> parameters.add(transactionIds.parameter(id)));
+        where.append(" AND status = ?");
+        parameters.add(expectedStatus);
+        if (expectedVersion != null) {
+            where.append(" AND version = ?");
+            parameters.add(expectedVersion);
+        }
+        return where.toString();
+    }
+
+    private static RowMapper<TransactionChanged> changes() {
+        final var mapper = new TransactionRowMapper();
+        return (rs, rowNum) -> new TransactionChanged(TransactionChanged.Kind.UPDATED, mapper.mapRow(rs, rowNum), rs.getLong("version"));
+    }
+
+    private static Strategy strategy(DatabaseDriver database) {
+        return switch (database) {
+            case POSTGRESQL -> Strategy.RETURNING;
+            case H2 -> Strategy.FINAL_TABLE;
+            default -> Strategy.LOCK_THEN_UPDATE;
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.domain.Money;
+
+import java.util.Currency;
+
+// One row of an aggregate query: the group key (empty when grouping only by
+// currency, the status, or an ISO-8601 date/date-time for day and hour buckets),
+// the currency and the count, sum, min and max of the amounts in that group.
+public record TransactionTotal(String group, Currency currency, long count, Money total, Money min, Money max) {
+}
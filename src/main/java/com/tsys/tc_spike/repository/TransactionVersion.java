@@ -0,0 +1,8 @@
+package com.tsys.tc_spike.repository;
+
+import java.util.UUID;
+
+// Projection of just the identity and the version of a Transaction - all that is
+// needed to tell whether a client's copy is still current.
+public record TransactionVersion(UUID id, Long version) {
+}
@@ -0,0 +1,76 @@
+package com.tsys.tc_spike.resource;
+
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.UUID;
+
+// Transactions as HTTP resources whose ETag is derived from the id and the
+// @Version of the Transaction, which changes with every update.
+//
+//   GET /transactions/{id}
+//   GET /transactions/by-order/{orderId}
+//
+// A client that polls sends back the ETag in If-None-Match.  Such a request is
+// answered from the TransactionVersionCache (or a version-only query) and,
+// when the version has not moved, with a bodiless 304 - the entity is neither
+// loaded nor serialised.
+@RestController
+@RequestMapping("/transactions")
+public class TransactionResourceController {
+    private final TransactionRepository transactionRepository;
+    private final TransactionVersionCache versions;
+
+    public TransactionResourceController(TransactionRepository transactionRepository, TransactionVersionCache versions) {
+        this.transactionRepository = transactionRepository;
+        this.versions = versions;
+    }
+
+    static String etag(UUID id, long version) {
+        return "\"" + id + "." + version + "\"";
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Transaction> byId(@PathVariable UUID id, WebRequest request) {
+        if (isConditional(request)) {
+            final var version = versions.versionOf(id);
+            if (version.isEmpty())
+                return ResponseEntity.notFound().build();
+            if (request.checkNotModified(etag(id, version.get())))
+                return null;
+        }
+        return found(transactionRepository.findById(id));
+    }
+
+    @GetMapping("/by-order/{orderId}")
+    public ResponseEntity<Transaction> byOrderId(@PathVariable String orderId, WebRequest request) {
+        if (isConditional(request)) {
+            final var version = versions.versionOfOrder(orderId);
+            if (version.isEmpty())
+                return ResponseEntity.notFound().build();
+            if (request.checkNotModified(etag(version.get().id(), version.get().version())))
+                return null;
+        }
+        return found(transactionRepository.findByOrderId(orderId));
+    }
+
+    private ResponseEntity<Transaction> found(Optional<Transaction> transaction) {
+        return transaction.map(t -> {
+                    versions.remember(t);
+                    return ResponseEntity.ok().eTag(etag(t.id, t.version())).body(t);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static boolean isConditional(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+    }
+}
@@ -0,0 +1,161 @@
+package com.tsys.tc_spike.resource;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.tsys.tc_spike.archive.TransactionArchive;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import com.tsys.tc_spike.invalidation.LocalTransactionCache;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.tsys.tc_spike.repository.TransactionVersion;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Remembers the current version of recently seen transactions, by id and by
+// orderId, so that conditional requests can mostly be answered without asking
+// the database.  On a miss the version-only projections of the repository
+// are used, which never load the entity, and then the TransactionArchive for
+// transactions no longer in the transactions table.
+//
+// Only changes committed through this application instance are seen, via the
+// TransactionChanged events after commit; entries are therefore also expired
+// after a while to bound the staleness caused by other writers.  With the
+// invalidation bus enabled (see InvalidationConfiguration), the changes of the
+// other instances are applied as they are notified, by id - hence the orderIds
+// of the transactions cached by orderId are remembered by id as well.
+//
+// Versions only ever move forward in the cache: a version read from the
+// database may be stored after the after-commit event of a later change, and
+// must not overwrite it.
+@Component
+public class TransactionVersionCache implements LocalTransactionCache {
+    private static final int MAXIMUM_SIZE = 100_000;
+    // Keeps the IN lists well below the bind parameter limits of all databases.
+    private static final int RESYNC_CHUNK_SIZE = 1000;
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectProvider<TransactionArchive> archive;
+    private final Cache<UUID, Long> versionsById = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+    private final Cache<String, TransactionVersion> versionsByOrderId = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+    private final Cache<UUID, String> orderIdsById = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+
+    public TransactionVersionCache(TransactionRepository transactionRepository, ObjectProvider<TransactionArchive> archive) {
+        this.transactionRepository = transactionRepository;
+        this.archive = archive;
+    }
+
+    public Optional<Long> versionOf(UUID id) {
+        final var cached = versionsById.getIfPresent(id);
+        if (cached != null)
+            return Optional.of(cached);
+
+        final var version = transactionRepository.findVersionById(id)
+                .or(() -> archived(archive -> archive.findById(id)).map(Transaction::version));
+        version.ifPresent(v -> rememberId(id, v));
+        return version;
+    }
+
+    public Optional<TransactionVersion> versionOfOrder(String orderId) {
+        final var cached = versionsByOrderId.getIfPresent(orderId);
+        if (cached != null)
+            return Optional.of(cached);
+
+        final var version = transactionRepository.findVersionByOrderId(orderId)
+                .or(() -> archived(archive -> archive.findByOrderId(orderId)).map(t -> new TransactionVersion(t.id, t.version())));
+        version.ifPresent(v -> rememberOrder(orderId, v));
+        return version;
+    }
+
+    public void remember(Transaction transaction) {
+        rememberId(transaction.id, transaction.version());
+        rememberOrder(transaction.orderId, new TransactionVersion(transaction.id, transaction.version()));
+    }
+
+    public void forget(UUID id, String orderId) {
+        versionsById.invalidate(id);
+        orderIdsById.invalidate(id);
+        if (orderId != null)
+            versionsByOrderId.invalidate(orderId);
+    }
+
+    @TransactionalEventListener
+    public void on(TransactionChanged change) {
+        final var transaction = change.transaction();
+        if (change.kind() == TransactionChanged.Kind.DELETED) {
+            forget(transaction.id, transaction.orderId);
+            return;
+        }
+        rememberId(transaction.id, change.version());
+        rememberOrder(transaction.orderId, new TransactionVersion(transaction.id, change.version()));
+    }
+
+    // Only updates the versions already cached: a notification may arrive after
+    // this instance has seen a later version of its own.
+    @Override
+    public void changed(UUID id, long version) {
+        if (version == DELETED) {
+            forget(id, orderIdsById.getIfPresent(id));
+            return;
+        }
+        versionsById.asMap().computeIfPresent(id, (key, cached) -> Math.max(cached, version));
+        final var orderId = orderIdsById.getIfPresent(id);
+        if (orderId != null)
+            versionsByOrderId.asMap().computeIfPresent(orderId, (key, cached) ->
+                    cached.id().equals(id) ? later(cached, new TransactionVersion(id, version)) : cached);
+    }
+
+    @Override
+    public void resync() {
+        final Set<UUID> ids = new HashSet<>(versionsById.asMap().keySet());
+        ids.addAll(orderIdsById.asMap().keySet());
+        for (List<UUID> chunk : Lists.partition(List.copyOf(ids), RESYNC_CHUNK_SIZE)) {
+            final Map<UUID, Long> current = new HashMap<>();
+            transactionRepository.findVersionsByIds(chunk).forEach(version -> current.put(version.id(), version.version()));
+            for (UUID id : chunk)
+                changed(id, current.getOrDefault(id, DELETED));
+        }
+    }
+
+    private Optional<Transaction> archived(Function<TransactionArchive, Optional<Transaction>> find) {
+        final var archived = archive.getIfAvailable();
+        return archived == null ? Optional.empty() : find.apply(archived);
+    }
+
+    private void rememberId(UUID id, long version) {
+        versionsById.asMap().merge(id, version, Math::max);
+    }
+
+    private void rememberOrder(String orderId, TransactionVersion version) {
+        versionsByOrderId.asMap().merge(orderId, version, TransactionVersionCache::later);
+        orderIdsById.put(version.id(), orderId);
+    }
+
+    // An orderId taken over by another transaction (after the former one was
+    // deleted) takes the version of the new one.
+    private static TransactionVersion later(TransactionVersion cached, TransactionVersion version) {
+        if (cached.id().equals(version.id()) && cached.version() > version.version())
+            return cached;
+        return version;
+    }
+}
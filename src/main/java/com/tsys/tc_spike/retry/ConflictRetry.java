@@ -0,0 +1,75 @@
+package com.tsys.tc_spike.retry;
+
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.util.ClassUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Runs a unit of work, and runs it again while it fails with an optimistic
+// locking conflict, backing off between attempts as the RetryPolicy says.  Any
+// other failure, and the conflict of the last attempt, is passed on as it is.
+//
+// beforeRetry is run before every retry; it drops state cached from the failed
+// attempt, so that the retry re-reads what it changes.
+public class ConflictRetry {
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws Throwable;
+    }
+
+    private final ContentionMetrics metrics;
+    private final Runnable beforeRetry;
+
+    public ConflictRetry(ContentionMetrics metrics, Runnable beforeRetry) {
+        this.metrics = metrics;
+        this.beforeRetry = beforeRetry;
+    }
+
+    public <T> T execute(String unit, RetryPolicy policy, Attempt<T> attempt) throws Throwable {
+        metrics.executed(unit);
+        for (int attempted = 1; ; attempted++) {
+            metrics.attempted(unit);
+            try {
+                return attempt.run();
+            } catch (Throwable e) {
+                if (!isConflict(e))
+                    throw e;
+                conflicted(unit, e);
+                if (attempted >= policy.maxAttempts()) {
+                    metrics.exhausted(unit);
+                    throw e;
+                }
+                backOff(policy.backoffNanos(attempted), e);
+                beforeRetry.run();
+            }
+        }
+    }
+
+    static boolean isConflict(Throwable e) {
+        return e instanceof OptimisticLockingFailureException || e instanceof OptimisticLockException;
+    }
+
+    private void conflicted(String unit, Throwable e) {
+        if (e instanceof ObjectOptimisticLockingFailureException conflict)
+            metrics.conflicted(unit, entityName(conflict.getPersistentClassName()), conflict.getIdentifier());
+        else if (e instanceof OptimisticLockException conflict && conflict.getEntity() != null)
+            metrics.conflicted(unit, ClassUtils.getShortName(conflict.getEntity().getClass()), null);
+        else
+            metrics.conflicted(unit, null, null);
+    }
+
+    private static String entityName(String className) {
+        return className == null ? null : ClassUtils.getShortName(className);
+    }
+
+    private static void backOff(long nanos, Throwable conflict) throws Throwable {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.tsys.tc_spike.retry;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Optimistic locking conflicts, per unit of work (such as
+// "TransactionStatusService.changeStatus") and per entity (such as
+// "Transaction", and "Transaction#<id>" for single instances).
+//
+// The contention rate of a unit of work is the share of its attempts that
+// ended in a conflict.  That of an entity type is the share of all attempts
+// that conflicted on it.  Instances are only tracked up to MAX_INSTANCES, which
+// is plenty to spot the hot ones.
+public class ContentionMetrics {
+    private static final int MAX_INSTANCES = 10_000;
+
+    private final Map<String, Counters> units = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> entities = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> instances = new ConcurrentHashMap<>();
+    private final LongAdder attempts = new LongAdder();
+
+    private static class Counters {
+        final LongAdder executions = new LongAdder();
+        final LongAdder attempts = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder exhausted = new LongAdder();
+    }
+
+    private Counters of(String unit) {
+        return units.computeIfAbsent(unit, key -> new Counters());
+    }
+
+    void executed(String unit) {
+        of(unit).executions.increment();
+    }
+
+    void attempted(String unit) {
+        of(unit).attempts.increment();
+        attempts.increment();
+    }
+
+    void conflicted(String unit, String entity, Object identifier) {
+        of(unit).conflicts.increment();
+        if (entity == null)
+            return;
+        entities.computeIfAbsent(entity, key -> new LongAdder()).increment();
+        if (identifier != null) {
+            final var instance = entity + "#" + identifier;
+            final var count = instances.size() < MAX_INSTANCES
+                    ? instances.computeIfAbsent(instance, key -> new LongAdder())
+                    : instances.get(instance);
+            if (count != null)
+                count.increment();
+        }
+    }
+
+    void exhausted(String unit) {
+        of(unit).exhausted.increment();
+    }
+
+    public long executions(String unit) {
+        final var counters = units.get(unit);
+        return counters == null ? 0 : counters.executions.sum();
+    }
+
+    public long attempts(String unit) {
+        final var counters = units.get(unit);
+        return counters == null ? 0 : counters.attempts.sum();
+    }
+
+    public long conflicts(String unit) {
+        final var counters = units.get(unit);
+        return counters == null ? 0 : counters.conflicts.sum();
+    }
+
+    // Executions that still conflicted on their last attempt.
+    public long exhausted(String unit) {
+        final var counters = units.get(unit);
+        return counters == null ? 0 : counters.exhausted.sum();
+    }
+
+    public double contentionRate(String unit) {
+        final long attempted = attempts(unit);
+        return attempted == 0 ? 0 : (double) conflicts(unit) / attempted;
+    }
+
+    public long entityConflicts(String entity) {
+        final var count = entities.get(entity);
+        return count == null ? 0 : count.sum();
+    }
+
+    public double entityContentionRate(String entity) {
+        final long attempted = attempts.sum();
+        return attempted == 0 ? 0 : (double) entityConflicts(entity) / attempted;
+    }
+
+    // The n instances with the most conflicts, most contended first.
+    public Map<String, Long> hottest(int n) {
+        final Map<String, Long> hottest = new LinkedHashMap<>();
+        instances.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(n)
+                .forEachOrdered(entry -> hottest.put(entry.getKey(), entry.getValue()));
+        return hottest;
+    }
+
+    @Override
+    public String toString() {
+        final var text = new StringBuilder("ContentionMetrics{");
+        units.keySet().stream().sorted().forEach(unit -> text.append(String.format("%s={executions=%d, attempts=%d, conflicts=%d, exhausted=%d, contentionRate=%.3f}, ",
+                unit, executions(unit), attempts(unit), conflicts(unit), exhausted(unit), contentionRate(unit))));
+        return text.append("hottest=").append(hottest(5)).append('}').toString();
+    }
+}
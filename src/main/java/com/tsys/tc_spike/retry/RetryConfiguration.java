@@ -0,0 +1,46 @@
+package com.tsys.tc_spike.retry;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Configuration
+public class RetryConfiguration {
+
+    @Bean
+    public ContentionMetrics contentionMetrics() {
+        return new ContentionMetrics();
+    }
+
+    // Before a retry, clears the EntityManager that outlives the transactions of
+    // a web request (open-in-view), so the retry reads the entities afresh
+    // instead of finding the stale ones of the failed attempt.
+    @Bean
+    public ConflictRetry conflictRetry(ContentionMetrics contentionMetrics, ObjectProvider<EntityManagerFactory> entityManagerFactories) {
+        return new ConflictRetry(contentionMetrics, () -> entityManagerFactories.orderedStream().forEach(factory -> {
+            if (TransactionSynchronizationManager.getResource(factory) instanceof EntityManagerHolder holder)
+                holder.getEntityManager().clear();
+        }));
+    }
+
+    // Static, as BeanPostProcessors are created before the other beans.  The
+    // advice goes in front of the existing advisors, that is, outside of
+    // @Transactional.
+    @Bean
+    public static AbstractBeanFactoryAwareAdvisingPostProcessor retryOnConflictPostProcessor(ObjectProvider<ConflictRetry> conflictRetry) {
+        final var pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(RetryOnConflict.class))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(RetryOnConflict.class));
+        final var postProcessor = new AbstractBeanFactoryAwareAdvisingPostProcessor() {
+        };
+        postProcessor.setBeforeExistingAdvisors(true);
+        postProcessor.setAdvisor(new DefaultPointcutAdvisor(pointcut, new RetryOnConflictInterceptor(conflictRetry::getObject)));
+        return postProcessor;
+    }
+}
@@ -0,0 +1,27 @@
+package com.tsys.tc_spike.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Re-runs the annotated unit of work when it fails with an optimistic locking
+// conflict, after a jittered exponential backoff, up to maxAttempts times in
+// all.  It is applied before @Transactional, so every attempt runs in a
+// transaction of its own and must read what it is about to change: a retry
+// then sees the state the conflicting writer committed.  Called from within an
+// enclosing transaction it is not retried, as the enclosing transaction would
+// go on with stale state.
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnConflict {
+    int maxAttempts() default 5;
+
+    // The first retry waits up to this long, each further retry up to twice as
+    // long as the one before, but never longer than maxBackoffMillis.
+    long backoffMillis() default 5;
+
+    long maxBackoffMillis() default 200;
+}
@@ -0,0 +1,54 @@
+package com.tsys.tc_spike.retry;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Retries invocations of methods annotated with @RetryOnConflict (or declared
+// by an annotated type), each attempt proceeding down a fresh copy of the
+// invocation, so the transactional advice behind this one begins a new
+// transaction every time.
+class RetryOnConflictInterceptor implements MethodInterceptor {
+    private record Unit(String name, RetryPolicy policy) {
+    }
+
+    private final Map<Method, Optional<Unit>> units = new ConcurrentHashMap<>();
+    private final Supplier<ConflictRetry> retry;
+
+    RetryOnConflictInterceptor(Supplier<ConflictRetry> retry) {
+        this.retry = retry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        final var unit = units.computeIfAbsent(invocation.getMethod(), method -> resolve(method, invocation.getThis()));
+        if (unit.isEmpty()
+                || TransactionSynchronizationManager.isActualTransactionActive()
+                || !(invocation instanceof ProxyMethodInvocation proxyInvocation))
+            return invocation.proceed();
+
+        return retry.get().execute(unit.get().name(), unit.get().policy(), () -> proxyInvocation.invocableClone().proceed());
+    }
+
+    private static Optional<Unit> resolve(Method method, Object target) {
+        final Class<?> targetClass = target == null ? method.getDeclaringClass() : ClassUtils.getUserClass(target);
+        final var specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        var annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, RetryOnConflict.class);
+        if (annotation == null)
+            annotation = AnnotatedElementUtils.findMergedAnnotation(method, RetryOnConflict.class);
+        if (annotation == null)
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, RetryOnConflict.class);
+        return Optional.ofNullable(annotation)
+                .map(found -> new Unit(ClassUtils.getShortName(targetClass) + "." + method.getName(), RetryPolicy.of(found)));
+    }
+}
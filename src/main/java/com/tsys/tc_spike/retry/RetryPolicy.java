@@ -0,0 +1,35 @@
+package com.tsys.tc_spike.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// How often and how patiently a unit of work is retried.  Backoffs use "full
+// jitter": a retry waits a random time between zero and the capped exponential
+// backoff, which spreads the contenders for a hot row apart instead of having
+// them collide again in lock step.
+public record RetryPolicy(int maxAttempts, long backoffMillis, long maxBackoffMillis) {
+
+    public RetryPolicy {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("maxAttempts must be at least 1, but was " + maxAttempts);
+        if (backoffMillis < 0 || maxBackoffMillis < backoffMillis)
+            throw new IllegalArgumentException("backoffs must satisfy 0 <= backoffMillis <= maxBackoffMillis");
+    }
+
+    static RetryPolicy of(RetryOnConflict annotation) {
+        return new RetryPolicy(annotation.maxAttempts(), annotation.backoffMillis(), annotation.maxBackoffMillis());
+    }
+
+    // The cap of the backoff before the given retry (1 for the first retry).
+    long maxBackoffNanos(int retry) {
+        long millis = backoffMillis;
+        for (int i = 1; i < retry && millis < maxBackoffMillis; i++)
+            millis *= 2;
+        return TimeUnit.MILLISECONDS.toNanos(Math.min(millis, maxBackoffMillis));
+    }
+
+    public long backoffNanos(int retry) {
+        final long max = maxBackoffNanos(retry);
+        return max == 0 ? 0 : ThreadLocalRandom.current().nextLong(max + 1);
+    }
+}
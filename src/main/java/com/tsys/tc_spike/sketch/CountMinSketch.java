@@ -0,0 +1,130 @@
+package com.tsys.tc_spike.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Estimates how often each key was added (Cormode and Muthukrishnan's
+// Count-Min sketch) from depth rows of width counters: a key adds to one
+// counter per row, picked by its hash, and its estimate is the least of them.
+// So a key is never under-counted, and over-counted by at most errorBound()
+// (e / width of all the counts added) with probability 1 - e^-depth.
+//
+// Two sketches of the same width and depth merge into the sketch of all the
+// keys added to either.
+//
+// Not thread-safe.
+final class CountMinSketch {
+    private final int depth;
+    private final int width;
+    private final long[][] counters;
+    private long total;
+
+    CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > 16 || width < 1)
+            throw new IllegalArgumentException("Need a depth between 1 and 16, and a width of at least 1, not " + depth + " and " + width);
+        this.depth = depth;
+        this.width = width;
+        this.counters = new long[depth][width];
+    }
+
+    void add(long hash, long count) {
+        // The counter of each row from two halves of one hash (Kirsch and
+        // Mitzenmacher), as good as depth independent hashes.
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++)
+            counters[row][Math.floorMod(h1 + row * h2, width)] += count;
+        total += count;
+    }
+
+    long estimate(long hash) {
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++)
+            estimate = Math.min(estimate, counters[row][Math.floorMod(h1 + row * h2, width)]);
+        return estimate;
+    }
+
+    long total() {
+        return total;
+    }
+
+    long errorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width)
+            throw new IllegalArgumentException("Cannot merge a sketch of " + other.depth + " x " + other.width + " into one of " + depth + " x " + width);
+        for (int row = 0; row < depth; row++)
+            for (int i = 0; i < width; i++)
+                counters[row][i] += other.counters[row][i];
+        total += other.total;
+    }
+
+    // Mostly zeros in all but the busiest buckets, so the counters are written
+    // as runs of zeros and variable length counts.
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(depth);
+        out.writeInt(width);
+        for (long[] row : counters) {
+            int zeros = 0;
+            for (long counter : row) {
+                if (counter == 0) {
+                    zeros++;
+                    continue;
+                }
+                writeVarLong(out, zeros);
+                writeVarLong(out, counter);
+                zeros = 0;
+            }
+            writeVarLong(out, zeros);
+            writeVarLong(out, 0);
+        }
+    }
+
+    static CountMinSketch readFrom(DataInput in) throws IOException {
+        final var sketch = new CountMinSketch(in.readUnsignedByte(), in.readInt());
+        for (int row = 0; row < sketch.depth; row++) {
+            int i = 0;
+            while (true) {
+                i += (int) readVarLong(in);
+                final long counter = readVarLong(in);
+                if (counter == 0)
+                    break;
+                if (i >= sketch.width)
+                    throw new IOException("Corrupt Count-Min sketch: counter " + i + " of a row of " + sketch.width);
+                sketch.counters[row][i++] = counter;
+            }
+        }
+        // Every count added went to one counter of each row.
+        for (long counter : sketch.counters[0])
+            sketch.total += counter;
+        return sketch;
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Corrupt Count-Min sketch: variable length count too long");
+    }
+}
@@ -0,0 +1,83 @@
+package com.tsys.tc_spike.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Estimates the number of distinct keys added, from 2^precision one byte
+// registers, each keeping the longest run of leading zeros seen in the hashes
+// that fall into it.  The estimate is off by standardError() (1.04 / sqrt of
+// the registers) relative to the true count, about two thirds of the time,
+// and by twice that about 95% of the time; small counts are counted linearly
+// from the empty registers, and are nearly exact.
+//
+// Two sketches of the same precision merge into the sketch of the union of
+// their keys, whatever the order, and however often a key was added to both.
+//
+// Not thread-safe.
+final class HyperLogLog {
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+            throw new IllegalArgumentException("The precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ", not " + precision);
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    int precision() {
+        return precision;
+    }
+
+    // Takes a well-mixed 64 bit hash of the key: the first bits pick the
+    // register, the rest its run of zeros.
+    void add(long hash) {
+        final int register = (int) (hash >>> (64 - precision));
+        final int zeros = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (zeros > registers[register])
+            registers[register] = (byte) zeros;
+    }
+
+    long estimate() {
+        final int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += 1d / (1L << register);
+            if (register == 0)
+                empty++;
+        }
+        final double alpha = 0.7213 / (1 + 1.079 / m);
+        final double raw = alpha * m * m / sum;
+        if (raw <= 2.5 * m && empty > 0)
+            return Math.round(m * Math.log((double) m / empty));
+        return Math.round(raw);
+    }
+
+    double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    void merge(HyperLogLog other) {
+        if (other.precision != precision)
+            throw new IllegalArgumentException("Cannot merge a sketch of precision " + other.precision + " into one of " + precision);
+        for (int i = 0; i < registers.length; i++)
+            if (other.registers[i] > registers[i])
+                registers[i] = other.registers[i];
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(precision);
+        out.write(registers);
+    }
+
+    static HyperLogLog readFrom(DataInput in) throws IOException {
+        final var sketch = new HyperLogLog(in.readUnsignedByte());
+        in.readFully(sketch.registers);
+        return sketch;
+    }
+}
@@ -0,0 +1,201 @@
+package com.tsys.tc_spike.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Estimates the quantiles of the values added (Karnin, Lang and Liberty's KLL
+// sketch) from a stack of compactors: values are added to the lowest one, and
+// a compactor over its capacity is sorted and every other value (starting at
+// a random one of the first two) promoted to the next, where it stands for
+// twice as many values.  The top compactor has capacity k, those below it
+// 2/3 of the one above, but at least MIN_CAPACITY; so a sketch keeps about 3k
+// values, however many were added.
+//
+// The rank of the value answered for a quantile is off by at most
+// normalizedRankError() of all values, with 99% confidence: 1.3% for k = 200,
+// using the empirical bound of the DataSketches library.  Amounts up to the
+// first compaction (k values or so) are exact.
+//
+// Two sketches of the same k merge into one of all their values, with the
+// same error bound.
+//
+// Not thread-safe.
+final class KllSketch {
+    static final int MIN_K = 8;
+    static final int MAX_K = 65_535;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private long n;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    // Level h holds values standing for 2^h values each.
+    private double[][] levels = {new double[MIN_CAPACITY]};
+    private int[] sizes = {0};
+    // Of each level, for as many levels as there are.
+    private int[] capacities;
+
+    KllSketch(int k) {
+        if (k < MIN_K || k > MAX_K)
+            throw new IllegalArgumentException("k must be between " + MIN_K + " and " + MAX_K + ", not " + k);
+        this.k = k;
+        this.capacities = capacities(k, 1);
+    }
+
+    int k() {
+        return k;
+    }
+
+    long n() {
+        return n;
+    }
+
+    boolean isEmpty() {
+        return n == 0;
+    }
+
+    void add(double value) {
+        if (Double.isNaN(value))
+            return;
+        append(0, value);
+        n++;
+        min = n == 1 ? value : Math.min(min, value);
+        max = n == 1 ? value : Math.max(max, value);
+        if (sizes[0] >= capacities[0])
+            compact();
+    }
+
+    void merge(KllSketch other) {
+        if (other.k != k)
+            throw new IllegalArgumentException("Cannot merge a sketch of k " + other.k + " into one of " + k);
+        if (other.isEmpty())
+            return;
+        for (int level = 0; level < other.levels.length; level++)
+            for (int i = 0; i < other.sizes[level]; i++)
+                append(level, other.levels[level][i]);
+        min = isEmpty() ? other.min : Math.min(min, other.min);
+        max = isEmpty() ? other.max : Math.max(max, other.max);
+        n += other.n;
+        compact();
+    }
+
+    // The value at the quantile (between 0 and 1) of the values added, NaN if
+    // none were; 0 answers the least value added, 1 the greatest.
+    double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1)
+            throw new IllegalArgumentException("The quantile must be between 0 and 1, not " + quantile);
+        if (isEmpty())
+            return Double.NaN;
+        if (quantile == 0)
+            return min;
+        if (quantile == 1)
+            return max;
+
+        final int retained = Arrays.stream(sizes).sum();
+        final double[] values = new double[retained];
+        final long[] weights = new long[retained];
+        final Integer[] order = new Integer[retained];
+        int i = 0;
+        for (int level = 0; level < levels.length; level++)
+            for (int j = 0; j < sizes[level]; j++, i++) {
+                values[i] = levels[level][j];
+                weights[i] = 1L << level;
+                order[i] = i;
+            }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        final double rank = quantile * n;
+        long weight = 0;
+        for (int index : order) {
+            weight += weights[index];
+            if (weight >= rank)
+                return values[index];
+        }
+        return max;
+    }
+
+    double normalizedRankError() {
+        return normalizedRankError(k);
+    }
+
+    static double normalizedRankError(int k) {
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeShort(k);
+        out.writeLong(n);
+        if (isEmpty())
+            return;
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeByte(levels.length);
+        for (int level = 0; level < levels.length; level++) {
+            out.writeInt(sizes[level]);
+            for (int i = 0; i < sizes[level]; i++)
+                out.writeDouble(levels[level][i]);
+        }
+    }
+
+    static KllSketch readFrom(DataInput in) throws IOException {
+        final var sketch = new KllSketch(in.readUnsignedShort());
+        sketch.n = in.readLong();
+        if (sketch.isEmpty())
+            return sketch;
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        final int levels = in.readUnsignedByte();
+        for (int level = 0; level < levels; level++) {
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++)
+                sketch.append(level, in.readDouble());
+        }
+        return sketch;
+    }
+
+    private static int[] capacities(int k, int height) {
+        final int[] capacities = new int[height];
+        for (int level = 0; level < height; level++)
+            capacities[level] = Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(2d / 3, height - 1 - level)));
+        return capacities;
+    }
+
+    private void append(int level, double value) {
+        if (level >= levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            sizes = Arrays.copyOf(sizes, level + 1);
+            capacities = capacities(k, level + 1);
+            for (int h = 0; h <= level; h++)
+                if (levels[h] == null)
+                    levels[h] = new double[MIN_CAPACITY];
+        }
+        if (sizes[level] == levels[level].length)
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        levels[level][sizes[level]++] = value;
+    }
+
+    // Compacts the lowest level over its capacity until all are within theirs.
+    private void compact() {
+        boolean compacted = true;
+        while (compacted) {
+            compacted = false;
+            for (int level = 0; level < levels.length; level++) {
+                if (sizes[level] < capacities[level] || sizes[level] < 2)
+                    continue;
+                final double[] values = levels[level];
+                final int size = sizes[level];
+                Arrays.sort(values, 0, size);
+                // An odd value out stays behind, the least one.
+                final int from = size % 2;
+                final int offset = ThreadLocalRandom.current().nextInt(2);
+                for (int i = from + offset; i < size; i += 2)
+                    append(level + 1, values[i]);
+                sizes[level] = from;
+                compacted = true;
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.tsys.tc_spike.sketch;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+// The TransactionSketch of the transactions one node wrote in one time bucket
+// (starting at bucketStartMillis, since the epoch), deflated.  A node rewrites
+// the row of its current bucket, with the next revision, as more transactions
+// are written; the others reload it once they see the revision change.
+@Entity
+@Table(name = "transaction_sketches")
+@IdClass(SketchBucket.Key.class)
+public class SketchBucket {
+    static final int MAX_PAYLOAD_SIZE = 16 << 20;
+
+    @Id
+    public final long bucketStartMillis;
+    @Id
+    @Column(length = 36)
+    public final String node;
+
+    public final long revision;
+    public final long writes;
+    @Column(length = MAX_PAYLOAD_SIZE, nullable = false)
+    public final byte[] payload;
+    public final Instant updatedAt;
+
+    @Deprecated
+    SketchBucket() {
+        this(0L, null, 0L, 0L, null, null);
+    }
+
+    public SketchBucket(long bucketStartMillis, String node, long revision, long writes, byte[] payload, Instant updatedAt) {
+        this.bucketStartMillis = bucketStartMillis;
+        this.node = node;
+        this.revision = revision;
+        this.writes = writes;
+        this.payload = payload;
+        this.updatedAt = updatedAt;
+    }
+
+    public static class Key implements Serializable {
+        private long bucketStartMillis;
+        private String node;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            Key that = (Key) o;
+            return bucketStartMillis == that.bucketStartMillis && Objects.equals(node, that.node);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketStartMillis, node);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.tsys.tc_spike.sketch;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+// The transactions written are sketched (see TransactionSketches) only when
+// enabled:
+//
+//   sketches.enabled=true
+//   sketches.bucket=PT1M
+//   sketches.retention=P7D
+//   sketches.flush-interval-ms=10000
+//   sketches.purge-interval-ms=3600000
+//   sketches.decoded-cached=256
+//   sketches.rollups-cached=256
+//
+// Each process names itself afresh on start, unless sketches.node is set.
+// The bucket, and the sizes of the sketches, which trade their errors for
+// space, must be the same on all nodes:
+//
+//   sketches.hll-precision=12        distinct orderIds within 1.6%
+//   sketches.kll-k=200               amount quantiles within 1.3% of rank
+//   sketches.cms-depth=5             writes per orderId within e/width of
+//   sketches.cms-width=2048          all writes, 99.3% of the time
+//   sketches.heavy-hitters=64
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty("sketches.enabled")
+public class SketchConfiguration {
+
+    @Bean
+    public TransactionSketches transactionSketches(JdbcTemplate jdbcTemplate,
+                                                   @Value("${sketches.node:${random.uuid}}") String node,
+                                                   @Value("${sketches.bucket:PT1M}") Duration bucket,
+                                                   @Value("${sketches.retention:P7D}") Duration retention,
+                                                   @Value("${sketches.hll-precision:12}") int hllPrecision,
+                                                   @Value("${sketches.kll-k:200}") int kllK,
+                                                   @Value("${sketches.cms-depth:5}") int cmsDepth,
+                                                   @Value("${sketches.cms-width:2048}") int cmsWidth,
+                                                   @Value("${sketches.heavy-hitters:64}") int heavyHitters,
+                                                   @Value("${sketches.decoded-cached:256}") int decodedCached,
+                                                   @Value("${sketches.rollups-cached:256}") int rollupsCached) {
+        return new TransactionSketches(jdbcTemplate, node, bucket, retention,
+                new TransactionSketch.Sizing(hllPrecision, kllK, cmsDepth, cmsWidth, heavyHitters), decodedCached, rollupsCached);
+    }
+
+    @Bean
+    public TransactionSketchesScheduler transactionSketchesScheduler(TransactionSketches transactionSketches) {
+        return new TransactionSketchesScheduler(transactionSketches);
+    }
+
+    static class TransactionSketchesScheduler {
+        private final TransactionSketches sketches;
+
+        TransactionSketchesScheduler(TransactionSketches sketches) {
+            this.sketches = sketches;
+        }
+
+        @Scheduled(fixedDelayString = "${sketches.flush-interval-ms:10000}")
+        void flush() {
+            sketches.flushAndRefresh();
+        }
+
+        @Scheduled(fixedDelayString = "${sketches.purge-interval-ms:3600000}")
+        void purge() {
+            sketches.purgeExpired();
+        }
+    }
+}
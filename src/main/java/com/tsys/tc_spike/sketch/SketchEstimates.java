@@ -0,0 +1,34 @@
+package com.tsys.tc_spike.sketch;
+
+import java.time.Instant;
+import java.util.List;
+
+// The estimates of the sketches of the transactions written from (inclusive)
+// to (exclusive), across all nodes, each with its error bound; and how long
+// merging the sketches took.
+public record SketchEstimates(Instant from, Instant to, long writes, DistinctOrderIds distinctOrderIds,
+                              List<AmountQuantiles> amounts, HeavyHitters heavyHitters, long elapsedMicros) {
+
+    // The true count is within lower and upper (two standard errors) about
+    // 95% of the time.
+    public record DistinctOrderIds(long estimate, double standardError, long lower, long upper) {
+    }
+
+    // The amounts at the quantiles of the transactions created in a currency.
+    // The rank of each amount is off by at most rankError of the transactions
+    // (with 99% confidence), so the true amount is between the amounts at the
+    // quantiles that much lower and higher.
+    public record AmountQuantiles(String currency, long transactions, double rankError, List<Quantile> quantiles) {
+    }
+
+    public record Quantile(double quantile, double amount, double lower, double upper) {
+    }
+
+    // The orderIds written most, each written at most estimate and at least
+    // lower times, with the confidence given.
+    public record HeavyHitters(long errorBound, double confidence, List<HeavyHitter> orderIds) {
+    }
+
+    public record HeavyHitter(String orderId, long estimate, long lower) {
+    }
+}
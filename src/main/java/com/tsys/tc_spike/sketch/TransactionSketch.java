@@ -0,0 +1,233 @@
+package com.tsys.tc_spike.sketch;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// The sketches of the transactions written in one time bucket (by one node, or
+// merged across nodes and buckets):
+//
+//   - a HyperLogLog of the orderIds written,
+//   - a KllSketch of the amounts of the transactions created, per currency,
+//   - a CountMinSketch of the writes per orderId, with the orderIds estimated
+//     to be written most kept as candidates for the heavy hitters.
+//
+// Candidates are only kept while they are among the most written ones, so an
+// orderId written often but spread thinly over many sketches may be missed by
+// a merge; its count, once asked for, is still bounded as usual.
+//
+// Sketches of the same Sizing merge, and are written deflated.  Thread-safe.
+final class TransactionSketch {
+    private static final int FORMAT_VERSION = 1;
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    record Sizing(int hllPrecision, int kllK, int cmsDepth, int cmsWidth, int heavyHitters) {
+        Sizing {
+            if (heavyHitters < 1)
+                throw new IllegalArgumentException("Need to keep at least 1 heavy hitter, not " + heavyHitters);
+        }
+    }
+
+    record Candidate(String orderId, long estimate) {
+    }
+
+    private final Sizing sizing;
+    private final HyperLogLog orderIds;
+    private final Map<String, KllSketch> amounts = new HashMap<>();
+    private final CountMinSketch writes;
+    private final Map<String, Long> candidates = new HashMap<>();
+    // At most the least estimate of the candidates, which only grow.
+    private long leastCandidate;
+
+    TransactionSketch(Sizing sizing) {
+        this(sizing, new HyperLogLog(sizing.hllPrecision), new CountMinSketch(sizing.cmsDepth, sizing.cmsWidth));
+    }
+
+    private TransactionSketch(Sizing sizing, HyperLogLog orderIds, CountMinSketch writes) {
+        this.sizing = sizing;
+        this.orderIds = orderIds;
+        this.writes = writes;
+    }
+
+    // A write of the orderId; and of the amount in the currency if the
+    // transaction was created (so that updates do not count it again).
+    synchronized void record(String orderId, String currency, Double amount, boolean created) {
+        if (orderId != null) {
+            final long hash = hash(orderId);
+            orderIds.add(hash);
+            writes.add(hash, 1);
+            offer(orderId, writes.estimate(hash));
+        }
+        if (created && currency != null && amount != null)
+            amounts.computeIfAbsent(currency, key -> new KllSketch(sizing.kllK)).add(amount);
+    }
+
+    // Locks this sketch, then the other: merge into sketches of one's own.
+    synchronized void merge(TransactionSketch other) {
+        if (!other.sizing.equals(sizing))
+            throw new IllegalArgumentException("Cannot merge a sketch of " + other.sizing + " into one of " + sizing);
+        final List<String> all = new ArrayList<>(candidates.keySet());
+        synchronized (other) {
+            orderIds.merge(other.orderIds);
+            writes.merge(other.writes);
+            other.amounts.forEach((currency, sketch) -> amounts.computeIfAbsent(currency, key -> new KllSketch(sizing.kllK)).merge(sketch));
+            all.addAll(other.candidates.keySet());
+        }
+        // The candidates of both, by their merged counts.
+        candidates.clear();
+        leastCandidate = 0;
+        for (String orderId : all)
+            if (!candidates.containsKey(orderId))
+                offer(orderId, writes.estimate(hash(orderId)));
+    }
+
+    synchronized long writes() {
+        return writes.total();
+    }
+
+    synchronized long distinctOrderIds() {
+        return orderIds.estimate();
+    }
+
+    double distinctOrderIdsError() {
+        return orderIds.standardError();
+    }
+
+    // The amounts, by currency.
+    synchronized Map<String, Long> amountsCounted() {
+        final Map<String, Long> counted = new TreeMap<>();
+        amounts.forEach((currency, sketch) -> counted.put(currency, sketch.n()));
+        return counted;
+    }
+
+    synchronized double amountQuantile(String currency, double quantile) {
+        final var sketch = amounts.get(currency);
+        return sketch == null ? Double.NaN : sketch.quantile(quantile);
+    }
+
+    double amountRankError() {
+        return KllSketch.normalizedRankError(sizing.kllK);
+    }
+
+    // The orderIds estimated to be written most, most first.
+    synchronized List<Candidate> heavyHitters(int top) {
+        return candidates.keySet().stream()
+                .map(orderId -> new Candidate(orderId, writes.estimate(hash(orderId))))
+                .sorted(Comparator.comparingLong(Candidate::estimate).reversed().thenComparing(Candidate::orderId))
+                .limit(top)
+                .toList();
+    }
+
+    synchronized long heavyHitterErrorBound() {
+        return writes.errorBound();
+    }
+
+    double heavyHitterConfidence() {
+        return writes.confidence();
+    }
+
+    synchronized byte[] toBytes() {
+        final var bytes = new ByteArrayOutputStream();
+        // Flushed every few seconds: speed over the last few bytes.
+        final var deflater = new Deflater(Deflater.BEST_SPEED);
+        try (var out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(bytes, deflater)))) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(sizing.hllPrecision);
+            out.writeShort(sizing.kllK);
+            out.writeByte(sizing.cmsDepth);
+            out.writeInt(sizing.cmsWidth);
+            out.writeInt(sizing.heavyHitters);
+            orderIds.writeTo(out);
+            writes.writeTo(out);
+            out.writeInt(amounts.size());
+            for (var amount : amounts.entrySet()) {
+                out.writeUTF(amount.getKey());
+                amount.getValue().writeTo(out);
+            }
+            out.writeInt(candidates.size());
+            for (var candidate : candidates.entrySet()) {
+                out.writeUTF(candidate.getKey());
+                out.writeLong(candidate.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    static TransactionSketch fromBytes(byte[] bytes) {
+        try (var in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes))))) {
+            final int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION)
+                throw new IllegalStateException("Unknown transaction sketch format " + version);
+            final var sizing = new Sizing(in.readUnsignedByte(), in.readUnsignedShort(), in.readUnsignedByte(), in.readInt(), in.readInt());
+            final var sketch = new TransactionSketch(sizing, HyperLogLog.readFrom(in), CountMinSketch.readFrom(in));
+            for (int i = in.readInt(); i > 0; i--)
+                sketch.amounts.put(in.readUTF(), KllSketch.readFrom(in));
+            for (int i = in.readInt(); i > 0; i--)
+                sketch.candidates.put(in.readUTF(), in.readLong());
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt transaction sketch", e);
+        }
+    }
+
+    // Keeps the orderId as a candidate if there is room, or it is written more
+    // than the least written candidate, which it replaces.
+    private void offer(String orderId, long estimate) {
+        if (candidates.containsKey(orderId)) {
+            candidates.put(orderId, estimate);
+            return;
+        }
+        if (candidates.size() < sizing.heavyHitters) {
+            candidates.put(orderId, estimate);
+            if (candidates.size() == sizing.heavyHitters)
+                leastCandidate = leastCandidate();
+            return;
+        }
+        if (estimate <= leastCandidate)
+            return;
+        String least = null;
+        long leastEstimate = Long.MAX_VALUE;
+        for (var candidate : candidates.entrySet())
+            if (candidate.getValue() < leastEstimate) {
+                least = candidate.getKey();
+                leastEstimate = candidate.getValue();
+            }
+        if (estimate > leastEstimate) {
+            candidates.remove(least);
+            candidates.put(orderId, estimate);
+            leastCandidate = leastCandidate();
+        } else {
+            leastCandidate = leastEstimate;
+        }
+    }
+
+    private long leastCandidate() {
+        return candidates.values().stream().mapToLong(Long::longValue).min().orElse(0);
+    }
+
+    private static long hash(String orderId) {
+        return HASH.hashString(orderId, StandardCharsets.UTF_8).asLong();
+    }
+}
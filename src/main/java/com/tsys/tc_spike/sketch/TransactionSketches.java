@@ -0,0 +1,357 @@
+package com.tsys.tc_spike.sketch;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+// Approximate analytics of the transactions written, answered in microseconds
+// where exact COUNT(DISTINCT order_id) or percentile queries would scan the
+// transactions table: the TransactionSketches of time buckets, merged over the
+// range asked for and across all nodes.
+//
+// Each node sketches the transactions it commits into the sketch of the
+// current bucket, and flushes the buckets that changed into its rows of the
+// transaction_sketches table; a bucket that has ended is flushed once more,
+// and then forgotten.  A write recorded after its bucket was flushed for good
+// counts in the current bucket.  The rows of all nodes are reloaded when
+// their revision changes, kept deflated, and decoded when merged.  Rollups of
+// 10, 100 and 1000 stored buckets (aligned to multiples of their size) are
+// kept merged, each from the ten rollups of the size below; so a query merges
+// at most nine rollups of each size at either end of its range, and as many
+// rollups of 1000 buckets as it spans.
+//
+// So the estimates cover the transactions of other nodes up to their last
+// flush and this node's refresh, and those of this node as they commit.  The
+// node must name one process only: a process taking over the name of another
+// would overwrite its rows of the current bucket.
+public class TransactionSketches {
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionSketches.class);
+    // Largest first, each ten times the next.
+    private static final int[] ROLLUP_SPANS = {1000, 100, 10};
+
+    private static final class Live {
+        final TransactionSketch sketch;
+        final AtomicBoolean dirty = new AtomicBoolean();
+        // Of the row last written, only changed by flushes.
+        long revision;
+
+        Live(TransactionSketch sketch) {
+            this.sketch = sketch;
+        }
+    }
+
+    private record Stored(long revision, byte[] payload) {
+    }
+
+    private record RowKey(long epoch, String node) {
+    }
+
+    // The span buckets starting at span * index.
+    private record Rollup(int span, long index) {
+    }
+
+    // The stored rows of all nodes by bucket, then node, and the rollups
+    // merged from them so far; replaced on refresh.
+    private record Snapshot(NavigableMap<Long, Map<String, Stored>> stored, Cache<Rollup, TransactionSketch> rollups) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String node;
+    private final long bucketMillis;
+    private final long retentionMillis;
+    private final TransactionSketch.Sizing sizing;
+    private final LongSupplier clock;
+    // This node's buckets until flushed for good.
+    private final ConcurrentSkipListMap<Long, Live> live = new ConcurrentSkipListMap<>();
+    // Writers share it, a flush taking buckets out of live holds it alone.
+    private final ReadWriteLock liveLock = new ReentrantReadWriteLock();
+    // The last bucket flushed for good, that no write goes to any more.
+    private long closedThrough = Long.MIN_VALUE;
+    private final int rollupsCached;
+    private volatile Snapshot snapshot;
+    private final Cache<Stored, TransactionSketch> decoded;
+
+    public TransactionSketches(JdbcTemplate jdbcTemplate, String node, Duration bucket, Duration retention,
+                               TransactionSketch.Sizing sizing, int decodedCached, int rollupsCached) {
+        this(jdbcTemplate, node, bucket, retention, sizing, decodedCached, rollupsCached, System::currentTimeMillis);
+    }
+
+    TransactionSketches(JdbcTemplate jdbcTemplate, String node, Duration bucket, Duration retention,
+                        TransactionSketch.Sizing sizing, int decodedCached, int rollupsCached, LongSupplier clock) {
+        if (bucket.toMillis() < 1 || retention.compareTo(bucket) < 0)
+            throw new IllegalArgumentException("Need a bucket of at least 1 ms, no longer than the retention, not " + bucket + " and " + retention);
+        if (node == null || node.isEmpty() || node.length() > 36)
+            throw new IllegalArgumentException("The node must be named with 1 to 36 characters, not " + node);
+        // Fails fast on sizes the sketches refuse.
+        new TransactionSketch(sizing);
+        this.jdbcTemplate = jdbcTemplate;
+        this.node = node;
+        this.bucketMillis = bucket.toMillis();
+        this.retentionMillis = retention.toMillis();
+        this.sizing = sizing;
+        this.clock = clock;
+        // Identity keyed: a row reloaded at another revision is another Stored.
+        this.decoded = CacheBuilder.newBuilder().weakKeys().maximumSize(decodedCached).build();
+        this.rollupsCached = rollupsCached;
+        this.snapshot = new Snapshot(new TreeMap<>(), rollups());
+    }
+
+    public String node() {
+        return node;
+    }
+
+    public int maxHeavyHitters() {
+        return sizing.heavyHitters();
+    }
+
+    @TransactionalEventListener
+    public void on(TransactionChanged change) {
+        if (change.kind() == TransactionChanged.Kind.DELETED)
+            return;
+        final var transaction = change.transaction();
+        final var value = transaction.value;
+        record(transaction.orderId,
+                value == null || value.currency == null ? null : value.currency.getCurrencyCode(),
+                value == null ? null : value.amount,
+                change.kind() == TransactionChanged.Kind.CREATED);
+    }
+
+    public void record(String orderId, String currency, Double amount, boolean created) {
+        final var lock = liveLock.readLock();
+        lock.lock();
+        try {
+            final long epoch = Math.max(Math.floorDiv(clock.getAsLong(), bucketMillis), closedThrough + 1);
+            final var bucket = live.computeIfAbsent(epoch, key -> new Live(new TransactionSketch(sizing)));
+            bucket.sketch.record(orderId, currency, amount, created);
+            bucket.dirty.set(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writes this node's buckets that changed since the last flush, reloads
+    // those of the other nodes that changed, and forgets the buckets that
+    // ended once they are reloaded.
+    public synchronized void flushAndRefresh() {
+        final long current = Math.floorDiv(clock.getAsLong(), bucketMillis);
+        final var lock = liveLock.writeLock();
+        lock.lock();
+        try {
+            closedThrough = Math.max(closedThrough, current - 1);
+        } finally {
+            lock.unlock();
+        }
+        final List<Long> ended = new ArrayList<>();
+        live.forEach((epoch, bucket) -> {
+            if (bucket.dirty.getAndSet(false)) {
+                try {
+                    write(epoch, bucket);
+                } catch (RuntimeException e) {
+                    bucket.dirty.set(true);
+                    LOG.warn("Could not flush the transaction sketch of the bucket at {}", Instant.ofEpochMilli(epoch * bucketMillis), e);
+                    return;
+                }
+            }
+            if (epoch <= closedThrough)
+                ended.add(epoch);
+        });
+        refresh();
+        // Queries use the rows reloaded from now on, but for those expired.
+        final var stored = snapshot.stored;
+        final long oldest = Math.floorDiv(clock.getAsLong() - retentionMillis, bucketMillis);
+        for (Long epoch : ended)
+            if (epoch < oldest || stored.containsKey(epoch) && stored.get(epoch).containsKey(node))
+                live.remove(epoch);
+    }
+
+    // Forgets the rows of all nodes older than the retention.
+    public int purgeExpired() {
+        final long oldest = Math.floorDiv(clock.getAsLong() - retentionMillis, bucketMillis) * bucketMillis;
+        return jdbcTemplate.update("DELETE FROM transaction_sketches WHERE bucket_start_millis < ?", oldest);
+    }
+
+    // Reloads the rows (of the retention) whose revision changed, dropping the
+    // rollups they are merged into.
+    synchronized void refresh() {
+        final long oldest = Math.floorDiv(clock.getAsLong() - retentionMillis, bucketMillis) * bucketMillis;
+        final var previous = snapshot;
+        final NavigableMap<Long, Map<String, Stored>> stored = new TreeMap<>();
+        final Set<Long> changedBuckets = new HashSet<>();
+        final List<RowKey> changed = new ArrayList<>();
+        jdbcTemplate.query("SELECT bucket_start_millis, node, revision FROM transaction_sketches WHERE bucket_start_millis >= ?",
+                (RowCallbackHandler) rs -> {
+                    final long epoch = Math.floorDiv(rs.getLong(1), bucketMillis);
+                    final String rowNode = rs.getString(2);
+                    final long revision = rs.getLong(3);
+                    final var known = previous.stored.getOrDefault(epoch, Map.of()).get(rowNode);
+                    if (known != null && known.revision == revision)
+                        stored.computeIfAbsent(epoch, key -> new HashMap<>()).put(rowNode, known);
+                    else
+                        changed.add(new RowKey(epoch, rowNode));
+                }, oldest);
+        for (RowKey row : changed) {
+            jdbcTemplate.query("SELECT revision, payload FROM transaction_sketches WHERE bucket_start_millis = ? AND node = ?",
+                    (RowCallbackHandler) rs -> stored.computeIfAbsent(row.epoch, key -> new HashMap<>())
+                            .put(row.node, new Stored(rs.getLong(1), rs.getBytes(2))),
+                    row.epoch * bucketMillis, row.node);
+            changedBuckets.add(row.epoch);
+        }
+        // And those of rows gone.
+        previous.stored.forEach((epoch, nodes) -> {
+            if (!stored.containsKey(epoch) || !stored.get(epoch).keySet().containsAll(nodes.keySet()))
+                changedBuckets.add(epoch);
+        });
+        final var rollups = rollups();
+        rollups.putAll(previous.rollups.asMap());
+        for (long epoch : changedBuckets)
+            for (int span : ROLLUP_SPANS)
+                rollups.invalidate(new Rollup(span, Math.floorDiv(epoch, span)));
+        snapshot = new Snapshot(stored, rollups);
+    }
+
+    // The estimates over the buckets overlapping from (inclusive) to
+    // (exclusive), the amounts at the quantiles, and the top orderIds.
+    public SketchEstimates estimate(Instant from, Instant to, List<Double> quantiles, int top) {
+        if (!from.isBefore(to))
+            throw new IllegalArgumentException("The range must end after it starts, not " + from + " to " + to);
+        for (double quantile : quantiles)
+            if (quantile < 0 || quantile > 1)
+                throw new IllegalArgumentException("The quantiles must be between 0 and 1, not " + quantile);
+        if (top < 0 || top > sizing.heavyHitters())
+            throw new IllegalArgumentException("At most " + sizing.heavyHitters() + " heavy hitters are kept, not " + top);
+
+        final long start = System.nanoTime();
+        final long first = Math.floorDiv(from.toEpochMilli(), bucketMillis);
+        final long last = Math.floorDiv(to.toEpochMilli() - 1, bucketMillis);
+        final var merged = merge(first, last);
+
+        final long distinct = merged.distinctOrderIds();
+        final double standardError = merged.distinctOrderIdsError();
+        final var distinctOrderIds = new SketchEstimates.DistinctOrderIds(distinct, standardError,
+                Math.max(0, (long) Math.floor(distinct * (1 - 2 * standardError))),
+                (long) Math.ceil(distinct * (1 + 2 * standardError)));
+
+        final double rankError = merged.amountRankError();
+        final List<SketchEstimates.AmountQuantiles> amounts = new ArrayList<>();
+        merged.amountsCounted().forEach((currency, transactions) -> amounts.add(new SketchEstimates.AmountQuantiles(currency,
+                transactions, rankError, quantiles.stream().map(quantile -> new SketchEstimates.Quantile(quantile,
+                        merged.amountQuantile(currency, quantile),
+                        merged.amountQuantile(currency, Math.max(0, quantile - rankError)),
+                        merged.amountQuantile(currency, Math.min(1, quantile + rankError)))).toList())));
+
+        final long errorBound = merged.heavyHitterErrorBound();
+        final var heavyHitters = new SketchEstimates.HeavyHitters(errorBound, merged.heavyHitterConfidence(),
+                merged.heavyHitters(top).stream()
+                        .map(candidate -> new SketchEstimates.HeavyHitter(candidate.orderId(), candidate.estimate(),
+                                Math.max(0, candidate.estimate() - errorBound)))
+                        .toList());
+
+        return new SketchEstimates(Instant.ofEpochMilli(first * bucketMillis), Instant.ofEpochMilli((last + 1) * bucketMillis),
+                merged.writes(), distinctOrderIds, amounts, heavyHitters, (System.nanoTime() - start) / 1_000);
+    }
+
+    // The sketches of the buckets first to last (inclusive): this node's live
+    // ones, and the stored rows of all nodes but for the buckets live here.
+    private TransactionSketch merge(long first, long last) {
+        final var current = snapshot;
+        final var merged = new TransactionSketch(sizing);
+        long epoch = first;
+        while (epoch <= last) {
+            int span = 1;
+            for (int candidate : ROLLUP_SPANS)
+                if (Math.floorMod(epoch, candidate) == 0 && epoch + candidate - 1 <= last
+                        && live.subMap(epoch, true, epoch + candidate - 1, true).isEmpty()) {
+                    span = candidate;
+                    break;
+                }
+            if (span > 1) {
+                if (!current.stored.subMap(epoch, true, epoch + span - 1, true).isEmpty())
+                    merged.merge(rollup(current, span, epoch));
+                epoch += span;
+                continue;
+            }
+            final var bucket = live.get(epoch);
+            if (bucket != null)
+                merged.merge(bucket.sketch);
+            final var nodes = current.stored.get(epoch);
+            if (nodes != null)
+                for (var row : nodes.entrySet())
+                    if (bucket == null || !row.getKey().equals(node))
+                        merged.merge(decode(row.getValue()));
+            epoch++;
+        }
+        return merged;
+    }
+
+    // The stored rows of the span buckets from start, merged from the ten
+    // rollups (or buckets) they are made of.
+    private TransactionSketch rollup(Snapshot current, int span, long start) {
+        final var key = new Rollup(span, Math.floorDiv(start, span));
+        final var known = current.rollups.getIfPresent(key);
+        if (known != null)
+            return known;
+        final var merged = new TransactionSketch(sizing);
+        final int part = span / 10;
+        for (long from = start; from < start + span; from += part) {
+            final var parts = current.stored.subMap(from, true, from + part - 1, true);
+            if (parts.isEmpty())
+                continue;
+            if (part > 1)
+                merged.merge(rollup(current, part, from));
+            else
+                parts.values().forEach(nodes -> nodes.values().forEach(row -> merged.merge(decode(row))));
+        }
+        current.rollups.put(key, merged);
+        return merged;
+    }
+
+    private TransactionSketch decode(Stored row) {
+        try {
+            return decoded.get(row, () -> TransactionSketch.fromBytes(row.payload));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not decode a transaction sketch", e.getCause());
+        }
+    }
+
+    private Cache<Rollup, TransactionSketch> rollups() {
+        return CacheBuilder.newBuilder().maximumSize(rollupsCached).build();
+    }
+
+    private void write(long epoch, Live bucket) {
+        final byte[] payload = bucket.sketch.toBytes();
+        if (payload.length > SketchBucket.MAX_PAYLOAD_SIZE)
+            throw new IllegalStateException("A transaction sketch of " + payload.length + " bytes, over " + SketchBucket.MAX_PAYLOAD_SIZE);
+        final long revision = bucket.revision + 1;
+        final long writes = bucket.sketch.writes();
+        final var now = Timestamp.from(Instant.now());
+        final int updated = jdbcTemplate.update("UPDATE transaction_sketches SET revision = ?, writes = ?, payload = ?, updated_at = ? " +
+                "WHERE bucket_start_millis = ? AND node = ?", revision, writes, payload, now, epoch * bucketMillis, node);
+        if (updated == 0)
+            jdbcTemplate.update("INSERT INTO transaction_sketches (bucket_start_millis, node, revision, writes, payload, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)", epoch * bucketMillis, node, revision, writes, payload, now);
+        bucket.revision = revision;
+    }
+}
@@ -0,0 +1,49 @@
+package com.tsys.tc_spike.sketch;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Estimates of the distinct orderIds, the amount quantiles per currency and
+// the orderIds written most, across all nodes, over the last hour - or from
+// and to the instants asked for (ISO-8601, rounded out to whole buckets):
+//
+//   GET /transactions/sketches
+//   GET /transactions/sketches?from=2021-03-01T00:00:00Z&to=2021-03-02T00:00:00Z&quantile=0.5&quantile=0.999&top=5
+@RestController
+@RequestMapping("/transactions")
+@ConditionalOnProperty("sketches.enabled")
+public class TransactionSketchesController {
+    private static final Duration DEFAULT_RANGE = Duration.ofHours(1);
+    private static final List<Double> DEFAULT_QUANTILES = List.of(0.5, 0.9, 0.99);
+    private static final int DEFAULT_TOP = 10;
+
+    private final TransactionSketches sketches;
+
+    public TransactionSketchesController(TransactionSketches sketches) {
+        this.sketches = sketches;
+    }
+
+    @GetMapping("/sketches")
+    public ResponseEntity<SketchEstimates> sketches(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                    @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                    @RequestParam(value = "quantile", required = false) List<Double> quantiles,
+                                                    @RequestParam(value = "top", required = false) Integer top) {
+        final var end = to == null ? Instant.now() : to;
+        final var start = from == null ? end.minus(DEFAULT_RANGE) : from;
+        final var asked = quantiles == null || quantiles.isEmpty() ? DEFAULT_QUANTILES : quantiles;
+        final int orderIds = top == null ? Math.min(DEFAULT_TOP, sketches.maxHeavyHitters()) : top;
+        if (!start.isBefore(end) || orderIds < 0 || orderIds > sketches.maxHeavyHitters()
+                || asked.stream().anyMatch(quantile -> quantile == null || quantile < 0 || quantile > 1))
+            return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(sketches.estimate(start, end, asked, orderIds));
+    }
+}
@@ -0,0 +1,25 @@
+package com.tsys.tc_spike.stats;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// The windowed statistics keep, per status and currency written, a ring of
+// buckets covering the longest window asked for:
+//
+//   stats.bucket=PT10S
+//   stats.max-window=PT15M
+//
+// Shorter buckets make the windows more exact, at the cost of more buckets to
+// sum per query.
+@Configuration
+public class StatsConfiguration {
+
+    @Bean
+    public TransactionWindowStats transactionWindowStats(@Value("${stats.bucket:PT10S}") Duration bucket,
+                                                         @Value("${stats.max-window:PT15M}") Duration maxWindow) {
+        return new TransactionWindowStats(bucket, maxWindow);
+    }
+}
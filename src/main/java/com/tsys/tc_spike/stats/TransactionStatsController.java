@@ -0,0 +1,46 @@
+package com.tsys.tc_spike.stats;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+
+// The counts and amount totals of the transactions written lately, per status
+// and currency, over the last 1, 5 and 15 minutes (those of them within
+// stats.max-window, else that window itself) - or over the windows asked for
+// (ISO-8601 durations, up to stats.max-window):
+//
+//   GET /transactions/stats
+//   GET /transactions/stats?window=PT30S&window=PT10M
+//
+// They only cover the writes through this instance, since it started.
+@RestController
+@RequestMapping("/transactions")
+public class TransactionStatsController {
+    private static final List<Duration> DEFAULT_WINDOWS = List.of(Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofMinutes(15));
+
+    private final TransactionWindowStats stats;
+
+    public TransactionStatsController(TransactionWindowStats stats) {
+        this.stats = stats;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<TransactionWindowStats.Window>> stats(@RequestParam(value = "window", required = false) List<Duration> windows) {
+        final var asked = windows == null || windows.isEmpty() ? defaultWindows() : windows;
+        for (Duration window : asked)
+            if (window.isNegative() || window.isZero() || window.compareTo(stats.maxWindow()) > 0)
+                return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(asked.stream().map(stats::window).toList());
+    }
+
+    private List<Duration> defaultWindows() {
+        final var max = stats.maxWindow();
+        final var windows = DEFAULT_WINDOWS.stream().filter(window -> window.compareTo(max) <= 0).toList();
+        return windows.isEmpty() ? List.of(max) : windows;
+    }
+}
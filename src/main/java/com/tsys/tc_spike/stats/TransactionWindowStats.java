@@ -0,0 +1,145 @@
+package com.tsys.tc_spike.stats;
+
+import com.tsys.tc_spike.domain.TransactionChanged;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Counts and amount totals of the transactions written (inserted or updated,
+// and committed) through this instance, per status and currency, over sliding
+// windows of up to maxWindow - answered from memory rather than by SQL.
+//
+// Time is cut into buckets of bucketMillis.  Each status and currency has a
+// ring of buckets, just long enough to hold maxWindow; a bucket is replaced
+// (with a compare-and-set) by the first write after its time has come round
+// again, so no thread ever resets counters that another is adding to, and the
+// counters themselves are LongAdders and DoubleAdders, which stripe
+// concurrent adds instead of contending on one value.  A window is the sum of
+// its buckets, so a query costs O(buckets) per status and currency; as the
+// current bucket is only partly over, a window covers between its length less
+// one bucket and its length.
+public class TransactionWindowStats {
+    private static final String NONE = "";
+
+    // The totals of one status and currency over a window.
+    public record Totals(String status, String currency, long transactions, double amount) {
+    }
+
+    // The totals of all statuses and currencies over a window (from inclusive,
+    // to exclusive), ordered by status and currency.
+    public record Window(Duration window, Instant from, Instant to, List<Totals> totals) {
+    }
+
+    private static final class Bucket {
+        final long epoch;
+        final LongAdder transactions = new LongAdder();
+        final DoubleAdder amount = new DoubleAdder();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final Duration maxWindow;
+    private final LongSupplier clock;
+    // By status, then currency, so recording allocates no key.
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicReferenceArray<Bucket>>> rings = new ConcurrentHashMap<>();
+
+    public TransactionWindowStats(Duration bucket, Duration maxWindow) {
+        this(bucket, maxWindow, System::currentTimeMillis);
+    }
+
+    TransactionWindowStats(Duration bucket, Duration maxWindow, LongSupplier clock) {
+        if (bucket.toMillis() < 1 || maxWindow.compareTo(bucket) < 0)
+            throw new IllegalArgumentException("Need a bucket of at least 1 ms, no longer than the window, not " + bucket + " and " + maxWindow);
+        this.bucketMillis = bucket.toMillis();
+        this.maxWindow = maxWindow;
+        // One more than the longest window needs, which the current bucket overwrites.
+        this.buckets = (int) bucketsFor(maxWindow) + 1;
+        this.clock = clock;
+    }
+
+    public Duration maxWindow() {
+        return maxWindow;
+    }
+
+    @TransactionalEventListener
+    public void on(TransactionChanged change) {
+        if (change.kind() == TransactionChanged.Kind.DELETED)
+            return;
+        final var transaction = change.transaction();
+        final var value = transaction.value;
+        record(transaction.status,
+                value == null || value.currency == null ? null : value.currency.getCurrencyCode(),
+                value == null || value.amount == null ? 0 : value.amount);
+    }
+
+    public void record(String status, String currency, double amount) {
+        final long epoch = Math.floorDiv(clock.getAsLong(), bucketMillis);
+        final var ring = ring(status == null ? NONE : status, currency == null ? NONE : currency);
+        final int slot = (int) Math.floorMod(epoch, (long) buckets);
+        var bucket = ring.get(slot);
+        while (bucket == null || bucket.epoch != epoch) {
+            // A writer that stalled for a whole ring: its bucket is gone.
+            if (bucket != null && bucket.epoch > epoch)
+                return;
+            final var fresh = new Bucket(epoch);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                bucket = fresh;
+                break;
+            }
+            bucket = ring.get(slot);
+        }
+        bucket.transactions.increment();
+        bucket.amount.add(amount);
+    }
+
+    public Window window(Duration window) {
+        if (window.isNegative() || window.isZero() || window.compareTo(maxWindow) > 0)
+            throw new IllegalArgumentException("The window must be longer than 0 and at most " + maxWindow + ", not " + window);
+
+        final long now = clock.getAsLong();
+        final long to = Math.floorDiv(now, bucketMillis);
+        final long from = to - bucketsFor(window) + 1;
+        final List<Totals> totals = new ArrayList<>();
+        rings.forEach((status, byCurrency) -> byCurrency.forEach((currency, ring) -> {
+            long transactions = 0;
+            double amount = 0;
+            for (int slot = 0; slot < buckets; slot++) {
+                final var bucket = ring.get(slot);
+                if (bucket != null && bucket.epoch >= from && bucket.epoch <= to) {
+                    transactions += bucket.transactions.sum();
+                    amount += bucket.amount.sum();
+                }
+            }
+            if (transactions > 0)
+                totals.add(new Totals(status.equals(NONE) ? null : status, currency.equals(NONE) ? null : currency, transactions, amount));
+        }));
+        totals.sort(Comparator.comparing(Totals::status, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(Totals::currency, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return new Window(window, Instant.ofEpochMilli(from * bucketMillis), Instant.ofEpochMilli(now), totals);
+    }
+
+    private AtomicReferenceArray<Bucket> ring(String status, String currency) {
+        var byCurrency = rings.get(status);
+        if (byCurrency == null)
+            byCurrency = rings.computeIfAbsent(status, key -> new ConcurrentHashMap<>());
+        final var ring = byCurrency.get(currency);
+        return ring != null ? ring : byCurrency.computeIfAbsent(currency, key -> new AtomicReferenceArray<>(buckets));
+    }
+
+    private long bucketsFor(Duration window) {
+        return (window.toMillis() + bucketMillis - 1) / bucketMillis;
+    }
+}
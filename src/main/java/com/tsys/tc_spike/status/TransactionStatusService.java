@@ -0,0 +1,32 @@
+package com.tsys.tc_spike.status;
+
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.tsys.tc_spike.retry.RetryOnConflict;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+// Status updates arrive in bursts for hot orders, so concurrent updates of the
+// same transaction are common.  Each one reads the transaction and writes it
+// back guarded by its @Version; the loser of a race is retried on the state the
+// winner committed.
+@Service
+public class TransactionStatusService {
+    private final TransactionRepository transactionRepository;
+
+    public TransactionStatusService(TransactionRepository transactionRepository) {
+        this.transactionRepository = transactionRepository;
+    }
+
+    // The updated transaction, or empty when there is no transaction with the id.
+    @RetryOnConflict(maxAttempts = 10)
+    @Transactional
+    public Optional<Transaction> changeStatus(UUID id, String status) {
+        return transactionRepository.findById(id).map(current -> current.status.equals(status)
+                ? current
+                : transactionRepository.saveAndFlush(current.withStatus(status)));
+    }
+}
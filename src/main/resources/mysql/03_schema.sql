@@ -1,3 +1,8 @@
+-- Only transactions is used through JPA, the other tables are written and read
+-- using plain JDBC.  They are mapped all the same, so that Hibernate creates
+-- them in development (ddl-auto=create-drop) and validates them against this
+-- schema in production (ddl-auto=validate).
+
 -- 1.
 CREATE TABLE `transactions` (
   `id` binary(255) NOT NULL,
@@ -7,27 +12,104 @@ CREATE TABLE `transactions` (
   `status` varchar(255) DEFAULT NULL,
   `amount` double DEFAULT NULL,
   `currency` varchar(255) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `transactions_date` (`date`)
+);
+
+-- 2.
+CREATE TABLE `transaction_outbox` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `aggregate_id` varchar(36) NOT NULL,
+  `aggregate_version` bigint NOT NULL,
+  `event_type` varchar(16) NOT NULL,
+  `payload` varchar(2048) NOT NULL,
+  `created_at` datetime(6) DEFAULT NULL,
+  `published_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`id`)
+);
+
+-- 3.
+CREATE TABLE `transaction_events` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `aggregate_id` varchar(36) NOT NULL,
+  `aggregate_sequence` bigint NOT NULL,
+  `status` varchar(255) NOT NULL,
+  `occurred_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `transaction_events_aggregate` (`aggregate_id`, `aggregate_sequence`)
+);
+
+CREATE TABLE `transaction_snapshots` (
+  `aggregate_id` varchar(36) NOT NULL,
+  `aggregate_sequence` bigint NOT NULL,
+  `taken_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`aggregate_id`)
+);
+
+-- 4.
+CREATE TABLE `batch_checkpoints` (
+  `job_name` varchar(100) NOT NULL,
+  `partition_no` int NOT NULL,
+  `partitions` int NOT NULL,
+  `last_key` varchar(36) DEFAULT NULL,
+  `items_read` bigint NOT NULL,
+  `items_written` bigint NOT NULL,
+  `completed` bit(1) NOT NULL,
+  `updated_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`job_name`, `partition_no`)
+);
+
+-- 5.
+CREATE TABLE `transaction_archive_segments` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `from_date` datetime(6) DEFAULT NULL,
+  `to_date` datetime(6) DEFAULT NULL,
+  `transactions_count` int NOT NULL,
+  `id_filter` mediumblob NOT NULL,
+  `order_id_filter` mediumblob NOT NULL,
+  `payload` longblob NOT NULL,
+  `created_at` datetime(6) DEFAULT NULL,
   PRIMARY KEY (`id`)
 );
 
+-- 6.
+CREATE TABLE `transaction_sketches` (
+  `bucket_start_millis` bigint NOT NULL,
+  `node` varchar(36) NOT NULL,
+  `revision` bigint NOT NULL,
+  `writes` bigint NOT NULL,
+  `payload` mediumblob NOT NULL,
+  `updated_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`bucket_start_millis`, `node`)
+);
+
+-- 7.
 desc `transactions`;
 
 -- +----------+--------------+------+-----+---------+-------+
 -- | Field    | Type         | Null | Key | Default | Extra |
 -- +----------+--------------+------+-----+---------+-------+
 -- | id       | binary(255)  | NO   | PRI | NULL    |       |
--- | date     | datetime     | YES  |     | NULL    |       |
+-- | version  | smallint     | NO   |     | NULL    |       |
+-- | date     | datetime     | YES  | MUL | NULL    |       |
 -- | order_id | varchar(255) | YES  |     | NULL    |       |
 -- | status   | varchar(255) | YES  |     | NULL    |       |
 -- | amount   | double       | YES  |     | NULL    |       |
 -- | currency | varchar(255) | YES  |     | NULL    |       |
 -- +----------+--------------+------+-----+---------+-------+
 
+-- 8.
 show tables;
---  +----------------------+
---  | Tables_in_tcspike    |
---  +----------------------+
---  | transactions         |
---  +----------------------+
+--  +------------------------------+
+--  | Tables_in_tcspike            |
+--  +------------------------------+
+--  | batch_checkpoints            |
+--  | transaction_archive_segments |
+--  | transaction_events           |
+--  | transaction_outbox           |
+--  | transaction_sketches         |
+--  | transaction_snapshots        |
+--  | transactions                 |
+--  +------------------------------+
 
 
@@ -1,3 +1,8 @@
+-- Only transactions is used through JPA, the other tables are written and read
+-- using plain JDBC.  They are mapped all the same, so that Hibernate creates
+-- them in development (ddl-auto=create-drop) and validates them against this
+-- schema in production (ddl-auto=validate).
+
 -- 1. Create table transactions
 CREATE TABLE IF NOT EXISTS transactions (
   id uuid NOT NULL,
@@ -9,14 +14,91 @@ CREATE TABLE IF NOT EXISTS transactions (
   currency varchar(255) DEFAULT NULL,
   PRIMARY KEY (id)
 );
+CREATE INDEX IF NOT EXISTS transactions_date ON transactions (date);
+
+-- 2. Create table transaction_outbox, rows are written in the same database
+-- transaction as the transactions they describe and relayed to Kafka.
+CREATE TABLE IF NOT EXISTS transaction_outbox (
+  id bigint GENERATED BY DEFAULT AS IDENTITY,
+  aggregate_id varchar(36) NOT NULL,
+  aggregate_version bigint NOT NULL,
+  event_type varchar(16) NOT NULL,
+  payload varchar(2048) NOT NULL,
+  created_at timestamp DEFAULT NULL,
+  published_at timestamp DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+-- Only unpublished rows are polled by the relay.
+CREATE INDEX IF NOT EXISTS transaction_outbox_unpublished ON transaction_outbox (id) WHERE published_at IS NULL;
+
+-- 3. Create tables transaction_events and transaction_snapshots, the
+-- append-only log of status changes and how far it has been folded into
+-- the transactions rows.
+CREATE TABLE IF NOT EXISTS transaction_events (
+  id bigint GENERATED BY DEFAULT AS IDENTITY,
+  aggregate_id varchar(36) NOT NULL,
+  aggregate_sequence bigint NOT NULL,
+  status varchar(255) NOT NULL,
+  occurred_at timestamp DEFAULT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT transaction_events_aggregate UNIQUE (aggregate_id, aggregate_sequence)
+);
+
+CREATE TABLE IF NOT EXISTS transaction_snapshots (
+  aggregate_id varchar(36) NOT NULL,
+  aggregate_sequence bigint NOT NULL,
+  taken_at timestamp DEFAULT NULL,
+  PRIMARY KEY (aggregate_id)
+);
+
+-- 4. Create table batch_checkpoints, how far each partition of a batch job
+-- has got, so that it can resume after a failure.
+CREATE TABLE IF NOT EXISTS batch_checkpoints (
+  job_name varchar(100) NOT NULL,
+  partition_no integer NOT NULL,
+  partitions integer NOT NULL,
+  last_key varchar(36) DEFAULT NULL,
+  items_read bigint NOT NULL,
+  items_written bigint NOT NULL,
+  completed boolean NOT NULL,
+  updated_at timestamp DEFAULT NULL,
+  PRIMARY KEY (job_name, partition_no)
+);
+
+-- 5. Create table transaction_archive_segments, transactions moved out of
+-- the transactions table, deflated, with Bloom filters of their ids and orderIds.
+CREATE TABLE IF NOT EXISTS transaction_archive_segments (
+  id bigint GENERATED BY DEFAULT AS IDENTITY,
+  from_date timestamp DEFAULT NULL,
+  to_date timestamp DEFAULT NULL,
+  transactions_count integer NOT NULL,
+  id_filter bytea NOT NULL,
+  order_id_filter bytea NOT NULL,
+  payload bytea NOT NULL,
+  created_at timestamp DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+-- 6. Create table transaction_sketches, the deflated sketches (distinct
+-- orderIds, amount quantiles, writes per orderId) of each node per time bucket.
+CREATE TABLE IF NOT EXISTS transaction_sketches (
+  bucket_start_millis bigint NOT NULL,
+  node varchar(36) NOT NULL,
+  revision bigint NOT NULL,
+  writes bigint NOT NULL,
+  payload bytea NOT NULL,
+  updated_at timestamp DEFAULT NULL,
+  PRIMARY KEY (bucket_start_millis, node)
+);
 
--- 2. Describe table transactions
+-- 7. Describe table transactions
 --\d transactions
 
 --                                 Table "public.transactions"
 --    Column  |            Type             | Collation | Nullable |         Default
 --  ----------+-----------------------------+-----------+----------+-------------------------
 --   id       | uuid                        |           | not null |
+--   version  | smallint                    |           | not null |
 --   date     | timestamp without time zone |           |          |
 --   order_id | character varying(255)      |           |          | NULL::character varying
 --   status   | character varying(255)      |           |          | NULL::character varying
@@ -24,13 +106,20 @@ CREATE TABLE IF NOT EXISTS transactions (
 --   currency | character varying(255)      |           |          | NULL::character varying
 --  Indexes:
 --      "transactions_pkey" PRIMARY KEY, btree (id)
+--      "transactions_date" btree (date)
 
--- 3. Show tables in the database
+-- 8. Show tables in the database
 --\dt
---                List of relations
---   Schema |     Name     | Type  |    Owner
---  --------+--------------+-------+-------------
---   public | transactions | table | tcspikeuser
---  (1 row)
+--                          List of relations
+--   Schema |             Name             | Type  |    Owner
+--  --------+------------------------------+-------+-------------
+--   public | batch_checkpoints            | table | tcspikeuser
+--   public | transaction_archive_segments | table | tcspikeuser
+--   public | transaction_events           | table | tcspikeuser
+--   public | transaction_outbox           | table | tcspikeuser
+--   public | transaction_sketches         | table | tcspikeuser
+--   public | transaction_snapshots        | table | tcspikeuser
+--   public | transactions                 | table | tcspikeuser
+--  (7 rows)
 
 
@@ -0,0 +1,99 @@
+package com.tsys.tc_spike.admission;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class AdaptiveConcurrencyLimiterSpecs {
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("reads", 10, 2, 100);
+
+    @Test
+    public void rejectsRequestsOverTheLimit() {
+        for (int i = 0; i < 10; i++)
+            assertThat(limiter.tryAcquire(), is(true));
+
+        assertThat(limiter.tryAcquire(), is(false));
+        assertThat(limiter.rejected(), is(1L));
+        assertThat(limiter.inFlight(), is(10));
+    }
+
+    @Test
+    public void admitsAgainOnceARequestIsReleased() {
+        for (int i = 0; i < 10; i++)
+            limiter.tryAcquire();
+
+        limiter.release(-1, false);
+
+        assertThat(limiter.tryAcquire(), is(true));
+    }
+
+    @Test
+    public void growsWhileTheLatencyHolds() {
+        busy(1 * MILLIS, 200);
+
+        assertThat(limiter.limit(), greaterThan(10));
+    }
+
+    @Test
+    public void keepsTheLimitWhileItIsNotUsed() {
+        for (int i = 0; i < 200; i++) {
+            limiter.tryAcquire();
+            limiter.release(1 * MILLIS, false);
+        }
+
+        assertThat(limiter.limit(), is(10));
+    }
+
+    @Test
+    public void shrinksWhenTheLatencyRises() {
+        busy(1 * MILLIS, 100);
+        final int grown = limiter.limit();
+
+        busy(20 * MILLIS, 50);
+
+        assertThat(limiter.limit(), lessThan(grown / 2));
+    }
+
+    @Test
+    public void backsOffOnDrops() {
+        limiter.tryAcquire();
+        limiter.release(-1, true);
+
+        assertThat(limiter.limit(), is(9));
+        assertThat(limiter.dropped(), is(1L));
+    }
+
+    @Test
+    public void staysWithinItsBounds() {
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(-1, true);
+        }
+        assertThat(limiter.limit(), is(2));
+
+        busy(1 * MILLIS, 2_000);
+        assertThat(limiter.limit(), is(100));
+    }
+
+    @Test
+    public void limitsMustBeOrdered() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter("reads", 1, 2, 100));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter("reads", 10, 0, 100));
+    }
+
+    // Keeps the limiter saturated, releasing one request at a time with the given latency.
+    private void busy(long rttNanos, int samples) {
+        for (int i = 0; i < samples; i++) {
+            while (limiter.tryAcquire()) ;
+            limiter.release(rttNanos, false);
+        }
+    }
+}
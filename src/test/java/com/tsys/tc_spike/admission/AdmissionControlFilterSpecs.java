@@ -0,0 +1,218 @@
+package com.tsys.tc_spike.admission;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Runs App with a small connection pool and endpoints that hold a connection
+// for a while (using a sleeping H2 function), and drives it past saturation.
+//
+// The load test prints goodput (successful requests per second), rejections
+// and the latency of the successful requests for every level of concurrency.
+// The duration of a level can be changed using -Dbenchmark.level-seconds=...
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.hikari.maximum-pool-size=4",
+                "spring.datasource.hikari.connection-timeout=1000",
+                "admission.reads.initial-limit=8",
+                "admission.writes.initial-limit=4",
+                "admission.max-pool-wait-ms=20"})
+@Import(AdmissionControlFilterSpecs.SlowController.class)
+@Tag("End-To-End-Test")
+public class AdmissionControlFilterSpecs {
+    private static final int LEVEL_SECONDS = Integer.getInteger("benchmark.level-seconds", 2);
+    private static final int[] CONCURRENCY = {1, 2, 4, 8, 16, 32, 64, 128};
+
+    @RestController
+    static class SlowController {
+        private final JdbcTemplate jdbcTemplate;
+
+        SlowController(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @GetMapping("/transactions/slow-lookup")
+        public int lookup(@RequestParam int millis) {
+            return jdbcTemplate.queryForObject("SELECT PAUSE(?)", Integer.class, millis);
+        }
+
+        @PostMapping("/transactions/slow-write")
+        public int write(@RequestParam int millis) {
+            return jdbcTemplate.queryForObject("SELECT PAUSE(?)", Integer.class, millis);
+        }
+    }
+
+    // Called by H2 through the PAUSE alias.
+    public static int pause(int millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return millis;
+    }
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private AdaptiveConcurrencyLimiter readLimiter;
+    @Autowired
+    private AdaptiveConcurrencyLimiter writeLimiter;
+    @Autowired
+    private ConnectionPoolSignals connectionPoolSignals;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newCachedThreadPool())
+            .build();
+
+    @BeforeEach
+    public void createPauseFunction() {
+        jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS PAUSE FOR '" + AdmissionControlFilterSpecs.class.getName() + ".pause'");
+    }
+
+    @Test
+    public void rejectsExcessRequestsQuicklyWithRetryAfter() throws Exception {
+        final var executor = Executors.newFixedThreadPool(64);
+        final List<Callable<HttpResponse<String>>> requests = Collections.nCopies(64, () -> send("GET", "/transactions/slow-lookup?millis=300"));
+        final List<Long> rejectionNanos = Collections.synchronizedList(new ArrayList<>());
+        final List<Callable<Void>> timedRequests = new ArrayList<>();
+        for (Callable<HttpResponse<String>> request : requests)
+            timedRequests.add(() -> {
+                final long start = System.nanoTime();
+                final var response = request.call();
+                if (response.statusCode() == 503) {
+                    rejectionNanos.add(System.nanoTime() - start);
+                    assertThat(response.headers().firstValue(HttpHeaders.RETRY_AFTER).orElse(null), is("1"));
+                }
+                return null;
+            });
+
+        for (Future<Void> done : executor.invokeAll(timedRequests))
+            done.get();
+        executor.shutdown();
+
+        assertThat(rejectionNanos, not(empty()));
+        rejectionNanos.forEach(nanos -> assertThat(nanos, lessThan(TimeUnit.MILLISECONDS.toNanos(250))));
+    }
+
+    @Test
+    public void keepsSeparateBudgetsForReadsAndWrites() throws Exception {
+        final var executor = Executors.newFixedThreadPool(64);
+        final List<Future<HttpResponse<String>>> reads = new ArrayList<>();
+        for (int i = 0; i < 64; i++)
+            reads.add(executor.submit(() -> send("GET", "/transactions/slow-lookup?millis=200")));
+        while (readLimiter.inFlight() < readLimiter.limit())
+            Thread.sleep(5);
+
+        final var write = send("POST", "/transactions/slow-write?millis=1");
+
+        assertThat(write.statusCode(), is(200));
+        for (Future<HttpResponse<String>> read : reads)
+            read.get();
+        executor.shutdown();
+    }
+
+    @Test
+    public void goodputHoldsSteadyPastSaturation() throws Exception {
+        double peakGoodput = 0;
+        Level last = null;
+        for (int concurrency : CONCURRENCY) {
+            last = drive(concurrency);
+            peakGoodput = Math.max(peakGoodput, last.goodput());
+            System.out.printf("concurrency=%3d goodput=%6.0f/s rejected=%6.0f/s errors=%d p50=%4d ms p99=%4d ms limit=%d%n",
+                    concurrency, last.goodput(), last.rejectionRate(), last.errors,
+                    last.percentileMillis(50), last.percentileMillis(99), readLimiter.limit());
+        }
+        System.out.println("readLimiter = " + readLimiter);
+        System.out.printf("pool: acquisitions=%d, timeouts=%d, averageWaitMillis=%.2f%n",
+                connectionPoolSignals.acquisitions(), connectionPoolSignals.timeouts(), connectionPoolSignals.averageWaitMillis());
+
+        assertThat(last.errors, is(0L));
+        assertThat(last.goodput(), greaterThan(0.7 * peakGoodput));
+        assertThat(last.percentileMillis(99), lessThan(500L));
+    }
+
+    private record Level(long successes, long rejections, long errors, List<Long> latencies, long elapsedNanos) {
+        double goodput() {
+            return successes * 1e9 / elapsedNanos;
+        }
+
+        double rejectionRate() {
+            return rejections * 1e9 / elapsedNanos;
+        }
+
+        long percentileMillis(int percentile) {
+            if (latencies.isEmpty())
+                return 0;
+            final var sorted = latencies.stream().sorted().toList();
+            return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100)) / 1_000_000;
+        }
+    }
+
+    private Level drive(int concurrency) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        final var successes = new LongAdder();
+        final var rejections = new LongAdder();
+        final var errors = new LongAdder();
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(LEVEL_SECONDS);
+        final List<Callable<Void>> clients = Collections.nCopies(concurrency, () -> {
+            while (System.nanoTime() < deadline) {
+                final long sent = System.nanoTime();
+                final int status = send("GET", "/transactions/slow-lookup?millis=10").statusCode();
+                if (status == 200) {
+                    successes.increment();
+                    latencies.add(System.nanoTime() - sent);
+                } else if (status == 503) {
+                    rejections.increment();
+                    // Clients that honour Retry-After would back off longer, a
+                    // short pause keeps the rejected ones from spinning.
+                    Thread.sleep(5);
+                } else {
+                    errors.increment();
+                }
+            }
+            return null;
+        });
+        for (Future<Void> client : executor.invokeAll(clients))
+            client.get();
+        executor.shutdown();
+        return new Level(successes.sum(), rejections.sum(), errors.sum(), latencies, System.nanoTime() - start);
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        final var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,158 @@
+package com.tsys.tc_spike.archive;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionArchived;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.tsys.tc_spike.repository.TransactionVersion;
+import com.tsys.tc_spike.resource.TransactionVersionCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// OLD transactions dated more than a year ago and RECENT ones dated today; only
+// the old ones are archived, SEGMENT_SIZE at a time.
+@SpringBootTest(properties = "archive.segment-size=" + TransactionArchiverSpecs.SEGMENT_SIZE)
+@RecordApplicationEvents
+@Tag("IntegrationTest")
+public class TransactionArchiverSpecs {
+    static final int SEGMENT_SIZE = 1_000;
+    private static final int OLD = 2_500;
+    private static final int RECENT = 100;
+    private static final Duration MAX_AGE = Duration.ofDays(365);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionArchiver archiver;
+    @Autowired
+    private TransactionArchive archive;
+    @Autowired
+    private TransactionVersionCache versions;
+    @Autowired
+    private ApplicationEvents events;
+
+    private final List<Transaction> old = new ArrayList<>();
+    private final List<Transaction> recent = new ArrayList<>();
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM transaction_archive_segments");
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        archive.refresh();
+        final var longAgo = Instant.now().minus(MAX_AGE).minus(30, ChronoUnit.DAYS);
+        for (int i = 0; i < OLD; i++)
+            old.add(transaction(longAgo.plusSeconds(i), "ARCHIVE-OLD-ORDER-ID-" + i, i));
+        for (int i = 0; i < RECENT; i++)
+            recent.add(transaction(Instant.now().truncatedTo(ChronoUnit.MILLIS), "ARCHIVE-RECENT-ORDER-ID-" + i, i));
+        transactionRepository.insertAllNew(old);
+        transactionRepository.insertAllNew(recent);
+    }
+
+    @Test
+    public void movesOnlyTheAgedTransactionsIntoSegments() {
+        final var summary = archiver.archiveOlderThan(MAX_AGE);
+
+        assertThat(summary.rows(), is((long) OLD));
+        assertThat(summary.segments(), is(3));
+        assertThat(transactionRepository.count(), is((long) RECENT));
+        assertThat(archive.segments(), is(3));
+        assertThat(archiver.archiveOlderThan(MAX_AGE).rows(), is(0L));
+    }
+
+    @Test
+    public void lookupsFallThroughToTheArchive() {
+        archiver.archiveOlderThan(MAX_AGE);
+
+        for (Transaction transaction : List.of(old.get(0), old.get(OLD / 2), old.get(OLD - 1))) {
+            assertThat(transactionRepository.findById(transaction.id), is(Optional.of(transaction)));
+            assertThat(transactionRepository.findByOrderId(transaction.orderId), is(Optional.of(transaction)));
+        }
+        assertThat(transactionRepository.findById(recent.get(0).id).map(t -> t.orderId), is(Optional.of(recent.get(0).orderId)));
+    }
+
+    @Test
+    public void archivedTransactionsStillExist() {
+        archiver.archiveOlderThan(MAX_AGE);
+
+        assertThat(transactionRepository.existsById(old.get(0).id), is(true));
+        assertThat(transactionRepository.existsById(old.get(OLD - 1).id), is(true));
+        assertThat(transactionRepository.existsById(recent.get(0).id), is(true));
+        assertThat(transactionRepository.existsById(UUID.randomUUID()), is(false));
+    }
+
+    @Test
+    public void archivedTransactionsKeepTheirVersion() {
+        final var updated = old.get(OLD / 2);
+        jdbcTemplate.update("UPDATE transactions SET version = 3 WHERE order_id = ?", updated.orderId);
+        assertThat(versions.versionOf(updated.id), is(Optional.of(3L)));
+
+        archiver.archiveOlderThan(MAX_AGE);
+
+        assertThat(transactionRepository.findById(updated.id).map(Transaction::version), is(Optional.of(3L)));
+        assertThat(transactionRepository.findById(old.get(0).id).map(Transaction::version), is(Optional.of(0L)));
+        // Archiving does not change the version, so the cache keeps it.
+        assertThat(versions.versionOf(updated.id), is(Optional.of(3L)));
+        assertThat(versions.versionOfOrder(updated.orderId), is(Optional.of(new TransactionVersion(updated.id, 3L))));
+    }
+
+    @Test
+    public void publishesTheArchivedTransactionsAsArchivedNotChanged() {
+        events.clear();
+
+        archiver.archiveOlderThan(MAX_AGE);
+
+        final Set<UUID> archived = events.stream(TransactionArchived.class)
+                .map(event -> event.transaction().id)
+                .collect(Collectors.toSet());
+        assertThat(archived, is(old.stream().map(t -> t.id).collect(Collectors.toSet())));
+        assertThat(events.stream(TransactionChanged.class).count(), is(0L));
+    }
+
+    @Test
+    public void missesAreMostlyAnsweredByTheBloomFilters() {
+        archiver.archiveOlderThan(MAX_AGE);
+        final long openedBefore = archive.segmentsOpened();
+        final long skippedBefore = archive.segmentsSkipped();
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(transactionRepository.findById(UUID.randomUUID()).isPresent(), is(false));
+            assertThat(transactionRepository.findByOrderId("NEVER-ARCHIVED-ORDER-ID-" + i).isPresent(), is(false));
+        }
+
+        // 2000 lookups over 3 segments, at a false positive probability of 1%.
+        final long opened = archive.segmentsOpened() - openedBefore;
+        final long skipped = archive.segmentsSkipped() - skippedBefore;
+        assertThat(opened, is(lessThanOrEqualTo(3L)));
+        assertThat(skipped, is(greaterThan(5_800L)));
+        System.out.printf("2000 missing lookups skipped %d segments by their Bloom filters%n", skipped);
+    }
+
+    private static Transaction transaction(Instant date, String orderId, int i) {
+        return new Transaction(UUID.randomUUID(), date.truncatedTo(ChronoUnit.MILLIS), i % 2 == 0 ? "accepted" : "failed",
+                orderId, new Money(Currency.getInstance("INR"), i + 0.5));
+    }
+}
@@ -0,0 +1,134 @@
+package com.tsys.tc_spike.batch;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The job bumps the version of every transaction it visits, so a row visited
+// twice (or never) shows in its version.
+@SpringBootTest
+@Tag("IntegrationTest")
+public class ChunkedBatchRunnerSpecs {
+    private static final int ROWS = 1_000;
+    private static final String JOB = "bump-versions";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private ChunkedBatchRunner runner;
+    @Autowired
+    private TransactionChunkReader reader;
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM batch_checkpoints");
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        final List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++)
+            transactions.add(new Transaction(UUID.randomUUID(), Instant.parse("2021-03-17T10:15:30Z"), i % 2 == 0 ? "accepted" : "failed",
+                    "BATCH-ORDER-ID-" + i, new Money(Currency.getInstance("INR"), i)));
+        transactionRepository.insertAllNew(transactions);
+    }
+
+    @Test
+    public void visitsEveryRowExactlyOnceAcrossPartitions() {
+        final var summary = runner.run(bumpVersions(4, null));
+
+        assertThat(summary.itemsRead(), is((long) ROWS));
+        assertThat(summary.itemsWritten(), is((long) ROWS));
+        assertThat(versions(), contains(1L));
+        assertThat(runner.checkpoints().progress(JOB).stream().allMatch(checkpoint -> checkpoint.completed), is(true));
+        assertThat(runner.checkpoints().progress(JOB).stream().mapToLong(checkpoint -> checkpoint.itemsRead).sum(), is((long) ROWS));
+    }
+
+    @Test
+    public void writesOnlyWhatTheProcessorKeeps() {
+        final var job = new BatchJob<>(JOB, reader, (Transaction t) -> "accepted".equals(t.status) ? t.id : null, this::bump, 64, 2);
+
+        final var summary = runner.run(job);
+
+        assertThat(summary.itemsRead(), is((long) ROWS));
+        assertThat(summary.itemsWritten(), is((long) ROWS / 2));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transactions WHERE status = 'accepted' AND version = 1", Long.class),
+                is((long) ROWS / 2));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transactions WHERE status = 'failed' AND version = 0", Long.class),
+                is((long) ROWS / 2));
+    }
+
+    @Test
+    public void resumesAfterTheLastCommittedChunk() {
+        final var chunks = new AtomicInteger();
+        final var failing = bumpVersions(1, ids -> {
+            if (chunks.incrementAndGet() == 5)
+                throw new IllegalStateException("Crashed");
+        });
+
+        final var failure = assertThrows(IllegalStateException.class, () -> runner.run(failing));
+        assertThat(failure.getCause().getMessage(), is("Crashed"));
+        // The four chunks committed before the crash stay, the fifth rolled back.
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transactions WHERE version = 1", Long.class), is(4L * 50));
+        assertThat(runner.checkpoints().progress(JOB).get(0).itemsRead, is(4L * 50));
+
+        final var summary = runner.run(bumpVersions(1, null));
+
+        assertThat(summary.itemsRead(), is((long) ROWS - 4 * 50));
+        assertThat(versions(), contains(1L));
+    }
+
+    @Test
+    public void doesNotRunACompletedJobAgain() {
+        runner.run(bumpVersions(4, null));
+
+        final var again = runner.run(bumpVersions(4, null));
+
+        assertThat(again.itemsRead(), is(0L));
+        assertThat(versions(), contains(1L));
+    }
+
+    @Test
+    public void refusesToResumeWithAnotherNumberOfPartitions() {
+        runner.checkpoints().start(JOB, 4);
+
+        assertThrows(IllegalStateException.class, () -> runner.run(bumpVersions(2, null)));
+
+        runner.checkpoints().reset(JOB);
+        assertThat(runner.run(bumpVersions(2, null)).itemsRead(), is((long) ROWS));
+    }
+
+    private BatchJob<Transaction, UUID> bumpVersions(int partitions, ChunkWriter<UUID> before) {
+        return new BatchJob<>(JOB, reader, t -> t.id, ids -> {
+            if (before != null)
+                before.write(ids);
+            bump(ids);
+        }, 50, partitions);
+    }
+
+    private void bump(List<UUID> ids) {
+        jdbcTemplate.batchUpdate("UPDATE transactions SET version = version + 1 WHERE id = ?",
+                ids.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    private List<Long> versions() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT version FROM transactions", Long.class);
+    }
+}
@@ -0,0 +1,125 @@
+package com.tsys.tc_spike.batch;
+
+import com.tsys.tc_spike.datasource.Workload;
+import com.tsys.tc_spike.domain.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Runs a job over ROWS transactions (10 million by default) in 4 partitions,
+// bumping the version of each chunk in one statement, while sampling the used
+// heap.  Only one chunk per partition is ever held, so the heap stays flat
+// regardless of the number of rows; the throughput and the peak heap used are
+// printed.
+//
+// The number of rows and the chunk size can be changed using
+// -Dbenchmark.rows=... and -Dbenchmark.chunk-size=...
+@SpringBootTest(properties = {
+        "datasource.pools.batch.maximum-pool-size=4",
+        // Seeding the rows takes longer than the default 2 minutes.
+        "datasource.pools.batch.statement-timeout-ms=0"
+})
+@Testcontainers
+@Tag("IntegrationTest")
+public class ChunkedBatchRunnerSpecsUsingPostgresTestContainer {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000_000);
+    private static final int CHUNK_SIZE = Integer.getInteger("benchmark.chunk-size", 5_000);
+    private static final int PARTITIONS = 4;
+    private static final String JOB = "month-end";
+
+    @Container
+    public static JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    @DynamicPropertySource
+    static void registerDatabaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.jpa.database", () -> "POSTGRESQL");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> POSTGRES.getUsername());
+        registry.add("spring.datasource.password", () -> POSTGRES.getPassword());
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ChunkedBatchRunner runner;
+    @Autowired
+    private TransactionChunkReader reader;
+
+    @BeforeEach
+    public void seed() {
+        Workload.BATCH.call(() -> {
+            jdbcTemplate.update("DELETE FROM batch_checkpoints");
+            jdbcTemplate.update("TRUNCATE transactions");
+            return jdbcTemplate.update("INSERT INTO transactions (id, version, date, order_id, status, amount, currency) " +
+                    "SELECT gen_random_uuid(), 0, now(), 'MONTH-END-' || g, 'accepted', g % 1000, 'INR' FROM generate_series(1, ?) g", ROWS);
+        });
+    }
+
+    @Test
+    public void processesAllRowsWithBoundedMemory() throws Exception {
+        final var job = new BatchJob<Transaction, UUID>(JOB, reader, t -> t.id, this::bumpVersions, CHUNK_SIZE, PARTITIONS);
+        final var heap = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        final long baseline = heap.getHeapMemoryUsage().getUsed();
+        final var peak = new AtomicLong(baseline);
+        final var sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak.accumulateAndGet(heap.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+
+        final BatchSummary summary;
+        try {
+            summary = runner.run(job);
+        } finally {
+            sampler.interrupt();
+            sampler.join();
+        }
+
+        assertThat(summary.itemsRead(), is((long) ROWS));
+        assertThat(summary.itemsWritten(), is((long) ROWS));
+        assertThat(Workload.BATCH.call(() -> jdbcTemplate.queryForObject("SELECT count(*) FROM transactions WHERE version = 1", Long.class)),
+                is((long) ROWS));
+        System.out.printf("%s: %d rows in %d chunks over %d partitions in %d ms (%.0f rows/sec), peak heap used %d MB (%d MB before), max heap %d MB%n",
+                JOB, summary.itemsRead(), summary.chunks(), PARTITIONS, summary.elapsedMillis(), summary.itemsPerSecond(),
+                peak.get() >> 20, baseline >> 20, heap.getHeapMemoryUsage().getMax() >> 20);
+    }
+
+    private void bumpVersions(List<UUID> ids) {
+        jdbcTemplate.update(connection -> {
+            final var statement = connection.prepareStatement("UPDATE transactions SET version = version + 1 WHERE id = ANY (?)");
+            statement.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return statement;
+        });
+    }
+}
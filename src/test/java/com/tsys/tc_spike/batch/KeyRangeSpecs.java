@@ -0,0 +1,53 @@
+package com.tsys.tc_spike.batch;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class KeyRangeSpecs {
+
+    @Test
+    public void aSinglePartitionCoversTheWholeKeySpace() {
+        final var ranges = KeyRange.split(1);
+
+        assertThat(ranges, contains(new KeyRange(0, null, null)));
+        assertThat(ranges.get(0).contains(new UUID(0, 0)), is(true));
+        assertThat(ranges.get(0).contains(new UUID(-1, -1)), is(true));
+    }
+
+    @Test
+    public void splitsTheKeySpaceEvenlyAsUnsignedNumbers() {
+        final var ranges = KeyRange.split(4);
+
+        assertThat(ranges, hasSize(4));
+        assertThat(ranges.get(0).from(), is(nullValue()));
+        assertThat(ranges.get(0).to(), is(UUID.fromString("40000000-0000-0000-0000-000000000000")));
+        assertThat(ranges.get(1).to(), is(UUID.fromString("80000000-0000-0000-0000-000000000000")));
+        assertThat(ranges.get(2).to(), is(UUID.fromString("c0000000-0000-0000-0000-000000000000")));
+        assertThat(ranges.get(3).from(), is(UUID.fromString("c0000000-0000-0000-0000-000000000000")));
+        assertThat(ranges.get(3).to(), is(nullValue()));
+    }
+
+    @Test
+    public void everyKeyFallsIntoExactlyOneRange() {
+        final var ranges = KeyRange.split(7);
+
+        for (int i = 0; i < 10_000; i++) {
+            final var key = UUID.randomUUID();
+            assertThat(key.toString(), ranges.stream().filter(range -> range.contains(key)).count(), is(1L));
+        }
+        for (KeyRange range : ranges.subList(1, ranges.size()))
+            assertThat(range.contains(range.from()), is(true));
+    }
+
+    @Test
+    public void rejectsLessThanOnePartition() {
+        assertThrows(IllegalArgumentException.class, () -> KeyRange.split(0));
+    }
+}
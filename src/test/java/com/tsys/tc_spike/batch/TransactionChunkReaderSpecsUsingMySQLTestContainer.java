@@ -0,0 +1,106 @@
+package com.tsys.tc_spike.batch;
+
+import com.tsys.tc_spike.domain.Transaction;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// MySQL stores the ids as binary(255), padded with zeros, so a chunk read after
+// the bare 16 bytes of the last id would start with that very row again.
+@Testcontainers
+@Tag("IntegrationTest")
+public class TransactionChunkReaderSpecsUsingMySQLTestContainer {
+    private static final int ROWS = 1_000;
+    private static final int CHUNK_SIZE = 64;
+
+    @Container
+    private static final MySQLContainer MYSQL = (MySQLContainer) new MySQLContainer(DockerImageName.parse("mysql:8.0.23"))
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("mysql/03_schema.sql")
+            .withCommand("mysqld --transaction_isolation=READ-COMMITTED");
+
+    private static HikariDataSource dataSource;
+    private static TransactionChunkReader reader;
+
+    @BeforeAll
+    public static void seed() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(MYSQL.getJdbcUrl());
+        dataSource.setUsername(MYSQL.getUsername());
+        dataSource.setPassword(MYSQL.getPassword());
+        final var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (id, version, date, order_id, status, amount, currency) VALUES (?, 0, ?, ?, 'accepted', 1.0, 'INR')",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        final var id = UUID.randomUUID();
+                        ps.setBytes(1, ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array());
+                        ps.setTimestamp(2, Timestamp.from(Instant.now()));
+                        ps.setString(3, "CHUNK-ORDER-ID-" + i);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return ROWS;
+                    }
+                });
+        reader = new TransactionChunkReader(jdbcTemplate);
+    }
+
+    @AfterAll
+    public static void close() {
+        dataSource.close();
+    }
+
+    @Test
+    public void readsEveryRowOfARangeExactlyOnce() {
+        for (KeyRange range : KeyRange.split(4)) {
+            final List<UUID> read = new ArrayList<>();
+            List<Transaction> chunk = reader.read(range, null, CHUNK_SIZE);
+            while (!chunk.isEmpty()) {
+                chunk.forEach(t -> read.add(reader.keyOf(t)));
+                chunk = reader.read(range, reader.keyOf(chunk.get(chunk.size() - 1)), CHUNK_SIZE);
+            }
+
+            assertThat(new HashSet<>(read).size(), is(read.size()));
+            assertThat(read.stream().allMatch(range::contains), is(true));
+        }
+    }
+
+    @Test
+    public void readsAllRowsAcrossTheRanges() {
+        long total = 0;
+        for (KeyRange range : KeyRange.split(4)) {
+            List<Transaction> chunk = reader.read(range, null, CHUNK_SIZE);
+            while (!chunk.isEmpty()) {
+                total += chunk.size();
+                chunk = reader.read(range, reader.keyOf(chunk.get(chunk.size() - 1)), CHUNK_SIZE);
+            }
+        }
+
+        assertThat(total, is((long) ROWS));
+    }
+}
@@ -0,0 +1,141 @@
+package com.tsys.tc_spike.binary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionReference;
+import com.tsys.tc_spike.json.TransactionJsonModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+// Compares the size and speed of the binary format with NDJSON for a
+// status-sync stream of TransactionReferences.  The best of several rounds,
+// after warming up, is printed for comparison.
+//
+// The number of references can be changed using -Dbenchmark.rows=...
+@Tag("Benchmark")
+public class TransactionBinaryCodecBenchmarkSpecs {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+    private static final List<String> STATUSES = List.of("accepted", "settled", "failed", "refunded");
+
+    private final ObjectMapper json = JsonMapper.builder()
+            .findAndAddModules()
+            .addModule(new TransactionJsonModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final List<TransactionReference> references = references();
+    // Keeps the JIT from dropping the results of the timed work.
+    private long consumed;
+
+    @Test
+    public void binaryReferencesAreSmallerAndFasterThanJson() throws Exception {
+        final var direct = ByteBuffer.allocateDirect(ROWS * 64);
+        final int binaryBytes = encodeBinary(direct);
+        final byte[] ndjson = encodeJson();
+
+        direct.flip();
+        final var decoder = new TransactionBinaryDecoder();
+        decoder.readHeader(direct);
+        for (TransactionReference reference : references)
+            assertThat(decoder.decodeReference(direct), is(reference));
+        assertThat(binaryBytes, lessThan(ndjson.length));
+
+        final long binaryEncodeNanos = time(() -> encodeBinary(direct));
+        final long jsonEncodeNanos = time(() -> encodeJson().length);
+        final long binaryDecodeNanos = time(() -> decodeBinary(direct));
+        final long jsonDecodeNanos = time(() -> decodeJson(ndjson));
+
+        System.out.printf("%d references: binary = %d bytes (%.1f/ref), NDJSON = %d bytes (%.1f/ref), %.1fx smaller%n",
+                ROWS, binaryBytes, (double) binaryBytes / ROWS, ndjson.length, (double) ndjson.length / ROWS,
+                (double) ndjson.length / binaryBytes);
+        System.out.printf("Encoding: binary = %d ms, JSON = %d ms (%.1fx)%n",
+                binaryEncodeNanos / 1_000_000, jsonEncodeNanos / 1_000_000, (double) jsonEncodeNanos / binaryEncodeNanos);
+        System.out.printf("Decoding: binary = %d ms, JSON = %d ms (%.1fx)%n",
+                binaryDecodeNanos / 1_000_000, jsonDecodeNanos / 1_000_000, (double) jsonDecodeNanos / binaryDecodeNanos);
+    }
+
+    private int encodeBinary(ByteBuffer buffer) {
+        buffer.clear();
+        final var encoder = new TransactionBinaryEncoder();
+        encoder.writeHeader(buffer, true);
+        for (TransactionReference reference : references)
+            encoder.encode(reference, buffer);
+        return buffer.position();
+    }
+
+    private int decodeBinary(ByteBuffer buffer) {
+        buffer.rewind();
+        final var decoder = new TransactionBinaryDecoder();
+        decoder.readHeader(buffer);
+        int decoded = 0;
+        for (int i = 0; i < ROWS; i++)
+            decoded += decoder.decodeReference(buffer).status.length();
+        return decoded;
+    }
+
+    private byte[] encodeJson() {
+        try {
+            final var out = new ByteArrayOutputStream(ROWS * 100);
+            final var writer = json.writerFor(TransactionReference.class).withRootValueSeparator("\n");
+            try (var sequence = writer.writeValues(out)) {
+                for (TransactionReference reference : references)
+                    sequence.write(reference);
+            }
+            return out.toByteArray();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int decodeJson(byte[] ndjson) {
+        try (var iterator = json.readerFor(TransactionReference.class).<TransactionReference>readValues(ndjson)) {
+            int decoded = 0;
+            while (iterator.hasNext())
+                decoded += iterator.next().status.length();
+            return decoded;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<TransactionReference> references() {
+        final var start = Instant.parse("2021-03-01T00:00:00Z");
+        final List<TransactionReference> references = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++)
+            references.add(new Transaction(UUID.randomUUID(), start.plus(Duration.ofMillis(i * 1_234L)),
+                    STATUSES.get(i % STATUSES.size()), "ORDER-" + i,
+                    new Money(Currency.getInstance("INR"), i / 100d)).reference());
+        return references;
+    }
+
+    private long time(IntSupplier work) {
+        for (int round = 0; round < WARM_UP_ROUNDS; round++)
+            consumed += work.getAsInt();
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = System.nanoTime();
+            consumed += work.getAsInt();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,146 @@
+package com.tsys.tc_spike.binary;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class TransactionBinaryCodecSpecs {
+    private final TransactionBinaryEncoder encoder = new TransactionBinaryEncoder();
+    private final TransactionBinaryDecoder decoder = new TransactionBinaryDecoder();
+    private final Transaction transaction = aTransaction("accepted", "INR", 2000.45);
+
+    @Test
+    public void roundTripsTransactions() {
+        final var buffer = ByteBuffer.allocate(1024);
+        encoder.writeHeader(buffer, false);
+        encoder.encode(transaction, buffer);
+        buffer.flip();
+
+        assertThat(decoder.readHeader(buffer), is(false));
+        assertThat(decoder.decodeTransaction(buffer), is(transaction));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void roundTripsTransactionReferencesThroughDirectBuffers() {
+        final var buffer = ByteBuffer.allocateDirect(1024);
+        encoder.writeHeader(buffer, true);
+        encoder.encode(transaction.reference(), buffer);
+        encoder.encodeReference(transaction, buffer);
+        buffer.flip();
+
+        assertThat(decoder.readHeader(buffer), is(true));
+        assertThat(decoder.decodeReference(buffer), is(transaction.reference()));
+        assertThat(decoder.decodeReference(buffer), is(transaction.reference()));
+    }
+
+    @Test
+    public void aReferenceTakesTwentyFiveBytesOnceItsStatusIsDefined() {
+        final var buffer = ByteBuffer.allocate(1024);
+        encoder.encode(transaction.reference(), buffer);
+        final int first = buffer.position();
+        encoder.encode(transaction.reference(), buffer);
+
+        assertThat(first, is(16 + 8 + 1 + 1 + "accepted".length()));
+        assertThat(buffer.position() - first, is(16 + 8 + 1));
+    }
+
+    @Test
+    public void definesEachStatusOnce() {
+        final var transactions = List.of(aTransaction("accepted", "INR", 1d), aTransaction("failed", "INR", 2d),
+                aTransaction("accepted", "INR", 3d), aTransaction("failed", "INR", 4d));
+        final var buffer = ByteBuffer.allocate(1024);
+        transactions.forEach(t -> encoder.encode(t, buffer));
+        buffer.flip();
+
+        transactions.forEach(t -> assertThat(decoder.decodeTransaction(buffer), is(t)));
+    }
+
+    @Test
+    public void roundTripsAmountsThatAreNotExactInMinorUnits() {
+        for (double amount : new double[]{0.1 + 0.2, 1e-9, 123456789.123, -42.5, 1e15, 0d}) {
+            for (String currency : List.of("INR", "JPY", "BHD", "XAU")) {
+                final var buffer = ByteBuffer.allocate(1024);
+                final var original = aTransaction("accepted", currency, amount);
+                new TransactionBinaryEncoder().encode(original, buffer);
+                buffer.flip();
+
+                assertThat(new TransactionBinaryDecoder().decodeTransaction(buffer).value.amount, is(amount));
+            }
+        }
+    }
+
+    @Test
+    public void roundTripsNonAsciiOrderIdsAndDatesBeforeTheEpoch() {
+        final var original = new Transaction(UUID.randomUUID(), Instant.parse("1969-07-20T20:17:40.123456789Z"), "accepted",
+                "ORDER-ü-€-💳", new Money(Currency.getInstance("EUR"), 10.5));
+        final var buffer = ByteBuffer.allocateDirect(1024);
+        encoder.encode(original, buffer);
+        buffer.flip();
+
+        assertThat(decoder.decodeTransaction(buffer), is(original));
+    }
+
+    @Test
+    public void rejectsStreamsInAnotherFormat() {
+        assertThrows(IllegalArgumentException.class, () -> decoder.readHeader(ByteBuffer.wrap("{\"id\":1}".getBytes())));
+    }
+
+    @Test
+    public void rejectsUndefinedStatusCodes() {
+        final var buffer = ByteBuffer.allocate(64);
+        buffer.putLong(1).putLong(2).putLong(3).put((byte) 5);
+        buffer.flip();
+
+        assertThrows(IllegalArgumentException.class, () -> decoder.decodeReference(buffer));
+    }
+
+    @Test
+    public void rejectsNegativeStatusCodes() {
+        final var buffer = ByteBuffer.allocate(64);
+        buffer.putLong(1).putLong(2).putLong(3)
+                .put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0x0F);
+        buffer.flip();
+
+        assertThrows(IllegalArgumentException.class, () -> decoder.decodeReference(buffer));
+    }
+
+    @Test
+    public void rejectsStringsLongerThanTheBuffer() {
+        for (var buffer : List.of(ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64))) {
+            // A new status of 100 bytes, of which only 2 follow.
+            buffer.putLong(1).putLong(2).putLong(3).put((byte) 0).put((byte) 100).put((byte) 'o').put((byte) 'k');
+            buffer.flip();
+
+            assertThrows(BufferUnderflowException.class, () -> new TransactionBinaryDecoder().decodeReference(buffer));
+        }
+    }
+
+    @Test
+    public void rejectsNegativeStringLengths() {
+        final var buffer = ByteBuffer.allocate(64);
+        buffer.putLong(1).putLong(2).putLong(3).put((byte) 0)
+                .put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0x0F);
+        buffer.flip();
+
+        assertThrows(BufferUnderflowException.class, () -> decoder.decodeReference(buffer));
+    }
+
+    private static Transaction aTransaction(String status, String currency, double amount) {
+        return new Transaction(UUID.randomUUID(), Instant.parse("2021-03-17T10:15:30.5Z"), status, "ORDER-1",
+                new Money(Currency.getInstance(currency), amount));
+    }
+}
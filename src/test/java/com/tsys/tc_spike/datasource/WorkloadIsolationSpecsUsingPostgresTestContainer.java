@@ -0,0 +1,202 @@
+package com.tsys.tc_spike.datasource;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import com.tsys.tc_spike.repository.TransactionCursor;
+import com.tsys.tc_spike.repository.TransactionFilter;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Runs the whole application against Postgres with small pools, so a handful
+// of concurrent exports saturate the reporting pool.  OLTP lookups must not
+// queue behind them: their p99 is measured alone and then while the exports
+// run, and both are printed.
+//
+// The number of rows can be changed using -Dbenchmark.rows=...
+@SpringBootTest(properties = {
+        "datasource.pools.oltp.maximum-pool-size=4",
+        "datasource.pools.oltp.statement-timeout-ms=1000",
+        "datasource.pools.reporting.maximum-pool-size=2",
+        "datasource.pools.reporting.statement-timeout-ms=300000",
+        "datasource.pools.batch.maximum-pool-size=2",
+        "datasource.pools.batch.statement-timeout-ms=120000"
+})
+@Testcontainers
+@Import(WorkloadIsolationSpecsUsingPostgresTestContainer.WorkloadRecorder.class)
+@Tag("IntegrationTest")
+public class WorkloadIsolationSpecsUsingPostgresTestContainer {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 500_000);
+    private static final int EXPORTS = 4;
+    private static final int LOOKUPS = 2_000;
+
+    @Container
+    public static JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    @DynamicPropertySource
+    static void registerDatabaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.jpa.database", () -> "POSTGRESQL");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> POSTGRES.getUsername());
+        registry.add("spring.datasource.password", () -> POSTGRES.getPassword());
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    // Records the workload that was current when a change was flushed, that is,
+    // the pool the repository call ran its transaction on.
+    @TestConfiguration
+    static class WorkloadRecorder {
+        final Map<String, Workload> workloads = new ConcurrentHashMap<>();
+
+        @EventListener
+        public void on(TransactionChanged event) {
+            workloads.put(event.transaction().orderId, Workload.current());
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionCursor transactionCursor;
+    @Autowired
+    private WorkloadRecorder workloadRecorder;
+    @Autowired
+    private HikariDataSource reportingDataSource;
+
+    @BeforeEach
+    public void seed() {
+        if (count() == ROWS)
+            return;
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("INSERT INTO transactions (id, version, date, order_id, status, amount, currency) " +
+                "SELECT gen_random_uuid(), 0, timestamp '2021-03-01' + g * interval '1 second', 'ORDER-' || g, " +
+                "'accepted', g % 1000, 'INR' FROM generate_series(1, ?) AS g", ROWS);
+        jdbcTemplate.update("CREATE INDEX IF NOT EXISTS transactions_order_id ON transactions (order_id)");
+        jdbcTemplate.execute("ANALYZE transactions");
+    }
+
+    @Test
+    public void eachPoolSetsItsOwnStatementTimeout() {
+        assertThat(jdbcTemplate.queryForObject("SHOW statement_timeout", String.class), is("1s"));
+        assertThat(Workload.REPORTING.call(() -> jdbcTemplate.queryForObject("SHOW statement_timeout", String.class)), is("5min"));
+        assertThat(Workload.BATCH.call(() -> jdbcTemplate.queryForObject("SHOW statement_timeout", String.class)), is("2min"));
+    }
+
+    @Test
+    public void cancelsOltpStatementsThatOutliveTheirTimeoutButNotReportingOnes() {
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.execute("SELECT pg_sleep(1.5)"));
+
+        Workload.REPORTING.call(() -> {
+            jdbcTemplate.execute("SELECT pg_sleep(1.5)");
+            return null;
+        });
+    }
+
+    @Test
+    public void runsRepositoryCallsOnThePoolOfTheirWorkload() {
+        transactionRepository.save(aTransaction("ORDER-OLTP"));
+        transactionRepository.insertAllNew(List.of(aTransaction("ORDER-BATCH")));
+
+        assertThat(workloadRecorder.workloads.get("ORDER-OLTP"), is(Workload.OLTP));
+        assertThat(workloadRecorder.workloads.get("ORDER-BATCH"), is(Workload.BATCH));
+
+        transactionRepository.deleteAll(transactionRepository.findAllByOrderIds(List.of("ORDER-OLTP", "ORDER-BATCH")));
+    }
+
+    @Test
+    public void oltpLatencyStaysFlatWhileExportsSaturateTheReportingPool() throws Exception {
+        final long[] baseline = lookups(LOOKUPS);
+
+        final var executor = Executors.newFixedThreadPool(EXPORTS);
+        final List<CompletableFuture<Long>> exports = new ArrayList<>();
+        for (int i = 0; i < EXPORTS; i++)
+            exports.add(CompletableFuture.supplyAsync(() -> transactionCursor.stream(TransactionFilter.ALL).count().block(), executor));
+        final var allExports = CompletableFuture.allOf(exports.toArray(CompletableFuture[]::new));
+
+        // Wait until the exports hold every reporting connection before measuring.
+        while (reportingDataSource.getHikariPoolMXBean() == null
+                || reportingDataSource.getHikariPoolMXBean().getActiveConnections() < reportingDataSource.getMaximumPoolSize())
+            Thread.sleep(1);
+        final long[] underLoad = lookups(LOOKUPS);
+        final boolean overlapped = !allExports.isDone();
+
+        allExports.get(10, TimeUnit.MINUTES);
+        executor.shutdown();
+        for (CompletableFuture<Long> export : exports)
+            assertThat(export.get(), is((long) ROWS));
+
+        final long baselineP99 = percentile(baseline, 0.99);
+        final long underLoadP99 = percentile(underLoad, 0.99);
+        System.out.printf("findByOrderId over %d rows: p50 = %d µs, p99 = %d µs alone; p50 = %d µs, p99 = %d µs during %d exports%n",
+                ROWS, percentile(baseline, 0.5) / 1000, baselineP99 / 1000,
+                percentile(underLoad, 0.5) / 1000, underLoadP99 / 1000, EXPORTS);
+
+        assertThat(overlapped, is(true));
+        assertThat(underLoadP99, lessThanOrEqualTo(Math.max(3 * baselineP99, baselineP99 + 20_000_000L)));
+    }
+
+    private long[] lookups(int n) {
+        final long[] latencies = new long[n];
+        for (int i = 0; i < n; i++) {
+            final var orderId = "ORDER-" + (1 + (i * 7919L) % ROWS);
+            final long start = System.nanoTime();
+            assertThat(transactionRepository.findByOrderId(orderId).isPresent(), is(true));
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] latencies, double percentile) {
+        final long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private long count() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM transactions", Long.class);
+    }
+
+    private Transaction aTransaction(String orderId) {
+        return new Transaction(UUID.randomUUID(), Instant.now(), "accepted", orderId, new Money(Currency.getInstance("INR"), 100d));
+    }
+}
@@ -0,0 +1,99 @@
+package com.tsys.tc_spike.deadline;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Tag("End-To-End-Test")
+public class DeadlinePropagationSpecs {
+    private static final String HEADER = "X-Request-Timeout-Ms";
+    private static final String FIND_BY_ORDER_ID = "TransactionRepository.findByOrderId";
+
+    private final String orderId = "DEADLINE-ORDER-ID-1";
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private DeadlineMetrics deadlineMetrics;
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        transactionRepository.save(new Transaction(UUID.randomUUID(), Instant.now(), "accepted", orderId,
+                new Money(Currency.getInstance("INR"), 100d)));
+    }
+
+    @Test
+    public void answersWithinTheBudgetTheClientAsksFor() {
+        webTestClient.get().uri("/transactions/by-order/{orderId}", orderId)
+                .header(HEADER, "5000")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.orderId").isEqualTo(orderId);
+    }
+
+    @Test
+    public void answersGatewayTimeoutWithoutQueryingWhenTheBudgetIsTooSmall() {
+        final long skippedBefore = deadlineMetrics.skippedCount(FIND_BY_ORDER_ID);
+
+        webTestClient.get().uri("/transactions/by-order/{orderId}", orderId)
+                .header(HEADER, "1")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        assertThat(deadlineMetrics.skippedCount(FIND_BY_ORDER_ID), is(skippedBefore + 1));
+    }
+
+    // The statement is cancelled on the database by its query timeout, rather
+    // than left to run after the caller has given up.
+    @Test
+    public void cancelsStatementsThatRunPastTheDeadline() {
+        final long start = System.nanoTime();
+        try (var ignored = Deadline.after(Duration.ofMillis(500)).enter()) {
+            assertThrows(QueryTimeoutException.class,
+                    () -> jdbcTemplate.queryForObject("SELECT SUM(X) FROM SYSTEM_RANGE(1, 100000000000)", Long.class));
+        }
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis, lessThan(3_000L));
+    }
+
+    @Test
+    public void createsNoStatementOnceTheDeadlineHasPassed() {
+        final var deadline = Deadline.after(Duration.ofMillis(-1));
+        try (var ignored = deadline.enter()) {
+            assertThrows(QueryTimeoutException.class, () -> jdbcTemplate.queryForObject("SELECT 1", Integer.class));
+        }
+    }
+
+    @Test
+    public void leavesWorkWithoutADeadlineUnbounded() {
+        assertThat(Deadline.current(), nullValue());
+        assertThat(transactionRepository.findByOrderId(orderId).isPresent(), is(true));
+    }
+}
@@ -0,0 +1,150 @@
+package com.tsys.tc_spike.deadline;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class DeadlineSpecs {
+    interface Lookups {
+        String find(String key);
+    }
+
+    private final DeadlineMetrics metrics = new DeadlineMetrics();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void restoresThePreviousDeadlineOnClose() {
+        final var outer = Deadline.after(Duration.ofSeconds(10));
+        try (var ignored = outer.enter()) {
+            try (var alsoIgnored = Deadline.after(Duration.ofSeconds(1)).enter()) {
+                assertThat(Deadline.current(), not(sameInstance(outer)));
+            }
+            assertThat(Deadline.current(), sameInstance(outer));
+        }
+        assertThat(Deadline.current(), nullValue());
+    }
+
+    @Test
+    public void roundsTheRemainingTimeUpToWholeSeconds() {
+        assertThat(Deadline.after(Duration.ofMillis(300)).remainingSecondsRoundedUp(), is(1));
+        assertThat(Deadline.after(Duration.ofMillis(2500)).remainingSecondsRoundedUp(), is(3));
+        // Never 0, which JDBC takes for no timeout at all.
+        assertThat(Deadline.after(Duration.ofMillis(-1)).remainingSecondsRoundedUp(), is(1));
+    }
+
+    @Test
+    public void takesTheBudgetFromTheHeaderCappedAtTheMaximum() {
+        final var filter = new DeadlineFilter("X-Request-Timeout-Ms", Duration.ofSeconds(2), Duration.ofSeconds(30), Set.of());
+
+        assertThat(filter.budget("500"), is(Duration.ofMillis(500)));
+        assertThat(filter.budget("600000"), is(Duration.ofSeconds(30)));
+        assertThat(filter.budget(null), is(Duration.ofSeconds(2)));
+        assertThat(filter.budget("0"), is(Duration.ofSeconds(2)));
+        assertThat(filter.budget("soon"), is(Duration.ofSeconds(2)));
+    }
+
+    @Test
+    public void passesCallsWithoutADeadlineThrough() {
+        assertThat(lookups(key -> "found " + key).find("A"), is("found A"));
+        assertThat(metrics.exceeded(), is(anEmptyMap()));
+    }
+
+    @Test
+    public void skipsCallsWhenTooLittleOfTheDeadlineIsLeft() {
+        final var lookups = lookups(key -> "found " + key);
+
+        try (var ignored = Deadline.after(Duration.ofMillis(5)).enter()) {
+            assertThrows(DeadlineExceededException.class, () -> lookups.find("A"));
+        }
+
+        assertThat(calls.get(), is(0));
+        assertThat(metrics.skippedCount("Lookups.find"), is(1L));
+        assertThat(metrics.cancelledCount("Lookups.find"), is(0L));
+    }
+
+    @Test
+    public void countsCallsCancelledByTheirQueryTimeout() {
+        final var lookups = lookups(key -> {
+            sleep(Duration.ofMillis(150));
+            throw new QueryTimeoutException("canceling statement due to user request");
+        });
+
+        try (var ignored = Deadline.after(Duration.ofMillis(100)).enter()) {
+            final var e = assertThrows(DeadlineExceededException.class, () -> lookups.find("A"));
+            assertThat(e.getCause(), instanceOf(QueryTimeoutException.class));
+        }
+
+        assertThat(metrics.cancelledCount("Lookups.find"), is(1L));
+        assertThat(metrics.exceeded(), is(Map.of("Lookups.find", 1L)));
+    }
+
+    @Test
+    public void leavesOtherFailuresAloneWhileTheDeadlineHolds() {
+        final var lookups = lookups(key -> {
+            throw new DataIntegrityViolationException("duplicate key");
+        });
+
+        try (var ignored = Deadline.after(Duration.ofSeconds(1)).enter()) {
+            assertThrows(DataIntegrityViolationException.class, () -> lookups.find("A"));
+        }
+
+        assertThat(metrics.exceeded(), is(anEmptyMap()));
+    }
+
+    @Test
+    public void leavesTimeoutsAloneWhileTheDeadlineHolds() {
+        final var lookups = lookups(key -> {
+            throw new QueryTimeoutException("canceling statement due to statement timeout");
+        });
+
+        try (var ignored = Deadline.after(Duration.ofSeconds(10)).enter()) {
+            assertThrows(QueryTimeoutException.class, () -> lookups.find("A"));
+        }
+
+        assertThat(metrics.exceeded(), is(anEmptyMap()));
+    }
+
+    @Test
+    public void leavesOtherFailuresAloneOnceTheDeadlineHasPassed() {
+        final var lookups = lookups(key -> {
+            sleep(Duration.ofMillis(150));
+            throw new DataIntegrityViolationException("duplicate key");
+        });
+
+        try (var ignored = Deadline.after(Duration.ofMillis(100)).enter()) {
+            assertThrows(DataIntegrityViolationException.class, () -> lookups.find("A"));
+        }
+
+        assertThat(metrics.exceeded(), is(anEmptyMap()));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Lookups lookups(Lookups target) {
+        final var proxyFactory = new ProxyFactory((Lookups) key -> {
+            calls.incrementAndGet();
+            return target.find(key);
+        });
+        proxyFactory.addInterface(Lookups.class);
+        proxyFactory.addAdvice(new DeadlineInterceptor("Lookups", metrics, 20));
+        return (Lookups) proxyFactory.getProxy();
+    }
+}
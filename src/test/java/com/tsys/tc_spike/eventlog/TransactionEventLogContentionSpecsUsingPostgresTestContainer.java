@@ -0,0 +1,136 @@
+package com.tsys.tc_spike.eventlog;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.tsys.tc_spike.status.TransactionStatusService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Several threads change the status of one hot transaction at once, first by
+// updating the row in place (load, change and save, retried on optimistic lock
+// conflicts) and then by appending to the event log.  The throughput of both is
+// printed; the appends must all succeed, and folding them must leave the row
+// with the status of the last one.
+//
+// The number of threads and changes per thread can be changed using
+// -Dbenchmark.threads=... and -Dbenchmark.updates=...
+@SpringBootTest(properties = "eventlog.snapshotter.enabled=false")
+@Testcontainers
+@Tag("IntegrationTest")
+public class TransactionEventLogContentionSpecsUsingPostgresTestContainer {
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int UPDATES = Integer.getInteger("benchmark.updates", 100);
+
+    @Container
+    public static JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    @DynamicPropertySource
+    static void registerDatabaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.jpa.database", () -> "POSTGRESQL");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> POSTGRES.getUsername());
+        registry.add("spring.datasource.password", () -> POSTGRES.getPassword());
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    private final UUID id = UUID.nameUUIDFromBytes("EVENTLOG-HOT-TXNID-1".getBytes());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionStatusService transactionStatusService;
+    @Autowired
+    private TransactionEventLog eventLog;
+    @Autowired
+    private TransactionSnapshotter snapshotter;
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM transaction_events");
+        jdbcTemplate.update("DELETE FROM transaction_snapshots");
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        transactionRepository.save(new Transaction(id, Instant.parse("2021-03-17T10:15:30Z"), "accepted", "EVENTLOG-HOT-ORDER-ID-1",
+                new Money(Currency.getInstance("INR"), 2000.45)));
+    }
+
+    @Test
+    public void measuresAppendsAgainstUpdatesInPlaceUnderContention() throws Exception {
+        final var gaveUp = new LongAdder();
+        final long updateNanos = concurrently((thread, i) -> {
+            try {
+                transactionStatusService.changeStatus(id, "status-" + thread + "-" + i);
+            } catch (OptimisticLockingFailureException e) {
+                gaveUp.increment();
+            }
+        });
+        final long updated = THREADS * UPDATES - gaveUp.sum();
+
+        final long appendNanos = concurrently((thread, i) -> eventLog.append(id, "status-" + thread + "-" + i));
+        final var history = eventLog.history(id);
+        final var last = history.get(history.size() - 1);
+
+        assertThat(history, hasSize(THREADS * UPDATES));
+        assertThat(last.aggregateSequence, is((long) THREADS * UPDATES));
+        assertThat(snapshotter.snapshot(), is(1L));
+        assertThat(transactionRepository.findById(id).map(t -> t.status).orElse(null), is(last.status));
+
+        System.out.printf("%d threads x %d status changes of one transaction: update in place = %.0f/sec (%d gave up), append = %.0f/sec%n",
+                THREADS, UPDATES, updated * 1e9 / updateNanos, gaveUp.sum(), history.size() * 1e9 / appendNanos);
+    }
+
+    private interface Change {
+        void apply(int thread, int i);
+    }
+
+    private static long concurrently(Change change) throws Exception {
+        final List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            workers.add(() -> {
+                for (int i = 0; i < UPDATES; i++)
+                    change.apply(thread, i);
+                return null;
+            });
+        }
+        final var executor = Executors.newFixedThreadPool(THREADS);
+        final long start = System.nanoTime();
+        for (Future<Void> done : executor.invokeAll(workers))
+            done.get();
+        final long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+        return elapsedNanos;
+    }
+}
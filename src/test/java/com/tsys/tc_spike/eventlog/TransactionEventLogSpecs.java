@@ -0,0 +1,171 @@
+package com.tsys.tc_spike.eventlog;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.outbox.OutboxWriter;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// The snapshotter is disabled, so the specs decide when the events are folded.
+// The OutboxWriter is imported without a relay, to see the folds recorded.
+@SpringBootTest(properties = "eventlog.snapshotter.enabled=false")
+@Import(OutboxWriter.class)
+@Tag("IntegrationTest")
+public class TransactionEventLogSpecs {
+    private static final int THREADS = 8;
+    private static final int APPENDS = 25;
+
+    private final UUID id = UUID.nameUUIDFromBytes("EVENTLOG-TXNID-1".getBytes());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionEventLog eventLog;
+    @Autowired
+    private TransactionSnapshotter snapshotter;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM transaction_events");
+        jdbcTemplate.update("DELETE FROM transaction_snapshots");
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        transactionRepository.save(new Transaction(id, Instant.parse("2021-03-17T10:15:30Z"), "accepted", "EVENTLOG-ORDER-ID-1",
+                new Money(Currency.getInstance("INR"), 2000.45)));
+    }
+
+    @Test
+    public void numbersTheEventsOfATransactionInOrder() {
+        eventLog.append(id, "authorised");
+        eventLog.append(id, "settled");
+        eventLog.append(UUID.randomUUID(), "settled");
+
+        final var history = eventLog.history(id);
+        assertThat(history.stream().map(event -> event.aggregateSequence).toList(), contains(1L, 2L));
+        assertThat(history.stream().map(event -> event.status).toList(), contains("authorised", "settled"));
+    }
+
+    @Test
+    public void appendsWithoutTouchingTheRow() {
+        eventLog.append(id, "settled");
+
+        final var row = transactionRepository.findById(id).orElseThrow();
+        assertThat(row.status, is("accepted"));
+        assertThat(row.version(), is(0L));
+    }
+
+    @Test
+    public void readsTheSnapshotWithTheTailApplied() {
+        eventLog.append(id, "authorised");
+        eventLog.append(id, "settled");
+
+        assertThat(eventLog.current(id).map(t -> t.status).orElse(null), is("settled"));
+        assertThat(eventLog.tail(id), hasSize(2));
+    }
+
+    @Test
+    public void readsTheSnapshotAsIsWithoutEvents() {
+        assertThat(eventLog.current(id).map(t -> t.status).orElse(null), is("accepted"));
+        assertThat(eventLog.current(UUID.randomUUID()).isPresent(), is(false));
+    }
+
+    @Test
+    public void foldsTheLatestEventIntoTheRow() {
+        eventLog.append(id, "authorised");
+        eventLog.append(id, "settled");
+
+        assertThat(snapshotter.snapshot(), is(1L));
+
+        final var row = transactionRepository.findById(id).orElseThrow();
+        assertThat(row.status, is("settled"));
+        assertThat(row.version(), is(1L));
+        assertThat(eventLog.tail(id), is(empty()));
+        assertThat(eventLog.history(id), hasSize(2));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transaction_outbox WHERE event_type = 'UPDATED' AND aggregate_version = 1", Long.class), is(1L));
+    }
+
+    @Test
+    public void foldsOnlyTheEventsAppendedSinceTheLastSnapshot() {
+        eventLog.append(id, "settled");
+        snapshotter.snapshot();
+        eventLog.append(id, "refunded");
+
+        assertThat(eventLog.tail(id).stream().map(event -> event.aggregateSequence).toList(), contains(2L));
+        assertThat(eventLog.current(id).map(t -> t.status).orElse(null), is("refunded"));
+
+        assertThat(snapshotter.snapshot(), is(1L));
+        assertThat(snapshotter.snapshot(), is(0L));
+        assertThat(transactionRepository.findById(id).map(Transaction::version).orElse(null), is(2L));
+    }
+
+    @Test
+    public void scansOnlyTheEventsAfterTheHighWaterMark() {
+        final var withoutGrace = new TransactionSnapshotter(jdbcTemplate, transactionTemplate, transactionRepository, 500, Duration.ZERO);
+        eventLog.append(id, "settled");
+        assertThat(withoutGrace.snapshot(), is(1L));
+        assertThat(withoutGrace.foldedUpTo(), is(jdbcTemplate.queryForObject("SELECT MAX(id) FROM transaction_events", Long.class)));
+
+        // Forgetting the positions makes no difference to events below the mark.
+        jdbcTemplate.update("DELETE FROM transaction_snapshots");
+        assertThat(withoutGrace.snapshot(), is(0L));
+
+        eventLog.append(id, "refunded");
+        assertThat(withoutGrace.snapshot(), is(1L));
+        assertThat(transactionRepository.findById(id).map(t -> t.status).orElse(null), is("refunded"));
+    }
+
+    @Test
+    public void recordsTheEventsOfUnknownTransactionsAsFolded() {
+        final var unknown = UUID.randomUUID();
+        eventLog.append(unknown, "settled");
+
+        assertThat(snapshotter.snapshot(), is(1L));
+        assertThat(eventLog.tail(unknown), is(empty()));
+        assertThat(transactionRepository.findById(unknown).isPresent(), is(false));
+    }
+
+    @Test
+    public void concurrentAppendsTakeContiguousSequences() throws Exception {
+        final List<Callable<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            writers.add(() -> {
+                for (int i = 0; i < APPENDS; i++)
+                    eventLog.append(id, "status-" + thread + "-" + i);
+                return null;
+            });
+        }
+        final var executor = Executors.newFixedThreadPool(THREADS);
+        for (Future<Void> done : executor.invokeAll(writers))
+            done.get();
+        executor.shutdown();
+
+        final var sequences = eventLog.history(id).stream().map(event -> event.aggregateSequence).toList();
+        assertThat(sequences, is(LongStream.rangeClosed(1, THREADS * APPENDS).boxed().toList()));
+    }
+}
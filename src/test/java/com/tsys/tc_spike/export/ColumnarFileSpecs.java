@@ -0,0 +1,208 @@
+package com.tsys.tc_spike.export;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.Deflater;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class ColumnarFileSpecs {
+    private static final Instant START = Instant.parse("2021-03-17T10:15:30.123456Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void readsBackEveryRowAcrossRowGroupsIncludingNulls() throws IOException {
+        final var rows = rows(2_500);
+        rows.set(7, new ColumnarFile.Row(UUID.randomUUID(), 3, null, null, null, null, null));
+        final var file = write(rows, 1_000);
+
+        final List<ColumnarFile.Row> read = new ArrayList<>();
+        try (var reader = new ColumnarFileReader(file)) {
+            assertThat(reader.rows(), is(2_500L));
+            assertThat(reader.rowGroups(), is(3));
+            reader.scanRows(read::add);
+        }
+
+        // Rows are sorted by date within a row group, so compare them by id.
+        final Comparator<ColumnarFile.Row> byId = Comparator.comparing(ColumnarFile.Row::id);
+        rows.sort(byId);
+        read.sort(byId);
+        assertThat(read, is(rows));
+    }
+
+    @Test
+    public void scansOneColumnWithoutReadingTheOthers() throws IOException {
+        final var rows = rows(50_000);
+        final var file = write(rows, 10_000);
+
+        final List<Object> statuses = new ArrayList<>();
+        try (var reader = new ColumnarFileReader(file)) {
+            reader.scan(ColumnarFile.Column.STATUS, statuses::add);
+
+            assertThat(statuses, hasSize(rows.size()));
+            assertThat(statuses.stream().filter("failed"::equals).count(),
+                    is(rows.stream().filter(row -> "failed".equals(row.status())).count()));
+            assertThat(reader.bytesRead(), is(lessThan(reader.size() / 20)));
+            System.out.printf("Scanned the status of %d rows reading %d of %d bytes%n", rows.size(), reader.bytesRead(), reader.size());
+        }
+    }
+
+    @Test
+    public void regularDatesTakeNextToNothing() throws IOException {
+        final var rows = rows(100_000);
+        rows.sort(Comparator.comparing(ColumnarFile.Row::date));
+        final var file = write(rows, 65_536);
+
+        try (var reader = new ColumnarFileReader(file)) {
+            reader.scan(ColumnarFile.Column.DATE, date -> {
+            });
+
+            assertThat(reader.bytesRead(), is(lessThan(rows.size() / 10L)));
+        }
+    }
+
+    @Test
+    public void refusesFilesInAnotherFormat() throws IOException {
+        final var file = directory.resolve("not-columnar" + ColumnarFile.EXTENSION);
+        Files.writeString(file, "id,version,date,order_id,status,amount,currency\n");
+
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarFileReader(file));
+    }
+
+    @Test
+    public void refusesTruncatedFiles() throws IOException {
+        final var file = write(rows(100), 50);
+        final var bytes = Files.readAllBytes(file);
+        final var truncated = directory.resolve("truncated" + ColumnarFile.EXTENSION);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarFileReader(truncated));
+    }
+
+    @Test
+    public void refusesTruncatedIdChunks() throws IOException {
+        final var file = write(2, Map.of(ColumnarFile.Column.ID, new byte[16]));
+
+        assertThrows(IllegalArgumentException.class, () -> scan(file, ColumnarFile.Column.ID));
+    }
+
+    @Test
+    public void refusesStringsLongerThanTheirChunk() throws IOException {
+        final var out = new ByteArrayOutputStream();
+        out.write(0);
+        ColumnarFile.writeVarint(10, out);
+        out.writeBytes("ORD".getBytes());
+        final var file = write(1, Map.of(ColumnarFile.Column.ORDER_ID, out.toByteArray()));
+
+        assertThrows(IllegalArgumentException.class, () -> scan(file, ColumnarFile.Column.ORDER_ID));
+    }
+
+    @Test
+    public void refusesChunksEndingInTheMiddleOfAVarint() throws IOException {
+        final var file = write(1, Map.of(ColumnarFile.Column.VERSION, new byte[]{(byte) 0x80}));
+
+        assertThrows(IllegalArgumentException.class, () -> scan(file, ColumnarFile.Column.VERSION));
+    }
+
+    @Test
+    public void refusesDictionaryCodesOutOfRange() throws IOException {
+        final var file = write(1, Map.of(ColumnarFile.Column.STATUS, dictionary(2)));
+
+        assertThrows(IllegalArgumentException.class, () -> scan(file, ColumnarFile.Column.STATUS));
+    }
+
+    @Test
+    public void refusesNegativeDictionaryCodes() throws IOException {
+        final var file = write(1, Map.of(ColumnarFile.Column.CURRENCY, dictionary(-1)));
+
+        assertThrows(IllegalArgumentException.class, () -> scan(file, ColumnarFile.Column.CURRENCY));
+    }
+
+    // A one entry dictionary, and a row of the given code.
+    private static byte[] dictionary(long code) {
+        final var out = new ByteArrayOutputStream();
+        ColumnarFile.writeVarint(1, out);
+        ColumnarFile.writeVarint(8, out);
+        out.writeBytes("accepted".getBytes());
+        ColumnarFile.writeVarint(code, out);
+        return out.toByteArray();
+    }
+
+    private static void scan(Path file, ColumnarFile.Column column) throws IOException {
+        try (var reader = new ColumnarFileReader(file)) {
+            reader.scan(column, value -> {
+            });
+        }
+    }
+
+    // A file of one row group of the given rows, whose chunks are the given
+    // raw bytes (or empty), as the writer would lay them out.
+    private Path write(int rows, Map<ColumnarFile.Column, byte[]> raw) throws IOException {
+        final var columns = ColumnarFile.Column.values();
+        final var deflater = new Deflater();
+        final var out = new ByteArrayOutputStream();
+        out.writeBytes(ColumnarFile.MAGIC);
+        out.write(ColumnarFile.VERSION);
+        final var footer = ByteBuffer.allocate(2 * Integer.BYTES + columns.length * (Long.BYTES + 2 * Integer.BYTES));
+        footer.putInt(1).putInt(rows);
+        for (ColumnarFile.Column column : columns) {
+            final var chunk = raw.getOrDefault(column, new byte[0]);
+            final var compressed = ColumnarFile.deflate(chunk, deflater);
+            footer.putLong(out.size()).putInt(compressed.length).putInt(chunk.length);
+            out.writeBytes(compressed);
+        }
+        deflater.end();
+        final long footerOffset = out.size();
+        out.writeBytes(footer.array());
+        out.writeBytes(ByteBuffer.allocate(Long.BYTES).putLong(footerOffset).array());
+        out.writeBytes(ColumnarFile.MAGIC);
+
+        final var file = directory.resolve("corrupt" + ColumnarFile.EXTENSION);
+        Files.write(file, out.toByteArray());
+        return file;
+    }
+
+    private Path write(List<ColumnarFile.Row> rows, int rowGroupSize) throws IOException {
+        final var file = directory.resolve("transactions" + ColumnarFile.EXTENSION);
+        try (var writer = new ColumnarFileWriter(file, rowGroupSize)) {
+            for (ColumnarFile.Row row : rows)
+                writer.write(row);
+        }
+        return file;
+    }
+
+    // One row a second, in random order.
+    private static List<ColumnarFile.Row> rows(int count) {
+        final var random = new Random(44);
+        final List<ColumnarFile.Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            rows.add(new ColumnarFile.Row(new UUID(random.nextLong(), random.nextLong()), i % 3,
+                    START.plus(i, ChronoUnit.SECONDS), "COLUMNAR-ORDER-ID-" + i, i % 3 == 0 ? "failed" : "accepted",
+                    i % 1000 + 0.25, i % 2 == 0 ? "INR" : "USD"));
+        final List<ColumnarFile.Row> shuffled = new ArrayList<>(rows);
+        Collections.shuffle(shuffled, random);
+        return shuffled;
+    }
+}
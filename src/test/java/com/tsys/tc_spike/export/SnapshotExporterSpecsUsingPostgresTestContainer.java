@@ -0,0 +1,153 @@
+package com.tsys.tc_spike.export;
+
+import com.tsys.tc_spike.batch.KeyRange;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Exports ROWS transactions, each of amount 100, with 4 workers while another
+// thread keeps changing the table: moving amounts between two rows, and moving
+// rows to new ids (and so, maybe, to another worker's range) - each in one
+// transaction, so the row count and the sum of the amounts never change.
+// Workers reading the table at different points in time would see rows
+// twice or not at all, and sums that do not add up; workers sharing the
+// exported snapshot see exactly ROWS rows adding up to 100 * ROWS.
+//
+// The number of rows can be changed using -Dbenchmark.rows=...
+@Testcontainers
+@Tag("IntegrationTest")
+public class SnapshotExporterSpecsUsingPostgresTestContainer {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 500_000);
+    private static final int WORKERS = 4;
+
+    @Container
+    private static final JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    private static HikariDataSource pool;
+    private static JdbcTemplate postgres;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void seed() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(POSTGRES.getJdbcUrl());
+        pool.setUsername(POSTGRES.getUsername());
+        pool.setPassword(POSTGRES.getPassword());
+        pool.setMaximumPoolSize(WORKERS + 2);
+        postgres = new JdbcTemplate(pool);
+        postgres.update("INSERT INTO transactions (id, version, date, order_id, status, amount, currency) " +
+                "SELECT gen_random_uuid(), 0, timestamp '2021-03-01 00:00:00' + g * interval '1 second', 'SNAPSHOT-' || g, " +
+                "CASE WHEN g % 3 = 0 THEN 'failed' ELSE 'accepted' END, 100, CASE WHEN g % 2 = 0 THEN 'INR' ELSE 'USD' END " +
+                "FROM generate_series(1, ?) g", ROWS);
+    }
+
+    @AfterAll
+    public static void close() {
+        pool.close();
+    }
+
+    @Test
+    public void workersExportOneConsistentSnapshotWhileTheTableChanges() throws Exception {
+        final List<UUID> ids = new ArrayList<>(postgres.queryForList("SELECT id FROM transactions", UUID.class));
+        final var changes = new AtomicLong();
+        final var stop = new AtomicBoolean();
+        final var changer = new Thread(() -> {
+            final var random = new Random(44);
+            while (!stop.get()) {
+                final int from = random.nextInt(ids.size());
+                final int to = (from + 1 + random.nextInt(ids.size() - 1)) % ids.size();
+                final int moved = postgres.update("UPDATE transactions SET amount = amount + CASE WHEN id = ? THEN -1 ELSE 1 END WHERE id IN (?, ?)",
+                        ids.get(from), ids.get(from), ids.get(to));
+                assertThat(moved, is(2));
+                ids.set(to, postgres.queryForObject("UPDATE transactions SET id = gen_random_uuid() WHERE id = ? RETURNING id",
+                        UUID.class, ids.get(to)));
+                changes.incrementAndGet();
+            }
+        }, "snapshot-export-changer");
+        changer.setDaemon(true);
+        changer.start();
+        while (changes.get() < 50)
+            Thread.sleep(10);
+
+        final SnapshotExport export;
+        final long changesBefore = changes.get();
+        try {
+            export = new SnapshotExporter(pool, WORKERS, 65_536).export(directory);
+        } finally {
+            stop.set(true);
+            changer.join();
+        }
+
+        assertThat(changes.get(), is(greaterThan(changesBefore)));
+        assertThat(export.rows(), is((long) ROWS));
+        assertThat(export.files(), hasSize(WORKERS));
+
+        final var exportedIds = new HashSet<UUID>();
+        double total = 0;
+        final var ranges = KeyRange.split(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            final var range = ranges.get(i);
+            final List<ColumnarFile.Row> rows = new ArrayList<>();
+            try (var reader = new ColumnarFileReader(export.files().get(i))) {
+                reader.scanRows(rows::add);
+            }
+            for (ColumnarFile.Row row : rows) {
+                assertThat(range.contains(row.id()), is(true));
+                exportedIds.add(row.id());
+                total += row.amount();
+            }
+        }
+        assertThat(exportedIds, hasSize(ROWS));
+        assertThat(total, is(100d * ROWS));
+        System.out.printf("Exported %d rows of snapshot %s with %d workers, during %d changes, in %d ms (%.0f rows/sec), %.1f bytes/row%n",
+                export.rows(), export.snapshot(), WORKERS, changes.get() - changesBefore, export.elapsedMillis(), export.rowsPerSecond(),
+                (double) export.bytes() / export.rows());
+    }
+
+    @Test
+    public void aSingleColumnScansAFractionOfTheExport() throws Exception {
+        final var export = new SnapshotExporter(pool, WORKERS, 65_536).export(directory);
+
+        final var failed = new AtomicLong();
+        long read = 0;
+        for (Path file : export.files()) {
+            try (var reader = new ColumnarFileReader(file)) {
+                reader.scan(ColumnarFile.Column.STATUS, status -> {
+                    if ("failed".equals(status))
+                        failed.incrementAndGet();
+                });
+                read += reader.bytesRead();
+            }
+        }
+
+        assertThat(failed.get(), is(postgres.queryForObject("SELECT count(*) FROM transactions WHERE status = 'failed'", Long.class)));
+        assertThat(read, is(lessThan(export.bytes() / 10)));
+        System.out.printf("Counted the failed transactions reading %d of %d bytes exported%n", read, export.bytes());
+    }
+}
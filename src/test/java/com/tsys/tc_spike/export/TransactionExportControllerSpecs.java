@@ -0,0 +1,212 @@
+package com.tsys.tc_spike.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tsys.tc_spike.binary.TransactionBinary;
+import com.tsys.tc_spike.binary.TransactionBinaryDecoder;
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Runs App on a random port (against an embedded H2) and downloads the exports
+// like a partner would.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"server.compression.enabled=true", "server.compression.mime-types=application/x-ndjson,text/csv"})
+@Tag("End-To-End-Test")
+public class TransactionExportControllerSpecs {
+    private static final int ROWS = 5_000;
+    private static final Instant START = Instant.parse("2021-03-17T00:00:00Z");
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Transaction> transactions = new ArrayList<>();
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        for (int i = 0; i < ROWS; i++)
+            transactions.add(new Transaction(UUID.randomUUID(), START.plusSeconds(i), i % 2 == 0 ? "accepted" : "failed",
+                    "ORDER-" + i, new Money(Currency.getInstance("INR"), i + 0.5)));
+        transactionTemplate.executeWithoutResult(status -> transactionRepository.insertAllNew(transactions));
+    }
+
+    @Test
+    public void exportsAllTransactionsAsNdjsonOrderedByDate() {
+        final var lines = export("/transactions/export", "application/x-ndjson");
+
+        assertThat(lines, hasSize(ROWS));
+        assertThat(lines.get(0), allOf(containsString("\"orderId\":\"ORDER-0\""), containsString("\"date\":\"2021-03-17T00:00:00Z\"")));
+        assertThat(lines.get(ROWS - 1), containsString("\"orderId\":\"ORDER-" + (ROWS - 1) + "\""));
+    }
+
+    @Test
+    public void exportsOneJsonValuePerLine() throws Exception {
+        final var body = body("/transactions/export?to=2021-03-17T00:00:03Z", "application/x-ndjson");
+
+        final var expected = new StringBuilder();
+        for (Transaction transaction : transactions.subList(0, 3))
+            expected.append(objectMapper.writeValueAsString(transactionRepository.findById(transaction.id).orElseThrow())).append('\n');
+        assertThat(body, is(expected.toString()));
+    }
+
+    @Test
+    public void exportsOneJsonReferencePerLine() throws Exception {
+        final var body = body("/transactions/export?to=2021-03-17T00:00:03Z&view=reference", "application/x-ndjson");
+
+        final var expected = new StringBuilder();
+        for (Transaction transaction : transactions.subList(0, 3))
+            expected.append(objectMapper.writeValueAsString(transactionRepository.findById(transaction.id).orElseThrow().reference())).append('\n');
+        assertThat(body, is(expected.toString()));
+    }
+
+    @Test
+    public void exportsTransactionsWithinADateRangeHavingAStatus() {
+        final var lines = export("/transactions/export?from=2021-03-17T00:00:10Z&to=2021-03-17T00:00:20Z&status=failed", "application/x-ndjson");
+
+        assertThat(lines, hasSize(5));
+        lines.forEach(line -> assertThat(line, containsString("\"status\":\"failed\"")));
+    }
+
+    @Test
+    public void exportsTransactionReferences() {
+        final var lines = export("/transactions/export?to=2021-03-17T00:00:01Z&view=reference", "application/x-ndjson");
+
+        assertThat(lines, hasSize(1));
+        assertThat(lines.get(0), allOf(containsString("\"status\":\"accepted\""), not(containsString("orderId"))));
+    }
+
+    @Test
+    public void exportsTransactionsAsCsv() {
+        final var lines = export("/transactions/export?to=2021-03-17T00:00:02Z", "text/csv");
+
+        assertThat(lines, hasSize(3));
+        assertThat(lines.get(0), is("id,date,status,orderId,amount,currency"));
+        assertThat(lines.get(1), endsWith(",2021-03-17T00:00:00Z,accepted,ORDER-0,0.5,INR"));
+        assertThat(lines.get(2), endsWith(",2021-03-17T00:00:01Z,failed,ORDER-1,1.5,INR"));
+    }
+
+    @Test
+    public void exportsLargeCsvAmountsInPlainNotation() {
+        final var early = START.minusSeconds(1);
+        transactionTemplate.executeWithoutResult(status -> transactionRepository.insertAllNew(List.of(
+                new Transaction(UUID.randomUUID(), early, "accepted", "ORDER-LARGE", new Money(Currency.getInstance("INR"), 12345678.9)))));
+
+        final var lines = export("/transactions/export?to=2021-03-17T00:00:00Z", "text/csv");
+
+        assertThat(lines, hasSize(2));
+        assertThat(lines.get(1), endsWith(",accepted,ORDER-LARGE,12345678.9,INR"));
+    }
+
+    @Test
+    public void exportsTransactionsInTheBinaryFormat() {
+        final var buffer = ByteBuffer.wrap(webTestClient.get().uri("/transactions/export?to=2021-03-17T00:00:02Z")
+                .header(HttpHeaders.ACCEPT, TransactionBinary.MEDIA_TYPE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(TransactionBinary.MEDIA_TYPE)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody());
+        final var decoder = new TransactionBinaryDecoder();
+
+        assertThat(decoder.readHeader(buffer), is(false));
+        final var first = decoder.decodeTransaction(buffer);
+        final var second = decoder.decodeTransaction(buffer);
+        assertThat(buffer.hasRemaining(), is(false));
+        assertThat(first.orderId, is("ORDER-0"));
+        assertThat(first.date, is(START));
+        assertThat(first.value, is(new Money(Currency.getInstance("INR"), 0.5)));
+        assertThat(second.status, is("failed"));
+    }
+
+    @Test
+    public void exportsTransactionReferencesInTheBinaryFormat() {
+        final var buffer = ByteBuffer.wrap(webTestClient.get().uri("/transactions/export?view=reference")
+                .header(HttpHeaders.ACCEPT, TransactionBinary.MEDIA_TYPE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody());
+        final var decoder = new TransactionBinaryDecoder();
+
+        assertThat(decoder.readHeader(buffer), is(true));
+        int references = 0;
+        while (buffer.hasRemaining()) {
+            decoder.decodeReference(buffer);
+            references++;
+        }
+        assertThat(references, is(ROWS));
+    }
+
+    @Test
+    public void gzipsTheExportWhenTheClientAcceptsIt() {
+        webTestClient.get().uri("/transactions/export")
+                .header(HttpHeaders.ACCEPT, "application/x-ndjson")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+
+    @Test
+    public void firstBytesArriveBeforeTheExportCompletes() {
+        final long start = System.nanoTime();
+        final var body = webTestClient.get().uri("/transactions/export")
+                .header(HttpHeaders.ACCEPT, "application/x-ndjson")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(DataBuffer.class)
+                .getResponseBody();
+
+        final var firstByteNanos = body.take(1).map(buffer -> System.nanoTime() - start).blockFirst(Duration.ofSeconds(10));
+        System.out.printf("Time to first byte of an export of %d rows: %d ms%n", ROWS, firstByteNanos / 1_000_000);
+        assertThat(firstByteNanos, lessThan(Duration.ofSeconds(1).toNanos()));
+    }
+
+    private List<String> export(String uri, String mediaType) {
+        return body(uri, mediaType).lines().toList();
+    }
+
+    private String body(String uri, String mediaType) {
+        final var body = webTestClient.get().uri(uri)
+                .header(HttpHeaders.ACCEPT, mediaType)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(mediaType)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        return body == null ? "" : body;
+    }
+}
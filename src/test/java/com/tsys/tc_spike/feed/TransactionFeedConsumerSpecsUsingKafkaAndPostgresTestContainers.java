@@ -0,0 +1,155 @@
+package com.tsys.tc_spike.feed;
+
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+// The feed commits its own database transactions, so the tests must not run
+// inside a rolled-back test transaction.
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Tag("IntegrationTest")
+public class TransactionFeedConsumerSpecsUsingKafkaAndPostgresTestContainers {
+    private static final String TOPIC = "transaction-feed";
+    private static final int PARTITIONS = 4;
+    private static final int RECORDS = Integer.getInteger("feed.records", 200_000);
+    // Every DUPLICATE_EVERY-th record repeats its predecessor, as a retrying
+    // upstream producer would.
+    private static final int DUPLICATE_EVERY = 10;
+
+    @Container
+    public static JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    @Container
+    public static KafkaContainer KAFKA = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:5.4.3"));
+
+    @DynamicPropertySource
+    static void registerDatabaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.jpa.database", () -> "POSTGRESQL");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        // Let the driver rewrite the batched INSERTs into multi-row INSERTs.
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", () -> POSTGRES.getUsername());
+        registry.add("spring.datasource.password", () -> POSTGRES.getPassword());
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("spring.jpa.properties.hibernate.jdbc.batch_size", () -> "500");
+        registry.add("spring.jpa.properties.hibernate.order_inserts", () -> "true");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    public void bulkWritesDeduplicatedTransactionsFromAllPartitions() throws Exception {
+        createTopic();
+        final int expected = produce();
+
+        final var consumer = new TransactionFeedConsumer(KAFKA.getBootstrapServers(), "feed-specs", List.of(TOPIC), PARTITIONS, 5_000,
+                transactionRepository, new TransactionTemplate(transactionManager));
+        final long start = System.nanoTime();
+        consumer.start();
+        try {
+            final long deadline = System.nanoTime() + Duration.ofMinutes(5).toNanos();
+            while (consumer.metrics().consumed() < RECORDS + 1 && System.nanoTime() < deadline)
+                Thread.sleep(100);
+            assertThat(consumer.healthy(), is(true));
+        } finally {
+            consumer.stop();
+        }
+        final long elapsedNanos = System.nanoTime() - start;
+
+        final var metrics = consumer.metrics();
+        System.out.printf("Consumed %d records with %d workers in %d ms (%.0f records/sec)%n",
+                metrics.consumed(), PARTITIONS, elapsedNanos / 1_000_000, metrics.consumed() * 1e9 / elapsedNanos);
+        System.out.println("metrics = " + metrics);
+
+        assertThat(metrics.consumed(), is(RECORDS + 1L));
+        assertThat(metrics.rejected(), is(1L));
+        assertThat(metrics.failures(), is(0L));
+        assertThat(consumer.healthy(), is(false));
+        assertThat(metrics.written(), is((long) expected));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transactions", Long.class), is((long) expected));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(DISTINCT order_id) FROM transactions", Long.class), is((long) expected));
+    }
+
+    private void createTopic() throws Exception {
+        try (var admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, KAFKA.getBootstrapServers()))) {
+            admin.createTopics(List.of(new NewTopic(TOPIC, PARTITIONS, (short) 1))).all().get();
+        }
+    }
+
+    // Produces RECORDS well-formed records and one malformed record, answering
+    // the number of distinct transactions.  The records are keyed by orderId, so
+    // the duplicates of an order land in the same partition.  They are dropped
+    // either by the orderId deduplication within a batch or, when a batch
+    // boundary separates them, by insertAllNew skipping the stored id.
+    private int produce() {
+        int distinct = 0;
+        try (var producer = new KafkaProducer<String, String>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, KAFKA.getBootstrapServers(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.LINGER_MS_CONFIG, 20,
+                ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024))) {
+            final var date = Instant.parse("2021-03-17T10:15:30Z");
+            String orderId = null;
+            UUID id = null;
+            for (int i = 0; i < RECORDS; i++) {
+                if (orderId == null || i % DUPLICATE_EVERY != 0) {
+                    orderId = "ORDER-" + i;
+                    id = UUID.randomUUID();
+                    distinct++;
+                }
+                final var json = String.format("{\"id\":\"%s\",\"date\":\"%s\",\"status\":\"accepted\",\"orderId\":\"%s\",\"value\":{\"currency\":\"INR\",\"amount\":%d.5}}",
+                        id, date.plusSeconds(i), orderId, i);
+                producer.send(new ProducerRecord<>(TOPIC, orderId, json));
+            }
+            producer.send(new ProducerRecord<>(TOPIC, "MALFORMED", "{\"id\":"));
+            producer.flush();
+        }
+        return distinct;
+    }
+}
@@ -0,0 +1,65 @@
+package com.tsys.tc_spike.feed;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Currency;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class TransactionFeedDecoderSpecs {
+    private final TransactionFeedDecoder decoder = new TransactionFeedDecoder();
+    private final UUID id = UUID.nameUUIDFromBytes("TEST-ID".getBytes());
+
+    @Test
+    public void decodesATransaction() {
+        final var json = "{\"id\":\"" + id + "\",\"date\":\"2021-03-17T10:15:30Z\",\"status\":\"accepted\",\"orderId\":\"ORDER-1\"," +
+                "\"value\":{\"currency\":\"INR\",\"amount\":100.25}}";
+
+        assertThat(decoder.decode(json), is(new Transaction(id, Instant.parse("2021-03-17T10:15:30Z"), "accepted", "ORDER-1",
+                new Money(Currency.getInstance("INR"), 100.25))));
+    }
+
+    @Test
+    public void shoutsWhenAFieldIsMissing() {
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("{\"id\":\"" + id + "\",\"status\":\"accepted\"}"));
+    }
+
+    @Test
+    public void shoutsWhenTheCurrencyIsUnknown() {
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("{\"id\":\"" + id + "\",\"date\":\"2021-03-17T10:15:30Z\",\"status\":\"accepted\",\"orderId\":\"ORDER-1\"," +
+                        "\"value\":{\"currency\":\"XYZ\",\"amount\":100.25}}"));
+    }
+
+    @Test
+    public void shoutsWhenTheRecordIsNotJson() {
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("not json"));
+    }
+
+    @Test
+    public void shoutsWhenTheAmountIsNotANumber() {
+        final var exception = assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("{\"id\":\"" + id + "\",\"date\":\"2021-03-17T10:15:30Z\",\"status\":\"accepted\",\"orderId\":\"ORDER-1\"," +
+                        "\"value\":{\"currency\":\"INR\",\"amount\":\"lots\"}}"));
+
+        assertThat(exception.getMessage(), is("Amount must be a finite number: \"lots\""));
+    }
+
+    @Test
+    public void shoutsWhenTheOrderIdIsBlank() {
+        final var exception = assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("{\"id\":\"" + id + "\",\"date\":\"2021-03-17T10:15:30Z\",\"status\":\"accepted\",\"orderId\":\" \"," +
+                        "\"value\":{\"currency\":\"INR\",\"amount\":1}}"));
+
+        assertThat(exception.getMessage(), is("Field 'orderId' must be a non-blank string"));
+    }
+}
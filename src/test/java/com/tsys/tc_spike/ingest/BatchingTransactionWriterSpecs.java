@@ -0,0 +1,93 @@
+package com.tsys.tc_spike.ingest;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class BatchingTransactionWriterSpecs {
+    private final List<Transaction> batch = List.of(new Transaction(UUID.randomUUID(), Instant.now(), "accepted", "ORDER-1",
+            new Money(Currency.getInstance("INR"), 10d)));
+
+    @Test
+    public void answersTheNumberOfRowsTheSinkWrote() throws Exception {
+        try (var writer = new BatchingTransactionWriter(List::size, 1, 1, 1000)) {
+            assertThat(writer.submit(batch).get(1, TimeUnit.SECONDS), is(1));
+        }
+    }
+
+    @Test
+    public void holdsBackAndThenRejectsBatchesWhenTheWriterFallsBehind() throws Exception {
+        final var release = new CountDownLatch(1);
+        final var writing = new CountDownLatch(1);
+        try (var writer = new BatchingTransactionWriter(transactions -> {
+            writing.countDown();
+            await(release);
+            return transactions.size();
+        }, 1, 1, 100)) {
+            final var first = writer.submit(batch);       // taken by the only writer, which blocks
+            writing.await(1, TimeUnit.SECONDS);
+            final var second = writer.submit(batch);      // waits in the queue, which is now full
+
+            final long start = System.nanoTime();
+            assertThrows(AdmissionTimeoutException.class, () -> writer.submit(batch));
+            assertThat(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100), is(true));
+
+            release.countDown();
+            assertThat(first.get(1, TimeUnit.SECONDS), is(1));
+            assertThat(second.get(1, TimeUnit.SECONDS), is(1));
+        }
+    }
+
+    @Test
+    public void failsTheBatchWhenTheSinkFails() {
+        try (var writer = new BatchingTransactionWriter(transactions -> {
+            throw new IllegalStateException("Database is down");
+        }, 1, 1, 1000)) {
+            final var written = writer.submit(batch);
+            assertThrows(Exception.class, () -> written.get(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void failsTheQueuedBatchesOnClose() throws Exception {
+        final var release = new CountDownLatch(1);
+        final var writing = new CountDownLatch(1);
+        final var writer = new BatchingTransactionWriter(transactions -> {
+            writing.countDown();
+            await(release);
+            return transactions.size();
+        }, 1, 1, 100);
+        final var first = writer.submit(batch);           // taken by the only writer, which blocks
+        writing.await(1, TimeUnit.SECONDS);
+        final var queued = writer.submit(batch);
+
+        writer.close();
+
+        assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> writer.submit(batch).get(1, TimeUnit.SECONDS));
+        release.countDown();
+        assertThat(first.get(1, TimeUnit.SECONDS), is(1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.tsys.tc_spike.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class NdjsonRecordParserSpecs {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> records = new ArrayList<>();
+    private final List<Long> numbers = new ArrayList<>();
+
+    @Test
+    public void parsesRecordsSplitAcrossChunks() throws IOException {
+        final var ndjson = "{\"orderId\":\"ORDER-1\",\"value\":{\"amount\":1.5}}\n{\"orderId\":\"ORDER-2\"}\n\n{\"orderId\":\"ORDER-3\"}\n";
+
+        // Feed one byte at a time, the worst possible split.
+        final var parser = new NdjsonRecordParser(objectMapper);
+        final var bytes = ndjson.getBytes(StandardCharsets.UTF_8);
+        final var chunk = new byte[1];
+        for (byte b : bytes) {
+            chunk[0] = b;
+            parser.feed(chunk, 1, this::collect);
+        }
+        parser.endOfInput(this::collect);
+
+        assertThat(records, contains("{\"orderId\":\"ORDER-1\",\"value\":{\"amount\":1.5}}", "{\"orderId\":\"ORDER-2\"}", "{\"orderId\":\"ORDER-3\"}"));
+        assertThat(numbers, contains(1L, 2L, 3L));
+    }
+
+    @Test
+    public void parsesScalarRecordsToo() throws IOException {
+        final var parser = new NdjsonRecordParser(objectMapper);
+        final var bytes = "42\n\"text\"\n".getBytes(StandardCharsets.UTF_8);
+        parser.feed(bytes, bytes.length, this::collect);
+        parser.endOfInput(this::collect);
+
+        assertThat(records, contains("42", "\"text\""));
+    }
+
+    @Test
+    public void shoutsOnMalformedJson() throws IOException {
+        final var parser = new NdjsonRecordParser(objectMapper);
+        final var bytes = "{\"orderId\":}\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(JsonProcessingException.class, () -> parser.feed(bytes, bytes.length, this::collect));
+    }
+
+    @Test
+    public void shoutsWhenTheInputEndsInTheMiddleOfARecord() throws IOException {
+        final var parser = new NdjsonRecordParser(objectMapper);
+        final var bytes = "{\"orderId\":\"ORDER-1\"}\n{\"orderId\":".getBytes(StandardCharsets.UTF_8);
+        parser.feed(bytes, bytes.length, this::collect);
+
+        assertThrows(JsonProcessingException.class, () -> parser.endOfInput(this::collect));
+        assertThat(records.size(), is(1));
+    }
+
+    private void collect(long number, JsonNode record) {
+        numbers.add(number);
+        records.add(record.toString());
+    }
+}
@@ -0,0 +1,91 @@
+package com.tsys.tc_spike.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "ingest.batch-size=100")
+@Tag("End-To-End-Test")
+public class TransactionIngestControllerSpecs {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+    }
+
+    @Test
+    public void writesValidRecordsInBatchesAndSummarisesEachBatch() {
+        final var upload = new StringBuilder();
+        for (int i = 0; i < 250; i++)
+            upload.append(record("ORDER-" + i, i == 7 ? "XYZ" : "INR")).append('\n');
+
+        final var summary = ingest(upload.toString(), 200);
+
+        assertThat(summary.accepted(), is(249L));
+        assertThat(summary.rejected(), is(1L));
+        assertThat(summary.batches(), hasSize(3));
+        assertThat(summary.batches().get(0), is(new IngestSummary.Batch(1, 99, 0, 1,
+                List.of(new IngestSummary.Rejection(8, "Unknown currency: XYZ")))));
+        assertThat(summary.batches().get(2).accepted(), is(50));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transactions", Long.class), is(249L));
+    }
+
+    @Test
+    public void skipsTransactionsThatAreAlreadyStored() {
+        final var record = record("ORDER-1", "INR");
+        ingest(record + "\n", 200);
+
+        final var summary = ingest(record + "\n", 200);
+
+        assertThat(summary.accepted(), is(0L));
+        assertThat(summary.duplicates(), is(1L));
+    }
+
+    @Test
+    public void answersBadRequestWithTheBatchesWrittenSoFarForMalformedJson() {
+        final var upload = new StringBuilder();
+        for (int i = 0; i < 150; i++)
+            upload.append(record("ORDER-" + i, "INR")).append('\n');
+        upload.append("{\"id\":");
+
+        final var summary = ingest(upload.toString(), 400);
+
+        assertThat(summary.error(), notNullValue());
+        assertThat(summary.batches(), hasSize(1));
+        assertThat(summary.accepted(), is(100L));
+    }
+
+    private IngestSummary ingest(String body, int status) {
+        return webTestClient.post().uri("/transactions/ingest")
+                .contentType(NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isEqualTo(status)
+                .expectBody(IngestSummary.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private static String record(String orderId, String currency) {
+        return String.format("{\"id\":\"%s\",\"date\":\"2021-03-17T10:15:30Z\",\"status\":\"accepted\",\"orderId\":\"%s\",\"value\":{\"currency\":\"%s\",\"amount\":10.5}}",
+                UUID.randomUUID(), orderId, currency);
+    }
+}
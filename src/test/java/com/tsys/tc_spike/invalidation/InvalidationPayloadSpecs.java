@@ -0,0 +1,52 @@
+package com.tsys.tc_spike.invalidation;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@Tag("UnitTest")
+public class InvalidationPayloadSpecs {
+
+    @Test
+    public void splitsLargeChangesIntoPayloadsPostgresAccepts() {
+        final Map<UUID, Long> changes = new LinkedHashMap<>();
+        for (int i = 0; i < 1_000; i++)
+            changes.put(UUID.randomUUID(), i % 7 == 0 ? LocalTransactionCache.DELETED : (long) i);
+
+        final var payloads = InvalidationPayload.encode(changes);
+        final Map<UUID, Long> decoded = new LinkedHashMap<>();
+        for (String payload : payloads) {
+            assertThat(payload.getBytes(StandardCharsets.UTF_8).length, is(lessThanOrEqualTo(InvalidationPayload.MAX_BYTES)));
+            InvalidationPayload.decode(payload, decoded::put);
+        }
+
+        assertThat(payloads.size(), is(greaterThan(1)));
+        assertThat(decoded, is(changes));
+    }
+
+    @Test
+    public void keepsTheLastVersionOrTheDeletion() {
+        assertThat(InvalidationPayload.merge(3, 5), is(5L));
+        assertThat(InvalidationPayload.merge(5, 3), is(5L));
+        assertThat(InvalidationPayload.merge(5, LocalTransactionCache.DELETED), is(LocalTransactionCache.DELETED));
+        assertThat(InvalidationPayload.merge(LocalTransactionCache.DELETED, 6), is(LocalTransactionCache.DELETED));
+    }
+
+    @Test
+    public void skipsWhatItCannotDecode() {
+        final Map<UUID, Long> decoded = new LinkedHashMap<>();
+        final var id = UUID.randomUUID();
+
+        final int count = InvalidationPayload.decode("garbage,not-a-uuid:1," + id + ":x," + id + ":2", decoded::put);
+
+        assertThat(count, is(1));
+        assertThat(decoded, is(Map.of(id, 2L)));
+    }
+}
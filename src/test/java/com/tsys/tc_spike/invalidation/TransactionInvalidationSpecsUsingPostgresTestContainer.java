@@ -0,0 +1,153 @@
+package com.tsys.tc_spike.invalidation;
+
+import com.tsys.tc_spike.App;
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.tsys.tc_spike.resource.TransactionVersionCache;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Two instances of the application share one Postgres database, each with its
+// own TransactionVersionCache.  One keeps changing a transaction that the
+// other has cached, and the time it takes for the other's entry to catch up
+// (from the save returning) is measured and printed.
+//
+// Reconnecting is slow on purpose, so that a change is surely made while the
+// listener is disconnected, and only the resync can catch up with it.
+@Testcontainers
+@Tag("IntegrationTest")
+public class TransactionInvalidationSpecsUsingPostgresTestContainer {
+    private static final int ROUNDS = 200;
+
+    @Container
+    private static final JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    private static ConfigurableApplicationContext writer;
+    private static ConfigurableApplicationContext reader;
+
+    @BeforeAll
+    public static void start() {
+        writer = instance();
+        reader = instance();
+    }
+
+    @AfterAll
+    public static void stop() {
+        reader.close();
+        writer.close();
+    }
+
+    // The schema comes from the init script, as either instance dropping it
+    // on closing would pull it from under the other.
+    private static ConfigurableApplicationContext instance() {
+        return new SpringApplicationBuilder(App.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.jpa.database=POSTGRESQL",
+                        "spring.datasource.driver-class-name=org.postgresql.Driver",
+                        "spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                        "spring.datasource.username=" + POSTGRES.getUsername(),
+                        "spring.datasource.password=" + POSTGRES.getPassword(),
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "eventlog.snapshotter.enabled=false",
+                        "invalidation.enabled=true",
+                        "invalidation.reconnect-backoff-ms=2000")
+                .run();
+    }
+
+    @Test
+    public void staleEntriesOnTheOtherInstanceCatchUp() throws Exception {
+        final var repository = writer.getBean(TransactionRepository.class);
+        final var versions = reader.getBean(TransactionVersionCache.class);
+        var transaction = repository.save(transaction("INVALIDATION-ORDER-ID-1"));
+        awaitListening();
+        assertThat(versions.versionOf(transaction.id), is(Optional.of(0L)));
+        assertThat(versions.versionOfOrder(transaction.orderId).orElseThrow().version(), is(0L));
+
+        final var id = transaction.id;
+        final var orderId = transaction.orderId;
+        final List<Long> micros = new ArrayList<>();
+        for (int round = 1; round <= ROUNDS; round++) {
+            transaction = repository.save(transaction.withStatus("status-" + round));
+            final long start = System.nanoTime();
+            final long expected = round;
+            await(() -> versions.versionOf(id).orElseThrow() == expected
+                    && versions.versionOfOrder(orderId).orElseThrow().version() == expected);
+            micros.add((System.nanoTime() - start) / 1_000);
+        }
+
+        Collections.sort(micros);
+        final long p50 = micros.get(micros.size() / 2);
+        final long p99 = micros.get(micros.size() * 99 / 100);
+        final long max = micros.get(micros.size() - 1);
+        assertThat(max, is(lessThan(2_000_000L)));
+        System.out.printf("Stale entries caught up over %d saves in p50 = %d µs, p99 = %d µs, max = %d µs, with %d notifications%n",
+                ROUNDS, p50, p99, max, reader.getBean(TransactionInvalidationListener.class).notifications());
+    }
+
+    @Test
+    public void resyncsAfterReconnecting() throws Exception {
+        final var repository = writer.getBean(TransactionRepository.class);
+        final var versions = reader.getBean(TransactionVersionCache.class);
+        final var listener = reader.getBean(TransactionInvalidationListener.class);
+        final var transaction = repository.save(transaction("INVALIDATION-ORDER-ID-2"));
+        awaitListening();
+        assertThat(versions.versionOf(transaction.id), is(Optional.of(0L)));
+        final long connects = listener.connects();
+
+        final var jdbcTemplate = writer.getBean(JdbcTemplate.class);
+        jdbcTemplate.queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query LIKE 'LISTEN %'");
+        await(() -> !listener.listening());
+        repository.save(transaction.withStatus("settled"));
+        repository.delete(repository.findById(transaction.id).orElseThrow());
+
+        await(() -> listener.connects() > connects);
+        await(() -> versions.versionOf(transaction.id).isEmpty());
+    }
+
+    private void awaitListening() throws InterruptedException {
+        await(() -> writer.getBean(TransactionInvalidationListener.class).listening()
+                && reader.getBean(TransactionInvalidationListener.class).listening());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline)
+                throw new AssertionError("Timed out");
+            Thread.sleep(0, 100_000);
+        }
+    }
+
+    private static Transaction transaction(String orderId) {
+        return new Transaction(UUID.randomUUID(), Instant.parse("2021-03-17T10:15:30Z"), "accepted", orderId,
+                new Money(Currency.getInstance("INR"), 2000.45));
+    }
+}
@@ -0,0 +1,103 @@
+package com.tsys.tc_spike.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+// Compares the hand written TransactionJsonModule with default databind for
+// writing and reading a bulk response (a JSON array of Transactions).  The
+// best of several rounds, after warming up, is printed for comparison.
+//
+// The number of transactions can be changed using -Dbenchmark.rows=...
+@Tag("Benchmark")
+public class TransactionJsonModuleBenchmarkSpecs {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int WARM_UP_ROUNDS = 10;
+    private static final int ROUNDS = 10;
+    private static final TypeReference<List<Transaction>> TRANSACTIONS = new TypeReference<>() {};
+
+    private final ObjectMapper databind = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ObjectMapper module = JsonMapper.builder()
+            .findAndAddModules()
+            .addModule(new TransactionJsonModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Test
+    public void moduleWritesAndReadsBulkResponsesFasterThanDatabind() throws Exception {
+        final List<Transaction> transactions = transactions();
+        final byte[] json = databind.writeValueAsBytes(transactions);
+        assertThat(module.writeValueAsBytes(transactions), is(json));
+        assertThat(module.readerFor(TRANSACTIONS).readValue(json), is(transactions));
+
+        final long databindWriteNanos = time(databind.writerFor(TRANSACTIONS), transactions);
+        final long moduleWriteNanos = time(module.writerFor(TRANSACTIONS), transactions);
+        final long databindReadNanos = time(databind.readerFor(TRANSACTIONS), json);
+        final long moduleReadNanos = time(module.readerFor(TRANSACTIONS), json);
+
+        System.out.printf("Writing %d transactions (%d KB): databind = %d ms, module = %d ms (%.1fx)%n",
+                ROWS, json.length / 1024, databindWriteNanos / 1_000_000, moduleWriteNanos / 1_000_000,
+                (double) databindWriteNanos / moduleWriteNanos);
+        System.out.printf("Reading %d transactions (%d KB): databind = %d ms, module = %d ms (%.1fx)%n",
+                ROWS, json.length / 1024, databindReadNanos / 1_000_000, moduleReadNanos / 1_000_000,
+                (double) databindReadNanos / moduleReadNanos);
+    }
+
+    private List<Transaction> transactions() {
+        final var start = Instant.parse("2021-03-01T00:00:00Z");
+        final var currencies = List.of(Currency.getInstance("INR"), Currency.getInstance("USD"), Currency.getInstance("EUR"));
+        final List<Transaction> transactions = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++)
+            transactions.add(new Transaction(UUID.randomUUID(), start.plus(Duration.ofMillis(i * 1_234L)),
+                    i % 10 == 0 ? "failed" : "accepted", "ORDER-" + i,
+                    new Money(currencies.get(i % currencies.size()), (i % 100_000) / 100d)));
+        return transactions;
+    }
+
+    private long time(ObjectWriter writer, List<Transaction> transactions) throws Exception {
+        for (int round = 0; round < WARM_UP_ROUNDS; round++)
+            writer.writeValue(OutputStream.nullOutputStream(), transactions);
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = System.nanoTime();
+            writer.writeValue(OutputStream.nullOutputStream(), transactions);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private long time(ObjectReader reader, byte[] json) throws Exception {
+        for (int round = 0; round < WARM_UP_ROUNDS; round++)
+            reader.readValue(json);
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = System.nanoTime();
+            reader.readValue(json);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,159 @@
+package com.tsys.tc_spike.json;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionReference;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The module must be a drop-in replacement for the default databind mapping:
+// same JSON out, same objects in.
+@Tag("UnitTest")
+public class TransactionJsonModuleSpecs {
+    private final ObjectMapper databind = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ObjectMapper module = JsonMapper.builder()
+            .findAndAddModules()
+            .addModule(new TransactionJsonModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final Transaction transaction = new Transaction(UUID.fromString("f3c1b2a4-0d5e-4c7f-9a8b-1e2d3c4b5a69"),
+            Instant.parse("2021-03-17T10:15:30Z"), "accepted", "ORDER-1", new Money(Currency.getInstance("INR"), 2000.45));
+
+    @Test
+    public void writesTransactionsLikeDatabind() throws Exception {
+        assertThat(module.writeValueAsString(transaction), is(databind.writeValueAsString(transaction)));
+    }
+
+    @Test
+    public void writesTransactionReferencesLikeDatabind() throws Exception {
+        final var reference = transaction.reference();
+
+        assertThat(module.writeValueAsString(reference), is(databind.writeValueAsString(reference)));
+    }
+
+    @Test
+    public void writesNullFieldsLikeDatabind() throws Exception {
+        final var incomplete = new Transaction(null, null, null, null, null);
+
+        assertThat(module.writeValueAsString(incomplete), is(databind.writeValueAsString(incomplete)));
+    }
+
+    @Test
+    public void writesArraysLikeDatabind() throws Exception {
+        final var transactions = List.of(transaction, transaction);
+
+        assertThat(module.writeValueAsString(transactions), is(databind.writeValueAsString(transactions)));
+    }
+
+    @Test
+    public void streamsArraysLikeDatabindWritesThem() throws Exception {
+        final var transactions = List.of(transaction, transaction.withStatus("settled"));
+        final var out = new ByteArrayOutputStream();
+
+        assertThat(TransactionJsonModule.writeArray(module, Transaction.class, transactions.iterator(), out), is(2L));
+        assertThat(out.toString(), is(databind.writeValueAsString(transactions)));
+    }
+
+    @Test
+    public void streamsEmptyArrays() throws Exception {
+        final var out = new ByteArrayOutputStream();
+
+        TransactionJsonModule.writeArray(module, Transaction.class, List.<Transaction>of().iterator(), out);
+        assertThat(out.toString(), is("[]"));
+    }
+
+    @Test
+    public void readsArraysOneElementAtATime() throws Exception {
+        final var transactions = List.of(transaction, transaction.withStatus("settled"));
+        final var json = databind.writeValueAsBytes(transactions);
+
+        final List<Transaction> read = new ArrayList<>();
+        try (var elements = TransactionJsonModule.readArray(module, Transaction.class, new ByteArrayInputStream(json))) {
+            while (elements.hasNextValue())
+                read.add(elements.nextValue());
+        }
+        assertThat(read, is(transactions));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2021-03-17T10:15:30Z", "2021-03-17T10:15:30.100Z", "2021-03-17T10:15:30.000123Z",
+            "2021-03-17T10:15:30.000000001Z", "2020-02-29T23:59:59.999Z", "1970-01-01T00:00:00Z",
+            "1969-12-31T23:59:59.5Z", "0001-01-01T00:00:00Z", "9999-12-31T23:59:59Z", "+10000-01-01T00:00:00Z",
+            "-0001-06-15T12:00:00Z"})
+    public void writesAndReadsDatesLikeDatabind(String date) throws Exception {
+        final var dated = new Transaction(transaction.id, Instant.parse(date), "accepted", "ORDER-1", transaction.value);
+
+        final var json = module.writeValueAsString(dated);
+
+        assertThat(json, is(databind.writeValueAsString(dated)));
+        assertThat(module.readValue(json, Transaction.class).date, is(dated.date));
+    }
+
+    @Test
+    public void readsWhatDatabindWrites() throws Exception {
+        final var json = databind.writeValueAsString(transaction);
+
+        assertThat(module.readValue(json, Transaction.class), is(transaction));
+    }
+
+    @Test
+    public void readsTransactionReferences() throws Exception {
+        final var json = databind.writeValueAsString(transaction.reference());
+
+        assertThat(module.readValue(json, TransactionReference.class), is(transaction.reference()));
+    }
+
+    @Test
+    public void readsFieldsInAnyOrderAndUpperCaseUuids() throws Exception {
+        final var json = """
+                {"value":{"amount":2000.45,"currency":"INR"},"orderId":"ORDER-1","status":"accepted",
+                 "date":"2021-03-17T10:15:30Z","id":"F3C1B2A4-0D5E-4C7F-9A8B-1E2D3C4B5A69"}""";
+
+        assertThat(module.readValue(json, Transaction.class), is(transaction));
+    }
+
+    @Test
+    public void readsDatesGivenAsEpochSeconds() throws Exception {
+        final var json = "{\"id\":\"f3c1b2a4-0d5e-4c7f-9a8b-1e2d3c4b5a69\",\"date\":1615976130,\"status\":\"accepted\"}";
+
+        assertThat(module.readValue(json, TransactionReference.class), is(transaction.reference()));
+    }
+
+    @Test
+    public void rejectsUnknownCurrencies() {
+        assertThrows(JsonMappingException.class, () -> module.readValue("{\"currency\":\"XYZ\",\"amount\":1}", Money.class));
+    }
+
+    @Test
+    public void rejectsMalformedIdsAndDates() {
+        assertThrows(JsonMappingException.class, () -> module.readValue("{\"id\":\"not-a-uuid\"}", TransactionReference.class));
+        assertThrows(JsonMappingException.class, () -> module.readValue("{\"date\":\"2021-02-30T10:15:30Z\"}", TransactionReference.class));
+    }
+
+    @Test
+    public void rejectsUnknownPropertiesLikeDatabind() {
+        assertThrows(JsonMappingException.class, () -> module.readValue("{\"currency\":\"INR\",\"amount\":1,\"rate\":2}", Money.class));
+    }
+}
@@ -0,0 +1,125 @@
+package com.tsys.tc_spike.keyfilter;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// The specs rebuild the filters themselves; the scheduled check only starts
+// after an hour.
+@SpringBootTest(properties = {
+        "keyfilter.enabled=true",
+        "keyfilter.minimum-keys=" + TransactionKeyFilterSpecs.MINIMUM_KEYS,
+        "keyfilter.check-interval-ms=3600000"
+})
+@Tag("IntegrationTest")
+public class TransactionKeyFilterSpecs {
+    static final int MINIMUM_KEYS = 10_000;
+    private static final int ROWS = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionKeyFilter filter;
+
+    private final List<Transaction> saved = new ArrayList<>();
+
+    @BeforeEach
+    public void seed() throws Exception {
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        for (int i = 0; i < ROWS; i++)
+            saved.add(transaction("KEYFILTER-ORDER-ID-" + i));
+        // Inserted behind the filter's back, so only the scan can know them.
+        for (Transaction transaction : saved)
+            jdbcTemplate.update("INSERT INTO transactions (id, version, date, status, order_id, amount, currency) VALUES (?, 0, ?, ?, ?, ?, ?)",
+                    transaction.id, Timestamp.from(transaction.date), transaction.status, transaction.orderId,
+                    transaction.value.amount, transaction.value.currency.getCurrencyCode());
+        filter.rebuild();
+    }
+
+    @Test
+    public void answersMissingKeysWithoutTheDatabase() {
+        final long avoidedBefore = filter.lookupsAvoided();
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(transactionRepository.existsById(UUID.randomUUID()), is(false));
+            assertThat(transactionRepository.findByOrderId("KEYFILTER-MISSING-ORDER-ID-" + i).isPresent(), is(false));
+        }
+
+        assertThat(filter.lookupsAvoided() - avoidedBefore, is(greaterThan(1_950L)));
+        assertThat(filter.estimatedFpp(), is(lessThan(0.001)));
+    }
+
+    @Test
+    public void findsTheScannedKeys() {
+        for (Transaction transaction : saved.subList(0, 50)) {
+            assertThat(transactionRepository.existsById(transaction.id), is(true));
+            assertThat(transactionRepository.findByOrderId(transaction.orderId).map(t -> t.id).orElse(null), is(transaction.id));
+        }
+    }
+
+    @Test
+    public void findsTheKeysSavedSinceTheScan() {
+        final var transaction = transaction("KEYFILTER-NEW-ORDER-ID");
+        transactionRepository.save(transaction);
+
+        assertThat(transactionRepository.existsById(transaction.id), is(true));
+        assertThat(transactionRepository.findByOrderId(transaction.orderId).isPresent(), is(true));
+    }
+
+    @Test
+    public void findsTheKeysPersistedButNotYetFlushed() {
+        final var transaction = transaction("KEYFILTER-UNFLUSHED-ORDER-ID");
+
+        final var found = transactionTemplate.execute(status -> {
+            transactionRepository.save(transaction);
+            return transactionRepository.findById(transaction.id).isPresent();
+        });
+
+        assertThat(found, is(true));
+    }
+
+    @Test
+    public void rebuildsOnceTheFalsePositiveProbabilityHasGrown() throws Exception {
+        assertThat(filter.rebuildIfDegraded(), is(false));
+        for (int i = 0; i < 5 * MINIMUM_KEYS; i++)
+            filter.add(transaction("KEYFILTER-ADDED-ORDER-ID-" + i));
+        final double degraded = filter.estimatedFpp();
+        final long rebuildsBefore = filter.rebuilds();
+
+        assertThat(filter.rebuildIfDegraded(), is(true));
+        while (filter.rebuilds() == rebuildsBefore)
+            Thread.sleep(10);
+
+        // Rebuilt from the rows in the table, and the keys added lately.
+        assertThat(degraded, is(greaterThan(0.05)));
+        assertThat(filter.estimatedFpp(), is(lessThan(degraded)));
+        System.out.printf("Estimated false positive probability went from %.4f to %.4f on rebuilding%n", degraded, filter.estimatedFpp());
+    }
+
+    private static Transaction transaction(String orderId) {
+        return new Transaction(UUID.randomUUID(), Instant.parse("2021-03-17T10:15:30Z"), "accepted", orderId,
+                new Money(Currency.getInstance("INR"), 2000.45));
+    }
+}
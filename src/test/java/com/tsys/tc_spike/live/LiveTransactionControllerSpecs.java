@@ -0,0 +1,170 @@
+package com.tsys.tc_spike.live;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// The number of subscribers for the fan-out test can be changed using
+// -Dlive.subscribers=...
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"server.tomcat.accept-count=10000", "server.tomcat.max-connections=20000"})
+@Tag("End-To-End-Test")
+public class LiveTransactionControllerSpecs {
+    private static final int SUBSCRIBERS = Integer.getInteger("live.subscribers", 5_000);
+    private static final int COMMITS = 100;
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE =
+            new ParameterizedTypeReference<>() {};
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private LiveTransactionFeed feed;
+
+    private WebClient webClient;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        final var connections = ConnectionProvider.builder("live")
+                .maxConnections(SUBSCRIBERS + 10)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+    }
+
+    @Test
+    public void streamsCommittedTransactionsAsServerSentEvents() throws Exception {
+        final List<ServerSentEvent<String>> received = new ArrayList<>();
+        final int before = feed.subscribers();
+        final Disposable subscription = subscribe().subscribe(event -> {
+            synchronized (received) {
+                received.add(event);
+            }
+        });
+        try {
+            await(() -> feed.subscribers() == before + 1);
+
+            transactionRepository.save(aTransaction("LIVE-ORDER-1"));
+
+            await(() -> {
+                synchronized (received) {
+                    return !received.isEmpty();
+                }
+            });
+            final var event = received.get(0);
+            assertThat(event.event(), is("transaction"));
+            assertThat(event.id(), notNullValue());
+            assertThat(event.data(), containsString("\"orderId\":\"LIVE-ORDER-1\""));
+            assertThat(event.data(), containsString("\"kind\":\"CREATED\""));
+        } finally {
+            subscription.dispose();
+        }
+    }
+
+    @Test
+    public void resumesAfterTheLastEventId() throws Exception {
+        transactionRepository.save(aTransaction("LIVE-ORDER-1"));
+        final long lastEventId = feed.published() - 1;
+        transactionRepository.save(aTransaction("LIVE-ORDER-2"));
+
+        final var event = webClient.get().uri("/transactions/live")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", Long.toString(lastEventId))
+                .retrieve()
+                .bodyToFlux(SSE)
+                .blockFirst(Duration.ofSeconds(10));
+
+        assertThat(event.id(), is(Long.toString(lastEventId + 1)));
+        assertThat(event.data(), containsString("\"orderId\":\"LIVE-ORDER-2\""));
+    }
+
+    // Every subscriber must see every commit, and committing must not slow
+    // down with the number of subscribers as the commit only publishes to the
+    // ring.
+    @Test
+    public void fansOutEveryCommitToThousandsOfSubscribers() throws Exception {
+        final var received = new AtomicLong();
+        final int before = feed.subscribers();
+        final List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++)
+            subscriptions.add(subscribe().subscribe(event -> received.incrementAndGet()));
+        try {
+            await(() -> feed.subscribers() == before + SUBSCRIBERS, 60);
+
+            final long start = System.nanoTime();
+            long commitNanos = 0;
+            for (int i = 0; i < COMMITS; i++) {
+                final long commitStart = System.nanoTime();
+                transactionRepository.save(aTransaction("LIVE-ORDER-" + i));
+                commitNanos += System.nanoTime() - commitStart;
+            }
+            await(() -> received.get() >= (long) SUBSCRIBERS * COMMITS, 120);
+            final long elapsedNanos = System.nanoTime() - start;
+
+            assertThat(received.get(), is((long) SUBSCRIBERS * COMMITS));
+            System.out.printf("Fanned %d commits out to %d subscribers in %d ms (%.0f events/sec), mean commit = %d µs, dropped = %d%n",
+                    COMMITS, SUBSCRIBERS, elapsedNanos / 1_000_000, received.get() * 1e9 / elapsedNanos,
+                    commitNanos / COMMITS / 1000, feed.dropped());
+        } finally {
+            subscriptions.forEach(Disposable::dispose);
+        }
+    }
+
+    private Flux<ServerSentEvent<String>> subscribe() {
+        return webClient.get().uri("/transactions/live")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(SSE);
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        await(condition, 10);
+    }
+
+    private void await(BooleanSupplier condition, int seconds) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline)
+            Thread.sleep(10);
+    }
+
+    private Transaction aTransaction(String orderId) {
+        return new Transaction(UUID.randomUUID(), Instant.now(), "accepted", orderId, new Money(Currency.getInstance("INR"), 100d));
+    }
+}
@@ -0,0 +1,87 @@
+package com.tsys.tc_spike.live;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+// A single dispatcher thread, and a subscriber whose client never reads: its
+// send blocks until released.
+@Tag("UnitTest")
+public class LiveTransactionFeedSpecs {
+    private static final int RING_CAPACITY = 8;
+
+    private final LiveTransactionFeed feed = new LiveTransactionFeed(new ObjectMapper(), RING_CAPACITY, 1, 50);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        feed.destroy();
+    }
+
+    @Test
+    public void aStuckSubscriberDoesNotHoldUpTheOthers() throws Exception {
+        stuckSubscriber();
+        final var received = new AtomicLong();
+        feed.subscribe(null, events -> received.addAndGet(events.size()));
+
+        feed.publish("1");
+        Thread.sleep(200);
+        feed.publish("2");
+        feed.publish("3");
+
+        await(() -> received.get() == 3);
+        assertThat(received.get(), is(3L));
+    }
+
+    @Test
+    public void disconnectsAStuckSubscriberOnceLapped() throws Exception {
+        stuckSubscriber();
+        feed.publish("1");
+        Thread.sleep(200);
+        for (int i = 0; i < RING_CAPACITY * 2; i++)
+            feed.publish(Integer.toString(i));
+
+        await(() -> feed.disconnected() == 1);
+        release.countDown();
+
+        assertThat(closed.await(5, TimeUnit.SECONDS), is(true));
+        await(() -> feed.subscribers() == 0);
+        assertThat(feed.subscribers(), is(0));
+    }
+
+    private void stuckSubscriber() {
+        feed.subscribe(null, new LiveSubscriber.Sink() {
+            @Override
+            public void send(List<LiveEvent> events) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline)
+            Thread.sleep(10);
+    }
+}
@@ -0,0 +1,94 @@
+package com.tsys.tc_spike.live;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class TransactionRingBufferSpecs {
+    private final TransactionRingBuffer ring = new TransactionRingBuffer(4);
+    private final List<String> events = new ArrayList<>();
+    private final List<Long> gaps = new ArrayList<>();
+    private final TransactionRingBuffer.Reader reader = new TransactionRingBuffer.Reader() {
+        @Override
+        public void event(long sequence, String data) {
+            events.add(sequence + ":" + data);
+        }
+
+        @Override
+        public void gap(long missed) {
+            gaps.add(missed);
+        }
+    };
+
+    @Test
+    public void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionRingBuffer(5));
+    }
+
+    @Test
+    public void readsPublishedEventsInSequence() {
+        ring.publish("a");
+        ring.publish("b");
+
+        final long next = ring.read(0, 10, reader);
+
+        assertThat(next, is(2L));
+        assertThat(events, contains("0:a", "1:b"));
+        assertThat(gaps, empty());
+    }
+
+    @Test
+    public void readsNothingWhenCaughtUp() {
+        ring.publish("a");
+
+        assertThat(ring.read(1, 10, reader), is(1L));
+        assertThat(events, empty());
+    }
+
+    @Test
+    public void readsAtMostTheRequestedNumberOfEvents() {
+        ring.publish("a");
+        ring.publish("b");
+        ring.publish("c");
+
+        assertThat(ring.read(0, 2, reader), is(2L));
+        assertThat(events, contains("0:a", "1:b"));
+    }
+
+    @Test
+    public void aLappedReaderIsToldAboutTheGapAndSkipsToTheOldestEvent() {
+        for (String data : List.of("a", "b", "c", "d", "e", "f"))
+            ring.publish(data);
+
+        final long next = ring.read(0, 10, reader);
+
+        assertThat(next, is(6L));
+        assertThat(gaps, contains(2L));
+        assertThat(events, contains("2:c", "3:d", "4:e", "5:f"));
+    }
+
+    @Test
+    public void readersKeepTheirOwnPosition() {
+        ring.publish("a");
+        ring.publish("b");
+        final long fast = ring.read(0, 10, reader);
+        events.clear();
+
+        ring.publish("c");
+
+        assertThat(ring.read(fast, 10, reader), is(3L));
+        assertThat(events, contains("2:c"));
+        events.clear();
+        assertThat(ring.read(0, 10, reader), is(3L));
+        assertThat(events, contains("0:a", "1:b", "2:c"));
+    }
+}
@@ -0,0 +1,206 @@
+package com.tsys.tc_spike.migration;
+
+import com.tsys.tc_spike.batch.KeyRange;
+import com.tsys.tc_spike.repository.TransactionRowMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Migrates ROWS transactions from a MySQL container to a Postgres container,
+// once per worker count, printing the rows/sec of each, and checks that both
+// databases then hold the very same rows (by a fingerprint of all the rows in
+// the order of their ids).
+//
+// The number of rows can be changed using -Dbenchmark.rows=...
+@Testcontainers
+@Tag("IntegrationTest")
+public class TransactionMigratorSpecsUsingMySQLAndPostgresTestContainers {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 200_000);
+    private static final int RANGES = 16;
+    private static final int BATCH_SIZE = 5_000;
+    private static final int[] WORKERS = {1, 2, 4, 8};
+    // The default sizes of the pools the migrator gets in the application:
+    // migration.source.maximum-pool-size and datasource.pools.batch.*.
+    private static final int SOURCE_POOL_SIZE = 8;
+    private static final int TARGET_POOL_SIZE = 4;
+    private static final long CONNECTION_TIMEOUT_MILLIS = 30_000;
+
+    @Container
+    private static final MySQLContainer MYSQL = (MySQLContainer) new MySQLContainer(DockerImageName.parse("mysql:8.0.23"))
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withUrlParam("rewriteBatchedStatements", "true")
+            .withInitScript("mysql/03_schema.sql")
+            .withCommand("mysqld --transaction_isolation=READ-COMMITTED");
+
+    @Container
+    private static final JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    private static HikariDataSource source;
+    private static HikariDataSource target;
+    private static JdbcTemplate mysql;
+    private static JdbcTemplate postgres;
+
+    private TransactionMigrator migrator;
+
+    @BeforeAll
+    public static void seed() {
+        source = pool(MYSQL, SOURCE_POOL_SIZE, CONNECTION_TIMEOUT_MILLIS);
+        target = pool(POSTGRES, TARGET_POOL_SIZE, CONNECTION_TIMEOUT_MILLIS);
+        mysql = new JdbcTemplate(source);
+        postgres = new JdbcTemplate(target);
+        insertIntoSource(0, ROWS);
+    }
+
+    @AfterAll
+    public static void close() {
+        source.close();
+        target.close();
+    }
+
+    @BeforeEach
+    public void emptyTarget() {
+        postgres.update("TRUNCATE transactions");
+        postgres.update("DELETE FROM batch_checkpoints");
+        migrator = new TransactionMigrator(source, target, RANGES, BATCH_SIZE);
+    }
+
+    @Test
+    public void copiesAllRowsWithAnyNumberOfWorkers() {
+        for (int workers : WORKERS) {
+            emptyTarget();
+
+            final var summary = migrator.migrate(workers);
+
+            assertThat(summary.rows(), is(count(mysql)));
+            assertThat(fingerprint(postgres), is(fingerprint(mysql)));
+            System.out.printf("Migrated %d rows with %d workers in %d ms = %.0f rows/sec%n",
+                    summary.rows(), workers, summary.elapsedMillis(), summary.rowsPerSecond());
+        }
+    }
+
+    @Test
+    public void skipsTheRangesAlreadyCopied() {
+        migrator.migrate(4);
+
+        assertThat(migrator.migrate(4).rows(), is(0L));
+        assertThat(count(postgres), is(count(mysql)));
+    }
+
+    @Test
+    public void resumesARangeAfterItsLastCommittedBatch() {
+        migrator.migrate(4);
+        // As if the copy of the first range had died after committing a batch.
+        final var upTo = KeyRange.split(RANGES).get(0).to();
+        final var lastCopied = postgres.queryForObject("SELECT id FROM transactions WHERE id < ? ORDER BY id OFFSET 100 LIMIT 1",
+                UUID.class, upTo);
+        final int lost = postgres.update("DELETE FROM transactions WHERE id > ? AND id < ?", lastCopied, upTo);
+        postgres.update("UPDATE batch_checkpoints SET last_key = ?, completed = false WHERE partition_no = 0", lastCopied.toString());
+
+        final var resumed = migrator.migrate(2);
+
+        assertThat(lost, is(greaterThan(0)));
+        assertThat(resumed.rows(), is((long) lost));
+        assertThat(fingerprint(postgres), is(fingerprint(mysql)));
+    }
+
+    @Test
+    public void catchUpConvergesWithTheChangesMadeDuringTheCopy() {
+        migrator.migrate(4);
+        mysql.update("UPDATE transactions SET version = version + 1, status = 'settled' ORDER BY id LIMIT 50");
+        mysql.update("DELETE FROM transactions ORDER BY id DESC LIMIT 25");
+        insertIntoSource(ROWS, 100);
+
+        final var caughtUp = migrator.catchUp(TARGET_POOL_SIZE, null);
+
+        assertThat(caughtUp.upserted(), is(150L));
+        assertThat(caughtUp.deleted(), is(25L));
+        assertThat(fingerprint(postgres), is(fingerprint(mysql)));
+        assertThat(migrator.catchUp(TARGET_POOL_SIZE, null).converged(), is(true));
+        System.out.printf("Caught up %d rows compared in %d ms%n", caughtUp.compared(), caughtUp.elapsedMillis());
+    }
+
+    private static HikariDataSource pool(JdbcDatabaseContainer container, int maximumPoolSize, long connectionTimeoutMillis) {
+        final var pool = new HikariDataSource();
+        pool.setJdbcUrl(container.getJdbcUrl());
+        pool.setUsername(container.getUsername());
+        pool.setPassword(container.getPassword());
+        pool.setMaximumPoolSize(maximumPoolSize);
+        pool.setConnectionTimeout(connectionTimeoutMillis);
+        return pool;
+    }
+
+    private static void insertIntoSource(int first, int rows) {
+        final var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        final int chunk = 10_000;
+        for (int from = first; from < first + rows; from += chunk) {
+            final int start = from;
+            final int size = Math.min(chunk, first + rows - from);
+            mysql.batchUpdate("INSERT INTO transactions (id, version, date, order_id, status, amount, currency) VALUES (?, 0, ?, ?, ?, ?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            final int n = start + i;
+                            final var id = UUID.randomUUID();
+                            ps.setBytes(1, ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array());
+                            ps.setTimestamp(2, Timestamp.from(Instant.parse("2021-03-01T00:00:00Z").plusSeconds(n)), utc);
+                            ps.setString(3, "MIGRATE-ORDER-ID-" + n);
+                            ps.setString(4, n % 3 == 0 ? "failed" : "accepted");
+                            ps.setDouble(5, n % 1000 + 0.25);
+                            ps.setString(6, n % 2 == 0 ? "INR" : "USD");
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    });
+        }
+    }
+
+    private static long count(JdbcTemplate database) {
+        return database.queryForObject("SELECT count(*) FROM transactions", Long.class);
+    }
+
+    // A hash over all rows in the order of their ids, the same on both
+    // databases only if they hold the same rows.
+    private static long fingerprint(JdbcTemplate database) {
+        final var mapper = new TransactionRowMapper();
+        final var hash = new AtomicLong(17);
+        database.query("SELECT id, version, date, order_id, status, amount, currency FROM transactions ORDER BY id", rs -> {
+            final int row = Objects.hash(mapper.mapRow(rs, 0), rs.getLong("version"));
+            hash.updateAndGet(h -> 31 * h + row);
+        });
+        return hash.get();
+    }
+}
@@ -0,0 +1,133 @@
+package com.tsys.tc_spike.orderindex;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class OrderIdIndexSpecs {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void findsWhatWasPutAndNothingElse() throws IOException {
+        final var id = UUID.randomUUID();
+        try (var index = OrderIdIndex.open(directory.resolve("order-ids.idx"), 16)) {
+            index.put("ORDER-ID-1", id, 3);
+
+            assertThat(index.find("ORDER-ID-1"), is(new OrderIdIndex.Entry(id, 3)));
+            assertThat(index.find("ORDER-ID-2"), is(nullValue()));
+            assertThat(index.hits(), is(1L));
+            assertThat(index.misses(), is(1L));
+        }
+    }
+
+    @Test
+    public void keepsTheLaterVersionOfTheSameTransaction() throws IOException {
+        final var id = UUID.randomUUID();
+        final var other = UUID.randomUUID();
+        try (var index = OrderIdIndex.open(directory.resolve("order-ids.idx"), 16)) {
+            index.put("ORDER-ID-1", id, 5);
+            index.put("ORDER-ID-1", id, 4);
+            assertThat(index.find("ORDER-ID-1"), is(new OrderIdIndex.Entry(id, 5)));
+
+            index.put("ORDER-ID-1", other, 0);
+            assertThat(index.find("ORDER-ID-1"), is(new OrderIdIndex.Entry(other, 0)));
+            assertThat(index.size(), is(1L));
+        }
+    }
+
+    @Test
+    public void removesOnlyTheEntryOfTheGivenTransaction() throws IOException {
+        final var id = UUID.randomUUID();
+        try (var index = OrderIdIndex.open(directory.resolve("order-ids.idx"), 16)) {
+            index.put("ORDER-ID-1", id, 0);
+
+            index.remove("ORDER-ID-1", UUID.randomUUID());
+            assertThat(index.find("ORDER-ID-1"), is(notNullValue()));
+
+            index.remove("ORDER-ID-1", id);
+            assertThat(index.find("ORDER-ID-1"), is(nullValue()));
+            assertThat(index.size(), is(0L));
+        }
+    }
+
+    @Test
+    public void behavesLikeAMapThroughGrowingAndRemoving() throws IOException {
+        final var random = new Random(47);
+        final Map<String, UUID> expected = new HashMap<>();
+        try (var index = OrderIdIndex.open(directory.resolve("order-ids.idx"), 16)) {
+            for (int i = 0; i < 50_000; i++) {
+                final var orderId = "ORDER-ID-" + random.nextInt(20_000);
+                final var current = expected.get(orderId);
+                if (current != null && random.nextInt(3) == 0) {
+                    index.remove(orderId, current);
+                    expected.remove(orderId);
+                } else {
+                    final var id = UUID.randomUUID();
+                    index.put(orderId, id, 0);
+                    expected.put(orderId, id);
+                }
+            }
+
+            assertThat(index.size(), is((long) expected.size()));
+            assertThat(index.capacity(), is(greaterThan((long) expected.size())));
+            for (int i = 0; i < 20_000; i++) {
+                final var orderId = "ORDER-ID-" + i;
+                final var entry = index.find(orderId);
+                assertThat(orderId, entry == null ? null : entry.id(), is(expected.get(orderId)));
+            }
+        }
+    }
+
+    @Test
+    public void survivesReopening() throws IOException {
+        final var file = directory.resolve("order-ids.idx");
+        final Map<String, UUID> ids = new HashMap<>();
+        try (var index = OrderIdIndex.open(file, 16)) {
+            for (int i = 0; i < 5_000; i++) {
+                ids.put("ORDER-ID-" + i, UUID.randomUUID());
+                index.put("ORDER-ID-" + i, ids.get("ORDER-ID-" + i), i);
+            }
+        }
+
+        try (var index = OrderIdIndex.open(file, 16)) {
+            assertThat(index.size(), is(5_000L));
+            for (int i = 0; i < 5_000; i++)
+                assertThat(index.find("ORDER-ID-" + i), is(new OrderIdIndex.Entry(ids.get("ORDER-ID-" + i), i)));
+        }
+    }
+
+    @Test
+    public void opensAnIndexThatWasNotClosed() throws IOException {
+        final var file = directory.resolve("order-ids.idx");
+        final var abandoned = OrderIdIndex.open(file, 16);
+        for (int i = 0; i < 100; i++)
+            abandoned.put("ORDER-ID-" + i, UUID.randomUUID(), 0);
+
+        try (var index = OrderIdIndex.open(file, 16)) {
+            assertThat(index.size(), is(100L));
+            assertThat(index.find("ORDER-ID-42"), is(notNullValue()));
+        }
+    }
+
+    @Test
+    public void refusesAFileThatIsNotAnIndex() throws IOException {
+        final var file = Files.write(directory.resolve("not-an-index"), new byte[OrderIdIndex.HEADER_SIZE]);
+
+        assertThrows(IllegalArgumentException.class, () -> OrderIdIndex.open(file, 16));
+    }
+}
@@ -0,0 +1,204 @@
+package com.tsys.tc_spike.outbox;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// The outbox rows must be committed for the relay to see them, so this spec
+// does not run each test in a rolled-back transaction like the other
+// @DataJpaTests do.
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(OutboxWriter.class)
+@Tag("IntegrationTest")
+public class OutboxRelaySpecsUsingKafkaAndPostgresTestContainers {
+    private static final String TOPIC = "transactions";
+    private static final int EVENTS = Integer.getInteger("outbox.events", 1_000_000);
+    private static final int RELAYS = 4;
+
+    @Container
+    public static JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    @Container
+    public static KafkaContainer KAFKA = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:5.4.3"));
+
+    @DynamicPropertySource
+    static void registerDatabaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.jpa.database", () -> "POSTGRESQL");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> POSTGRES.getUsername());
+        registry.add("spring.datasource.password", () -> POSTGRES.getPassword());
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private TransactionTemplate transactionTemplate;
+    private Producer<String, String> producer;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        producer = new KafkaProducer<>(OutboxConfiguration.producerProperties(KAFKA.getBootstrapServers()));
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        producer.close();
+    }
+
+    @Test
+    public void savingATransactionWritesAnOutboxRowInTheSameTransaction() {
+        final var transaction = aTransaction("ORDER-1");
+
+        transactionRepository.save(transaction);
+
+        final var row = jdbcTemplate.queryForMap("SELECT aggregate_id, aggregate_version, event_type, payload FROM transaction_outbox");
+        assertThat(row.get("aggregate_id"), is(transaction.id.toString()));
+        assertThat(row.get("aggregate_version"), is(0L));
+        assertThat(row.get("event_type"), is("CREATED"));
+        assertThat((String) row.get("payload"), containsString("\"orderId\":\"ORDER-1\""));
+    }
+
+    @Test
+    public void rollingBackTheTransactionDiscardsTheOutboxRow() {
+        transactionTemplate.executeWithoutResult(status -> {
+            transactionRepository.saveAndFlush(aTransaction("ORDER-1"));
+            assertThat(count("transaction_outbox"), is(1L));
+            status.setRollbackOnly();
+        });
+
+        assertThat(count("transactions"), is(0L));
+        assertThat(count("transaction_outbox"), is(0L));
+    }
+
+    @Test
+    public void relaysSavedTransactionsAndRemovesTheirOutboxRows() {
+        transactionRepository.saveAll(List.of(aTransaction("ORDER-1"), aTransaction("ORDER-2")));
+        final long before = endOffsets();
+
+        final var relay = new OutboxRelay(jdbcTemplate, transactionTemplate, producer, TOPIC, 100, true);
+
+        assertThat(relay.drain(), is(2L));
+        assertThat(count("transaction_outbox"), is(0L));
+        assertThat(endOffsets() - before, is(2L));
+    }
+
+    @Test
+    public void marksRowsAsPublishedInsteadOfDeletingThem() {
+        transactionRepository.save(aTransaction("ORDER-1"));
+
+        final var relay = new OutboxRelay(jdbcTemplate, transactionTemplate, producer, TOPIC, 100, false);
+
+        assertThat(relay.drain(), is(1L));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transaction_outbox WHERE published_at IS NOT NULL", Long.class), is(1L));
+        assertThat(relay.drain(), is(0L));
+    }
+
+    // Several relays drain the same outbox concurrently, SKIP LOCKED makes sure
+    // they claim disjoint batches.  Delivery is at-least-once, so Kafka may hold
+    // more records than there were events, but never fewer.
+    @Test
+    public void concurrentRelaysPushAMillionEvents() throws Exception {
+        jdbcTemplate.update("INSERT INTO transaction_outbox (aggregate_id, aggregate_version, event_type, payload, created_at) " +
+                "SELECT gen_random_uuid()::text, 0, 'CREATED', '{\"seq\":' || g || '}', now() FROM generate_series(1, ?) AS g", EVENTS);
+        final long before = endOffsets();
+
+        final List<OutboxRelay> relays = new ArrayList<>();
+        final List<Callable<Long>> drains = new ArrayList<>();
+        for (int i = 0; i < RELAYS; i++) {
+            final var relay = new OutboxRelay(jdbcTemplate, transactionTemplate, producer, TOPIC, 5_000, true);
+            relays.add(relay);
+            drains.add(relay::drain);
+        }
+
+        final var executor = Executors.newFixedThreadPool(RELAYS);
+        final long start = System.nanoTime();
+        long relayed = 0;
+        for (Future<Long> drained : executor.invokeAll(drains))
+            relayed += drained.get();
+        final long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        assertThat(relayed, is((long) EVENTS));
+        assertThat(count("transaction_outbox"), is(0L));
+        assertThat(endOffsets() - before, greaterThanOrEqualTo((long) EVENTS));
+        System.out.printf("Relayed %d events with %d relays in %d ms (%.0f events/sec)%n",
+                relayed, RELAYS, elapsedNanos / 1_000_000, relayed * 1e9 / elapsedNanos);
+        relays.forEach(relay -> System.out.println("relay.metrics() = " + relay.metrics()));
+    }
+
+    private Transaction aTransaction(String orderId) {
+        return new Transaction(UUID.randomUUID(), Instant.now(), "accepted", orderId, new Money(Currency.getInstance("INR"), 100d));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+
+    private long endOffsets() {
+        try (var consumer = new KafkaConsumer<String, String>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, KAFKA.getBootstrapServers(),
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class))) {
+            final var partitions = consumer.partitionsFor(TOPIC).stream()
+                    .map(info -> new TopicPartition(TOPIC, info.partition()))
+                    .toList();
+            return consumer.endOffsets(partitions).values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
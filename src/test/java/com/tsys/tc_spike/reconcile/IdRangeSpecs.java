@@ -0,0 +1,60 @@
+package com.tsys.tc_spike.reconcile;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class IdRangeSpecs {
+    @Test
+    public void theWholeRangeIsOpenAtBothEnds() {
+        final var all = IdRange.all(0);
+
+        assertThat(all, contains(new IdRange(0, 0)));
+        assertThat(all.get(0).from(), is(nullValue()));
+        assertThat(all.get(0).to(), is(nullValue()));
+    }
+
+    @Test
+    public void splitsTheIdsByTheirLeadingBits() {
+        final var ranges = IdRange.all(4);
+
+        assertThat(ranges, hasSize(16));
+        assertThat(ranges.get(0).from(), is(nullValue()));
+        assertThat(ranges.get(0).to(), is(UUID.fromString("10000000-0000-0000-0000-000000000000")));
+        assertThat(ranges.get(7).from(), is(UUID.fromString("70000000-0000-0000-0000-000000000000")));
+        assertThat(ranges.get(7).to(), is(UUID.fromString("80000000-0000-0000-0000-000000000000")));
+        assertThat(ranges.get(15).from(), is(UUID.fromString("f0000000-0000-0000-0000-000000000000")));
+        assertThat(ranges.get(15).to(), is(nullValue()));
+    }
+
+    @Test
+    public void childrenSplitTheirParentInOrder() {
+        final var parent = new IdRange(0xa, 4);
+        final var children = parent.children(4);
+
+        assertThat(children, hasSize(16));
+        assertThat(children.get(0).from(), is(parent.from()));
+        assertThat(children.get(15).to(), is(parent.to()));
+        for (int i = 1; i < children.size(); i++)
+            assertThat(children.get(i).from(), is(children.get(i - 1).to()));
+    }
+
+    @Test
+    public void theLastChildStaysOpenAtTheEnd() {
+        final var last = new IdRange(0xf, 4).children(4).get(15);
+
+        assertThat(last, is(new IdRange(0xff, 8)));
+        assertThat(last.to(), is(nullValue()));
+    }
+
+    @Test
+    public void rejectsMoreBitsThanItCanSplit() {
+        assertThrows(IllegalArgumentException.class, () -> new IdRange(0, IdRange.MAX_BITS + 1));
+    }
+}
@@ -0,0 +1,211 @@
+package com.tsys.tc_spike.reconcile;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static com.tsys.tc_spike.reconcile.Reconciliation.Kind.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Seeds the same ROWS transactions into H2, MySQL and Postgres, then makes
+// Postgres differ from the others in 10 rows: 3 with another status, 2 at
+// another version, 1 with another amount, 2 deleted and 2 inserted.
+// Reconciling any two stores must answer exactly those ids (or none), having
+// fetched the rows of no more ranges than there are differences, each of at
+// most LEAF_ROWS rows a side.  The rows, ranges digested, ranges and rows
+// fetched and time taken are printed.
+//
+// The number of rows can be changed using -Dbenchmark.rows=...
+@Testcontainers
+@Tag("IntegrationTest")
+public class TransactionReconcilerSpecsUsingMySQLAndPostgresTestContainers {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 200_000);
+    private static final int BITS = 8;
+    private static final int LEAF_ROWS = 1000;
+    private static final int PARALLELISM = 4;
+
+    @Container
+    private static final MySQLContainer MYSQL = (MySQLContainer) new MySQLContainer(DockerImageName.parse("mysql:8.0.23"))
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withUrlParam("rewriteBatchedStatements", "true")
+            .withInitScript("mysql/03_schema.sql")
+            .withCommand("mysqld --transaction_isolation=READ-COMMITTED");
+
+    @Container
+    private static final JdbcDatabaseContainer POSTGRES = new PostgreSQLContainer("postgres:latest")
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withInitScript("postgres/03_schema.sql");
+
+    private static final List<HikariDataSource> POOLS = new ArrayList<>();
+    private static TransactionStore h2;
+    private static TransactionStore mysql;
+    private static TransactionStore postgres;
+    private static final List<UUID> UPDATED = new ArrayList<>();
+    private static final List<UUID> DELETED = new ArrayList<>();
+    private static final List<UUID> INSERTED = new ArrayList<>();
+
+    private final TransactionReconciler reconciler = new TransactionReconciler(BITS, LEAF_ROWS, PARALLELISM);
+
+    @BeforeAll
+    public static void seed() {
+        final var h2Pool = pool("jdbc:h2:mem:reconcile;DB_CLOSE_DELAY=-1", "sa", "");
+        final var mysqlPool = pool(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword());
+        final var postgresPool = pool(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        new JdbcTemplate(h2Pool).update("CREATE TABLE transactions (id uuid NOT NULL PRIMARY KEY, version smallint NOT NULL, " +
+                "date timestamp, order_id varchar(255), status varchar(255), amount double precision, currency varchar(255))");
+
+        final var random = new Random(43);
+        final List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++)
+            ids.add(new UUID(random.nextLong(), random.nextLong()));
+        insert(new JdbcTemplate(h2Pool), ids, 0, false);
+        insert(new JdbcTemplate(mysqlPool), ids, 0, true);
+        insert(new JdbcTemplate(postgresPool), ids, 0, false);
+
+        // Eight distinct rows to change.
+        final List<UUID> picked = new ArrayList<>(ids);
+        Collections.shuffle(picked, random);
+        final var changes = new JdbcTemplate(postgresPool);
+        for (int i = 0; i < 3; i++)
+            UPDATED.add(change(changes, "UPDATE transactions SET status = 'settled' WHERE id = ?", picked.get(i)));
+        for (int i = 3; i < 5; i++)
+            UPDATED.add(change(changes, "UPDATE transactions SET version = version + 1 WHERE id = ?", picked.get(i)));
+        UPDATED.add(change(changes, "UPDATE transactions SET amount = amount + 0.01 WHERE id = ?", picked.get(5)));
+        for (int i = 6; i < 8; i++)
+            DELETED.add(change(changes, "DELETE FROM transactions WHERE id = ?", picked.get(i)));
+        for (int i = 0; i < 2; i++)
+            INSERTED.add(new UUID(random.nextLong(), random.nextLong()));
+        insert(changes, INSERTED, ROWS, false);
+
+        h2 = new TransactionStore("h2", h2Pool);
+        mysql = new TransactionStore("mysql", mysqlPool);
+        postgres = new TransactionStore("postgres", postgresPool);
+    }
+
+    @AfterAll
+    public static void close() {
+        POOLS.forEach(HikariDataSource::close);
+    }
+
+    @Test
+    public void findsNothingBetweenIdenticalStores() {
+        final var reconciliation = reconcile(h2, mysql);
+
+        assertThat(reconciliation.consistent(), is(true));
+        assertThat(reconciliation.leftRows(), is((long) ROWS));
+        assertThat(reconciliation.rightRows(), is((long) ROWS));
+        assertThat(reconciliation.nodesCompared(), is(1L << BITS));
+        assertThat(reconciliation.rangesScanned(), is(0));
+        assertThat(reconciliation.rowsFetched(), is(0L));
+    }
+
+    @Test
+    public void findsExactlyTheDifferingIdsBetweenMySQLAndPostgres() {
+        assertFindsTheChangesMadeToPostgres(reconcile(mysql, postgres));
+    }
+
+    @Test
+    public void findsExactlyTheDifferingIdsBetweenH2AndPostgres() {
+        assertFindsTheChangesMadeToPostgres(reconcile(h2, postgres));
+    }
+
+    @Test
+    public void namesTheSideMissingARow() {
+        final var reconciliation = reconcile(postgres, h2);
+
+        assertThat(reconciliation.differences(), hasItems(
+                new Reconciliation.Difference(DELETED.get(0), ONLY_RIGHT),
+                new Reconciliation.Difference(INSERTED.get(0), ONLY_LEFT)));
+    }
+
+    private void assertFindsTheChangesMadeToPostgres(Reconciliation reconciliation) {
+        final List<Reconciliation.Difference> expected = new ArrayList<>();
+        UPDATED.forEach(id -> expected.add(new Reconciliation.Difference(id, CHANGED)));
+        DELETED.forEach(id -> expected.add(new Reconciliation.Difference(id, ONLY_LEFT)));
+        INSERTED.forEach(id -> expected.add(new Reconciliation.Difference(id, ONLY_RIGHT)));
+
+        assertThat(reconciliation.differences(), containsInAnyOrder(expected.toArray()));
+        assertThat(reconciliation.rightRows(), is((long) ROWS));
+        assertThat(reconciliation.rangesScanned(), is(lessThanOrEqualTo(10)));
+        assertThat(reconciliation.rowsFetched(), is(lessThanOrEqualTo(10L * 2 * LEAF_ROWS)));
+    }
+
+    private Reconciliation reconcile(TransactionStore left, TransactionStore right) {
+        final var reconciliation = reconciler.reconcile(left, right);
+        System.out.printf("%s (%d rows) vs %s (%d rows): %d differences, %d ranges digested, %d ranges (%d rows) fetched, in %d ms%n",
+                left.name(), reconciliation.leftRows(), right.name(), reconciliation.rightRows(), reconciliation.differences().size(),
+                reconciliation.nodesCompared(), reconciliation.rangesScanned(), reconciliation.rowsFetched(), reconciliation.elapsedMillis());
+        return reconciliation;
+    }
+
+    private static HikariDataSource pool(String url, String username, String password) {
+        final var pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(2 * PARALLELISM);
+        POOLS.add(pool);
+        return pool;
+    }
+
+    private static UUID change(JdbcTemplate database, String sql, UUID id) {
+        assertThat(database.update(sql, id), is(1));
+        return id;
+    }
+
+    private static void insert(JdbcTemplate database, List<UUID> ids, int first, boolean binaryIds) {
+        final int chunk = 10_000;
+        for (int from = 0; from < ids.size(); from += chunk) {
+            final int start = from;
+            final int size = Math.min(chunk, ids.size() - from);
+            database.batchUpdate("INSERT INTO transactions (id, version, date, order_id, status, amount, currency) VALUES (?, 0, ?, ?, ?, ?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            final int n = first + start + i;
+                            final var id = ids.get(start + i);
+                            if (binaryIds)
+                                ps.setBytes(1, ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array());
+                            else
+                                ps.setObject(1, id);
+                            ps.setTimestamp(2, Timestamp.from(Instant.parse("2021-03-01T00:00:00Z").plusSeconds(n)));
+                            ps.setString(3, "RECONCILE-ORDER-ID-" + n);
+                            ps.setString(4, n % 3 == 0 ? "failed" : "accepted");
+                            ps.setDouble(5, n % 1000 + 0.25);
+                            ps.setString(6, n % 2 == 0 ? "INR" : "USD");
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    });
+        }
+    }
+}
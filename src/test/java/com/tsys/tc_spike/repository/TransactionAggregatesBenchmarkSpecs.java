@@ -0,0 +1,92 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+// Compares pushing the aggregation down to the database (GROUP BY) with the
+// load-and-fold approach (findAll and then Money.add in Java).  Both must
+// yield the same totals; the timings are printed for comparison.
+//
+// The number of rows can be changed using -Dbenchmark.rows=...
+@DataJpaTest
+@Tag("Benchmark")
+public class TransactionAggregatesBenchmarkSpecs {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 20_000);
+    private static final int ROUNDS = 5;
+    private static final List<Currency> CURRENCIES = List.of(Currency.getInstance("INR"), Currency.getInstance("USD"), Currency.getInstance("EUR"));
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    public void seed() {
+        final var start = Instant.parse("2021-03-01T00:00:00Z");
+        for (int i = 0; i < ROWS; i++) {
+            final var currency = CURRENCIES.get(i % CURRENCIES.size());
+            entityManager.persist(new Transaction(UUID.randomUUID(), start.plus(Duration.ofMinutes(i)),
+                    i % 10 == 0 ? "failed" : "accepted", "ORDER-" + i, new Money(currency, (double) (i % 1000))));
+            if (i % 1000 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void pushedDownTotalsMatchLoadAndFoldTotals() {
+        final Map<Currency, Money> folded = loadAndFold();
+        final Map<Currency, Money> pushedDown = pushDown();
+
+        assertThat(pushedDown.keySet(), is(folded.keySet()));
+        folded.forEach((currency, total) -> assertThat(pushedDown.get(currency).amount, closeTo(total.amount, 0.001)));
+
+        final long loadAndFoldNanos = time(this::loadAndFold);
+        final long pushDownNanos = time(this::pushDown);
+        System.out.printf("Totals over %d rows: load-and-fold = %d µs, push-down = %d µs (%.1fx)%n",
+                ROWS, loadAndFoldNanos / 1000, pushDownNanos / 1000, (double) loadAndFoldNanos / pushDownNanos);
+    }
+
+    private Map<Currency, Money> loadAndFold() {
+        final var totals = transactionRepository.findAll().stream()
+                .collect(Collectors.toMap(t -> t.value.currency, t -> t.value, Money::add));
+        entityManager.clear();
+        return totals;
+    }
+
+    private Map<Currency, Money> pushDown() {
+        return transactionRepository.totals(TransactionGrouping.CURRENCY).stream()
+                .collect(Collectors.toMap(TransactionTotal::currency, TransactionTotal::total));
+    }
+
+    private long time(Runnable work) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = System.nanoTime();
+            work.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 
 import jakarta.persistence.EntityManager;
 import javax.sql.DataSource;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 
@@ -251,6 +252,74 @@ public class TransactionRepositorySpecsUsingInMemoryH2Database {
         assertThat(transactionRepository.findAllByOrderIds(List.of(successfulOrderId, failedOrderId)), hasSize(0));
     }
 
+    // Tests for Aggregate Queries pushed down to the database
+    @Test
+    public void totalsAmountsByCurrency() {
+        transactionRepository.saveAll(List.of(succeeded, failed));
+
+        final var totals = transactionRepository.totals(TransactionGrouping.CURRENCY);
+
+        assertThat(totals, hasSize(1));
+        final var inr = totals.get(0);
+        assertThat(inr.currency(), is(Currency.getInstance("INR")));
+        assertThat(inr.count(), is(2L));
+        assertThat(inr.total().amount, closeTo(2100.44, 0.001));
+        assertThat(inr.min().amount, closeTo(99.99, 0.001));
+        assertThat(inr.max().amount, closeTo(2000.45, 0.001));
+    }
+
+    @Test
+    public void totalsAmountsByStatusRestrictedToStatuses() {
+        transactionRepository.saveAll(List.of(succeeded, failed));
+
+        final var totals = transactionRepository.totals(TransactionGrouping.STATUS, TransactionFilter.ALL.withStatuses("failed"));
+
+        assertThat(totals, hasSize(1));
+        assertThat(totals.get(0).group(), is("failed"));
+        assertThat(totals.get(0).count(), is(1L));
+        assertThat(totals.get(0).total().amount, closeTo(99.99, 0.001));
+    }
+
+    @Test
+    public void totalsAmountsByDayWithinDateRange() {
+        final var noon = Instant.parse("2021-03-17T12:00:00Z");
+        final var today = new Transaction(successfulTxnId, noon, "accepted", successfulOrderId, new Money(Currency.getInstance("INR"), 10d));
+        final var tomorrow = new Transaction(failedTxnId, noon.plus(Duration.ofDays(1)), "accepted", failedOrderId, new Money(Currency.getInstance("INR"), 20d));
+        transactionRepository.saveAll(List.of(today, tomorrow));
+
+        final var totals = transactionRepository.totals(TransactionGrouping.DAY, TransactionFilter.between(noon.minus(Duration.ofHours(1)), noon.plus(Duration.ofDays(2))));
+
+        assertThat(totals.stream().map(TransactionTotal::group).toList(), contains("2021-03-17", "2021-03-18"));
+        assertThat(totals.stream().map(TransactionTotal::count).toList(), contains(1L, 1L));
+        assertThat(transactionRepository.totals(TransactionGrouping.HOUR, TransactionFilter.between(noon.plus(Duration.ofHours(1)), null)), hasSize(1));
+    }
+
+    @Test
+    public void totalsOfAnEmptyRepositoryYieldsNothing() {
+        assertThat(transactionRepository.totals(TransactionGrouping.HOUR), hasSize(0));
+    }
+
+    // Tests for Projections
+    @Test
+    public void findsVersionById() {
+        transactionRepository.saveAll(List.of(succeeded, failed));
+
+        assertThat(transactionRepository.findVersionById(successfulTxnId), is(Optional.of(0L)));
+    }
+
+    @Test
+    public void findsIdAndVersionByOrderId() {
+        transactionRepository.saveAll(List.of(succeeded, failed));
+
+        assertThat(transactionRepository.findVersionByOrderId(failedOrderId), is(Optional.of(new TransactionVersion(failedTxnId, 0L))));
+    }
+
+    @Test
+    public void findingVersionsInAnEmptyRepositoryYieldsNothing() {
+        assertThat(transactionRepository.findVersionById(successfulTxnId), is(Optional.empty()));
+        assertThat(transactionRepository.findVersionByOrderId(successfulOrderId), is(Optional.empty()));
+    }
+
     private <T> List<T> toList(Iterable<T> iterable) {
         var list = new ArrayList<T>();
         iterable.forEach(list::add);
@@ -0,0 +1,178 @@
+package com.tsys.tc_spike.repository;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.domain.TransactionChanged;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// The compare-and-set status transitions take a different path on every
+// database, so these specs run against each container database (see the
+// subclasses).  The changes must be committed to be seen by concurrent
+// transitions, so the specs do not run in a rolled-back transaction.
+//
+// The benchmark moves ROWS transactions from one status to another by loading
+// and saving every entity, by a transitionStatus per id, and by a single
+// transitionStatuses, and prints the throughput of each.  The number of rows can
+// be changed using -Dbenchmark.rows=...
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+abstract class TransactionStatusTransitionsSpecs {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 2_000);
+    private static final int CONTENDERS = 8;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private ApplicationEvents events;
+
+    private final UUID id = UUID.nameUUIDFromBytes("CAS-TXNID-1".getBytes());
+
+    @BeforeEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM transactions");
+    }
+
+    @Test
+    public void transitionsOnlyFromTheExpectedStatus() {
+        transactionRepository.save(aTransaction(id, "accepted"));
+
+        assertThat(transactionRepository.transitionStatus(id, "failed", "settled"), is(false));
+        assertThat(transactionRepository.transitionStatus(id, "accepted", "settled"), is(true));
+        assertThat(transactionRepository.transitionStatus(id, "accepted", "settled"), is(false));
+
+        final var stored = transactionRepository.findById(id).orElseThrow();
+        assertThat(stored.status, is("settled"));
+        assertThat(stored.version(), is(1L));
+    }
+
+    @Test
+    public void transitionsOnlyAtTheExpectedVersion() {
+        transactionRepository.save(aTransaction(id, "accepted"));
+
+        assertThat(transactionRepository.transitionStatus(id, "accepted", "settled", 3), is(false));
+        assertThat(transactionRepository.transitionStatus(id, "accepted", "settled", 0), is(true));
+        assertThat(transactionRepository.findVersionById(id).orElseThrow(), is(1L));
+    }
+
+    @Test
+    public void answersFalseForAnUnknownTransaction() {
+        assertThat(transactionRepository.transitionStatus(UUID.randomUUID(), "accepted", "settled"), is(false));
+    }
+
+    @Test
+    public void publishesTheChangeWithTheNewVersion() {
+        transactionRepository.save(aTransaction(id, "accepted"));
+        events.clear();
+
+        transactionRepository.transitionStatus(id, "accepted", "settled");
+
+        final var changes = events.stream(TransactionChanged.class).toList();
+        assertThat(changes, hasSize(1));
+        assertThat(changes.get(0).kind(), is(TransactionChanged.Kind.UPDATED));
+        assertThat(changes.get(0).transaction().id, is(id));
+        assertThat(changes.get(0).transaction().status, is("settled"));
+        assertThat(changes.get(0).version(), is(1L));
+    }
+
+    @Test
+    public void transitionsManyInOneGoSkippingThoseInAnotherStatus() {
+        final var accepted = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        final var failed = UUID.randomUUID();
+        accepted.forEach(acceptedId -> transactionRepository.save(aTransaction(acceptedId, "accepted")));
+        transactionRepository.save(aTransaction(failed, "failed"));
+
+        final var all = new ArrayList<>(accepted);
+        all.add(failed);
+        all.add(UUID.randomUUID());
+        final Set<UUID> transitioned = transactionRepository.transitionStatuses(all, "accepted", "settled");
+
+        assertThat(transitioned, is(Set.copyOf(accepted)));
+        assertThat(transactionRepository.findById(failed).orElseThrow().status, is("failed"));
+        accepted.forEach(acceptedId -> assertThat(transactionRepository.findById(acceptedId).orElseThrow().status, is("settled")));
+    }
+
+    @Test
+    public void exactlyOneOfConcurrentTransitionsWins() throws Exception {
+        transactionRepository.save(aTransaction(id, "accepted"));
+
+        final List<Callable<Boolean>> contenders = new ArrayList<>();
+        for (int i = 0; i < CONTENDERS; i++)
+            contenders.add(() -> transactionRepository.transitionStatus(id, "accepted", "settled"));
+        final var executor = Executors.newFixedThreadPool(CONTENDERS);
+        int won = 0;
+        for (Future<Boolean> contender : executor.invokeAll(contenders))
+            won += contender.get() ? 1 : 0;
+        executor.shutdown();
+
+        assertThat(won, is(1));
+        assertThat(transactionRepository.findVersionById(id).orElseThrow(), is(1L));
+    }
+
+    @Test
+    public void benchmarksTransitionsAgainstLoadAndSave() {
+        final List<UUID> ids = new ArrayList<>();
+        final List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            final var transaction = aTransaction(UUID.randomUUID(), "accepted");
+            ids.add(transaction.id);
+            transactions.add(transaction);
+        }
+        transactionRepository.insertAllNew(transactions);
+        final var transactionTemplate = new TransactionTemplate(transactionManager);
+
+        final long loadAndSaveNanos = time(() -> ids.forEach(each -> transactionTemplate.executeWithoutResult(status -> {
+            final var current = transactionRepository.findById(each).orElseThrow();
+            transactionRepository.saveAndFlush(current.withStatus("settled"));
+        })));
+        final long transitionNanos = time(() -> ids.forEach(each -> transactionRepository.transitionStatus(each, "settled", "refunded")));
+        final var transitioned = new AtomicReference<Set<UUID>>();
+        final long bulkNanos = time(() -> transitioned.set(transactionRepository.transitionStatuses(ids, "refunded", "closed")));
+
+        assertThat(transitioned.get(), hasSize(ROWS));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transactions WHERE status = 'closed' AND version = 3", Long.class),
+                is((long) ROWS));
+        System.out.printf("%s: %d status changes by load-and-save = %.0f/sec, transitionStatus = %.0f/sec, transitionStatuses = %.0f/sec%n",
+                getClass().getSimpleName(), ROWS, perSecond(loadAndSaveNanos), perSecond(transitionNanos), perSecond(bulkNanos));
+    }
+
+    private static long time(Runnable work) {
+        final long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+
+    private static double perSecond(long nanos) {
+        return ROWS * 1e9 / nanos;
+    }
+
+    private static Transaction aTransaction(UUID id, String status) {
+        return new Transaction(id, Instant.parse("2021-03-17T10:15:30Z"), status, "CAS-" + id, new Money(Currency.getInstance("INR"), 100d));
+    }
+}
@@ -0,0 +1,10 @@
+package com.tsys.tc_spike.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+// H2 selects the changed rows from the FINAL TABLE of the UPDATE.
+@DataJpaTest
+@Tag("IntegrationTest")
+public class TransactionStatusTransitionsSpecsUsingInMemoryH2Database extends TransactionStatusTransitionsSpecs {
+}
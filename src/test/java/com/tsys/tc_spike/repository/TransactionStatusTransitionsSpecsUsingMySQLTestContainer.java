@@ -0,0 +1,38 @@
+package com.tsys.tc_spike.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+// MySQL has no UPDATE ... RETURNING, so the rows are locked using
+// SELECT ... FOR UPDATE and then updated.
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Tag("IntegrationTest")
+public class TransactionStatusTransitionsSpecsUsingMySQLTestContainer extends TransactionStatusTransitionsSpecs {
+
+    @Container
+    private static final MySQLContainer MYSQL = (MySQLContainer) new MySQLContainer(DockerImageName.parse("mysql:8.0.23"))
+            .withDatabaseName("tcspike")
+            .withUsername("tcspikeUser")
+            .withPassword("TcspikePassword")
+            .withCommand("mysqld --transaction_isolation=READ-COMMITTED");
+
+    @DynamicPropertySource
+    static void registerDatabaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.jpa.database", () -> "MYSQL");
+        registry.add("spring.datasource.url",
+                () -> String.format("%s?TC_INITSCRIPT=file:src/main/resources/mysql/03_schema.sql",
+                        MYSQL.getJdbcUrl().replace("jdbc:", "jdbc:tc:")));
+        registry.add("spring.datasource.username", () -> MYSQL.getUsername());
+        registry.add("spring.datasource.password", () -> MYSQL.getPassword());
+    }
+}
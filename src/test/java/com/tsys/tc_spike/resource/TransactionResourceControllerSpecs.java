@@ -0,0 +1,124 @@
+package com.tsys.tc_spike.resource;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Instant;
+import java.util.Currency;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Tag("End-To-End-Test")
+public class TransactionResourceControllerSpecs {
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 2_000);
+
+    private final UUID id = UUID.nameUUIDFromBytes("ETAG-TXNID-1".getBytes());
+    private final String orderId = "ETAG-ORDER-ID-1";
+    private final Transaction transaction = new Transaction(id, Instant.parse("2021-03-17T10:15:30Z"), "accepted", orderId,
+            new Money(Currency.getInstance("INR"), 2000.45));
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        transactionRepository.save(transaction);
+    }
+
+    @Test
+    public void answersTheTransactionWithAnETagDerivedFromItsVersion() {
+        webTestClient.get().uri("/transactions/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + id + ".0\"")
+                .expectBody().jsonPath("$.orderId").isEqualTo(orderId);
+    }
+
+    @Test
+    public void answersNotModifiedWhenTheVersionIsUnchanged() {
+        final var body = webTestClient.get().uri("/transactions/{id}", id)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + id + ".0\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + id + ".0\"")
+                .expectBody().returnResult().getResponseBody();
+
+        assertThat(body, nullValue());
+    }
+
+    @Test
+    public void answersTheUpdatedTransactionOnceTheVersionHasMoved() {
+        transactionRepository.save(new Transaction(id, transaction.date, "settled", orderId, transaction.value));
+        final var etag = "\"" + id + ".0\"";
+
+        webTestClient.get().uri("/transactions/by-order/{orderId}", orderId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + id + ".1\"")
+                .expectBody().jsonPath("$.status").isEqualTo("settled");
+    }
+
+    @Test
+    public void answersNotFoundForUnknownTransactions() {
+        webTestClient.get().uri("/transactions/{id}", UUID.randomUUID())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"whatever\"")
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.get().uri("/transactions/by-order/{orderId}", "UNKNOWN")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    // Compares the rate of conditional requests answered with 304 against that
+    // of unconditional ones answered with 200 and the serialised entity.
+    @Test
+    public void notModifiedResponsesAreServedFasterThanFullOnes() {
+        final var etag = "\"" + id + ".0\"";
+        final double fullRate = rate(HttpStatus.OK, null);
+        final double notModifiedRate = rate(HttpStatus.NOT_MODIFIED, etag);
+
+        System.out.printf("%d requests: 200 at %.0f req/s, 304 at %.0f req/s%n", REQUESTS, fullRate, notModifiedRate);
+        assertThat(notModifiedRate > 0 && fullRate > 0, is(true));
+    }
+
+    private double rate(HttpStatus expected, String ifNoneMatch) {
+        for (int i = 0; i < REQUESTS / 10; i++)
+            request(expected, ifNoneMatch);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++)
+            request(expected, ifNoneMatch);
+        return REQUESTS * 1e9 / (System.nanoTime() - start);
+    }
+
+    private void request(HttpStatus expected, String ifNoneMatch) {
+        webTestClient.get().uri("/transactions/{id}", id)
+                .headers(headers -> {
+                    if (ifNoneMatch != null)
+                        headers.setIfNoneMatch(ifNoneMatch);
+                })
+                .exchange()
+                .expectStatus().isEqualTo(expected);
+    }
+}
@@ -0,0 +1,107 @@
+package com.tsys.tc_spike.retry;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class ConflictRetrySpecs {
+    private static final String UNIT = "Orders.changeStatus";
+    private static final RetryPolicy POLICY = new RetryPolicy(3, 1, 4);
+
+    private final UUID id = UUID.randomUUID();
+    private final ContentionMetrics metrics = new ContentionMetrics();
+    private final AtomicInteger cleared = new AtomicInteger();
+    private final ConflictRetry retry = new ConflictRetry(metrics, cleared::incrementAndGet);
+
+    @Test
+    public void retriesConflictsUntilAnAttemptSucceeds() throws Throwable {
+        final var attempts = new AtomicInteger();
+
+        final var result = retry.execute(UNIT, POLICY, () -> {
+            if (attempts.incrementAndGet() < 3)
+                throw conflict();
+            return "settled";
+        });
+
+        assertThat(result, is("settled"));
+        assertThat(attempts.get(), is(3));
+        assertThat(cleared.get(), is(2));
+        assertThat(metrics.executions(UNIT), is(1L));
+        assertThat(metrics.attempts(UNIT), is(3L));
+        assertThat(metrics.conflicts(UNIT), is(2L));
+        assertThat(metrics.exhausted(UNIT), is(0L));
+        assertThat(metrics.contentionRate(UNIT), closeTo(2 / 3d, 1e-9));
+    }
+
+    @Test
+    public void passesTheConflictOnOnceTheAttemptsAreExhausted() {
+        final var attempts = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> retry.execute(UNIT, POLICY, () -> {
+            attempts.incrementAndGet();
+            throw conflict();
+        }));
+
+        assertThat(attempts.get(), is(POLICY.maxAttempts()));
+        assertThat(metrics.exhausted(UNIT), is(1L));
+    }
+
+    @Test
+    public void doesNotRetryOtherFailures() {
+        final var attempts = new AtomicInteger();
+
+        assertThrows(DataIntegrityViolationException.class, () -> retry.execute(UNIT, POLICY, () -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("duplicate key");
+        }));
+
+        assertThat(attempts.get(), is(1));
+        assertThat(metrics.conflicts(UNIT), is(0L));
+    }
+
+    @Test
+    public void recordsConflictsPerEntityAndInstance() throws Throwable {
+        final var attempts = new AtomicInteger();
+
+        retry.execute(UNIT, POLICY, () -> {
+            if (attempts.incrementAndGet() == 1)
+                throw conflict();
+            return null;
+        });
+
+        assertThat(metrics.entityConflicts("Transaction"), is(1L));
+        assertThat(metrics.entityContentionRate("Transaction"), closeTo(0.5, 1e-9));
+        assertThat(metrics.hottest(1), hasEntry("Transaction#" + id, 1L));
+    }
+
+    @Test
+    public void doublesTheBackoffCapUpToTheMaximum() {
+        final var policy = new RetryPolicy(10, 5, 200);
+
+        assertThat(policy.maxBackoffNanos(1), is(TimeUnit.MILLISECONDS.toNanos(5)));
+        assertThat(policy.maxBackoffNanos(2), is(TimeUnit.MILLISECONDS.toNanos(10)));
+        assertThat(policy.maxBackoffNanos(4), is(TimeUnit.MILLISECONDS.toNanos(40)));
+        assertThat(policy.maxBackoffNanos(7), is(TimeUnit.MILLISECONDS.toNanos(200)));
+        for (int i = 0; i < 1000; i++)
+            assertThat(policy.backoffNanos(3), allOf(greaterThanOrEqualTo(0L), lessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20))));
+    }
+
+    @Test
+    public void rejectsPoliciesWithoutAnyAttempt() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(0, 5, 200));
+    }
+
+    private ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException("com.tsys.tc_spike.domain.Transaction", id);
+    }
+}
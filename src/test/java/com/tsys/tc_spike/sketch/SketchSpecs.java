@@ -0,0 +1,191 @@
+package com.tsys.tc_spike.sketch;
+
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class SketchSpecs {
+    private static final TransactionSketch.Sizing SIZING = new TransactionSketch.Sizing(12, 200, 5, 2048, 16);
+
+    @Test
+    public void countsDistinctKeysWithinTheStandardError() {
+        final var sketch = new HyperLogLog(12);
+        for (int i = 0; i < 200_000; i++) {
+            sketch.add(hash("ORDER-" + i));
+            // Every key twice.
+            sketch.add(hash("ORDER-" + i));
+        }
+
+        assertThat((double) sketch.estimate(), is(closeTo(200_000, 200_000 * 3 * sketch.standardError())));
+    }
+
+    @Test
+    public void countsFewDistinctKeysNearlyExactly() {
+        final var sketch = new HyperLogLog(12);
+        for (int i = 0; i < 100; i++)
+            sketch.add(hash("ORDER-" + i));
+
+        assertThat((double) sketch.estimate(), is(closeTo(100, 2)));
+    }
+
+    @Test
+    public void mergedDistinctCountsCountTheUnion() throws IOException {
+        final var first = new HyperLogLog(12);
+        final var second = new HyperLogLog(12);
+        for (int i = 0; i < 60_000; i++)
+            first.add(hash("ORDER-" + i));
+        for (int i = 40_000; i < 100_000; i++)
+            second.add(hash("ORDER-" + i));
+
+        first.merge(roundTrip(second, HyperLogLog::writeTo, HyperLogLog::readFrom));
+
+        assertThat((double) first.estimate(), is(closeTo(100_000, 100_000 * 3 * first.standardError())));
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    public void answersQuantilesWithinTheRankError() {
+        final List<Integer> values = shuffled(1_000_000);
+        final var sketch = new KllSketch(200);
+        values.forEach(sketch::add);
+
+        assertThat(sketch.n(), is(1_000_000L));
+        for (double quantile : List.of(0.01, 0.25, 0.5, 0.9, 0.99))
+            assertThat(sketch.quantile(quantile), is(closeTo(quantile * 1_000_000, 1_000_000 * sketch.normalizedRankError())));
+        assertThat(sketch.quantile(0), is(0d));
+        assertThat(sketch.quantile(1), is(999_999d));
+    }
+
+    @Test
+    public void answersQuantilesOfFewValuesExactly() {
+        final var sketch = new KllSketch(200);
+        for (int value : shuffled(100))
+            sketch.add(value);
+
+        assertThat(sketch.quantile(0.5), is(49d));
+        assertThat(sketch.quantile(0.9), is(89d));
+        assertThat(new KllSketch(200).quantile(0.5), is(Double.NaN));
+    }
+
+    @Test
+    public void mergedQuantilesAreThoseOfAllValues() throws IOException {
+        final var low = new KllSketch(200);
+        final var high = new KllSketch(200);
+        for (int value : shuffled(500_000)) {
+            low.add(value);
+            high.add(500_000 + value);
+        }
+
+        low.merge(roundTrip(high, KllSketch::writeTo, KllSketch::readFrom));
+
+        assertThat(low.n(), is(1_000_000L));
+        assertThat(low.quantile(0.5), is(closeTo(500_000, 1_000_000 * low.normalizedRankError())));
+        assertThat(low.quantile(0.75), is(closeTo(750_000, 1_000_000 * low.normalizedRankError())));
+    }
+
+    @Test
+    public void neverUndercountsAndOvercountsWithinTheErrorBound() throws IOException {
+        final var sketch = new CountMinSketch(5, 2048);
+        final var random = new Random(50);
+        final int[] counts = new int[20_000];
+        for (int i = 0; i < 200_000; i++) {
+            // A few keys written far more often than the others.
+            final int key = random.nextInt(10) == 0 ? random.nextInt(5) : random.nextInt(counts.length);
+            counts[key]++;
+            sketch.add(hash("ORDER-" + key), 1);
+        }
+        final var read = roundTrip(sketch, CountMinSketch::writeTo, CountMinSketch::readFrom);
+
+        assertThat(read.total(), is(200_000L));
+        int overBound = 0;
+        for (int key = 0; key < counts.length; key++) {
+            final long estimate = read.estimate(hash("ORDER-" + key));
+            assertThat(estimate, is(greaterThanOrEqualTo((long) counts[key])));
+            if (estimate - counts[key] > read.errorBound())
+                overBound++;
+        }
+        assertThat((double) overBound / counts.length, is(lessThan(1 - read.confidence())));
+    }
+
+    @Test
+    public void findsTheHeavyHittersOfMergedTransactionSketches() {
+        final var first = new TransactionSketch(SIZING);
+        final var second = new TransactionSketch(SIZING);
+        for (int i = 0; i < 50_000; i++) {
+            first.record("ORDER-" + i, "INR", (double) i, true);
+            second.record("OTHER-ORDER-" + i, "USD", (double) i, true);
+            if (i % 100 == 0) {
+                first.record("HOT-ORDER-1", "INR", 1d, false);
+                second.record("HOT-ORDER-1", "INR", 1d, false);
+                second.record("HOT-ORDER-2", "USD", 1d, false);
+            }
+        }
+
+        final var merged = new TransactionSketch(SIZING);
+        merged.merge(TransactionSketch.fromBytes(first.toBytes()));
+        merged.merge(TransactionSketch.fromBytes(second.toBytes()));
+
+        assertThat(merged.writes(), is(101_500L));
+        final var hot = merged.heavyHitters(2);
+        assertThat(hot.get(0).orderId(), is("HOT-ORDER-1"));
+        assertThat(hot.get(0).estimate(), is(both(greaterThanOrEqualTo(1_000L)).and(lessThanOrEqualTo(1_000 + merged.heavyHitterErrorBound()))));
+        assertThat(hot.get(1).orderId(), is("HOT-ORDER-2"));
+        // Updates count as writes of the orderId, but not as amounts.
+        assertThat(merged.amountsCounted().get("INR"), is(50_000L));
+        assertThat(merged.amountQuantile("USD", 0.5), is(closeTo(25_000, 50_000 * merged.amountRankError())));
+        assertThat((double) merged.distinctOrderIds(), is(closeTo(100_002, 100_002 * 3 * merged.distinctOrderIdsError())));
+    }
+
+    @Test
+    public void refusesToMergeSketchesOfOtherSizes() {
+        final var sketch = new TransactionSketch(SIZING);
+
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new TransactionSketch(new TransactionSketch.Sizing(12, 200, 4, 2048, 16))));
+        assertThrows(IllegalArgumentException.class, () -> new KllSketch(200).merge(new KllSketch(100)));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(5, 2048).merge(new CountMinSketch(5, 1024)));
+    }
+
+    private interface Writer<T> {
+        void write(T sketch, DataOutputStream out) throws IOException;
+    }
+
+    private interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private static <T> T roundTrip(T sketch, Writer<T> writer, Reader<T> reader) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            writer.write(sketch, out);
+        }
+        return reader.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static List<Integer> shuffled(int n) {
+        final List<Integer> values = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            values.add(i);
+        Collections.shuffle(values, new Random(50));
+        return values;
+    }
+
+    private static long hash(String key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -0,0 +1,196 @@
+package com.tsys.tc_spike.sketch;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Nodes sketching on a clock of their own, from START, sharing the
+// transaction_sketches table; and the sketches of this instance, as
+// transactions are saved.
+@SpringBootTest(properties = "sketches.enabled=true")
+@Tag("IntegrationTest")
+public class TransactionSketchesSpecs {
+    private static final Instant START = Instant.parse("2021-03-01T00:00:00Z");
+    private static final Duration BUCKET = Duration.ofMinutes(1);
+    private static final TransactionSketch.Sizing SIZING = new TransactionSketch.Sizing(12, 200, 5, 2048, 16);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionSketches transactionSketches;
+
+    private final AtomicLong now = new AtomicLong(START.toEpochMilli());
+
+    @BeforeEach
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM transaction_sketches WHERE bucket_start_millis < ?", START.plus(Duration.ofDays(30)).toEpochMilli());
+    }
+
+    @Test
+    public void mergesTheSketchesOfAllNodes() {
+        final var first = sketches("node-a", Duration.ofDays(7));
+        final var second = sketches("node-b", Duration.ofDays(7));
+        for (int i = 0; i < 20_000; i++) {
+            first.record("A-ORDER-" + i, "INR", (double) i, true);
+            second.record("B-ORDER-" + i, "USD", (double) i, true);
+            if (i % 40 == 0) {
+                first.record("HOT-ORDER", "INR", 1d, false);
+                second.record("HOT-ORDER", "USD", 1d, false);
+            }
+        }
+
+        // Only its own writes, until the other node flushes.
+        assertThat(minute(first, 0).writes(), is(20_500L));
+
+        second.flushAndRefresh();
+        first.flushAndRefresh();
+        final var estimates = minute(first, 0);
+
+        assertThat(estimates.writes(), is(41_000L));
+        final var distinct = estimates.distinctOrderIds();
+        assertThat((double) distinct.estimate(), is(closeTo(40_001, 40_001 * 3 * distinct.standardError())));
+        assertThat(distinct.lower(), is(lessThan(distinct.estimate())));
+        assertThat(distinct.upper(), is(greaterThan(distinct.estimate())));
+
+        assertThat(estimates.amounts().stream().map(SketchEstimates.AmountQuantiles::currency).toList(), contains("INR", "USD"));
+        for (var amounts : estimates.amounts()) {
+            assertThat(amounts.transactions(), is(20_000L));
+            final var median = amounts.quantiles().get(0);
+            assertThat(median.quantile(), is(0.5));
+            assertThat(median.amount(), is(closeTo(10_000, 20_000 * amounts.rankError())));
+            assertThat(median.lower(), is(lessThanOrEqualTo(median.amount())));
+            assertThat(median.upper(), is(greaterThanOrEqualTo(median.amount())));
+        }
+
+        final var hot = estimates.heavyHitters().orderIds().get(0);
+        assertThat(hot.orderId(), is("HOT-ORDER"));
+        assertThat(hot.estimate(), is(greaterThanOrEqualTo(1_000L)));
+        assertThat(hot.lower(), is(lessThanOrEqualTo(1_000L)));
+    }
+
+    @Test
+    public void reloadsTheBucketsOtherNodesRewrite() {
+        final var first = sketches("node-a", Duration.ofDays(7));
+        final var second = sketches("node-b", Duration.ofDays(7));
+        for (int i = 0; i < 10; i++)
+            second.record("B-ORDER-" + i, "USD", 1d, true);
+        second.flushAndRefresh();
+        first.flushAndRefresh();
+        assertThat(minute(first, 0).writes(), is(10L));
+
+        for (int i = 10; i < 15; i++)
+            second.record("B-ORDER-" + i, "USD", 1d, true);
+        second.flushAndRefresh();
+        assertThat(minute(first, 0).writes(), is(10L));
+
+        first.flushAndRefresh();
+        assertThat(minute(first, 0).writes(), is(15L));
+    }
+
+    @Test
+    public void rollsUpTheBucketsOfLongRanges() {
+        final var sketches = sketches("node-a", Duration.ofDays(7));
+        final int minutes = 2_500;
+        for (int minute = 0; minute < minutes; minute++) {
+            now.set(START.plus(BUCKET.multipliedBy(minute)).toEpochMilli());
+            for (int i = 0; i < 4; i++)
+                sketches.record("ORDER-" + minute + "-" + i, "INR", (double) i, true);
+            if (minute % 100 == 99)
+                sketches.flushAndRefresh();
+        }
+        now.addAndGet(BUCKET.toMillis());
+        sketches.flushAndRefresh();
+
+        final var all = sketches.estimate(START, START.plus(BUCKET.multipliedBy(minutes)), List.of(0.5), 1);
+        final var some = sketches.estimate(START.plus(BUCKET.multipliedBy(7)), START.plus(BUCKET.multipliedBy(2_345)), List.of(0.5), 1);
+        final var again = sketches.estimate(START.plus(BUCKET.multipliedBy(7)), START.plus(BUCKET.multipliedBy(2_345)), List.of(0.5), 1);
+
+        assertThat(all.writes(), is(4L * minutes));
+        assertThat((double) all.distinctOrderIds().estimate(), is(closeTo(4 * minutes, 4 * minutes * 3 * all.distinctOrderIds().standardError())));
+        assertThat(some.writes(), is(4L * (2_345 - 7)));
+        assertThat(again.writes(), is(some.writes()));
+        System.out.printf("Estimated %d buckets in %d µs, %d of them in %d µs, and again (rolled up) in %d µs%n",
+                minutes, all.elapsedMicros(), 2_345 - 7, some.elapsedMicros(), again.elapsedMicros());
+    }
+
+    @Test
+    public void writesAfterTheirBucketWasFlushedCountInTheCurrentOne() {
+        final var sketches = sketches("node-a", Duration.ofDays(7));
+        sketches.record("ORDER-1", "INR", 1d, true);
+        now.addAndGet(BUCKET.toMillis());
+        sketches.flushAndRefresh();
+
+        // A writer that read the clock before the flush.
+        now.addAndGet(-BUCKET.toMillis());
+        sketches.record("ORDER-2", "INR", 1d, true);
+
+        assertThat(minute(sketches, 0).writes(), is(1L));
+        assertThat(minute(sketches, 1).writes(), is(1L));
+    }
+
+    @Test
+    public void forgetsTheBucketsOlderThanTheRetention() {
+        final var sketches = sketches("node-a", Duration.ofHours(1));
+        sketches.record("ORDER-1", "INR", 1d, true);
+        sketches.flushAndRefresh();
+        now.addAndGet(Duration.ofHours(2).toMillis());
+
+        assertThat(sketches.purgeExpired(), is(1));
+        sketches.flushAndRefresh();
+        assertThat(minute(sketches, 0).writes(), is(0L));
+    }
+
+    @Test
+    public void sketchesTheTransactionsSaved() {
+        final var orderId = "SKETCHED-ORDER-ID-" + UUID.randomUUID();
+        final var saved = transactionRepository.save(new Transaction(UUID.randomUUID(), Instant.now().truncatedTo(ChronoUnit.MILLIS),
+                "accepted", orderId, new Money(Currency.getInstance("INR"), 123.45)));
+        transactionRepository.save(saved.withStatus("settled"));
+
+        final var estimates = transactionSketches.estimate(Instant.now().minus(Duration.ofMinutes(5)), Instant.now().plusSeconds(1), List.of(0.5), 16);
+
+        assertThat(estimates.heavyHitters().orderIds().stream()
+                .filter(hitter -> hitter.orderId().equals(orderId))
+                .map(SketchEstimates.HeavyHitter::estimate)
+                .toList(), contains(greaterThanOrEqualTo(2L)));
+        assertThat(estimates.amounts().stream().map(SketchEstimates.AmountQuantiles::currency).toList(), hasItem("INR"));
+    }
+
+    @Test
+    public void refusesRangesAndQuantilesOutOfBounds() {
+        final var sketches = sketches("node-a", Duration.ofDays(7));
+
+        assertThrows(IllegalArgumentException.class, () -> sketches.estimate(START, START, List.of(0.5), 1));
+        assertThrows(IllegalArgumentException.class, () -> sketches.estimate(START, START.plus(BUCKET), List.of(1.5), 1));
+        assertThrows(IllegalArgumentException.class, () -> sketches.estimate(START, START.plus(BUCKET), List.of(0.5), 17));
+    }
+
+    private TransactionSketches sketches(String node, Duration retention) {
+        return new TransactionSketches(jdbcTemplate, node, BUCKET, retention, SIZING, 256, 256, now::get);
+    }
+
+    private static SketchEstimates minute(TransactionSketches sketches, int minute) {
+        final var from = START.plus(BUCKET.multipliedBy(minute));
+        return sketches.estimate(from, from.plus(BUCKET), List.of(0.5), 3);
+    }
+}
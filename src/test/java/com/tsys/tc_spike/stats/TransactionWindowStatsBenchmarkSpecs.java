@@ -0,0 +1,86 @@
+package com.tsys.tc_spike.stats;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+// The cost of recording a write, from one thread and from as many threads as
+// there are processors, all writing the same few statuses and currencies.  The
+// best of several rounds, after warming up, is printed, along with the cost
+// of a window query.
+//
+// The number of writes per thread can be changed using -Dbenchmark.rows=...
+@Tag("Benchmark")
+public class TransactionWindowStatsBenchmarkSpecs {
+    private static final int WRITES = Integer.getInteger("benchmark.rows", 5_000_000);
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final List<String> STATUSES = List.of("accepted", "settled", "failed", "refunded");
+    private static final List<String> CURRENCIES = List.of("INR", "USD", "EUR");
+
+    @Test
+    public void recordingAWriteCostsNanoseconds() throws Exception {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final long single = best(1);
+        final long contended = best(threads);
+
+        final var stats = new TransactionWindowStats(Duration.ofSeconds(10), Duration.ofMinutes(15));
+        record(stats, WRITES);
+        long queryNanos = Long.MAX_VALUE;
+        for (int round = 0; round < WARM_UP_ROUNDS + ROUNDS; round++) {
+            final long start = System.nanoTime();
+            final var window = stats.window(Duration.ofMinutes(15));
+            queryNanos = Math.min(queryNanos, System.nanoTime() - start);
+            assertThat(window.totals().stream().mapToLong(TransactionWindowStats.Totals::transactions).sum(), is((long) WRITES));
+        }
+
+        System.out.printf("Recording a write: %.1f ns from 1 thread, %.1f ns per write from %d threads (%.1f ns of wall time per write)%n",
+                (double) single / WRITES, (double) contended / WRITES, threads,
+                (double) contended / ((long) WRITES * threads));
+        System.out.printf("Querying the 15 minute window of %d statuses and currencies: %d µs%n",
+                STATUSES.size() * CURRENCIES.size(), queryNanos / 1_000);
+    }
+
+    // The best wall time of all threads doing WRITES each.
+    private long best(int threads) throws Exception {
+        long best = Long.MAX_VALUE;
+        final var executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < WARM_UP_ROUNDS + ROUNDS; round++) {
+                final var stats = new TransactionWindowStats(Duration.ofSeconds(10), Duration.ofMinutes(15));
+                final var barrier = new CyclicBarrier(threads + 1);
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < threads; i++)
+                    futures.add(executor.submit(() -> {
+                        barrier.await();
+                        record(stats, WRITES);
+                        return null;
+                    }));
+                barrier.await();
+                final long start = System.nanoTime();
+                for (Future<?> future : futures)
+                    future.get();
+                final long elapsed = System.nanoTime() - start;
+                if (round >= WARM_UP_ROUNDS)
+                    best = Math.min(best, elapsed);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return best;
+    }
+
+    private static void record(TransactionWindowStats stats, int writes) {
+        for (int i = 0; i < writes; i++)
+            stats.record(STATUSES.get(i & 3), CURRENCIES.get(i % 3), i);
+    }
+}
@@ -0,0 +1,112 @@
+package com.tsys.tc_spike.stats;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+public class TransactionWindowStatsSpecs {
+    private final AtomicLong now = new AtomicLong(1_615_975_200_000L);
+    private final TransactionWindowStats stats = new TransactionWindowStats(Duration.ofSeconds(10), Duration.ofMinutes(15), now::get);
+
+    @Test
+    public void totalsPerStatusAndCurrency() {
+        stats.record("accepted", "INR", 100);
+        stats.record("accepted", "INR", 50.5);
+        stats.record("accepted", "USD", 10);
+        stats.record("failed", "INR", 1);
+
+        assertThat(stats.window(Duration.ofMinutes(1)).totals(), contains(
+                new TransactionWindowStats.Totals("accepted", "INR", 2, 150.5),
+                new TransactionWindowStats.Totals("accepted", "USD", 1, 10),
+                new TransactionWindowStats.Totals("failed", "INR", 1, 1)));
+    }
+
+    @Test
+    public void writesSlideOutOfTheWindows() {
+        stats.record("accepted", "INR", 1);
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        stats.record("accepted", "INR", 2);
+
+        assertThat(total(Duration.ofMinutes(1)), is(1L));
+        assertThat(total(Duration.ofMinutes(5)), is(2L));
+
+        now.addAndGet(Duration.ofMinutes(14).toMillis());
+        assertThat(total(Duration.ofMinutes(1)), is(0L));
+        assertThat(total(Duration.ofMinutes(15)), is(1L));
+    }
+
+    @Test
+    public void reusesTheBucketsOfTimesGoneBy() {
+        for (int minute = 0; minute < 60; minute++) {
+            stats.record("accepted", "INR", 1);
+            now.addAndGet(Duration.ofMinutes(1).toMillis());
+        }
+        now.addAndGet(-1);
+
+        assertThat(total(Duration.ofMinutes(15)), is(15L));
+        assertThat(total(Duration.ofMinutes(5)), is(5L));
+    }
+
+    @Test
+    public void countsEveryWriteOfManyThreads() throws Exception {
+        final int threads = 8;
+        final int writes = 100_000;
+        final var executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++)
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    for (int j = 0; j < writes; j++) {
+                        stats.record(j % 2 == 0 ? "accepted" : "failed", "INR", 1);
+                        // Crosses buckets while the others write.
+                        if (j % 10_000 == 0)
+                            now.addAndGet(1_000);
+                    }
+                    return null;
+                }));
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        final var totals = stats.window(Duration.ofMinutes(15)).totals();
+        assertThat(totals.stream().mapToLong(TransactionWindowStats.Totals::transactions).sum(), is((long) threads * writes));
+        assertThat(totals.stream().mapToDouble(TransactionWindowStats.Totals::amount).sum(), is((double) threads * writes));
+    }
+
+    @Test
+    public void refusesWindowsLongerThanItKeeps() {
+        assertThrows(IllegalArgumentException.class, () -> stats.window(Duration.ofMinutes(16)));
+        assertThrows(IllegalArgumentException.class, () -> stats.window(Duration.ZERO));
+    }
+
+    @Test
+    public void answersOnlyTheDefaultWindowsItKeeps() {
+        final var fiveMinutes = new TransactionStatsController(new TransactionWindowStats(Duration.ofSeconds(10), Duration.ofMinutes(5), now::get));
+        final var thirtySeconds = new TransactionStatsController(new TransactionWindowStats(Duration.ofSeconds(10), Duration.ofSeconds(30), now::get));
+
+        assertThat(windows(fiveMinutes), contains(Duration.ofMinutes(1), Duration.ofMinutes(5)));
+        assertThat(windows(thirtySeconds), contains(Duration.ofSeconds(30)));
+    }
+
+    private static List<Duration> windows(TransactionStatsController controller) {
+        return controller.stats(null).getBody().stream().map(TransactionWindowStats.Window::window).toList();
+    }
+
+    private long total(Duration window) {
+        return stats.window(window).totals().stream().mapToLong(TransactionWindowStats.Totals::transactions).sum();
+    }
+}
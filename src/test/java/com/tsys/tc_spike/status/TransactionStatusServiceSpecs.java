@@ -0,0 +1,124 @@
+package com.tsys.tc_spike.status;
+
+import com.tsys.tc_spike.domain.Money;
+import com.tsys.tc_spike.domain.Transaction;
+import com.tsys.tc_spike.repository.TransactionRepository;
+import com.tsys.tc_spike.retry.ContentionMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Several threads change the status of the same transaction at once.  Every
+// successful change must bump the version exactly once (no update is lost),
+// and the final status must be one of those written.  The throughput and the
+// contention metrics are printed.
+//
+// The number of threads and updates can be changed using
+// -Dbenchmark.threads=... and -Dbenchmark.updates=...
+@SpringBootTest
+@Tag("IntegrationTest")
+public class TransactionStatusServiceSpecs {
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 8);
+    private static final int UPDATES = Integer.getInteger("benchmark.updates", 50);
+    private static final String UNIT = "TransactionStatusService.changeStatus";
+
+    private final UUID id = UUID.nameUUIDFromBytes("STATUS-TXNID-1".getBytes());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionStatusService transactionStatusService;
+    @Autowired
+    private ContentionMetrics contentionMetrics;
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM transaction_outbox");
+        jdbcTemplate.update("DELETE FROM transactions");
+        transactionRepository.save(new Transaction(id, Instant.parse("2021-03-17T10:15:30Z"), "accepted", "STATUS-ORDER-ID-1",
+                new Money(Currency.getInstance("INR"), 2000.45)));
+    }
+
+    @Test
+    public void changesTheStatusAndBumpsTheVersion() {
+        final var changed = transactionStatusService.changeStatus(id, "settled");
+
+        assertThat(changed.map(t -> t.status).orElse(null), is("settled"));
+        assertThat(transactionRepository.findById(id).map(Transaction::version).orElse(null), is(1L));
+    }
+
+    @Test
+    public void leavesTheVersionAloneWhenTheStatusIsUnchanged() {
+        transactionStatusService.changeStatus(id, "accepted");
+
+        assertThat(transactionRepository.findById(id).map(Transaction::version).orElse(null), is(0L));
+    }
+
+    @Test
+    public void answersEmptyForAnUnknownTransaction() {
+        assertThat(transactionStatusService.changeStatus(UUID.randomUUID(), "settled").isPresent(), is(false));
+    }
+
+    @Test
+    public void concurrentChangesOfTheSameTransactionLoseNoUpdate() throws Exception {
+        final long executionsBefore = contentionMetrics.executions(UNIT);
+        final long exhaustedBefore = contentionMetrics.exhausted(UNIT);
+        final Set<String> written = ConcurrentHashMap.newKeySet();
+        final var failed = new LongAdder();
+        final List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            workers.add(() -> {
+                for (int i = 0; i < UPDATES; i++) {
+                    final var status = "status-" + thread + "-" + i;
+                    try {
+                        transactionStatusService.changeStatus(id, status);
+                        written.add(status);
+                    } catch (OptimisticLockingFailureException e) {
+                        failed.increment();
+                    }
+                }
+                return null;
+            });
+        }
+
+        final var executor = Executors.newFixedThreadPool(THREADS);
+        final long start = System.nanoTime();
+        for (Future<Void> done : executor.invokeAll(workers))
+            done.get();
+        final long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        final var transaction = transactionRepository.findById(id).orElseThrow();
+        assertThat(transaction.version(), is((long) written.size()));
+        assertThat(written, hasItem(transaction.status));
+        assertThat(written.size() + failed.sum(), is((long) THREADS * UPDATES));
+        assertThat(contentionMetrics.executions(UNIT) - executionsBefore, is((long) THREADS * UPDATES));
+        assertThat(failed.sum(), is(contentionMetrics.exhausted(UNIT) - exhaustedBefore));
+
+        System.out.printf("%d threads changed the status of one transaction %d times in %d ms (%.0f changes/sec), %d gave up%n",
+                THREADS, written.size(), elapsedNanos / 1_000_000, written.size() * 1e9 / elapsedNanos, failed.sum());
+        System.out.println("contentionMetrics = " + contentionMetrics);
+    }
+}